@@ -16,29 +16,43 @@
  */
 package jakarta.el;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.WeakHashMap;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
  * Standard ELResolver for working with JavaBeans.
  */
 public class BeanELResolver extends ELResolver {
 
-    private static final int CACHE_SIZE;
-    private static final String CACHE_SIZE_PROP = "org.apache.el.BeanELResolver.CACHE_SIZE";
+    /*
+     * The properties are stored against the Class so they are never confused with those of a class of the same name
+     * from a different class loader and they do not prevent a web application class loader from being garbage
+     * collected after the web application is stopped.
+     */
+    private static final ClassValue<BeanProperties> beanProperties = new ClassValue<>() {
+        @Override
+        protected BeanProperties computeValue(Class<?> type) {
+            return BeanSupport.getInstance().getBeanProperties(type);
+        }
+    };
 
-    static {
-        CACHE_SIZE = Integer.getInteger(CACHE_SIZE_PROP, 1000).intValue();
-    }
+    private static final MethodType READ_TYPE = MethodType.methodType(Object.class, Object.class);
 
-    private final boolean readOnly;
+    /*
+     * Read handle listeners are only looked up when Tomcat's EL implementation is configured to use them so the lookup
+     * does not add to the cost of every property read.
+     */
+    private static final boolean NOTIFY_READ_HANDLE =
+            Boolean.getBoolean("org.apache.el.parser.OPTIMIZE_PROPERTY_ACCESS");
 
-    private final ConcurrentCache<String,BeanProperties> cache = new ConcurrentCache<>(CACHE_SIZE);
+    private final boolean readOnly;
 
     /**
      * Creates a writable instance of the standard JavaBean resolver.
@@ -81,7 +95,21 @@ public class BeanELResolver extends ELResolver {
         }
 
         context.setPropertyResolved(base, property);
-        Method m = this.property(context, base, property).read(context, base);
+        BeanProperty beanProperty = this.property(context, base, property);
+        MethodHandle mh = beanProperty.readHandle(context, base);
+        if (mh != null) {
+            if (NOTIFY_READ_HANDLE) {
+                notifyReadHandle(context, base, mh);
+            }
+            try {
+                return mh.invokeExact(base);
+            } catch (Throwable t) {
+                Util.handleThrowable(t);
+                throw new ELException(
+                        Util.message(context, "propertyReadError", base.getClass().getName(), property.toString()), t);
+            }
+        }
+        Method m = beanProperty.read(context, base);
         try {
             return m.invoke(base, (Object[]) null);
         } catch (InvocationTargetException e) {
@@ -189,10 +217,6 @@ public class BeanELResolver extends ELResolver {
             }
             return property;
         }
-
-        private Class<?> getType() {
-            return type;
-        }
     }
 
     abstract static class BeanProperty {
@@ -204,6 +228,14 @@ public class BeanELResolver extends ELResolver {
 
         private Method write;
 
+        /*
+         * Handle for the read method, adapted to (Object)Object. Created on first use. A handle that cannot be created
+         * is recorded as the read method itself being used via reflection.
+         */
+        private volatile MethodHandle readHandle;
+
+        private volatile boolean readHandleUnavailable;
+
         BeanProperty(Class<?> owner, Class<?> type) {
             this.owner = owner;
             this.type = type;
@@ -239,6 +271,21 @@ public class BeanELResolver extends ELResolver {
             return this.read;
         }
 
+        private MethodHandle readHandle(ELContext ctx, Object base) {
+            MethodHandle result = this.readHandle;
+            if (result == null && !readHandleUnavailable) {
+                Method m = read(ctx, base);
+                try {
+                    result = MethodHandles.publicLookup().unreflect(m).asType(READ_TYPE);
+                    this.readHandle = result;
+                } catch (IllegalAccessException e) {
+                    // Fall back to reflection
+                    readHandleUnavailable = true;
+                }
+            }
+            return result;
+        }
+
         abstract Method getWriteMethod();
 
         abstract Method getReadMethod();
@@ -246,53 +293,21 @@ public class BeanELResolver extends ELResolver {
         abstract String getName();
     }
 
-    private BeanProperty property(ELContext ctx, Object base, Object property) {
-        Class<?> type = base.getClass();
-        String prop = property.toString();
-
-        BeanProperties props = this.cache.get(type.getName());
-        if (props == null || type != props.getType()) {
-            props = BeanSupport.getInstance().getBeanProperties(type);
-            this.cache.put(type.getName(), props);
+    /*
+     * An EL implementation may register a listener in the context under this class to be told which read method
+     * handle was used to resolve a property and the base object it was resolved on, which may not be the base object
+     * of the expression if another resolver delegated to this one. Tomcat's EL implementation uses this to cache the
+     * handle for later evaluations of the same expression.
+     */
+    @SuppressWarnings("unchecked")
+    private static void notifyReadHandle(ELContext context, Object base, MethodHandle mh) {
+        Object listener = context.getContext(BeanELResolver.class);
+        if (listener instanceof BiConsumer) {
+            ((BiConsumer<Object,MethodHandle>) listener).accept(base, mh);
         }
-
-        return props.get(ctx, prop);
     }
 
-    private static final class ConcurrentCache<K, V> {
-
-        private final int size;
-        private final Map<K,V> eden;
-        private final Map<K,V> longterm;
-
-        ConcurrentCache(int size) {
-            this.size = size;
-            this.eden = new ConcurrentHashMap<>(size);
-            this.longterm = new WeakHashMap<>(size);
-        }
-
-        public V get(K key) {
-            V value = this.eden.get(key);
-            if (value == null) {
-                synchronized (longterm) {
-                    value = this.longterm.get(key);
-                }
-                if (value != null) {
-                    this.eden.put(key, value);
-                }
-            }
-            return value;
-        }
-
-        public void put(K key, V value) {
-            if (this.eden.size() >= this.size) {
-                synchronized (longterm) {
-                    this.longterm.putAll(this.eden);
-                }
-                this.eden.clear();
-            }
-            this.eden.put(key, value);
-        }
-
+    private BeanProperty property(ELContext ctx, Object base, Object property) {
+        return beanProperties.get(base.getClass()).get(ctx, property.toString());
     }
 }
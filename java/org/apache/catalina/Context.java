@@ -833,6 +833,52 @@ public interface Context extends Container, ContextBind {
     void setParallelAnnotationScanning(boolean parallelAnnotationScanning);
 
 
+    /**
+     * @return the value of the annotation scan index flag. If true, the
+     * results of scanning JARs for annotations are stored in the work
+     * directory and reused for JARs that have not changed.
+     */
+    boolean getAnnotationScanIndex();
+
+    /**
+     * Set the annotation scan index value.
+     *
+     * @param annotationScanIndex new annotation scan index flag
+     */
+    void setAnnotationScanIndex(boolean annotationScanIndex);
+
+
+    /**
+     * @return the value of the effective web.xml cache flag. If true, the
+     * effective web.xml created by merging the web.xml files, web fragments
+     * and annotations is stored in the work directory and reused while none
+     * of the inputs to the merge change.
+     */
+    boolean getEffectiveWebXmlCache();
+
+    /**
+     * Set the effective web.xml cache value.
+     *
+     * @param effectiveWebXmlCache new effective web.xml cache flag
+     */
+    void setEffectiveWebXmlCache(boolean effectiveWebXmlCache);
+
+
+    /**
+     * @return the value of the parallel initialization flag. If true,
+     * filters and load on startup servlets with the same load on startup
+     * value are initialized in parallel using the utility executor.
+     */
+    boolean getParallelInitialization();
+
+    /**
+     * Set the parallel initialization value.
+     *
+     * @param parallelInitialization new parallel initialization flag
+     */
+    void setParallelInitialization(boolean parallelInitialization);
+
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -18,6 +18,7 @@ package org.apache.catalina;
 
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.security.cert.Certificate;
 import java.util.jar.Manifest;
 
@@ -129,6 +130,18 @@ public interface WebResource {
      */
     byte[] getContent();
 
+    /**
+     * @return the binary content of this resource as a read-only buffer,
+     *         typically a memory mapped view of a file, or {@code null} if it
+     *         is not available in that form. Each call returns a new buffer
+     *         that is owned by the caller. A caller that has finished with a
+     *         direct buffer may release it, e.g. unmap it, rather than wait
+     *         for it to be garbage collected.
+     */
+    default ByteBuffer getContentBuffer() {
+        return null;
+    }
+
     /**
      * @return The time the file was created. If not available, the result of
      * {@link #getLastModified()} will be returned.
@@ -18,13 +18,16 @@ package org.apache.catalina.connector;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.Charset;
+
+import org.apache.tomcat.EncodedWriter;
 
 /**
  * Coyote implementation of the servlet writer.
  *
  * @author Remy Maucherat
  */
-public class CoyoteWriter extends PrintWriter {
+public class CoyoteWriter extends PrintWriter implements EncodedWriter {
 
 
     // -------------------------------------------------------------- Constants
@@ -136,6 +139,23 @@ public class CoyoteWriter extends PrintWriter {
     }
 
 
+    @Override
+    public boolean writeEncoded(byte[] b, int off, int len, Charset charset) {
+
+        if (error) {
+            return true;
+        }
+
+        try {
+            return ob.writeEncoded(b, off, len, charset);
+        } catch (IOException e) {
+            setErrorException(e);
+        }
+        return true;
+
+    }
+
+
     @Override
     public void write(char buf[], int off, int len) {
 
@@ -527,6 +527,47 @@ public class OutputBuffer extends Writer {
     }
 
 
+    /**
+     * Write content that has already been encoded as if the equivalent
+     * characters had been written.
+     *
+     * @param b       The encoded content
+     * @param off     The offset of the content in the array
+     * @param len     The length of the content
+     * @param charset The character set used to encode the content
+     *
+     * @return <code>true</code> if the content was written or
+     *         <code>false</code> if the character set does not match the one
+     *         used for the response, in which case the characters need to be
+     *         written instead
+     *
+     * @throws IOException An underlying IOException occurred
+     */
+    public boolean writeEncoded(byte b[], int off, int len, Charset charset) throws IOException {
+
+        if (suspended) {
+            return true;
+        }
+
+        // A pending surrogate in the converter would be written out of order
+        if (conv == null || conv.isUndeflow() || !conv.getCharset().equals(charset)) {
+            return false;
+        }
+
+        // Maintain the order of the content
+        if (cb.remaining() > 0) {
+            flushCharBuffer();
+            if (conv.isUndeflow()) {
+                return false;
+            }
+        }
+
+        writeBytes(b, off, len);
+        return true;
+
+    }
+
+
     public void checkConverter() throws IOException {
         if (conv != null) {
             return;
@@ -70,6 +70,7 @@ import org.apache.tomcat.util.descriptor.web.ContextService;
 import org.apache.tomcat.util.descriptor.web.ContextTransaction;
 import org.apache.tomcat.util.descriptor.web.MessageDestinationRef;
 import org.apache.tomcat.util.descriptor.web.ResourceBase;
+import org.apache.tomcat.util.jfr.JfrEvents;
 import org.apache.tomcat.util.modeler.Registry;
 import org.apache.tomcat.util.res.StringManager;
 
@@ -196,6 +197,7 @@ public class NamingContextListener implements LifecycleListener, PropertyChangeL
     // ---------------------------------------------- LifecycleListener Methods
 
     @Override
+    @SuppressWarnings("try")
     public void lifecycleEvent(LifecycleEvent event) {
 
         container = event.getLifecycle();
@@ -232,7 +234,7 @@ public class NamingContextListener implements LifecycleListener, PropertyChangeL
                 // Setting the context in read/write mode
                 ContextAccessController.setWritable(getName(), token);
 
-                try {
+                try (JfrEvents.Span span = JfrEvents.phase(container, "naming")) {
                     createNamingContext();
                 } catch (NamingException e) {
                     log.error(sm.getString("naming.namingContextCreationFailed", e));
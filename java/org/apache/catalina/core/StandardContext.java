@@ -38,8 +38,14 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -93,6 +99,7 @@ import org.apache.catalina.Loader;
 import org.apache.catalina.Manager;
 import org.apache.catalina.Pipeline;
 import org.apache.catalina.Realm;
+import org.apache.catalina.Service;
 import org.apache.catalina.ThreadBindingListener;
 import org.apache.catalina.Valve;
 import org.apache.catalina.WebResource;
@@ -129,6 +136,7 @@ import org.apache.tomcat.util.descriptor.web.SecurityCollection;
 import org.apache.tomcat.util.descriptor.web.SecurityConstraint;
 import org.apache.tomcat.util.http.CookieProcessor;
 import org.apache.tomcat.util.http.Rfc6265CookieProcessor;
+import org.apache.tomcat.util.jfr.JfrEvents;
 import org.apache.tomcat.util.scan.StandardJarScanner;
 import org.apache.tomcat.util.threads.ScheduledThreadPoolExecutor;
 
@@ -597,6 +605,7 @@ public class StandardContext extends ContainerBase implements Context, Notificat
     private long startupTime;
     private long startTime;
     private long tldScanTime;
+    private final Map<String,Long> startupPhaseTimes = new LinkedHashMap<>();
 
     /**
      * Name of the engine. If null, the domain is used.
@@ -798,6 +807,12 @@ public class StandardContext extends ContainerBase implements Context, Notificat
 
     private boolean parallelAnnotationScanning = false;
 
+    private boolean annotationScanIndex = false;
+
+    private boolean effectiveWebXmlCache = false;
+
+    private boolean parallelInitialization = false;
+
 
     // ----------------------------------------------------- Context Properties
 
@@ -1389,6 +1404,55 @@ public class StandardContext extends ContainerBase implements Context, Notificat
     }
 
 
+    @Override
+    public void setAnnotationScanIndex(boolean annotationScanIndex) {
+
+        boolean oldAnnotationScanIndex = this.annotationScanIndex;
+        this.annotationScanIndex = annotationScanIndex;
+        support.firePropertyChange("annotationScanIndex", oldAnnotationScanIndex, this.annotationScanIndex);
+
+    }
+
+
+    @Override
+    public boolean getAnnotationScanIndex() {
+        return this.annotationScanIndex;
+    }
+
+
+    @Override
+    public void setEffectiveWebXmlCache(boolean effectiveWebXmlCache) {
+
+        boolean oldEffectiveWebXmlCache = this.effectiveWebXmlCache;
+        this.effectiveWebXmlCache = effectiveWebXmlCache;
+        support.firePropertyChange("effectiveWebXmlCache", oldEffectiveWebXmlCache, this.effectiveWebXmlCache);
+
+    }
+
+
+    @Override
+    public boolean getEffectiveWebXmlCache() {
+        return this.effectiveWebXmlCache;
+    }
+
+
+    @Override
+    public void setParallelInitialization(boolean parallelInitialization) {
+
+        boolean oldParallelInitialization = this.parallelInitialization;
+        this.parallelInitialization = parallelInitialization;
+        support.firePropertyChange("parallelInitialization", oldParallelInitialization,
+                this.parallelInitialization);
+
+    }
+
+
+    @Override
+    public boolean getParallelInitialization() {
+        return this.parallelInitialization;
+    }
+
+
     /**
      * @return the Locale to character set mapper for this Context.
      */
@@ -1633,6 +1697,32 @@ public class StandardContext extends ContainerBase implements Context, Notificat
         this.tldScanTime = tldScanTime;
     }
 
+    /**
+     * @return The time (in milliseconds) spent in each phase of the most recent start of this context in the form
+     *             {@code phase=time}, in the order the phases were executed
+     */
+    public String[] getStartupPhaseTimes() {
+        synchronized (startupPhaseTimes) {
+            String[] result = new String[startupPhaseTimes.size()];
+            int i = 0;
+            for (Entry<String,Long> entry : startupPhaseTimes.entrySet()) {
+                result[i++] = entry.getKey() + "=" + entry.getValue();
+            }
+            return result;
+        }
+    }
+
+    /*
+     * Records the time taken by a startup phase and returns the start time for the next phase.
+     */
+    private long recordStartupPhase(String phase, long phaseStart) {
+        long now = System.nanoTime();
+        synchronized (startupPhaseTimes) {
+            startupPhaseTimes.put(phase, Long.valueOf(TimeUnit.NANOSECONDS.toMillis(now - phaseStart)));
+        }
+        return now;
+    }
+
 
     @Override
     public boolean getDenyUncoveredHttpMethods() {
@@ -3804,6 +3894,11 @@ public class StandardContext extends ContainerBase implements Context, Notificat
         if (getLogger().isTraceEnabled()) {
             getLogger().trace("Starting filters");
         }
+        ExecutorService executor = getParallelInitializationExecutor();
+        if (executor != null) {
+            return filterStartParallel(executor);
+        }
+
         // Instantiate and record a FilterConfig for each defined filter
         boolean ok = true;
         synchronized (filterDefs) {
@@ -3829,6 +3924,118 @@ public class StandardContext extends ContainerBase implements Context, Notificat
     }
 
 
+    private boolean filterStartParallel(ExecutorService executor) {
+        List<Entry<String,FilterDef>> entries;
+        synchronized (filterDefs) {
+            filterConfigs.clear();
+            entries = new ArrayList<>(filterDefs.entrySet());
+        }
+
+        // The filterDefs lock must not be held while the filters are initialized as filters may call methods that
+        // require it from other threads
+        ApplicationFilterConfig[] results = new ApplicationFilterConfig[entries.size()];
+        List<Callable<?>> tasks = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            int index = i;
+            FilterDef filterDef = entries.get(i).getValue();
+            tasks.add(() -> results[index] = new ApplicationFilterConfig(this, filterDef));
+        }
+        Throwable[] failures = runInParallel(executor, tasks);
+
+        boolean ok = true;
+        synchronized (filterDefs) {
+            for (int i = 0; i < entries.size(); i++) {
+                String name = entries.get(i).getKey();
+                if (failures[i] == null) {
+                    filterConfigs.put(name, results[i]);
+                } else {
+                    Throwable t = ExceptionUtils.unwrapInvocationTargetException(failures[i]);
+                    ExceptionUtils.handleThrowable(t);
+                    getLogger().error(sm.getString("standardContext.filterStart", name), t);
+                    ok = false;
+                }
+            }
+        }
+        return ok;
+    }
+
+
+    /*
+     * Returns the executor to use to initialize filters and servlets in parallel or null if they should be
+     * initialized sequentially.
+     */
+    private ExecutorService getParallelInitializationExecutor() {
+        if (!getParallelInitialization()) {
+            return null;
+        }
+        Service service = Container.getService(this);
+        if (service == null || service.getServer() == null) {
+            return null;
+        }
+        return service.getServer().getUtilityExecutor();
+    }
+
+
+    /*
+     * Runs the tasks using the executor and the current thread, with the web application bound to each thread that
+     * runs a task, and waits for all of them to complete. The current thread takes part so that progress is made even
+     * if all the executor's threads are busy, for example when this context is being started by one of them.
+     *
+     * Returns the Throwable, if any, thrown by each task.
+     */
+    private Throwable[] runInParallel(ExecutorService executor, List<Callable<?>> tasks) {
+        int count = tasks.size();
+        Throwable[] failures = new Throwable[count];
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(count);
+
+        for (int i = 1; i < count; i++) {
+            try {
+                executor.execute(() -> runTasks(tasks, next, failures, done, true));
+            } catch (RejectedExecutionException e) {
+                // The current thread will run the remaining tasks
+                break;
+            }
+        }
+        // The current thread is already bound to the web application
+        runTasks(tasks, next, failures, done, false);
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                // The tasks reference state owned by this thread so they have to complete
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return failures;
+    }
+
+
+    private void runTasks(List<Callable<?>> tasks, AtomicInteger next, Throwable[] failures, CountDownLatch done,
+            boolean bind) {
+        int i;
+        while ((i = next.getAndIncrement()) < tasks.size()) {
+            ClassLoader oldCCL = bind ? bindThread() : null;
+            try {
+                tasks.get(i).call();
+            } catch (Throwable t) {
+                failures[i] = t;
+            } finally {
+                if (bind) {
+                    unbindThread(oldCCL);
+                }
+                done.countDown();
+            }
+        }
+    }
+
+
     /**
      * Finalize and release the set of filters for this Context.
      *
@@ -4137,7 +4344,15 @@ public class StandardContext extends ContainerBase implements Context, Notificat
         }
 
         // Load the collected "load on startup" servlets
+        ExecutorService executor = getParallelInitializationExecutor();
         for (ArrayList<Wrapper> list : map.values()) {
+            if (executor != null && list.size() > 1) {
+                // The servlets in a group may be loaded in any order
+                if (!loadInParallel(executor, list)) {
+                    return false;
+                }
+                continue;
+            }
             for (Wrapper wrapper : list) {
                 try {
                     wrapper.load();
@@ -4160,7 +4375,45 @@ public class StandardContext extends ContainerBase implements Context, Notificat
     }
 
 
+    private boolean loadInParallel(ExecutorService executor, List<Wrapper> wrappers) {
+        List<Callable<?>> tasks = new ArrayList<>(wrappers.size());
+        for (Wrapper wrapper : wrappers) {
+            tasks.add(() -> {
+                wrapper.load();
+                return null;
+            });
+        }
+        Throwable[] failures = runInParallel(executor, tasks);
+
+        boolean ok = true;
+        for (int i = 0; i < wrappers.size(); i++) {
+            Throwable t = failures[i];
+            if (t == null) {
+                continue;
+            }
+            if (t instanceof ServletException) {
+                getLogger().error(
+                        sm.getString("standardContext.loadOnStartup.loadException", getName(),
+                                wrappers.get(i).getName()),
+                        StandardWrapper.getRootCause((ServletException) t));
+                // As above, only fatal if failCtxIfServletStartFails="true"
+                if (getComputedFailCtxIfServletStartFails()) {
+                    ok = false;
+                }
+            } else if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            } else {
+                throw new IllegalStateException(t);
+            }
+        }
+        return ok;
+    }
+
+
     @Override
+    @SuppressWarnings("try")
     protected void startInternal() throws LifecycleException {
 
         if (log.isTraceEnabled()) {
@@ -4177,6 +4430,11 @@ public class StandardContext extends ContainerBase implements Context, Notificat
         setConfigured(false);
         boolean ok = true;
 
+        synchronized (startupPhaseTimes) {
+            startupPhaseTimes.clear();
+        }
+        long phaseStart = System.nanoTime();
+
         // Currently this is effectively a NO-OP but needs to be called to
         // ensure the NamingResources follows the correct lifecycle
         if (namingResources != null) {
@@ -4202,6 +4460,7 @@ public class StandardContext extends ContainerBase implements Context, Notificat
         if (ok) {
             resourcesStart();
         }
+        phaseStart = recordStartupPhase("resources", phaseStart);
 
         if (getLoader() == null) {
             WebappLoader webappLoader = new WebappLoader();
@@ -4249,6 +4508,7 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                 if (loader instanceof Lifecycle) {
                     ((Lifecycle) loader).start();
                 }
+                phaseStart = recordStartupPhase("loader", phaseStart);
 
                 // since the loader just started, the webapp classloader is now
                 // created.
@@ -4297,7 +4557,9 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                 }
 
                 // Notify our interested LifecycleListeners
+                phaseStart = System.nanoTime();
                 fireLifecycleEvent(CONFIGURE_START_EVENT, null);
+                phaseStart = recordStartupPhase("configure", phaseStart);
 
                 // Start our child containers, if not already started
                 for (Container child : findChildren()) {
@@ -4305,6 +4567,7 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                         child.start();
                     }
                 }
+                phaseStart = recordStartupPhase("children", phaseStart);
 
                 // Start the Valves in our pipeline (including the basic),
                 // if any
@@ -4377,8 +4640,9 @@ public class StandardContext extends ContainerBase implements Context, Notificat
             mergeParameters();
 
             // Call ServletContainerInitializers
+            phaseStart = System.nanoTime();
             for (Map.Entry<ServletContainerInitializer,Set<Class<?>>> entry : initializers.entrySet()) {
-                try {
+                try (JfrEvents.Span span = JfrEvents.phase(this, entry.getKey().getClass().getName())) {
                     entry.getKey().onStartup(entry.getValue(), getServletContext());
                 } catch (ServletException e) {
                     log.error(sm.getString("standardContext.sciFail"), e);
@@ -4387,6 +4651,8 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                 }
             }
 
+            phaseStart = recordStartupPhase("initializers", phaseStart);
+
             // Configure and call application event listeners
             if (ok) {
                 if (!listenerStart()) {
@@ -4394,6 +4660,7 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                     ok = false;
                 }
             }
+            phaseStart = recordStartupPhase("listeners", phaseStart);
 
             // Check constraints for uncovered HTTP methods
             // Needs to be after SCIs and listeners as they may programmatically
@@ -4412,6 +4679,7 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                 log.error(sm.getString("standardContext.managerFail"), e);
                 ok = false;
             }
+            phaseStart = recordStartupPhase("manager", phaseStart);
 
             // Configure and call application filters
             if (ok) {
@@ -4420,6 +4688,7 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                     ok = false;
                 }
             }
+            phaseStart = recordStartupPhase("filters", phaseStart);
 
             // Load and initialize all "load on startup" servlets
             if (ok) {
@@ -4428,6 +4697,7 @@ public class StandardContext extends ContainerBase implements Context, Notificat
                     ok = false;
                 }
             }
+            recordStartupPhase("loadOnStartup", phaseStart);
 
             // Start ContainerBackgroundProcessor thread
             super.threadStart();
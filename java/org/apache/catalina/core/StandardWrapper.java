@@ -55,6 +55,7 @@ import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.InstanceManager;
 import org.apache.tomcat.PeriodicEventListener;
 import org.apache.tomcat.util.ExceptionUtils;
+import org.apache.tomcat.util.jfr.JfrEvents;
 import org.apache.tomcat.util.log.SystemLogHandler;
 import org.apache.tomcat.util.modeler.Registry;
 import org.apache.tomcat.util.modeler.Util;
@@ -687,11 +688,14 @@ public class StandardWrapper extends ContainerBase implements ServletConfig, Wra
      * classes loaded for web applications.
      */
     @Override
+    @SuppressWarnings("try")
     public synchronized void load() throws ServletException {
-        instance = loadServlet();
+        try (JfrEvents.Span span = JfrEvents.phase(this, "loadServlet")) {
+            instance = loadServlet();
 
-        if (!instanceInitialized) {
-            initServlet(instance);
+            if (!instanceInitialized) {
+                initServlet(instance);
+            }
         }
 
         if (isJspServlet) {
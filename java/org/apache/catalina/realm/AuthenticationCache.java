@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.realm;
+
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tomcat.util.buf.HexUtils;
+import org.apache.tomcat.util.security.ConcurrentMessageDigest;
+
+/**
+ * Bounded cache of the results of username / credentials authentication. Entries are keyed by a salted hash of the
+ * username and credentials so that the credentials are never retained in memory. Successful and failed
+ * authentications are held separately, each in least recently used order, and have separate expiry times. Failed
+ * authentications are limited to a quarter of the maximum size of the cache so that a large number of failed
+ * authentications cannot displace the successful ones.
+ */
+public class AuthenticationCache {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final byte[] salt = new byte[32];
+    private final Map<String,Entry> entries;
+    private final Map<String,Entry> negativeEntries;
+    private final long timeout;
+    private final long negativeTimeout;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder lookupCount = new LongAdder();
+
+
+    /**
+     * Create a new cache.
+     *
+     * @param maxSize         The maximum number of entries in the cache
+     * @param timeout         The time, in milliseconds, for which a successful authentication is cached
+     * @param negativeTimeout The time, in milliseconds, for which a failed authentication is cached. Failed
+     *                            authentications are not cached if this is zero or less.
+     *
+     * @throws NoSuchAlgorithmException if the digest used to hash the keys is not available
+     */
+    public AuthenticationCache(int maxSize, long timeout, long negativeTimeout) throws NoSuchAlgorithmException {
+        ConcurrentMessageDigest.init(DIGEST_ALGORITHM);
+        new SecureRandom().nextBytes(salt);
+        this.entries = createMap(maxSize);
+        this.negativeEntries = createMap(Math.max(1, maxSize / 4));
+        this.timeout = timeout;
+        this.negativeTimeout = negativeTimeout;
+    }
+
+
+    /**
+     * Look up a previous authentication result.
+     *
+     * @param username    The user name
+     * @param credentials The credentials
+     *
+     * @return the cached result or <code>null</code> if there is no valid cached result
+     */
+    public Entry get(String username, String credentials) {
+        lookupCount.increment();
+        String key = getKey(username, credentials);
+        Entry entry = get(entries, key);
+        if (entry == null) {
+            entry = get(negativeEntries, key);
+        }
+        if (entry != null) {
+            hitCount.increment();
+        }
+        return entry;
+    }
+
+
+    /**
+     * Cache an authentication result.
+     *
+     * @param username    The user name
+     * @param credentials The credentials
+     * @param principal   The authenticated principal or <code>null</code> if authentication failed
+     */
+    public void put(String username, String credentials, Principal principal) {
+        long now = System.currentTimeMillis();
+        String key = getKey(username, credentials);
+        if (principal == null) {
+            entries.remove(key);
+            if (negativeTimeout > 0) {
+                negativeEntries.put(key, new Entry(username, null, now + negativeTimeout));
+            }
+        } else {
+            negativeEntries.remove(key);
+            entries.put(key, new Entry(username, principal, now + timeout));
+        }
+    }
+
+
+    /**
+     * Remove all cached results, successful or not, for the given user.
+     *
+     * @param username The user name
+     */
+    public void remove(String username) {
+        synchronized (entries) {
+            entries.values().removeIf(entry -> entry.username.equals(username));
+        }
+        synchronized (negativeEntries) {
+            negativeEntries.values().removeIf(entry -> entry.username.equals(username));
+        }
+    }
+
+
+    /**
+     * Remove all cached results.
+     */
+    public void clear() {
+        entries.clear();
+        negativeEntries.clear();
+    }
+
+
+    public int getSize() {
+        return entries.size() + negativeEntries.size();
+    }
+
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+
+    public long getLookupCount() {
+        return lookupCount.sum();
+    }
+
+
+    private static Entry get(Map<String,Entry> map, String key) {
+        Entry entry = map.get(key);
+        if (entry != null && entry.isExpired(System.currentTimeMillis())) {
+            map.remove(key, entry);
+            return null;
+        }
+        return entry;
+    }
+
+
+    /*
+     * Access ordered so that, once full, the least recently used entry is removed when a new entry is added.
+     */
+    private static Map<String,Entry> createMap(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,Entry> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+
+    private String getKey(String username, String credentials) {
+        byte[] usernameBytes = username.getBytes(StandardCharsets.UTF_8);
+        // Include the length of the user name so the boundary with the credentials is not ambiguous
+        int length = usernameBytes.length;
+        byte[] lengthBytes = new byte[] { (byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8),
+                (byte) length };
+        return HexUtils.toHexString(ConcurrentMessageDigest.digest(DIGEST_ALGORITHM, salt, lengthBytes, usernameBytes,
+                credentials.getBytes(StandardCharsets.UTF_8)));
+    }
+
+
+    public static final class Entry {
+
+        private final String username;
+        private final Principal principal;
+        private final long expiry;
+
+        private Entry(String username, Principal principal, long expiry) {
+            this.username = username;
+            this.principal = principal;
+            this.expiry = expiry;
+        }
+
+        /**
+         * @return the authenticated principal or <code>null</code> if the authentication failed
+         */
+        public Principal getPrincipal() {
+            return principal;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expiry;
+        }
+    }
+}
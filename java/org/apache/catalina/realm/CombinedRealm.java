@@ -385,6 +385,38 @@ public class CombinedRealm extends RealmBase {
     }
 
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cached results of the nested realms are also removed.
+     */
+    @Override
+    public void invalidateAuthenticationCache(String username) {
+        super.invalidateAuthenticationCache(username);
+        for (Realm realm : realms) {
+            if (realm instanceof RealmBase) {
+                ((RealmBase) realm).invalidateAuthenticationCache(username);
+            }
+        }
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The cached results of the nested realms are also removed.
+     */
+    @Override
+    public void clearAuthenticationCache() {
+        super.clearAuthenticationCache();
+        for (Realm realm : realms) {
+            if (realm instanceof RealmBase) {
+                ((RealmBase) realm).clearAuthenticationCache();
+            }
+        }
+    }
+
+
     @Override
     public void setCredentialHandler(CredentialHandler credentialHandler) {
         // This is unusual for a CombinedRealm as it does not use
@@ -240,6 +240,11 @@ public class DataSourceRealm extends RealmBase {
             return null;
         }
 
+        AuthenticationCache.Entry cached = getCachedAuthentication(username, credentials);
+        if (cached != null) {
+            return cached.getPrincipal();
+        }
+
         Connection dbConnection = null;
 
         // Ensure that we have an open database connection
@@ -251,7 +256,7 @@ public class DataSourceRealm extends RealmBase {
 
         try {
             // Acquire a Principal object for this user
-            return authenticate(dbConnection, username, credentials);
+            return cacheAuthentication(username, credentials, authenticate(dbConnection, username, credentials));
         } finally {
             close(dbConnection);
         }
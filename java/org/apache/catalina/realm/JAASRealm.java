@@ -310,7 +310,12 @@ public class JAASRealm extends RealmBase {
 
     @Override
     public Principal authenticate(String username, String credentials) {
-        return authenticate(username, new JAASCallbackHandler(this, username, credentials));
+        AuthenticationCache.Entry cached = getCachedAuthentication(username, credentials);
+        if (cached != null) {
+            return cached.getPrincipal();
+        }
+        return cacheAuthentication(username, credentials,
+                authenticate(username, new JAASCallbackHandler(this, username, credentials)));
     }
 
 
@@ -29,10 +29,17 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -63,7 +70,10 @@ import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSocketFactory;
 
+import org.apache.catalina.Container;
 import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Server;
+import org.apache.catalina.Service;
 import org.apache.tomcat.util.buf.StringUtils;
 import org.apache.tomcat.util.collections.SynchronizedStack;
 import org.ietf.jgss.GSSContext;
@@ -394,15 +404,62 @@ public class JNDIRealm extends RealmBase {
     protected final Lock singleConnectionLock = new ReentrantLock();
 
     /**
-     * Connection pool.
+     * Connection pool. This is non-null when pooling is used. Pooled connections are held in a lock-free deque but any
+     * connection added to this stack will also be used.
      */
     protected SynchronizedStack<JNDIConnection> connectionPool = null;
 
+    /**
+     * The pooled connections. Connections are added and removed at the head so that the most recently used connections
+     * are reused first.
+     */
+    private final ConcurrentLinkedDeque<JNDIConnection> pooledConnections = new ConcurrentLinkedDeque<>();
+
+    /**
+     * The number of connections currently held in the pool.
+     */
+    private final AtomicInteger connectionPoolCount = new AtomicInteger();
+
     /**
      * The pool size limit. If 1, pooling is not used.
      */
     protected int connectionPoolSize = 1;
 
+    /**
+     * The maximum time, in milliseconds, a connection may remain unused before it is closed and reopened instead of
+     * being reused. This avoids failed requests on connections that the directory server or a firewall has already
+     * dropped. If zero or less, connections are reused regardless of how long they have been unused.
+     */
+    protected long connectionMaxIdleTime = -1;
+
+    /**
+     * Should the searches for each nested group found in a given round of the nested group search be performed in
+     * parallel, using pooled connections? This has no effect unless a connection pool is configured.
+     */
+    protected boolean roleNestedParallel = false;
+
+    /**
+     * The time, in seconds, for which the groups a given group is a member of are cached by the nested group search.
+     * The cache is not used when roles are searched as the user. If zero or less, no caching is performed.
+     */
+    protected int roleNestedCacheTimeout = 0;
+
+    /**
+     * The maximum number of groups for which the nested group search results are cached.
+     */
+    protected int roleNestedCacheSize = 1000;
+
+    /**
+     * The cached nested group search results, keyed by search base and group distinguished name. As every entry has
+     * the same timeout, insertion order is also expiry order so the eldest entries are evicted first.
+     */
+    private final Map<NestedRolesKey,NestedRoles> roleNestedCache = new LinkedHashMap<>();
+
+    /**
+     * Guards access to the nested group search results cache.
+     */
+    private final Lock roleNestedCacheLock = new ReentrantLock();
+
     /**
      * Whether to use context ClassLoader or default ClassLoader. True means use context ClassLoader, and True is the
      * default value.
@@ -770,6 +827,74 @@ public class JNDIRealm extends RealmBase {
     }
 
 
+    /**
+     * @return <code>true</code> if the searches of a nested group search round are performed in parallel
+     */
+    public boolean getRoleNestedParallel() {
+        return roleNestedParallel;
+    }
+
+
+    /**
+     * Configure whether the searches of a nested group search round are performed in parallel on the utility executor
+     * using pooled connections.
+     *
+     * @param roleNestedParallel The new value
+     */
+    public void setRoleNestedParallel(boolean roleNestedParallel) {
+        this.roleNestedParallel = roleNestedParallel;
+    }
+
+
+    /**
+     * @return the time in seconds for which nested group search results are cached
+     */
+    public int getRoleNestedCacheTimeout() {
+        return roleNestedCacheTimeout;
+    }
+
+
+    /**
+     * Set the time for which the groups a given group is a member of are cached by the nested group search.
+     *
+     * @param roleNestedCacheTimeout The time in seconds, zero or less to disable the cache
+     */
+    public void setRoleNestedCacheTimeout(int roleNestedCacheTimeout) {
+        this.roleNestedCacheTimeout = roleNestedCacheTimeout;
+    }
+
+
+    /**
+     * @return the maximum number of groups for which nested group search results are cached
+     */
+    public int getRoleNestedCacheSize() {
+        return roleNestedCacheSize;
+    }
+
+
+    /**
+     * Set the maximum number of groups for which nested group search results are cached.
+     *
+     * @param roleNestedCacheSize The maximum number of cached groups
+     */
+    public void setRoleNestedCacheSize(int roleNestedCacheSize) {
+        this.roleNestedCacheSize = roleNestedCacheSize;
+    }
+
+
+    /**
+     * Remove all cached nested group search results.
+     */
+    public void clearRoleNestedCache() {
+        roleNestedCacheLock.lock();
+        try {
+            roleNestedCache.clear();
+        } finally {
+            roleNestedCacheLock.unlock();
+        }
+    }
+
+
     /**
      * @return the password attribute used to retrieve the user password.
      */
@@ -1006,6 +1131,24 @@ public class JNDIRealm extends RealmBase {
     }
 
 
+    /**
+     * @return the maximum time in milliseconds a connection may be unused before it is reopened
+     */
+    public long getConnectionMaxIdleTime() {
+        return connectionMaxIdleTime;
+    }
+
+
+    /**
+     * Set the maximum time a connection may remain unused before it is closed and reopened instead of being reused.
+     *
+     * @param connectionMaxIdleTime The time in milliseconds, zero or less to disable the check
+     */
+    public void setConnectionMaxIdleTime(long connectionMaxIdleTime) {
+        this.connectionMaxIdleTime = connectionMaxIdleTime;
+    }
+
+
     /**
      * @return name of the {@link HostnameVerifier} class used for connections using StartTLS, or the empty string, if
      *             the default verifier should be used.
@@ -1138,6 +1281,11 @@ public class JNDIRealm extends RealmBase {
         JNDIConnection connection = null;
         Principal principal = null;
 
+        AuthenticationCache.Entry cached = getCachedAuthentication(username, credentials);
+        if (cached != null) {
+            return cached.getPrincipal();
+        }
+
         try {
             // https://bz.apache.org/bugzilla/show_bug.cgi?id=65553
             // This can move back to open() once it is known that Tomcat must be
@@ -1191,7 +1339,7 @@ public class JNDIRealm extends RealmBase {
             release(connection);
 
             // Return the authenticated Principal (if any)
-            return principal;
+            return cacheAuthentication(username, credentials, principal);
 
         } catch (Exception e) {
 
@@ -2027,49 +2175,24 @@ public class JNDIRealm extends RealmBase {
             // Directory Groups". It avoids group slurping and handles cyclic group memberships as well.
             // See http://middleware.internet2.edu/dir/ for details
 
+            boolean useCache = roleNestedCacheTimeout > 0 && !isRoleSearchAsUser();
             Map<String,String> newGroups = new HashMap<>(groupMap);
             while (!newGroups.isEmpty()) {
                 Map<String,String> newThisRound = new HashMap<>(); // Stores the groups we find in this iteration
 
-                for (Entry<String,String> group : newGroups.entrySet()) {
-                    // Group key is already value escaped if required
-                    // Group value is not value escaped
-                    // Everything needs to be filter escaped
-                    filter = connection.roleFormat.format(new String[] { doFilterEscaping(group.getKey()),
-                            doFilterEscaping(doAttributeValueEscaping(group.getValue())),
-                            doFilterEscaping(doAttributeValueEscaping(group.getValue())) });
-
-                    if (containerLog.isTraceEnabled()) {
-                        containerLog
-                                .trace("Perform a nested group search with base " + roleBase + " and filter " + filter);
-                    }
-
-                    results = searchAsUser(connection.context, user, base, filter, controls, isRoleSearchAsUser());
-
-                    try {
-                        while (results.hasMore()) {
-                            SearchResult result = results.next();
-                            Attributes attrs = result.getAttributes();
-                            if (attrs == null) {
-                                continue;
+                for (Map<String,String> nestedGroups : getNestedRoles(connection, user, base, controls, newGroups,
+                        useCache)) {
+                    for (Entry<String,String> nestedGroup : nestedGroups.entrySet()) {
+                        String dname = nestedGroup.getKey();
+                        String name = nestedGroup.getValue();
+                        if (!groupMap.containsKey(dname)) {
+                            groupMap.put(dname, name);
+                            newThisRound.put(dname, name);
+
+                            if (containerLog.isTraceEnabled()) {
+                                containerLog.trace("  Found nested role " + dname + " -> " + name);
                             }
-                            String dname = getDistinguishedName(connection.context, roleBase, result);
-                            String name = getAttributeValue(roleName, attrs);
-                            if (name != null && dname != null && !groupMap.keySet().contains(dname)) {
-                                groupMap.put(dname, name);
-                                newThisRound.put(dname, name);
-
-                                if (containerLog.isTraceEnabled()) {
-                                    containerLog.trace("  Found nested role " + dname + " -> " + name);
-                                }
-                            }
-                        }
-                    } catch (PartialResultException ex) {
-                        if (!adCompat) {
-                            throw ex;
                         }
-                    } finally {
-                        results.close();
                     }
                 }
 
@@ -2082,6 +2205,210 @@ public class JNDIRealm extends RealmBase {
     }
 
 
+    /**
+     * Find the groups each of the given groups is a direct member of. The searches are performed in parallel if
+     * configured and possible, otherwise they are performed in turn using the provided connection.
+     *
+     * @param connection The directory context
+     * @param user       User whose roles are being searched
+     * @param base       The base for the searches
+     * @param controls   The controls for the searches
+     * @param groups     The groups to search for, mapping distinguished name to role name
+     * @param useCache   Should cached results be used
+     *
+     * @return the groups found for each of the given groups, mapping distinguished name to role name
+     *
+     * @exception NamingException if a directory server error occurs
+     */
+    private List<Map<String,String>> getNestedRoles(JNDIConnection connection, User user, String base,
+            SearchControls controls, Map<String,String> groups, boolean useCache) throws NamingException {
+
+        List<Map<String,String>> result = new ArrayList<>(groups.size());
+        List<Entry<String,String>> toSearch = new ArrayList<>(groups.size());
+        long now = System.currentTimeMillis();
+        if (useCache) {
+            roleNestedCacheLock.lock();
+            try {
+                for (Entry<String,String> group : groups.entrySet()) {
+                    NestedRoles cached = roleNestedCache.get(new NestedRolesKey(base, group.getKey()));
+                    if (cached != null && cached.expiry > now) {
+                        result.add(cached.roles);
+                    } else {
+                        toSearch.add(group);
+                    }
+                }
+            } finally {
+                roleNestedCacheLock.unlock();
+            }
+        } else {
+            toSearch.addAll(groups.entrySet());
+        }
+
+        ExecutorService executor = null;
+        if (roleNestedParallel && connectionPool != null && toSearch.size() > 1) {
+            executor = getUtilityExecutor();
+        }
+
+        if (executor == null) {
+            for (Entry<String,String> group : toSearch) {
+                result.add(cacheNestedRoles(useCache,
+                        getNestedRoles(connection, user, base, controls, group.getKey(), group.getValue()), base,
+                        group));
+            }
+            return result;
+        }
+
+        // The first search uses the current connection, the other ones use pooled connections
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        List<Future<Map<String,String>>> futures = new ArrayList<>(toSearch.size() - 1);
+        for (Entry<String,String> group : toSearch.subList(1, toSearch.size())) {
+            futures.add(executor.submit(() -> {
+                Thread currentThread = Thread.currentThread();
+                ClassLoader ocl = currentThread.getContextClassLoader();
+                currentThread.setContextClassLoader(classLoader);
+                JNDIConnection pooledConnection = null;
+                boolean success = false;
+                try {
+                    pooledConnection = get();
+                    Map<String,String> roles = getNestedRoles(pooledConnection, user, base, controls, group.getKey(),
+                            group.getValue());
+                    success = true;
+                    return roles;
+                } finally {
+                    if (success) {
+                        release(pooledConnection);
+                    } else if (pooledConnection != null) {
+                        // The connection may be in an unknown state
+                        close(pooledConnection);
+                    }
+                    currentThread.setContextClassLoader(ocl);
+                }
+            }));
+        }
+        Entry<String,String> first = toSearch.get(0);
+        result.add(cacheNestedRoles(useCache,
+                getNestedRoles(connection, user, base, controls, first.getKey(), first.getValue()), base, first));
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                result.add(cacheNestedRoles(useCache, futures.get(i).get(), base, toSearch.get(i + 1)));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof NamingException) {
+                    throw (NamingException) e.getCause();
+                }
+                NamingException ne = new NamingException(sm.getString("jndiRealm.nestedSearchFailed"));
+                ne.setRootCause(e.getCause());
+                throw ne;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                NamingException ne = new NamingException(sm.getString("jndiRealm.nestedSearchFailed"));
+                ne.setRootCause(e);
+                throw ne;
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Find the groups the given group is a direct member of.
+     *
+     * @param connection The directory context
+     * @param user       User whose roles are being searched
+     * @param base       The base for the search
+     * @param controls   The controls for the search
+     * @param groupDn    The distinguished name of the group, already value escaped if required
+     * @param groupName  The role name of the group, not value escaped
+     *
+     * @return the groups found, mapping distinguished name to role name
+     *
+     * @exception NamingException if a directory server error occurs
+     */
+    private Map<String,String> getNestedRoles(JNDIConnection connection, User user, String base,
+            SearchControls controls, String groupDn, String groupName) throws NamingException {
+        // Everything needs to be filter escaped
+        String filter = connection.roleFormat.format(new String[] { doFilterEscaping(groupDn),
+                doFilterEscaping(doAttributeValueEscaping(groupName)),
+                doFilterEscaping(doAttributeValueEscaping(groupName)) });
+
+        if (containerLog.isTraceEnabled()) {
+            containerLog.trace("Perform a nested group search with base " + roleBase + " and filter " + filter);
+        }
+
+        Map<String,String> roles = new HashMap<>();
+        NamingEnumeration<SearchResult> results =
+                searchAsUser(connection.context, user, base, filter, controls, isRoleSearchAsUser());
+
+        try {
+            while (results.hasMore()) {
+                SearchResult result = results.next();
+                Attributes attrs = result.getAttributes();
+                if (attrs == null) {
+                    continue;
+                }
+                String dname = getDistinguishedName(connection.context, roleBase, result);
+                String name = getAttributeValue(roleName, attrs);
+                if (name != null && dname != null) {
+                    roles.put(dname, name);
+                }
+            }
+        } catch (PartialResultException ex) {
+            if (!adCompat) {
+                throw ex;
+            }
+        } finally {
+            results.close();
+        }
+        return roles;
+    }
+
+
+    private Map<String,String> cacheNestedRoles(boolean useCache, Map<String,String> roles, String base,
+            Entry<String,String> group) {
+        if (useCache) {
+            long now = System.currentTimeMillis();
+            NestedRolesKey key = new NestedRolesKey(base, group.getKey());
+            NestedRoles value =
+                    new NestedRoles(Collections.unmodifiableMap(roles), now + roleNestedCacheTimeout * 1000L);
+            roleNestedCacheLock.lock();
+            try {
+                // Remove any previous entry so the new one is placed at the end of the expiry order
+                roleNestedCache.remove(key);
+                Iterator<NestedRoles> iter = roleNestedCache.values().iterator();
+                while (iter.hasNext()) {
+                    NestedRoles eldest = iter.next();
+                    if (eldest.expiry > now && roleNestedCache.size() < roleNestedCacheSize) {
+                        break;
+                    }
+                    iter.remove();
+                }
+                if (roleNestedCacheSize > 0) {
+                    roleNestedCache.put(key, value);
+                }
+            } finally {
+                roleNestedCacheLock.unlock();
+            }
+        }
+        return roles;
+    }
+
+
+    ExecutorService getUtilityExecutor() {
+        Container container = getContainer();
+        if (container == null) {
+            return null;
+        }
+        Service service = Container.getService(container);
+        if (service == null) {
+            return null;
+        }
+        Server server = service.getServer();
+        if (server == null) {
+            return null;
+        }
+        return server.getUtilityExecutor();
+    }
+
+
     /**
      * Perform the search on the context as the {@code dn}, when {@code searchAsUser} is {@code true}, otherwise search
      * the context with the default credentials.
@@ -2244,11 +2571,9 @@ public class JNDIRealm extends RealmBase {
     protected void closePooledConnections() {
         if (connectionPool != null) {
             // Close any pooled connections as they might be bad as well
-            synchronized (connectionPool) {
-                JNDIConnection connection = null;
-                while ((connection = connectionPool.pop()) != null) {
-                    close(connection);
-                }
+            JNDIConnection connection = null;
+            while ((connection = popConnection()) != null) {
+                close(connection);
             }
         }
     }
@@ -2454,7 +2779,7 @@ public class JNDIRealm extends RealmBase {
         JNDIConnection connection = null;
         // Use the pool if available, otherwise use the single connection
         if (connectionPool != null) {
-            connection = connectionPool.pop();
+            connection = popConnection();
             if (connection == null) {
                 connection = create();
             }
@@ -2465,6 +2790,17 @@ public class JNDIRealm extends RealmBase {
             }
             connection = singleConnection;
         }
+        if (connection.context != null && connectionMaxIdleTime > 0 &&
+                System.currentTimeMillis() - connection.lastUsed > connectionMaxIdleTime) {
+            if (containerLog.isTraceEnabled()) {
+                containerLog.trace("Reopening idle directory context");
+            }
+            close(connection);
+            if (connectionPool == null) {
+                // Closing released the lock
+                singleConnectionLock.lock();
+            }
+        }
         if (connection.context == null) {
             open(connection);
         }
@@ -2478,9 +2814,12 @@ public class JNDIRealm extends RealmBase {
      * @param connection The directory context to release
      */
     protected void release(JNDIConnection connection) {
+        if (connection != null) {
+            connection.lastUsed = System.currentTimeMillis();
+        }
         if (connectionPool != null) {
             if (connection != null) {
-                if (!connectionPool.push(connection)) {
+                if (!pushConnection(connection)) {
                     // Any connection that doesn't end back to the pool must be closed
                     close(connection);
                 }
@@ -2491,6 +2830,34 @@ public class JNDIRealm extends RealmBase {
     }
 
 
+    private JNDIConnection popConnection() {
+        SynchronizedStack<JNDIConnection> connectionPool = this.connectionPool;
+        if (connectionPool == null) {
+            return null;
+        }
+        JNDIConnection connection = pooledConnections.pollFirst();
+        if (connection != null) {
+            connectionPoolCount.decrementAndGet();
+            return connection;
+        }
+        // Connections may have been added directly by a sub-class
+        return connectionPool.pop();
+    }
+
+
+    private boolean pushConnection(JNDIConnection connection) {
+        if (connectionPool == null) {
+            return false;
+        }
+        if (connectionPoolCount.incrementAndGet() > connectionPoolSize && connectionPoolSize > -1) {
+            connectionPoolCount.decrementAndGet();
+            return false;
+        }
+        pooledConnections.offerFirst(connection);
+        return true;
+    }
+
+
     /**
      * Create a new connection wrapper, along with the message formats.
      *
@@ -2753,6 +3120,7 @@ public class JNDIRealm extends RealmBase {
             closePooledConnections();
             connectionPool = null;
         }
+        clearRoleNestedCache();
     }
 
 
@@ -3127,6 +3495,11 @@ public class JNDIRealm extends RealmBase {
          */
         public volatile DirContext context = null;
 
+        /**
+         * The time at which this connection was last released.
+         */
+        public volatile long lastUsed = System.currentTimeMillis();
+
 
         public JNDIConnection(String userSearch, String[] userPatternArray, String roleBase, String roleSearch) {
             if (userSearch == null) {
@@ -3158,4 +3531,45 @@ public class JNDIRealm extends RealmBase {
             }
         }
     }
+
+
+    private static final class NestedRolesKey {
+
+        private final String base;
+        private final String groupDn;
+
+        private NestedRolesKey(String base, String groupDn) {
+            this.base = base;
+            this.groupDn = groupDn;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * base.hashCode() + groupDn.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof NestedRolesKey)) {
+                return false;
+            }
+            NestedRolesKey other = (NestedRolesKey) obj;
+            return base.equals(other.base) && groupDn.equals(other.groupDn);
+        }
+    }
+
+
+    private static final class NestedRoles {
+
+        private final Map<String,String> roles;
+        private final long expiry;
+
+        private NestedRoles(Map<String,String> roles, long expiry) {
+            this.roles = roles;
+            this.expiry = expiry;
+        }
+    }
 }
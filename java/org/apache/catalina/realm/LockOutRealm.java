@@ -18,8 +18,12 @@ package org.apache.catalina.realm;
 
 import java.security.Principal;
 import java.security.cert.X509Certificate;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.catalina.LifecycleException;
@@ -32,8 +36,9 @@ import org.ietf.jgss.GSSName;
 
 /**
  * This class extends the CombinedRealm (hence it can wrap other Realms) to provide a user lock out mechanism if there
- * are too many failed authentication attempts in a given period of time. To ensure correct operation, there is a
- * reasonable degree of synchronisation in this Realm. This Realm does not require modification to the underlying Realms
+ * are too many failed authentication attempts in a given period of time. The failed attempts are tracked in a
+ * concurrent map so that authentication of users without failed attempts does not require any locking. This Realm does
+ * not require modification to the underlying Realms
  * or the associated user storage mechanisms. It achieves this by recording all failed logins, including those for users
  * that do not exist. To prevent a DOS by deliberating making requests with invalid users (and hence causing this cache
  * to grow) the size of the list of users that have failed authentication is limited.
@@ -42,6 +47,16 @@ public class LockOutRealm extends CombinedRealm {
 
     private static final Log log = LogFactory.getLog(LockOutRealm.class);
 
+    /**
+     * The number of users examined to select the user to remove when the cache is full.
+     */
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    /**
+     * The number of random parts of the cache examined before falling back to the start of the cache.
+     */
+    private static final int EVICTION_SAMPLE_ATTEMPTS = 4;
+
     /**
      * The number of times in a row a user has to fail authentication to be locked out. Defaults to 5.
      */
@@ -66,37 +81,17 @@ public class LockOutRealm extends CombinedRealm {
     protected int cacheRemovalWarningTime = 3600;
 
     /**
-     * Users whose last authentication attempt failed. Entries will be ordered in access order from least recent to most
-     * recent.
+     * Users whose last authentication attempt failed. Records are only created and updated inside the atomic map
+     * operations so every record in the map has at least one recorded failure. Once the map exceeds the specified
+     * size, the user whose last failure is the oldest of a random sample of users is removed so if the cache size is
+     * exceeded the users who most recently failed authentication are likely to be retained.
      */
     protected Map<String,LockRecord> failedUsers = null;
 
 
     @Override
     protected void startInternal() throws LifecycleException {
-        /*
-         * Configure the list of failed users to delete the oldest entry once it exceeds the specified size. This is an
-         * LRU cache so if the cache size is exceeded the users who most recently failed authentication will be
-         * retained.
-         */
-        failedUsers = new LinkedHashMap<>(cacheSize, 0.75f, true) {
-            private static final long serialVersionUID = 1L;
-
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String,LockRecord> eldest) {
-                if (size() > cacheSize) {
-                    // Check to see if this element has been removed too quickly
-                    long timeInCache = (System.currentTimeMillis() - eldest.getValue().getLastFailureTime()) / 1000;
-
-                    if (timeInCache < cacheRemovalWarningTime) {
-                        log.warn(
-                                sm.getString("lockOutRealm.removeWarning", eldest.getKey(), Long.valueOf(timeInCache)));
-                    }
-                    return true;
-                }
-                return false;
-            }
-        };
+        failedUsers = new ConcurrentHashMap<>();
 
         super.startInternal();
     }
@@ -190,13 +185,14 @@ public class LockOutRealm extends CombinedRealm {
 
 
     /**
-     * Unlock the specified username. This will remove all records of authentication failures for this user.
+     * Unlock the specified username. This will remove all records of authentication failures for this user, including
+     * any failed authentications cached by the nested realms.
      *
      * @param username The user to unlock
      */
     public void unlock(String username) {
-        // Auth success clears the lock record so...
-        registerAuthSuccess(username);
+        failedUsers.remove(username);
+        invalidateAuthenticationCache(username);
     }
 
 
@@ -205,16 +201,18 @@ public class LockOutRealm extends CombinedRealm {
      * time will be recorded and any attempt to authenticated a locked user will log a warning.
      */
     public boolean isLocked(String username) {
-        LockRecord lockRecord = null;
-        synchronized (this) {
-            lockRecord = failedUsers.get(username);
-        }
+        LockRecord lockRecord = failedUsers.get(username);
 
         // No lock record means user can't be locked
         if (lockRecord == null) {
             return false;
         }
 
+        return isLocked(lockRecord);
+    }
+
+
+    private boolean isLocked(LockRecord lockRecord) {
         // Check to see if user is locked
         if (lockRecord.getFailures() >= failureCount &&
                 (System.currentTimeMillis() - lockRecord.getLastFailureTime()) / 1000 < lockOutTime) {
@@ -229,9 +227,14 @@ public class LockOutRealm extends CombinedRealm {
     /*
      * After successful authentication, any record of previous authentication failure is removed.
      */
-    private synchronized void registerAuthSuccess(String username) {
+    private void registerAuthSuccess(String username) {
         // Successful authentication means removal from the list of failed users
-        failedUsers.remove(username);
+        // Check first as a removal always locks when the key maps to a non-empty bin
+        if (failedUsers.get(username) != null) {
+            // Failures registered concurrently may have locked the user since
+            // the lock was checked. Those failures must not be cleared.
+            failedUsers.computeIfPresent(username, (k, lockRecord) -> isLocked(lockRecord) ? lockRecord : null);
+        }
     }
 
 
@@ -239,22 +242,109 @@ public class LockOutRealm extends CombinedRealm {
      * After a failed authentication, add the record of the failed authentication.
      */
     private void registerAuthFailure(String username) {
-        LockRecord lockRecord = null;
-        synchronized (this) {
-            if (!failedUsers.containsKey(username)) {
+        boolean[] added = new boolean[1];
+        failedUsers.compute(username, (k, lockRecord) -> {
+            if (lockRecord == null) {
                 lockRecord = new LockRecord();
-                failedUsers.put(username, lockRecord);
-            } else {
-                lockRecord = failedUsers.get(username);
-                if (lockRecord.getFailures() >= failureCount &&
-                        ((System.currentTimeMillis() - lockRecord.getLastFailureTime()) / 1000) > lockOutTime) {
-                    // User was previously locked out but lockout has now
-                    // expired so reset failure count
-                    lockRecord.setFailures(0);
-                }
+                added[0] = true;
+            } else if (lockRecord.getFailures() >= failureCount &&
+                    ((System.currentTimeMillis() - lockRecord.getLastFailureTime()) / 1000) > lockOutTime) {
+                // User was previously locked out but lockout has now
+                // expired so reset failure count
+                lockRecord.setFailures(0);
+            }
+            lockRecord.registerFailure();
+            return lockRecord;
+        });
+        if (added[0]) {
+            while (failedUsers.size() > cacheSize && evictFailedUser(username)) {
+                // Keep going until the cache is back within its limit
+            }
+        }
+    }
+
+
+    /*
+     * Remove the entry with the oldest failure from a sample of entries, excluding the user that has just been added.
+     * This is only required when a new user is added to a full cache. Sampling keeps the cost of an eviction
+     * independent of the cache size.
+     *
+     * Returns true if an entry was removed.
+     */
+    private boolean evictFailedUser(String addedUsername) {
+        Map.Entry<String,LockRecord> eldest = null;
+        for (int i = 0; eldest == null && i < EVICTION_SAMPLE_ATTEMPTS; i++) {
+            eldest = findEldest(getRandomPart(), addedUsername);
+        }
+        if (eldest == null) {
+            // The random parts did not contain any candidates
+            eldest = findEldest(failedUsers.entrySet().spliterator(), addedUsername);
+            if (eldest == null) {
+                return false;
+            }
+        }
+        // Only remove the record if no failure has been registered since it was selected
+        String eldestUsername = eldest.getKey();
+        LockRecord selectedRecord = eldest.getValue();
+        long selectedFailureTime = selectedRecord.getLastFailureTime();
+        boolean[] removed = new boolean[1];
+        failedUsers.computeIfPresent(eldestUsername, (k, lockRecord) -> {
+            if (lockRecord == selectedRecord && lockRecord.getLastFailureTime() == selectedFailureTime) {
+                removed[0] = true;
+                return null;
+            }
+            return lockRecord;
+        });
+        if (removed[0]) {
+            // Check to see if this element has been removed too quickly
+            long timeInCache = (System.currentTimeMillis() - selectedFailureTime) / 1000;
+
+            if (timeInCache < cacheRemovalWarningTime) {
+                log.warn(sm.getString("lockOutRealm.removeWarning", eldestUsername, Long.valueOf(timeInCache)));
+            }
+        }
+        return true;
+    }
+
+
+    /*
+     * Repeatedly split the entries, keeping a randomly selected half each time, until the remaining part is expected
+     * to contain about as many entries as the sample. Splitting the entries of a ConcurrentHashMap does not require the
+     * entries to be visited.
+     */
+    private Spliterator<Map.Entry<String,LockRecord>> getRandomPart() {
+        Spliterator<Map.Entry<String,LockRecord>> spliterator = failedUsers.entrySet().spliterator();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (spliterator.estimateSize() > EVICTION_SAMPLE_SIZE) {
+            Spliterator<Map.Entry<String,LockRecord>> prefix = spliterator.trySplit();
+            if (prefix == null) {
+                break;
+            }
+            if (random.nextBoolean()) {
+                spliterator = prefix;
+            }
+        }
+        return spliterator;
+    }
+
+
+    /*
+     * Find the entry with the oldest failure in the first sample size entries, excluding the given user.
+     */
+    private Map.Entry<String,LockRecord> findEldest(Spliterator<Map.Entry<String,LockRecord>> spliterator,
+            String excludedUsername) {
+        Map.Entry<String,LockRecord> eldest = null;
+        long eldestFailureTime = Long.MAX_VALUE;
+        Iterator<Map.Entry<String,LockRecord>> iter = Spliterators.iterator(spliterator);
+        for (int i = 0; i < EVICTION_SAMPLE_SIZE && iter.hasNext(); i++) {
+            Map.Entry<String,LockRecord> entry = iter.next();
+            long lastFailureTime = entry.getValue().getLastFailureTime();
+            if (lastFailureTime < eldestFailureTime && !entry.getKey().equals(excludedUsername)) {
+                eldest = entry;
+                eldestFailureTime = lastFailureTime;
             }
         }
-        lockRecord.registerFailure();
+        return eldest;
     }
 
 
@@ -342,7 +432,7 @@ public class LockOutRealm extends CombinedRealm {
 
     protected static class LockRecord {
         private final AtomicInteger failures = new AtomicInteger(0);
-        private long lastFailureTime = 0;
+        private volatile long lastFailureTime = 0;
 
         public int getFailures() {
             return failures.get();
@@ -113,6 +113,11 @@ public class MemoryRealm extends RealmBase {
             return null;
         }
 
+        AuthenticationCache.Entry cached = getCachedAuthentication(username, credentials);
+        if (cached != null) {
+            return cached.getPrincipal();
+        }
+
         GenericPrincipal principal = principals.get(username);
         String password = null;
         if (principal != null) {
@@ -127,7 +132,7 @@ public class MemoryRealm extends RealmBase {
             if (log.isDebugEnabled()) {
                 log.debug(sm.getString("memoryRealm.authenticateFailure", username));
             }
-            return null;
+            return cacheAuthentication(username, credentials, null);
         }
 
         boolean validated = getCredentialHandler().matches(credentials, password);
@@ -136,12 +141,12 @@ public class MemoryRealm extends RealmBase {
             if (log.isDebugEnabled()) {
                 log.debug(sm.getString("memoryRealm.authenticateSuccess", username));
             }
-            return principal;
+            return cacheAuthentication(username, credentials, principal);
         } else {
             if (log.isDebugEnabled()) {
                 log.debug(sm.getString("memoryRealm.authenticateFailure", username));
             }
-            return null;
+            return cacheAuthentication(username, credentials, null);
         }
     }
 
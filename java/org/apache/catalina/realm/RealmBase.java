@@ -177,6 +177,32 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
     protected List<String> userAttributesList = null;
 
 
+    /**
+     * The maximum number of username / credentials authentication results to cache. The cache is disabled if this is
+     * zero or less.
+     */
+    protected int authenticationCacheSize = 0;
+
+
+    /**
+     * The time, in seconds, for which a successful authentication is cached.
+     */
+    protected int authenticationCacheTimeout = 300;
+
+
+    /**
+     * The time, in seconds, for which a failed authentication is cached. Failed authentications are not cached if this
+     * is zero or less.
+     */
+    protected int authenticationCacheNegativeTimeout = 0;
+
+
+    /**
+     * The cache of authentication results, if enabled.
+     */
+    protected volatile AuthenticationCache authenticationCache = null;
+
+
     // ------------------------------------------------------------- Properties
 
     /**
@@ -321,8 +347,108 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
         this.userAttributes = userAttributes;
     }
 
+    public int getAuthenticationCacheSize() {
+        return authenticationCacheSize;
+    }
+
+
+    /**
+     * Set the maximum number of username / credentials authentication results to cache. Caching avoids repeating
+     * expensive credential validation (and any associated database or directory look up) for clients that send the
+     * same credentials with every request. The cache is disabled if this is zero or less, which is the default.
+     *
+     * @param authenticationCacheSize The maximum number of cached results
+     */
+    public void setAuthenticationCacheSize(int authenticationCacheSize) {
+        this.authenticationCacheSize = authenticationCacheSize;
+    }
+
+
+    public int getAuthenticationCacheTimeout() {
+        return authenticationCacheTimeout;
+    }
+
+
+    /**
+     * Set the time for which a successful authentication is cached. Changes to the user's credentials or roles in the
+     * underlying store will not be seen until the cached result expires or is invalidated.
+     *
+     * @param authenticationCacheTimeout The time in seconds
+     */
+    public void setAuthenticationCacheTimeout(int authenticationCacheTimeout) {
+        this.authenticationCacheTimeout = authenticationCacheTimeout;
+    }
+
+
+    public int getAuthenticationCacheNegativeTimeout() {
+        return authenticationCacheNegativeTimeout;
+    }
+
+
+    /**
+     * Set the time for which a failed authentication is cached. Failed authentications are not cached if this is zero
+     * or less, which is the default.
+     *
+     * @param authenticationCacheNegativeTimeout The time in seconds
+     */
+    public void setAuthenticationCacheNegativeTimeout(int authenticationCacheNegativeTimeout) {
+        this.authenticationCacheNegativeTimeout = authenticationCacheNegativeTimeout;
+    }
+
+
+    /**
+     * @return the number of cached authentication results
+     */
+    public int getAuthenticationCacheCount() {
+        AuthenticationCache authenticationCache = this.authenticationCache;
+        return authenticationCache == null ? 0 : authenticationCache.getSize();
+    }
+
+
+    /**
+     * @return the number of authentications that were served from the cache
+     */
+    public long getAuthenticationCacheHitCount() {
+        AuthenticationCache authenticationCache = this.authenticationCache;
+        return authenticationCache == null ? 0 : authenticationCache.getHitCount();
+    }
+
+
+    /**
+     * @return the number of authentications that looked up the cache
+     */
+    public long getAuthenticationCacheLookupCount() {
+        AuthenticationCache authenticationCache = this.authenticationCache;
+        return authenticationCache == null ? 0 : authenticationCache.getLookupCount();
+    }
+
+
     // --------------------------------------------------------- Public Methods
 
+    /**
+     * Remove all cached authentication results for the given user.
+     *
+     * @param username The user name
+     */
+    public void invalidateAuthenticationCache(String username) {
+        AuthenticationCache authenticationCache = this.authenticationCache;
+        if (authenticationCache != null && username != null) {
+            authenticationCache.remove(username);
+        }
+    }
+
+
+    /**
+     * Remove all cached authentication results.
+     */
+    public void clearAuthenticationCache() {
+        AuthenticationCache authenticationCache = this.authenticationCache;
+        if (authenticationCache != null) {
+            authenticationCache.clear();
+        }
+    }
+
+
     @Override
     public void addPropertyChangeListener(PropertyChangeListener listener) {
         support.addPropertyChangeListener(listener);
@@ -355,6 +481,11 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
             return null;
         }
 
+        AuthenticationCache.Entry cached = getCachedAuthentication(username, credentials);
+        if (cached != null) {
+            return cached.getPrincipal();
+        }
+
         // Look up the user's credentials
         String serverCredentials = getPassword(username);
 
@@ -366,7 +497,7 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
             if (containerLog.isTraceEnabled()) {
                 containerLog.trace(sm.getString("realmBase.authenticateFailure", username));
             }
-            return null;
+            return cacheAuthentication(username, credentials, null);
         }
 
         boolean validated = getCredentialHandler().matches(credentials, serverCredentials);
@@ -375,12 +506,12 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
             if (containerLog.isTraceEnabled()) {
                 containerLog.trace(sm.getString("realmBase.authenticateSuccess", username));
             }
-            return getPrincipal(username);
+            return cacheAuthentication(username, credentials, getPrincipal(username));
         } else {
             if (containerLog.isTraceEnabled()) {
                 containerLog.trace(sm.getString("realmBase.authenticateFailure", username));
             }
-            return null;
+            return cacheAuthentication(username, credentials, null);
         }
     }
 
@@ -1075,6 +1206,14 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
         if (userAttributes != null) {
             userAttributesList = parseUserAttributes(userAttributes);
         }
+        if (authenticationCacheSize > 0) {
+            try {
+                authenticationCache = new AuthenticationCache(authenticationCacheSize,
+                        authenticationCacheTimeout * 1000L, authenticationCacheNegativeTimeout * 1000L);
+            } catch (NoSuchAlgorithmException e) {
+                throw new LifecycleException(e);
+            }
+        }
         setState(LifecycleState.STARTING);
     }
 
@@ -1088,6 +1227,7 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
     @Override
     protected void stopInternal() throws LifecycleException {
         setState(LifecycleState.STOPPING);
+        authenticationCache = null;
     }
 
 
@@ -1099,6 +1239,49 @@ public abstract class RealmBase extends LifecycleMBeanBase implements Realm {
 
     // ------------------------------------------------------ Protected Methods
 
+    /**
+     * Look up the result of a previous username / credentials authentication. Implementations that override
+     * {@link #authenticate(String, String)} should call this before validating the credentials and use
+     * {@link #cacheAuthentication(String, String, Principal)} to record the result.
+     *
+     * @param username    The user name
+     * @param credentials The credentials
+     *
+     * @return the cached result, or <code>null</code> if there is none or the cache is disabled
+     */
+    protected AuthenticationCache.Entry getCachedAuthentication(String username, String credentials) {
+        AuthenticationCache authenticationCache = this.authenticationCache;
+        if (authenticationCache == null || username == null || credentials == null) {
+            return null;
+        }
+        AuthenticationCache.Entry entry = authenticationCache.get(username, credentials);
+        if (entry != null && log.isTraceEnabled()) {
+            log.trace(sm.getString("realmBase.authenticateCached", username));
+        }
+        return entry;
+    }
+
+
+    /**
+     * Record the result of a username / credentials authentication if the cache is enabled. Failed authentications are
+     * not recorded if the realm is not available as the failure may be caused by the user store being inaccessible.
+     *
+     * @param username    The user name
+     * @param credentials The credentials
+     * @param principal   The authenticated principal or <code>null</code> if authentication failed
+     *
+     * @return the provided principal
+     */
+    protected Principal cacheAuthentication(String username, String credentials, Principal principal) {
+        AuthenticationCache authenticationCache = this.authenticationCache;
+        if (authenticationCache != null && username != null && credentials != null &&
+                (principal != null || isAvailable())) {
+            authenticationCache.put(username, credentials, principal);
+        }
+        return principal;
+    }
+
+
     protected boolean hasMessageDigest(String algorithm) {
         CredentialHandler ch = credentialHandler;
         if (ch instanceof MessageDigestCredentialHandler) {
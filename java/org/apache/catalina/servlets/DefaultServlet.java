@@ -33,6 +33,7 @@ import java.io.Serializable;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -73,6 +74,7 @@ import org.apache.catalina.util.ServerInfo;
 import org.apache.catalina.util.URLEncoder;
 import org.apache.catalina.webresources.CachedResource;
 import org.apache.tomcat.util.buf.B2CConverter;
+import org.apache.tomcat.util.buf.ByteBufferUtils;
 import org.apache.tomcat.util.http.ResponseUtil;
 import org.apache.tomcat.util.http.parser.ContentRange;
 import org.apache.tomcat.util.http.parser.EntityTag;
@@ -1053,16 +1055,28 @@ public class DefaultServlet extends HttpServlet {
                                 // implementations as that could trigger loading
                                 // the contents of a very large file into memory
                                 byte[] resourceBody = null;
+                                ByteBuffer resourceBuffer = null;
                                 if (resource instanceof CachedResource) {
                                     resourceBody = resource.getContent();
+                                    if (resourceBody == null) {
+                                        // Too big to cache but the content may
+                                        // be available as a (mapped) buffer
+                                        resourceBuffer = resource.getContentBuffer();
+                                    }
                                 }
-                                if (resourceBody == null) {
+                                if (resourceBody != null) {
+                                    // Use the resource content directly
+                                    ostream.write(resourceBody);
+                                } else if (resourceBuffer != null && resourceBuffer.remaining() == contentLength) {
+                                    ostream.write(resourceBuffer);
+                                    releaseContentBuffer(resourceBuffer);
+                                } else {
+                                    if (resourceBuffer != null) {
+                                        releaseContentBuffer(resourceBuffer);
+                                    }
                                     // Resource content not directly available,
                                     // use InputStream
                                     renderResult = resource.getInputStream();
-                                } else {
-                                    // Use the resource content directly
-                                    ostream.write(resourceBody);
                                 }
                             }
                         }
@@ -2273,6 +2287,20 @@ public class DefaultServlet extends HttpServlet {
     }
 
 
+    /*
+     * The buffer returned by WebResource.getContentBuffer() is typically a memory mapped view of a file. The output
+     * stream is blocking so the content has been copied or written once the write returns and the mapping can be
+     * released immediately rather than when the buffer is garbage collected. That keeps the number of mappings low and
+     * means the file is not locked (e.g. on Windows) after the response has been written. If the write fails, the
+     * buffer is left to the garbage collector.
+     */
+    private static void releaseContentBuffer(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            ByteBufferUtils.cleanDirectBuffer(buffer);
+        }
+    }
+
+
     /**
      * Copy the contents of the specified input stream to the specified output stream, and ensure that both streams are
      * closed before returning (even in the face of an exception).
@@ -2287,6 +2315,20 @@ public class DefaultServlet extends HttpServlet {
     protected void copy(WebResource resource, long length, ServletOutputStream ostream, Ranges.Entry range)
             throws IOException {
 
+        if (resource instanceof CachedResource) {
+            ByteBuffer resourceBuffer = resource.getContentBuffer();
+            if (resourceBuffer != null) {
+                if (resourceBuffer.remaining() == length) {
+                    long start = getStart(range, length);
+                    long end = getEnd(range, length);
+                    ostream.write(resourceBuffer.slice((int) start, (int) (end - start + 1)));
+                    releaseContentBuffer(resourceBuffer);
+                    return;
+                }
+                releaseContentBuffer(resourceBuffer);
+            }
+        }
+
         IOException exception = null;
 
         InputStream resourceInputStream = resource.getInputStream();
@@ -0,0 +1,416 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.startup;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.bcel.classfile.AnnotationEntry;
+import org.apache.tomcat.util.bcel.classfile.JavaClass;
+import org.apache.tomcat.util.file.PersistentDataFile;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Persistent index of the results of scanning JARs for annotations. For every class in a JAR the index records the
+ * information required to check the class against the {@code @HandlesTypes} annotations of the
+ * ServletContainerInitializers and whether the class has to be parsed again to process its {@code @WebServlet},
+ * {@code @WebFilter} or {@code @WebListener} annotations. A JAR is identified by its path and the name, size and CRC
+ * of each of its entries. If any of those change, the entries for the JAR are discarded and the JAR is scanned again.
+ * <p>
+ * The index is independent of the ServletContainerInitializers present so it remains valid if they change. Only JARs
+ * that are available as files are indexed. Classes in directories, including {@code WEB-INF/classes}, are always
+ * scanned.
+ */
+class AnnotationScanIndex {
+
+    private static final Log log = LogFactory.getLog(AnnotationScanIndex.class);
+    private static final StringManager sm = StringManager.getManager(Constants.Package);
+
+    static final String INDEX_FILE = "annotationScanIndex.dat";
+
+    private static final int MAGIC = 0x54415349;
+    private static final int VERSION = 2;
+
+    private static final int FLAG_WEB_ANNOTATED = 0x01;
+
+    private final PersistentDataFile indexFile;
+
+    // Entries loaded from disk that have not (yet) been validated against a JAR
+    private final Map<String,JarEntry> previous = new HashMap<>();
+
+    // Entries for the JARs used by the current scan
+    private final Map<String,JarEntry> current = new ConcurrentHashMap<>();
+
+    // Digests, calculated before the scan, of the JARs used by the current scan
+    private final Map<String,byte[]> digests = new ConcurrentHashMap<>();
+
+    private volatile boolean modified = false;
+
+
+    AnnotationScanIndex(File indexFile) {
+        this.indexFile = new PersistentDataFile(indexFile, MAGIC, VERSION);
+    }
+
+
+    /**
+     * Read the index from disk. If the index does not exist or cannot be read, the index starts empty and every JAR
+     * will be scanned.
+     */
+    void load() {
+        try {
+            Map<String,JarEntry> jars = indexFile.read(AnnotationScanIndex::readJars);
+            if (jars != null) {
+                previous.putAll(jars);
+            }
+        } catch (IOException e) {
+            log.warn(sm.getString("annotationScanIndex.readFail", indexFile.getFile()), e);
+        }
+    }
+
+
+    private static Map<String,JarEntry> readJars(DataInputStream in) throws IOException {
+        int jarCount = in.readInt();
+        Map<String,JarEntry> jars = new HashMap<>();
+        for (int i = 0; i < jarCount; i++) {
+            String path = in.readUTF();
+            byte[] digest = new byte[in.readInt()];
+            in.readFully(digest);
+            int classCount = in.readInt();
+            List<ClassEntry> entries = new ArrayList<>(classCount);
+            for (int j = 0; j < classCount; j++) {
+                entries.add(ClassEntry.read(in));
+            }
+            jars.put(path, new JarEntry(digest, entries));
+        }
+        return jars;
+    }
+
+
+    /**
+     * Validate the index entries for the given JARs against the current state of those JARs. Entries for any other
+     * JAR are discarded.
+     *
+     * @param jarUrls The URLs of the JARs that are about to be scanned
+     */
+    void validate(List<URL> jarUrls) {
+        for (URL url : jarUrls) {
+            File file = PersistentDataFile.getJarFile(url);
+            if (file == null) {
+                continue;
+            }
+            String path = file.getAbsolutePath();
+            JarEntry entry = previous.remove(path);
+            byte[] digest;
+            try {
+                digest = PersistentDataFile.getJarDigest(file);
+            } catch (IOException e) {
+                // The JAR will be scanned, and the failure reported, as usual but it will not be indexed
+                continue;
+            }
+            digests.put(path, digest);
+            if (entry != null && Arrays.equals(entry.digest, digest)) {
+                current.put(path, entry);
+            }
+        }
+        if (!previous.isEmpty()) {
+            previous.clear();
+            modified = true;
+        }
+    }
+
+
+    /**
+     * Obtain the indexed classes for the given JAR.
+     *
+     * @param url The URL of the JAR
+     *
+     * @return The entries for the classes in the JAR or {@code null} if the JAR is not indexed or has changed since
+     *             the index was created
+     */
+    List<ClassEntry> getClassEntries(URL url) {
+        File file = PersistentDataFile.getJarFile(url);
+        if (file == null) {
+            return null;
+        }
+        JarEntry entry = current.get(file.getAbsolutePath());
+        if (entry == null) {
+            return null;
+        }
+        return entry.classes;
+    }
+
+
+    /**
+     * Add the results of scanning a JAR to the index. The JAR is recorded with the digest calculated by
+     * {@link #validate(List)} so a JAR that is modified after validation is scanned again next time.
+     *
+     * @param url     The URL of the JAR
+     * @param entries The entries for all the classes in the JAR
+     */
+    void put(URL url, List<ClassEntry> entries) {
+        File file = PersistentDataFile.getJarFile(url);
+        if (file == null) {
+            return;
+        }
+        String path = file.getAbsolutePath();
+        byte[] digest = digests.get(path);
+        if (digest == null) {
+            return;
+        }
+        current.put(path, new JarEntry(digest, Collections.unmodifiableList(entries)));
+        modified = true;
+    }
+
+
+    /**
+     * Look up an indexed class. The class is only found if the JAR from which it will be loaded has been indexed. A
+     * class with the same name in any other indexed JAR is ignored.
+     *
+     * @param className The fully qualified name of the class
+     * @param resource  The URL of the class file as returned by the class loader that will load the class
+     *
+     * @return The entry for the class or {@code null} if the class file is not in an indexed JAR
+     */
+    ClassEntry getClassEntry(String className, URL resource) {
+        String urlString = resource.toString();
+        if (!urlString.startsWith("jar:file:")) {
+            return null;
+        }
+        int separator = urlString.indexOf("!/");
+        if (separator == -1 || urlString.indexOf("!/", separator + 2) != -1) {
+            // Nested JAR
+            return null;
+        }
+        JarEntry entry;
+        try {
+            entry = current.get(new File(new URI(urlString.substring(4, separator))).getAbsolutePath());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+        if (entry == null) {
+            return null;
+        }
+        ClassEntry classEntry = entry.getClassEntry(className);
+        if (classEntry == null || !classEntry.getEntryName().equals(urlString.substring(separator + 2))) {
+            return null;
+        }
+        return classEntry;
+    }
+
+
+    /**
+     * Write the index to disk if it has changed.
+     */
+    void save() {
+        if (!modified) {
+            return;
+        }
+        try {
+            indexFile.write(out -> {
+                Map<String,JarEntry> jars = new HashMap<>(current);
+                out.writeInt(jars.size());
+                for (Map.Entry<String,JarEntry> jar : jars.entrySet()) {
+                    JarEntry entry = jar.getValue();
+                    out.writeUTF(jar.getKey());
+                    out.writeInt(entry.digest.length);
+                    out.write(entry.digest);
+                    out.writeInt(entry.classes.size());
+                    for (ClassEntry classEntry : entry.classes) {
+                        classEntry.write(out);
+                    }
+                }
+            });
+            modified = false;
+        } catch (IOException e) {
+            log.warn(sm.getString("annotationScanIndex.writeFail", indexFile.getFile()), e);
+        }
+    }
+
+
+    private static class JarEntry {
+        private final byte[] digest;
+        private final List<ClassEntry> classes;
+        private volatile Map<String,ClassEntry> classesByName;
+
+        JarEntry(byte[] digest, List<ClassEntry> classes) {
+            this.digest = digest;
+            this.classes = classes;
+        }
+
+        ClassEntry getClassEntry(String className) {
+            Map<String,ClassEntry> result = classesByName;
+            if (result == null) {
+                result = new HashMap<>();
+                for (ClassEntry classEntry : classes) {
+                    result.put(classEntry.getClassName(), classEntry);
+                }
+                classesByName = result;
+            }
+            return result.get(className);
+        }
+    }
+
+
+    /**
+     * The information recorded in the index for a single class.
+     */
+    static class ClassEntry {
+        private static final String[] EMPTY = new String[0];
+
+        private final String entryName;
+        private final String className;
+        private final String superclassName;
+        private final String[] interfaceNames;
+        private final int accessFlags;
+        private final String[] annotationTypes;
+        private final boolean webAnnotated;
+
+        ClassEntry(String entryName, JavaClass javaClass) {
+            this.entryName = entryName;
+            this.className = javaClass.getClassName();
+            this.superclassName = javaClass.getSuperclassName();
+            this.interfaceNames = javaClass.getInterfaceNames();
+            this.accessFlags = javaClass.getAccessFlags();
+            AnnotationEntry[] all = javaClass.getAllAnnotationEntries();
+            if (all == null) {
+                annotationTypes = EMPTY;
+            } else {
+                annotationTypes = new String[all.length];
+                for (int i = 0; i < all.length; i++) {
+                    annotationTypes[i] = all[i].getAnnotationType();
+                }
+            }
+            boolean webAnnotated = false;
+            AnnotationEntry[] classAnnotations = javaClass.getAnnotationEntries();
+            if (classAnnotations != null) {
+                for (AnnotationEntry classAnnotation : classAnnotations) {
+                    String type = classAnnotation.getAnnotationType();
+                    if ("Ljakarta/servlet/annotation/WebServlet;".equals(type) ||
+                            "Ljakarta/servlet/annotation/WebFilter;".equals(type) ||
+                            "Ljakarta/servlet/annotation/WebListener;".equals(type)) {
+                        webAnnotated = true;
+                        break;
+                    }
+                }
+            }
+            this.webAnnotated = webAnnotated;
+        }
+
+        private ClassEntry(String entryName, String className, String superclassName, String[] interfaceNames,
+                int accessFlags, String[] annotationTypes, boolean webAnnotated) {
+            this.entryName = entryName;
+            this.className = className;
+            this.superclassName = superclassName;
+            this.interfaceNames = interfaceNames;
+            this.accessFlags = accessFlags;
+            this.annotationTypes = annotationTypes;
+            this.webAnnotated = webAnnotated;
+        }
+
+        /**
+         * @return the name of the JAR entry that contains the class
+         */
+        String getEntryName() {
+            return entryName;
+        }
+
+        String getClassName() {
+            return className;
+        }
+
+        String getSuperclassName() {
+            return superclassName;
+        }
+
+        String[] getInterfaceNames() {
+            return interfaceNames;
+        }
+
+        int getAccessFlags() {
+            return accessFlags;
+        }
+
+        /**
+         * @return the types, in internal form, of the annotations on the class and its fields and methods
+         */
+        String[] getAnnotationTypes() {
+            return annotationTypes;
+        }
+
+        /**
+         * @return {@code true} if the class has an annotation that defines a Servlet, Filter or listener
+         */
+        boolean isWebAnnotated() {
+            return webAnnotated;
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeUTF(entryName);
+            out.writeUTF(className);
+            out.writeUTF(superclassName);
+            writeArray(out, interfaceNames);
+            out.writeInt(accessFlags);
+            writeArray(out, annotationTypes);
+            out.writeByte(webAnnotated ? FLAG_WEB_ANNOTATED : 0);
+        }
+
+        private static ClassEntry read(DataInputStream in) throws IOException {
+            String entryName = in.readUTF();
+            String className = in.readUTF();
+            String superclassName = in.readUTF();
+            String[] interfaceNames = readArray(in);
+            int accessFlags = in.readInt();
+            String[] annotationTypes = readArray(in);
+            boolean webAnnotated = (in.readByte() & FLAG_WEB_ANNOTATED) != 0;
+            return new ClassEntry(entryName, className, superclassName, interfaceNames, accessFlags, annotationTypes,
+                    webAnnotated);
+        }
+
+        private static void writeArray(DataOutputStream out, String[] values) throws IOException {
+            out.writeInt(values.length);
+            for (String value : values) {
+                out.writeUTF(value);
+            }
+        }
+
+        private static String[] readArray(DataInputStream in) throws IOException {
+            int length = in.readInt();
+            if (length == 0) {
+                return EMPTY;
+            }
+            String[] values = new String[length];
+            for (int i = 0; i < length; i++) {
+                values[i] = in.readUTF();
+            }
+            return values;
+        }
+    }
+}
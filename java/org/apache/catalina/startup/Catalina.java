@@ -47,7 +47,9 @@ import org.apache.tomcat.util.digester.Rule;
 import org.apache.tomcat.util.digester.RuleSet;
 import org.apache.tomcat.util.file.ConfigFileLoader;
 import org.apache.tomcat.util.file.ConfigurationSource;
+import org.apache.tomcat.util.jfr.JfrEvents;
 import org.apache.tomcat.util.log.SystemLogHandler;
+import org.apache.tomcat.util.modeler.Registry;
 import org.apache.tomcat.util.res.StringManager;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
@@ -164,6 +166,14 @@ public class Catalina {
     protected boolean useGeneratedCode = false;
 
 
+    /**
+     * Stop the server and return once it has started rather than waiting for a shutdown command. This allows the
+     * JVM to exit normally after a start so that, for example, a class data sharing archive or an ahead-of-time cache
+     * can be created with the classes loaded by the container and the web applications.
+     */
+    protected boolean trainingRun = false;
+
+
     // ----------------------------------------------------------- Constructors
 
     public Catalina() {
@@ -232,6 +242,14 @@ public class Catalina {
         this.generatedCodePackage = generatedCodePackage;
     }
 
+    public boolean getTrainingRun() {
+        return this.trainingRun;
+    }
+
+    public void setTrainingRun(boolean trainingRun) {
+        this.trainingRun = trainingRun;
+    }
+
 
     /**
      * @return <code>true</code> if an exception should be thrown if an error occurs during server init
@@ -337,6 +355,12 @@ public class Catalina {
             } else if (arg.equals("-nonaming")) {
                 setUseNaming(false);
                 isGenerateCode = false;
+            } else if (arg.equals("-trainingRun")) {
+                setTrainingRun(true);
+                isGenerateCode = false;
+            } else if (arg.equals("-lazyJmx")) {
+                Registry.enableLazyRegistration();
+                isGenerateCode = false;
             } else if (arg.equals("-help")) {
                 usage();
                 return false;
@@ -532,6 +556,7 @@ public class Catalina {
     }
 
 
+    @SuppressWarnings("try")
     protected void parseServerXml(boolean start) {
         // Set configuration source
         ConfigFileLoader
@@ -598,7 +623,9 @@ public class Catalina {
                     digester.startGeneratingCode();
                     generateClassHeader(digester, start);
                 }
-                digester.parse(inputSource);
+                try (JfrEvents.Span span = JfrEvents.phase("Catalina", "parseServerXml")) {
+                    digester.parse(inputSource);
+                }
                 if (generateCode) {
                     generateClassFooter(digester);
                     try (FileWriter writer = new FileWriter(
@@ -773,6 +800,13 @@ public class Catalina {
             generateLoader();
         }
 
+        if (trainingRun) {
+            // Everything has been loaded, stop so the JVM can exit and write any archive it has been asked to create
+            log.info(sm.getString("catalina.trainingRun"));
+            stop();
+            return;
+        }
+
         // Register shutdown hook
         if (useShutdownHook) {
             if (shutdownHook == null) {
@@ -22,10 +22,12 @@ import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLClassLoader;
 import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -69,9 +71,11 @@ import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.core.StandardHost;
 import org.apache.catalina.util.ContextName;
 import org.apache.catalina.util.Introspection;
+import org.apache.catalina.util.ServerInfo;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.Jar;
+import org.apache.tomcat.JarScanFilter;
 import org.apache.tomcat.JarScanType;
 import org.apache.tomcat.JarScanner;
 import org.apache.tomcat.util.ExceptionUtils;
@@ -110,8 +114,12 @@ import org.apache.tomcat.util.digester.Digester;
 import org.apache.tomcat.util.digester.RuleSet;
 import org.apache.tomcat.util.file.ConfigFileLoader;
 import org.apache.tomcat.util.file.ConfigurationSource;
+import org.apache.tomcat.util.file.PersistentDataFile;
+import org.apache.tomcat.util.jfr.JfrEvents;
 import org.apache.tomcat.util.res.StringManager;
 import org.apache.tomcat.util.scan.JarFactory;
+import org.apache.tomcat.util.scan.StandardJarScanFilter;
+import org.apache.tomcat.util.scan.StandardJarScanner;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXParseException;
 
@@ -230,6 +238,12 @@ public class ContextConfig implements LifecycleListener {
      */
     protected boolean handlesTypesNonAnnotations = false;
 
+    /**
+     * The persistent annotation scan index used while the classes of the web application are being processed, if
+     * enabled.
+     */
+    private volatile AnnotationScanIndex annotationScanIndex = null;
+
 
     // ------------------------------------------------------------- Properties
 
@@ -541,8 +555,6 @@ public class ContextConfig implements LifecycleListener {
      */
     protected void contextConfig(Digester digester) {
 
-        String defaultContextXml = null;
-
         boolean generateCode = getGenerateCode();
         boolean useGeneratedCode = getUseGeneratedCode();
 
@@ -552,13 +564,7 @@ public class ContextConfig implements LifecycleListener {
         File contextXmlJavaSource = null;
 
         // Open the default context.xml file, if it exists
-        if (context instanceof StandardContext) {
-            defaultContextXml = ((StandardContext) context).getDefaultContextXml();
-        }
-        // set the default if we don't have any overrides
-        if (defaultContextXml == null) {
-            defaultContextXml = Constants.DefaultContextXml;
-        }
+        String defaultContextXml = getDefaultContextXml();
 
         ContextXml contextXml = null;
 
@@ -946,6 +952,7 @@ public class ContextConfig implements LifecycleListener {
     /**
      * Process a "contextConfig" event for this Context.
      */
+    @SuppressWarnings("try")
     protected synchronized void configureStart() {
         // Called from StandardContext.start()
 
@@ -958,10 +965,14 @@ public class ContextConfig implements LifecycleListener {
                     Boolean.valueOf(context.getXmlValidation()), Boolean.valueOf(context.getXmlNamespaceAware())));
         }
 
-        webConfig();
+        try (JfrEvents.Span span = JfrEvents.phase(context, "webConfig")) {
+            webConfig();
+        }
 
         if (!context.getIgnoreAnnotations()) {
-            applicationAnnotationsConfig();
+            try (JfrEvents.Span span = JfrEvents.phase(context, "applicationAnnotations")) {
+                applicationAnnotationsConfig();
+            }
         }
         if (ok) {
             validateSecurityRoles();
@@ -1195,6 +1206,7 @@ public class ContextConfig implements LifecycleListener {
      * the global web.xml files, where there is duplicate configuration, the most specific level wins. ie an
      * application's web.xml takes precedence over the host level or global web.xml file.
      */
+    @SuppressWarnings("try")
     protected void webConfig() {
         /*
          * Anything and everything can override the global and host defaults. This is implemented in two parts:
@@ -1223,6 +1235,14 @@ public class ContextConfig implements LifecycleListener {
         WebXmlParser webXmlParser = new WebXmlParser(context.getXmlNamespaceAware(), context.getXmlValidation(),
                 context.getXmlBlockExternal());
 
+        EffectiveWebXmlCache effectiveWebXmlCache = null;
+        if (context.getEffectiveWebXmlCache()) {
+            effectiveWebXmlCache = createEffectiveWebXmlCache();
+            if (effectiveWebXmlCache != null && webConfigFromCache(effectiveWebXmlCache, webXmlParser)) {
+                return;
+            }
+        }
+
         Set<WebXml> defaults = new HashSet<>();
         defaults.add(getDefaultWebXmlFragment(webXmlParser));
 
@@ -1233,7 +1253,9 @@ public class ContextConfig implements LifecycleListener {
 
         // Parse context level web.xml
         InputSource contextWebXml = getContextWebXmlSource();
-        if (!webXmlParser.parseWebXml(contextWebXml, webXml, false)) {
+        if (!parseWebXml(webXmlParser, contextWebXml, webXml,
+                getContextXmlPackageName(getGeneratedCodePackage(), context),
+                "WebXml_" + context.getName().replace('/', '_').replace("-", "__"))) {
             ok = false;
         }
 
@@ -1245,7 +1267,10 @@ public class ContextConfig implements LifecycleListener {
         // provided by the container. If any of the application JARs have a
         // web-fragment.xml it will be parsed at this point. web-fragment.xml
         // files are ignored for container provided JARs.
-        Map<String,WebXml> fragments = processJarsForWebFragments(webXml, webXmlParser);
+        Map<String,WebXml> fragments;
+        try (JfrEvents.Span span = JfrEvents.phase(context, "webFragments")) {
+            fragments = processJarsForWebFragments(webXml, webXmlParser);
+        }
 
         // Step 2. Order the fragments.
         Set<WebXml> orderedFragments = null;
@@ -1253,12 +1278,16 @@ public class ContextConfig implements LifecycleListener {
 
         // Step 3. Look for ServletContainerInitializer implementations
         if (ok) {
-            processServletContainerInitializers();
+            try (JfrEvents.Span span = JfrEvents.phase(context, "servletContainerInitializerDiscovery")) {
+                processServletContainerInitializers();
+            }
         }
 
         if (!webXml.isMetadataComplete() || typeInitializerMap.size() > 0) {
             // Steps 4 & 5.
-            processClasses(webXml, orderedFragments);
+            try (JfrEvents.Span span = JfrEvents.phase(context, "annotations")) {
+                processClasses(webXml, orderedFragments);
+            }
         }
 
         if (!webXml.isMetadataComplete()) {
@@ -1293,6 +1322,23 @@ public class ContextConfig implements LifecycleListener {
             configureContext(webXml);
         }
 
+        if (ok && effectiveWebXmlCache != null) {
+            saveEffectiveWebXml(effectiveWebXmlCache, webXml, orderedFragments, fragments);
+        }
+
+        webConfigComplete(webXml, orderedFragments, fragments);
+    }
+
+
+    /**
+     * Complete the configuration of the Context once the effective web.xml has been applied. This step is required
+     * regardless of whether the effective web.xml was built from the descriptors or obtained from the cache.
+     *
+     * @param webXml           The effective web.xml
+     * @param orderedFragments The ordered web fragments
+     * @param fragments        All the web fragments
+     */
+    private void webConfigComplete(WebXml webXml, Set<WebXml> orderedFragments, Map<String,WebXml> fragments) {
         if (context.getLogEffectiveWebXml()) {
             log.info(sm.getString("contextConfig.effectiveWebXml", webXml.toXml()));
         }
@@ -1327,6 +1373,356 @@ public class ContextConfig implements LifecycleListener {
     }
 
 
+    /**
+     * Load the persistent effective web.xml cache from the work directory of the web application.
+     *
+     * @return The cache or {@code null} if the web application does not have a work directory or the fingerprint of
+     *             the web application could not be calculated
+     */
+    private EffectiveWebXmlCache createEffectiveWebXmlCache() {
+        File workDir = (File) context.getServletContext().getAttribute(ServletContext.TEMPDIR);
+        if (workDir == null || !workDir.isDirectory()) {
+            return null;
+        }
+        byte[] fingerprint = getEffectiveWebXmlFingerprint();
+        if (fingerprint == null) {
+            return null;
+        }
+        return new EffectiveWebXmlCache(new File(workDir, EffectiveWebXmlCache.CACHE_FILE), fingerprint);
+    }
+
+
+    /**
+     * Calculate the fingerprint of everything that contributes to the effective web.xml: the Tomcat version, the
+     * context.xml and web.xml files, the configuration of the JAR scanner and of the container
+     * ServletContainerInitializer filter, the classes and JARs of the web application and the JARs on the class path
+     * of the container. The content of the files is used, except for JARs which are identified by the name, size and
+     * CRC of each entry.
+     *
+     * @return The fingerprint or {@code null} if one of the inputs could not be examined
+     */
+    private byte[] getEffectiveWebXmlFingerprint() {
+        EffectiveWebXmlCache.Fingerprint fingerprint = new EffectiveWebXmlCache.Fingerprint();
+        fingerprint.add(ServerInfo.getServerNumber());
+        fingerprint.add(context.getXmlNamespaceAware());
+        fingerprint.add(context.getXmlValidation());
+        fingerprint.add(context.getXmlBlockExternal());
+        if (context instanceof StandardContext) {
+            fingerprint.add(((StandardContext) context).getDelegate());
+        }
+        fingerprint.add(context.getContainerSciFilter());
+        if (!addJarScannerFingerprint(fingerprint, context.getJarScanner())) {
+            return null;
+        }
+
+        InputSource globalWebXml = getGlobalWebXmlSource();
+        InputSource hostWebXml = getHostWebXmlSource();
+        InputSource contextWebXml = getContextWebXmlSource();
+        try {
+            // context.xml files
+            fingerprint.add(context.getOverride());
+            if (!context.getOverride()) {
+                addEffectiveWebXmlFingerprint(fingerprint, getDefaultContextXml());
+                addEffectiveWebXmlFingerprint(fingerprint, Container.getConfigPath(context, Constants.HostContextXml));
+            }
+            URL configFile = context.getConfigFile();
+            fingerprint.add(configFile == null ? null : configFile.toString());
+            if (configFile != null) {
+                try (InputStream is = configFile.openStream()) {
+                    fingerprint.add(is);
+                }
+            }
+
+            // web.xml files
+            addEffectiveWebXmlFingerprint(fingerprint, globalWebXml);
+            addEffectiveWebXmlFingerprint(fingerprint, hostWebXml);
+            addEffectiveWebXmlFingerprint(fingerprint, contextWebXml);
+            addEffectiveWebXmlFingerprint(fingerprint, context.getResources().getResource(Constants.TomcatWebXml));
+
+            // Web application classes and JARs
+            for (WebResource webResource : context.getResources().listResources("/WEB-INF/lib")) {
+                addEffectiveWebXmlFingerprint(fingerprint, webResource);
+            }
+            addEffectiveWebXmlFingerprint(fingerprint, context.getResources().getResource("/WEB-INF/classes"));
+
+            // Container JARs
+            ClassLoader classLoader = context.getParentClassLoader();
+            while (classLoader != null) {
+                if (classLoader instanceof URLClassLoader) {
+                    for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+                        addEffectiveWebXmlFingerprint(fingerprint, url);
+                    }
+                }
+                classLoader = classLoader.getParent();
+            }
+            String classPath = System.getProperty("java.class.path");
+            if (classPath != null) {
+                for (String classPathEntry : classPath.split(File.pathSeparator)) {
+                    File file = new File(classPathEntry).getAbsoluteFile();
+                    fingerprint.add(file.getPath());
+                    fingerprint.addFile(file);
+                }
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("contextConfig.effectiveWebXmlCacheNoFingerprint", context.getName()), e);
+            }
+            return null;
+        } finally {
+            InputSourceUtil.close(globalWebXml);
+            InputSourceUtil.close(hostWebXml);
+            InputSourceUtil.close(contextWebXml);
+        }
+
+        return fingerprint.get();
+    }
+
+
+    /*
+     * The JAR scanner and its filter determine which JARs are scanned for web fragments and annotations. Only the
+     * standard implementations expose their configuration.
+     */
+    private boolean addJarScannerFingerprint(EffectiveWebXmlCache.Fingerprint fingerprint, JarScanner jarScanner) {
+        if (!(jarScanner instanceof StandardJarScanner)) {
+            return false;
+        }
+        StandardJarScanner standardJarScanner = (StandardJarScanner) jarScanner;
+        fingerprint.add(standardJarScanner.isScanClassPath());
+        fingerprint.add(standardJarScanner.isScanManifest());
+        fingerprint.add(standardJarScanner.isScanAllFiles());
+        fingerprint.add(standardJarScanner.isScanAllDirectories());
+        fingerprint.add(standardJarScanner.isScanBootstrapClassPath());
+        // Initialised from the jarsToSkip and jarsToScan properties in
+        // catalina.properties
+        JarScanFilter jarScanFilter = standardJarScanner.getJarScanFilter();
+        if (!(jarScanFilter instanceof StandardJarScanFilter)) {
+            return false;
+        }
+        StandardJarScanFilter standardJarScanFilter = (StandardJarScanFilter) jarScanFilter;
+        fingerprint.add(standardJarScanFilter.getPluggabilitySkip());
+        fingerprint.add(standardJarScanFilter.getPluggabilityScan());
+        fingerprint.add(standardJarScanFilter.isDefaultPluggabilityScan());
+        return true;
+    }
+
+
+    private String getDefaultContextXml() {
+        String defaultContextXml = null;
+        if (context instanceof StandardContext) {
+            defaultContextXml = ((StandardContext) context).getDefaultContextXml();
+        }
+        if (defaultContextXml == null) {
+            defaultContextXml = Constants.DefaultContextXml;
+        }
+        return defaultContextXml;
+    }
+
+
+    private void addEffectiveWebXmlFingerprint(EffectiveWebXmlCache.Fingerprint fingerprint, String configPath)
+            throws IOException {
+        ConfigurationSource.Resource resource;
+        try {
+            resource = ConfigFileLoader.getSource().getResource(configPath);
+        } catch (IOException e) {
+            // Not found
+            fingerprint.add((String) null);
+            return;
+        }
+        try (resource) {
+            fingerprint.add(resource.getURI().toString());
+            fingerprint.add(resource.getInputStream());
+        }
+    }
+
+
+    private void addEffectiveWebXmlFingerprint(EffectiveWebXmlCache.Fingerprint fingerprint, InputSource source)
+            throws IOException, URISyntaxException {
+        if (source == null) {
+            fingerprint.add((String) null);
+            return;
+        }
+        fingerprint.add(source.getSystemId());
+        if (source.getByteStream() != null) {
+            fingerprint.add(source.getByteStream());
+        } else {
+            try (InputStream is = new URI(source.getSystemId()).toURL().openStream()) {
+                fingerprint.add(is);
+            }
+        }
+    }
+
+
+    private void addEffectiveWebXmlFingerprint(EffectiveWebXmlCache.Fingerprint fingerprint, URL url)
+            throws IOException, URISyntaxException {
+        fingerprint.add(url.toString());
+        if ("file".equals(url.getProtocol())) {
+            fingerprint.addFile(new File(url.toURI()));
+        } else {
+            try (InputStream is = url.openStream()) {
+                fingerprint.add(is);
+            }
+        }
+    }
+
+
+    private void addEffectiveWebXmlFingerprint(EffectiveWebXmlCache.Fingerprint fingerprint,
+            WebResource webResource) throws IOException {
+        fingerprint.add(webResource.getWebappPath());
+        fingerprint.add(webResource.exists());
+        if (webResource.isDirectory()) {
+            for (WebResource child : context.getResources().listResources(webResource.getWebappPath())) {
+                addEffectiveWebXmlFingerprint(fingerprint, child);
+            }
+        } else if (webResource.isFile()) {
+            String canonicalPath = webResource.getCanonicalPath();
+            if (canonicalPath != null && webResource.getName().endsWith(".jar")) {
+                fingerprint.addJar(new File(canonicalPath));
+            } else {
+                try (InputStream is = webResource.getInputStream()) {
+                    if (is == null) {
+                        throw new IOException(webResource.getWebappPath());
+                    }
+                    fingerprint.add(is);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Configure the Context using the cached effective web.xml. Since the cached web.xml already contains the result
+     * of merging the descriptors, web fragments and annotations, none of these need to be processed. The JARs still
+     * need to be checked for ServletContainerInitializers, {@code @HandlesTypes} matches and static resources.
+     *
+     * @param effectiveWebXmlCache The cache
+     * @param webXmlParser         The parser to use to parse the cached web.xml
+     *
+     * @return {@code true} if the Context was configured from the cache, otherwise {@code false} in which case the
+     *             effective web.xml needs to be built from the descriptors
+     */
+    @SuppressWarnings("try")
+    private boolean webConfigFromCache(EffectiveWebXmlCache effectiveWebXmlCache, WebXmlParser webXmlParser) {
+        EffectiveWebXmlCache.Entry entry = effectiveWebXmlCache.load();
+        if (entry == null) {
+            return false;
+        }
+
+        WebXml webXml = createWebXml();
+        InputSource source = new InputSource(new StringReader(entry.getWebXml()));
+        source.setSystemId(effectiveWebXmlCache.getCacheFile().toURI().toString());
+        if (!webXmlParser.parseWebXml(source, webXml, false)) {
+            log.warn(sm.getString("contextConfig.effectiveWebXmlCacheInvalid", effectiveWebXmlCache.getCacheFile(),
+                    context.getName()));
+            return false;
+        }
+        for (String servletName : entry.getOverridableServlets()) {
+            ServletDef servletDef = webXml.getServlets().get(servletName);
+            if (servletDef != null) {
+                servletDef.setOverridable(true);
+            }
+        }
+
+        Set<WebXml> orderedFragments = new LinkedHashSet<>();
+        Map<String,WebXml> fragments = new LinkedHashMap<>();
+        try {
+            for (EffectiveWebXmlCache.Fragment fragment : entry.getOrderedFragments()) {
+                WebXml webXmlFragment = createFragment(fragment);
+                orderedFragments.add(webXmlFragment);
+                fragments.put(fragment.getUrl(), webXmlFragment);
+            }
+            for (EffectiveWebXmlCache.Fragment fragment : entry.getOtherFragments()) {
+                fragments.put(fragment.getUrl(), createFragment(fragment));
+            }
+        } catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+            log.warn(sm.getString("contextConfig.effectiveWebXmlCacheInvalid", effectiveWebXmlCache.getCacheFile(),
+                    context.getName()), e);
+            return false;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("contextConfig.effectiveWebXmlCacheUsed", context.getName()));
+        }
+
+        context.getServletContext().setAttribute(ServletContext.ORDERED_LIBS, entry.getOrderedLibs());
+
+        // Step 3. Look for ServletContainerInitializer implementations
+        if (ok) {
+            try (JfrEvents.Span span = JfrEvents.phase(context, "servletContainerInitializerDiscovery")) {
+                processServletContainerInitializers();
+            }
+        }
+
+        // Steps 4 & 5. The annotations are already included in the effective
+        // web.xml so only look for @HandlesTypes matches
+        if (typeInitializerMap.size() > 0) {
+            webXml.setMetadataComplete(true);
+            try (JfrEvents.Span span = JfrEvents.phase(context, "annotations")) {
+                processClasses(webXml, orderedFragments);
+            }
+        }
+
+        // Step 9. Apply effective web.xml to Context
+        webXml.setMetadataComplete(entry.isMetadataComplete());
+        if (ok) {
+            configureContext(webXml);
+        }
+
+        webConfigComplete(webXml, orderedFragments, fragments);
+        return true;
+    }
+
+
+    private WebXml createFragment(EffectiveWebXmlCache.Fragment fragment)
+            throws MalformedURLException, URISyntaxException {
+        WebXml webXmlFragment = new WebXml();
+        webXmlFragment.setURL(new URI(fragment.getUrl()).toURL());
+        webXmlFragment.setJarName(fragment.getJarName());
+        webXmlFragment.setWebappJar(fragment.isWebappJar());
+        return webXmlFragment;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private void saveEffectiveWebXml(EffectiveWebXmlCache effectiveWebXmlCache, WebXml webXml,
+            Set<WebXml> orderedFragments, Map<String,WebXml> fragments) {
+        // WebXml.toXml() omits the elements that were added after the
+        // version of the specification used by the web application. They
+        // may still be present, e.g. from web fragments or annotations.
+        if (webXml.getPublicId() != null || webXml.getMajorVersion() < 4) {
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("contextConfig.effectiveWebXmlCacheUnsupportedVersion", context.getName(),
+                        webXml.getVersion()));
+            }
+            return;
+        }
+        List<String> overridableServlets = new ArrayList<>();
+        for (ServletDef servletDef : webXml.getServlets().values()) {
+            if (servletDef.isOverridable()) {
+                overridableServlets.add(servletDef.getServletName());
+            }
+        }
+        List<String> orderedLibs = null;
+        Object orderedLibsAttribute = context.getServletContext().getAttribute(ServletContext.ORDERED_LIBS);
+        if (orderedLibsAttribute instanceof List) {
+            orderedLibs = new ArrayList<>((List<String>) orderedLibsAttribute);
+        }
+        List<EffectiveWebXmlCache.Fragment> ordered = new ArrayList<>(orderedFragments.size());
+        for (WebXml fragment : orderedFragments) {
+            ordered.add(new EffectiveWebXmlCache.Fragment(fragment.getURL().toString(), fragment.getJarName(),
+                    fragment.getWebappJar()));
+        }
+        List<EffectiveWebXmlCache.Fragment> others = new ArrayList<>();
+        for (WebXml fragment : fragments.values()) {
+            if (!orderedFragments.contains(fragment)) {
+                others.add(new EffectiveWebXmlCache.Fragment(fragment.getURL().toString(), fragment.getJarName(),
+                        fragment.getWebappJar()));
+            }
+        }
+        effectiveWebXmlCache.save(new EffectiveWebXmlCache.Entry(webXml.toXml(), webXml.isMetadataComplete(),
+                overridableServlets, orderedLibs, ordered, others));
+    }
+
+
     protected void processClasses(WebXml webXml, Set<WebXml> orderedFragments) {
         // Step 4. Process /WEB-INF/classes for annotations and
         // @HandlesTypes matches
@@ -1339,6 +1735,26 @@ public class ContextConfig implements LifecycleListener {
             javaClassCache = new HashMap<>();
         }
 
+        if (context.getAnnotationScanIndex()) {
+            annotationScanIndex = createAnnotationScanIndex(orderedFragments);
+        }
+
+        try {
+            scanClassesAndJars(webXml, orderedFragments, javaClassCache);
+        } finally {
+            if (annotationScanIndex != null) {
+                annotationScanIndex.save();
+                annotationScanIndex = null;
+            }
+        }
+
+        // Cache, if used, is no longer required so clear it
+        javaClassCache.clear();
+    }
+
+
+    private void scanClassesAndJars(WebXml webXml, Set<WebXml> orderedFragments,
+            Map<String,JavaClassCacheEntry> javaClassCache) {
         if (ok) {
             WebResource[] webResources = context.getResources().listResources("/WEB-INF/classes");
 
@@ -1359,9 +1775,30 @@ public class ContextConfig implements LifecycleListener {
         if (ok) {
             processAnnotations(orderedFragments, webXml.isMetadataComplete(), javaClassCache);
         }
+    }
 
-        // Cache, if used, is no longer required so clear it
-        javaClassCache.clear();
+
+    /**
+     * Load the persistent annotation scan index from the work directory of the web application and validate it
+     * against the JARs that are about to be scanned.
+     *
+     * @param orderedFragments The fragments that will be scanned
+     *
+     * @return The index or {@code null} if the web application does not have a work directory
+     */
+    private AnnotationScanIndex createAnnotationScanIndex(Set<WebXml> orderedFragments) {
+        File workDir = (File) context.getServletContext().getAttribute(ServletContext.TEMPDIR);
+        if (workDir == null || !workDir.isDirectory()) {
+            return null;
+        }
+        AnnotationScanIndex index = new AnnotationScanIndex(new File(workDir, AnnotationScanIndex.INDEX_FILE));
+        index.load();
+        List<URL> jarUrls = new ArrayList<>(orderedFragments.size());
+        for (WebXml fragment : orderedFragments) {
+            jarUrls.add(fragment.getURL());
+        }
+        index.validate(jarUrls);
+        return index;
     }
 
 
@@ -1574,7 +2011,9 @@ public class ContextConfig implements LifecycleListener {
             try {
                 InputSource source = new InputSource(resource.getURL().toURI().toString());
                 source.setByteStream(resource.getInputStream());
-                if (!webXmlParser.parseWebXml(source, webXmlTomcatFragment, false)) {
+                if (!parseWebXml(webXmlParser, source, webXmlTomcatFragment,
+                        getContextXmlPackageName(getGeneratedCodePackage(), context),
+                        "TomcatWebXml_" + context.getName().replace('/', '_').replace("-", "__"))) {
                     ok = false;
                 }
             } catch (URISyntaxException e) {
@@ -1672,7 +2111,8 @@ public class ContextConfig implements LifecycleListener {
                 // This is unusual enough to log
                 log.info(sm.getString("contextConfig.defaultMissing"));
             } else {
-                if (!webXmlParser.parseWebXml(globalWebXml, webXmlDefaultFragment, false)) {
+                if (!parseWebXml(webXmlParser, globalWebXml, webXmlDefaultFragment, getGeneratedCodePackage(),
+                        "WebXmlDefault")) {
                     ok = false;
                 }
             }
@@ -1681,7 +2121,8 @@ public class ContextConfig implements LifecycleListener {
             // Additive apart from welcome pages
             webXmlDefaultFragment.setReplaceWelcomeFiles(true);
 
-            if (!webXmlParser.parseWebXml(hostWebXml, webXmlDefaultFragment, false)) {
+            if (!parseWebXml(webXmlParser, hostWebXml, webXmlDefaultFragment,
+                    getContextXmlPackageName(getGeneratedCodePackage(), context), "WebXmlDefault")) {
                 ok = false;
             }
 
@@ -1699,6 +2140,53 @@ public class ContextConfig implements LifecycleListener {
     }
 
 
+    /**
+     * Parse a web.xml file. If code generation is enabled, the Java code equivalent to parsing the file is written to
+     * the generated code location. If the use of generated code is enabled and the generated code is available, the
+     * generated code is used in preference to parsing the file.
+     *
+     * @param webXmlParser    The parser to use if the file has to be parsed
+     * @param source          The web.xml file, may be {@code null}
+     * @param dest            The WebXml instance to populate
+     * @param packageName     The package of the generated code
+     * @param simpleClassName The simple class name of the generated code
+     *
+     * @return {@code true} if the web.xml file was successfully processed
+     */
+    protected boolean parseWebXml(WebXmlParser webXmlParser, InputSource source, WebXml dest, String packageName,
+            String simpleClassName) {
+        if (source == null) {
+            return true;
+        }
+        String className = packageName + "." + simpleClassName;
+        if (getUseGeneratedCode()) {
+            WebXmlParser.GeneratedWebXml generatedWebXml =
+                    (WebXmlParser.GeneratedWebXml) Digester.loadGeneratedClass(className);
+            if (generatedWebXml != null) {
+                InputSourceUtil.close(source);
+                generatedWebXml.load(dest);
+                return true;
+            }
+        } else if (getGenerateCode()) {
+            File javaSource = getContextXmlJavaSource(packageName, simpleClassName);
+            if (javaSource != null) {
+                String code = webXmlParser.generateCode(source, dest, packageName, simpleClassName);
+                if (code == null) {
+                    return false;
+                }
+                try (FileWriter writer = new FileWriter(javaSource)) {
+                    writer.write(code);
+                    Digester.addGeneratedClass(className);
+                } catch (IOException e) {
+                    log.warn(sm.getString("contextConfig.webXmlCodeWriteFail", javaSource.getAbsolutePath()), e);
+                }
+                return true;
+            }
+        }
+        return webXmlParser.parseWebXml(source, dest, false);
+    }
+
+
     private void convertJsps(WebXml webXml) {
         Map<String,String> jspInitParams;
         ServletDef jspServlet = webXml.getServlets().get("jsp");
@@ -2171,6 +2659,19 @@ public class ContextConfig implements LifecycleListener {
     protected void processAnnotationsJar(URL url, WebXml fragment, boolean handlesTypesOnly,
             Map<String,JavaClassCacheEntry> javaClassCache) {
 
+        AnnotationScanIndex index = annotationScanIndex;
+        List<AnnotationScanIndex.ClassEntry> indexEntries = null;
+        if (index != null) {
+            List<AnnotationScanIndex.ClassEntry> entries = index.getClassEntries(url);
+            if (entries != null) {
+                processAnnotationsIndex(url, entries, fragment, handlesTypesOnly, javaClassCache);
+                return;
+            }
+            if (PersistentDataFile.getJarFile(url) != null) {
+                indexEntries = new ArrayList<>();
+            }
+        }
+
         try (Jar jar = JarFactory.newInstance(url)) {
             if (log.isTraceEnabled()) {
                 log.trace(sm.getString("contextConfig.processAnnotationsJar.debug", url));
@@ -2181,20 +2682,79 @@ public class ContextConfig implements LifecycleListener {
             while (entryName != null) {
                 if (entryName.endsWith(".class")) {
                     try (InputStream is = jar.getEntryInputStream()) {
-                        processAnnotationsStream(is, fragment, handlesTypesOnly, javaClassCache);
+                        if (indexEntries == null) {
+                            processAnnotationsStream(is, fragment, handlesTypesOnly, javaClassCache);
+                        } else {
+                            processAnnotationsStream(is, entryName, fragment, handlesTypesOnly, javaClassCache,
+                                    indexEntries);
+                        }
                     } catch (IOException | ClassFormatException e) {
                         log.error(sm.getString("contextConfig.inputStreamJar", entryName, url), e);
+                        // Incomplete results must not be indexed
+                        indexEntries = null;
                     }
                 }
                 jar.nextEntry();
                 entryName = jar.getEntryName();
             }
+            if (indexEntries != null) {
+                index.put(url, indexEntries);
+            }
         } catch (IOException e) {
             log.error(sm.getString("contextConfig.jarFile", url), e);
         }
     }
 
 
+    /**
+     * Process a JAR using the results of a previous scan recorded in the annotation scan index. Only the classes that
+     * define a Servlet, Filter or listener via annotations are parsed again.
+     *
+     * @param url              The URL of the JAR
+     * @param entries          The index entries for the classes in the JAR
+     * @param fragment         The fragment to which the results of processing any annotations should be added
+     * @param handlesTypesOnly Should only the {@link HandlesTypes} checks be performed
+     * @param javaClassCache   The class cache
+     */
+    private void processAnnotationsIndex(URL url, List<AnnotationScanIndex.ClassEntry> entries, WebXml fragment,
+            boolean handlesTypesOnly, Map<String,JavaClassCacheEntry> javaClassCache) {
+        if (log.isTraceEnabled()) {
+            log.trace(sm.getString("contextConfig.processAnnotationsIndex.debug", url));
+        }
+
+        Jar jar = null;
+        try {
+            for (AnnotationScanIndex.ClassEntry entry : entries) {
+                checkHandlesTypes(entry, javaClassCache);
+
+                if (handlesTypesOnly || !entry.isWebAnnotated()) {
+                    continue;
+                }
+
+                String entryName = entry.getEntryName();
+                try {
+                    if (jar == null) {
+                        jar = JarFactory.newInstance(url);
+                    }
+                    try (InputStream is = jar.getInputStream(entryName)) {
+                        if (is == null) {
+                            throw new FileNotFoundException(entryName);
+                        }
+                        ClassParser parser = new ClassParser(is);
+                        processClass(fragment, parser.parse());
+                    }
+                } catch (IOException | ClassFormatException e) {
+                    log.error(sm.getString("contextConfig.inputStreamJar", entryName, url), e);
+                }
+            }
+        } finally {
+            if (jar != null) {
+                jar.close();
+            }
+        }
+    }
+
+
     protected void processAnnotationsFile(File file, WebXml fragment, boolean handlesTypesOnly,
             Map<String,JavaClassCacheEntry> javaClassCache) {
 
@@ -2234,6 +2794,24 @@ public class ContextConfig implements LifecycleListener {
     }
 
 
+    private void processAnnotationsStream(InputStream is, String entryName, WebXml fragment, boolean handlesTypesOnly,
+            Map<String,JavaClassCacheEntry> javaClassCache, List<AnnotationScanIndex.ClassEntry> indexEntries)
+            throws ClassFormatException, IOException {
+
+        ClassParser parser = new ClassParser(is);
+        JavaClass clazz = parser.parse();
+        AnnotationScanIndex.ClassEntry entry = new AnnotationScanIndex.ClassEntry(entryName, clazz);
+        indexEntries.add(entry);
+        checkHandlesTypes(entry, javaClassCache);
+
+        if (handlesTypesOnly) {
+            return;
+        }
+
+        processClass(fragment, clazz);
+    }
+
+
     protected void processClass(WebXml fragment, JavaClass clazz) {
         AnnotationEntry[] annotationsEntries = clazz.getAnnotationEntries();
         if (annotationsEntries != null) {
@@ -2268,17 +2846,41 @@ public class ContextConfig implements LifecycleListener {
             return;
         }
 
-        if ((javaClass.getAccessFlags() & org.apache.tomcat.util.bcel.Const.ACC_ANNOTATION) != 0) {
-            // Skip annotations.
+        checkHandlesTypes(javaClass.getClassName(), javaClass.getAccessFlags(), javaClass.getSuperclassName(),
+                javaClass.getInterfaceNames(), null, javaClass.getAllAnnotationEntries(), javaClassCache);
+    }
+
+
+    private void checkHandlesTypes(AnnotationScanIndex.ClassEntry classEntry,
+            Map<String,JavaClassCacheEntry> javaClassCache) {
+
+        // Skip this if we can
+        if (typeInitializerMap.size() == 0) {
             return;
         }
 
-        String className = javaClass.getClassName();
+        checkHandlesTypes(classEntry.getClassName(), classEntry.getAccessFlags(), classEntry.getSuperclassName(),
+                classEntry.getInterfaceNames(), classEntry.getAnnotationTypes(), null, javaClassCache);
+    }
+
+
+    /*
+     * The annotations are provided either as the types recorded in the annotation scan index or as the entries of the
+     * parsed class. Exactly one of annotationTypes and annotationEntries is non-null.
+     */
+    private void checkHandlesTypes(String className, int accessFlags, String superclassName, String[] interfaceNames,
+            String[] annotationTypes, AnnotationEntry[] annotationEntries,
+            Map<String,JavaClassCacheEntry> javaClassCache) {
+
+        if ((accessFlags & org.apache.tomcat.util.bcel.Const.ACC_ANNOTATION) != 0) {
+            // Skip annotations.
+            return;
+        }
 
         Class<?> clazz = null;
         if (handlesTypesNonAnnotations) {
             // This *might* be match for a HandlesType.
-            populateJavaClassCache(className, javaClass, javaClassCache);
+            populateJavaClassCache(className, superclassName, interfaceNames, javaClassCache);
             JavaClassCacheEntry entry = javaClassCache.get(className);
             if (entry.getSciSet() == null) {
                 try {
@@ -2304,13 +2906,20 @@ public class ContextConfig implements LifecycleListener {
         }
 
         if (handlesTypesAnnotations) {
-            AnnotationEntry[] annotationEntries = javaClass.getAllAnnotationEntries();
-            if (annotationEntries != null) {
+            int annotationCount;
+            if (annotationTypes != null) {
+                annotationCount = annotationTypes.length;
+            } else {
+                annotationCount = annotationEntries == null ? 0 : annotationEntries.length;
+            }
+            if (annotationCount > 0) {
                 for (Map.Entry<Class<?>,Set<ServletContainerInitializer>> entry : typeInitializerMap.entrySet()) {
                     if (entry.getKey().isAnnotation()) {
                         String entryClassName = entry.getKey().getName();
-                        for (AnnotationEntry annotationEntry : annotationEntries) {
-                            if (entryClassName.equals(getClassName(annotationEntry.getAnnotationType()))) {
+                        for (int i = 0; i < annotationCount; i++) {
+                            String annotationType = annotationTypes != null ? annotationTypes[i] :
+                                    annotationEntries[i].getAnnotationType();
+                            if (entryClassName.equals(getClassName(annotationType))) {
                                 if (clazz == null) {
                                     clazz = Introspection.loadClass(context, className);
                                     if (clazz == null) {
@@ -2356,18 +2965,18 @@ public class ContextConfig implements LifecycleListener {
         return msg.toString();
     }
 
-    private void populateJavaClassCache(String className, JavaClass javaClass,
+    private void populateJavaClassCache(String className, String superclassName, String[] interfaceNames,
             Map<String,JavaClassCacheEntry> javaClassCache) {
         if (javaClassCache.containsKey(className)) {
             return;
         }
 
         // Add this class to the cache
-        javaClassCache.put(className, new JavaClassCacheEntry(javaClass));
+        javaClassCache.put(className, new JavaClassCacheEntry(superclassName, interfaceNames));
 
-        populateJavaClassCache(javaClass.getSuperclassName(), javaClassCache);
+        populateJavaClassCache(superclassName, javaClassCache);
 
-        for (String interfaceName : javaClass.getInterfaceNames()) {
+        for (String interfaceName : interfaceNames) {
             populateJavaClassCache(interfaceName, javaClassCache);
         }
     }
@@ -2375,13 +2984,30 @@ public class ContextConfig implements LifecycleListener {
     private void populateJavaClassCache(String className, Map<String,JavaClassCacheEntry> javaClassCache) {
         if (!javaClassCache.containsKey(className)) {
             String name = className.replace('.', '/') + ".class";
-            try (InputStream is = context.getLoader().getClassLoader().getResourceAsStream(name)) {
+            ClassLoader classLoader = context.getLoader().getClassLoader();
+            AnnotationScanIndex index = annotationScanIndex;
+            if (index != null) {
+                // Avoid parsing the class again if the JAR it will be loaded
+                // from is indexed
+                URL url = classLoader.getResource(name);
+                if (url == null) {
+                    return;
+                }
+                AnnotationScanIndex.ClassEntry classEntry = index.getClassEntry(className, url);
+                if (classEntry != null) {
+                    populateJavaClassCache(className, classEntry.getSuperclassName(), classEntry.getInterfaceNames(),
+                            javaClassCache);
+                    return;
+                }
+            }
+            try (InputStream is = classLoader.getResourceAsStream(name)) {
                 if (is == null) {
                     return;
                 }
                 ClassParser parser = new ClassParser(is);
                 JavaClass clazz = parser.parse();
-                populateJavaClassCache(clazz.getClassName(), clazz, javaClassCache);
+                populateJavaClassCache(clazz.getClassName(), clazz.getSuperclassName(), clazz.getInterfaceNames(),
+                        javaClassCache);
             } catch (ClassFormatException | IOException e) {
                 log.debug(sm.getString("contextConfig.invalidSciHandlesTypes", className), e);
             }
@@ -2762,9 +3388,9 @@ public class ContextConfig implements LifecycleListener {
 
         private Set<ServletContainerInitializer> sciSet = null;
 
-        JavaClassCacheEntry(JavaClass javaClass) {
-            superclassName = javaClass.getSuperclassName();
-            interfaceNames = javaClass.getInterfaceNames();
+        JavaClassCacheEntry(String superclassName, String[] interfaceNames) {
+            this.superclassName = superclassName;
+            this.interfaceNames = interfaceNames;
         }
 
         public String getSuperclassName() {
@@ -0,0 +1,361 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.startup;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.file.PersistentDataFile;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Persistent cache of the effective web.xml of a web application, i.e. the result of merging the global, host and
+ * application web.xml files, tomcat-web.xml, the web-fragment.xml files and the annotations found in the web
+ * application. The cache is keyed by a fingerprint of the content of everything that contributes to the effective
+ * web.xml. If the fingerprint changes, the cached descriptor is ignored and the effective web.xml is built from
+ * scratch.
+ * <p>
+ * Alongside the descriptor, the cache records the information that cannot be expressed in web.xml but that is
+ * required to configure the Context: the original value of metadata-complete, the Servlets that may be overridden by
+ * ServletContainerInitializers and the ordered JARs.
+ */
+class EffectiveWebXmlCache {
+
+    private static final Log log = LogFactory.getLog(EffectiveWebXmlCache.class);
+    private static final StringManager sm = StringManager.getManager(Constants.Package);
+
+    static final String CACHE_FILE = "effectiveWebXml.dat";
+
+    private static final int MAGIC = 0x54455758;
+    private static final int VERSION = 1;
+
+    private final PersistentDataFile cacheFile;
+    private final byte[] fingerprint;
+
+
+    EffectiveWebXmlCache(File cacheFile, byte[] fingerprint) {
+        this.cacheFile = new PersistentDataFile(cacheFile, MAGIC, VERSION);
+        this.fingerprint = fingerprint;
+    }
+
+
+    File getCacheFile() {
+        return cacheFile.getFile();
+    }
+
+
+    /**
+     * Read the cached effective web.xml from disk.
+     *
+     * @return The cached entry or {@code null} if there is no cached entry, it cannot be read or it was created for a
+     *             different fingerprint
+     */
+    Entry load() {
+        try {
+            return cacheFile.read(this::readEntry);
+        } catch (IOException e) {
+            log.warn(sm.getString("effectiveWebXmlCache.readFail", cacheFile.getFile()), e);
+            return null;
+        }
+    }
+
+
+    private Entry readEntry(DataInputStream in) throws IOException {
+        byte[] cachedFingerprint = new byte[in.readInt()];
+        in.readFully(cachedFingerprint);
+        if (!Arrays.equals(fingerprint, cachedFingerprint)) {
+            return null;
+        }
+        byte[] webXml = new byte[in.readInt()];
+        in.readFully(webXml);
+        boolean metadataComplete = in.readBoolean();
+        List<String> overridableServlets = readStrings(in);
+        List<String> orderedLibs = null;
+        if (in.readBoolean()) {
+            orderedLibs = readStrings(in);
+        }
+        List<Fragment> orderedFragments = readFragments(in);
+        List<Fragment> otherFragments = readFragments(in);
+        return new Entry(new String(webXml, StandardCharsets.UTF_8), metadataComplete, overridableServlets,
+                orderedLibs, orderedFragments, otherFragments);
+    }
+
+
+    /**
+     * Write the effective web.xml to disk.
+     *
+     * @param entry The effective web.xml and associated information
+     */
+    void save(Entry entry) {
+        try {
+            cacheFile.write(out -> {
+                out.writeInt(fingerprint.length);
+                out.write(fingerprint);
+                // Not writeUTF() as that is limited to 64k
+                byte[] webXml = entry.getWebXml().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(webXml.length);
+                out.write(webXml);
+                out.writeBoolean(entry.isMetadataComplete());
+                writeStrings(out, entry.getOverridableServlets());
+                out.writeBoolean(entry.getOrderedLibs() != null);
+                if (entry.getOrderedLibs() != null) {
+                    writeStrings(out, entry.getOrderedLibs());
+                }
+                writeFragments(out, entry.getOrderedFragments());
+                writeFragments(out, entry.getOtherFragments());
+            });
+        } catch (IOException e) {
+            log.warn(sm.getString("effectiveWebXmlCache.writeFail", cacheFile.getFile()), e);
+        }
+    }
+
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(in.readUTF());
+        }
+        return result;
+    }
+
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+
+    private static List<Fragment> readFragments(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Fragment> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String url = in.readUTF();
+            String jarName = null;
+            if (in.readBoolean()) {
+                jarName = in.readUTF();
+            }
+            boolean webappJar = in.readBoolean();
+            result.add(new Fragment(url, jarName, webappJar));
+        }
+        return result;
+    }
+
+
+    private static void writeFragments(DataOutputStream out, List<Fragment> fragments) throws IOException {
+        out.writeInt(fragments.size());
+        for (Fragment fragment : fragments) {
+            out.writeUTF(fragment.getUrl());
+            out.writeBoolean(fragment.getJarName() != null);
+            if (fragment.getJarName() != null) {
+                out.writeUTF(fragment.getJarName());
+            }
+            out.writeBoolean(fragment.isWebappJar());
+        }
+    }
+
+
+    /**
+     * The cached effective web.xml and the associated information required to configure the Context.
+     */
+    static final class Entry {
+
+        private final String webXml;
+        private final boolean metadataComplete;
+        private final List<String> overridableServlets;
+        private final List<String> orderedLibs;
+        private final List<Fragment> orderedFragments;
+        private final List<Fragment> otherFragments;
+
+        Entry(String webXml, boolean metadataComplete, List<String> overridableServlets, List<String> orderedLibs,
+                List<Fragment> orderedFragments, List<Fragment> otherFragments) {
+            this.webXml = webXml;
+            this.metadataComplete = metadataComplete;
+            this.overridableServlets = Collections.unmodifiableList(overridableServlets);
+            this.orderedLibs = orderedLibs == null ? null : Collections.unmodifiableList(orderedLibs);
+            this.orderedFragments = Collections.unmodifiableList(orderedFragments);
+            this.otherFragments = Collections.unmodifiableList(otherFragments);
+        }
+
+        String getWebXml() {
+            return webXml;
+        }
+
+        boolean isMetadataComplete() {
+            return metadataComplete;
+        }
+
+        List<String> getOverridableServlets() {
+            return overridableServlets;
+        }
+
+        List<String> getOrderedLibs() {
+            return orderedLibs;
+        }
+
+        List<Fragment> getOrderedFragments() {
+            return orderedFragments;
+        }
+
+        List<Fragment> getOtherFragments() {
+            return otherFragments;
+        }
+    }
+
+
+    /**
+     * The information retained for each JAR (or directory) that provided a web fragment. This is sufficient to scan
+     * the JAR for {@code @HandlesTypes} matches and for static resources.
+     */
+    static final class Fragment {
+
+        private final String url;
+        private final String jarName;
+        private final boolean webappJar;
+
+        Fragment(String url, String jarName, boolean webappJar) {
+            this.url = url;
+            this.jarName = jarName;
+            this.webappJar = webappJar;
+        }
+
+        String getUrl() {
+            return url;
+        }
+
+        String getJarName() {
+            return jarName;
+        }
+
+        boolean isWebappJar() {
+            return webappJar;
+        }
+    }
+
+
+    /**
+     * Builds the fingerprint of the inputs to the effective web.xml.
+     */
+    static final class Fingerprint {
+
+        private final MessageDigest digest;
+
+        Fingerprint() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // SHA-256 is required to be supported by every JRE
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void add(String value) {
+            if (value == null) {
+                add(-1);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                add(bytes.length);
+                digest.update(bytes);
+            }
+        }
+
+        void add(long value) {
+            for (int i = 56; i >= 0; i -= 8) {
+                digest.update((byte) (value >>> i));
+            }
+        }
+
+        void add(boolean value) {
+            digest.update(value ? (byte) 1 : (byte) 0);
+        }
+
+        void add(InputStream is) throws IOException {
+            byte[] buf = new byte[8192];
+            long length = 0;
+            int n;
+            while ((n = is.read(buf)) > 0) {
+                digest.update(buf, 0, n);
+                length += n;
+            }
+            add(length);
+        }
+
+        /*
+         * JARs are identified by the name, size and CRC of each entry as that
+         * only requires the central directory to be read.
+         */
+        void addJar(File file) throws IOException {
+            try (ZipFile zipFile = new ZipFile(file)) {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    add(entry.getName());
+                    add(entry.getSize());
+                    add(entry.getCrc());
+                }
+            }
+        }
+
+        /*
+         * Directories are identified by the names and content of the files
+         * they contain.
+         */
+        void addFile(File file) throws IOException {
+            add(file.getName());
+            if (file.isDirectory()) {
+                String[] names = file.list();
+                if (names == null) {
+                    throw new IOException(file.getAbsolutePath());
+                }
+                Arrays.sort(names);
+                for (String name : names) {
+                    addFile(new File(file, name));
+                }
+            } else if (file.getName().endsWith(".jar")) {
+                addJar(file);
+            } else if (file.isFile()) {
+                try (InputStream is = Files.newInputStream(file.toPath())) {
+                    add(is);
+                }
+            } else {
+                add(-1);
+            }
+        }
+
+        byte[] get() {
+            return digest.digest();
+        }
+    }
+}
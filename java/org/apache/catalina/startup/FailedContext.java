@@ -1436,6 +1436,33 @@ public class FailedContext extends LifecycleMBeanBase implements Context {
     public void setParallelAnnotationScanning(boolean parallelAnnotationScanning) {
     }
 
+    @Override
+    public boolean getAnnotationScanIndex() {
+        return false;
+    }
+
+    @Override
+    public void setAnnotationScanIndex(boolean annotationScanIndex) {
+    }
+
+    @Override
+    public boolean getEffectiveWebXmlCache() {
+        return false;
+    }
+
+    @Override
+    public void setEffectiveWebXmlCache(boolean effectiveWebXmlCache) {
+    }
+
+    @Override
+    public boolean getParallelInitialization() {
+        return false;
+    }
+
+    @Override
+    public void setParallelInitialization(boolean parallelInitialization) {
+    }
+
     @Override
     public boolean getSuspendWrappedResponseAfterForward() {
         return false;
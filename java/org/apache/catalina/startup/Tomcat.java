@@ -1212,6 +1212,8 @@ public class Tomcat {
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("--no-jmx")) {
                 Registry.disableRegistry();
+            } else if (args[i].equals("--lazy-jmx")) {
+                Registry.enableLazyRegistration();
             } else if (args[i].equals("--catalina")) {
                 // This was already processed before
                 // Skip the rest of the arguments as they are for Catalina
@@ -1229,6 +1231,7 @@ public class Tomcat {
         // Use the default configuration source
         tomcat.init(null, catalinaArguments);
         boolean await = false;
+        boolean trainingRun = false;
         String path = "";
         // Process command line parameters
         for (int i = 0; i < args.length; i++) {
@@ -1245,7 +1248,9 @@ public class Tomcat {
                 path = args[i];
             } else if (args[i].equals("--await")) {
                 await = true;
-            } else if (args[i].equals("--no-jmx")) {
+            } else if (args[i].equals("--training-run")) {
+                trainingRun = true;
+            } else if (args[i].equals("--no-jmx") || args[i].equals("--lazy-jmx")) {
                 // This was already processed before
             } else if (args[i].equals("--catalina")) {
                 // This was already processed before
@@ -1256,6 +1261,12 @@ public class Tomcat {
             }
         }
         tomcat.start();
+        if (trainingRun) {
+            // Stop once started so the JVM can exit and write any class data sharing archive it was asked to create
+            tomcat.stop();
+            tomcat.destroy();
+            return;
+        }
         // Ideally the utility threads are non daemon
         if (await) {
             tomcat.getServer().await();
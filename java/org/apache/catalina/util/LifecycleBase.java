@@ -27,6 +27,7 @@ import org.apache.catalina.LifecycleState;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.ExceptionUtils;
+import org.apache.tomcat.util.jfr.JfrEvents;
 import org.apache.tomcat.util.res.StringManager;
 
 /**
@@ -112,12 +113,13 @@ public abstract class LifecycleBase implements Lifecycle {
 
 
     @Override
+    @SuppressWarnings("try")
     public final synchronized void init() throws LifecycleException {
         if (!state.equals(LifecycleState.NEW)) {
             invalidTransition(BEFORE_INIT_EVENT);
         }
 
-        try {
+        try (JfrEvents.Span span = JfrEvents.lifecycle(this, "init")) {
             setStateInternal(LifecycleState.INITIALIZING, null, false);
             initInternal();
             setStateInternal(LifecycleState.INITIALIZED, null, false);
@@ -136,6 +138,7 @@ public abstract class LifecycleBase implements Lifecycle {
 
 
     @Override
+    @SuppressWarnings("try")
     public final synchronized void start() throws LifecycleException {
 
         if (LifecycleState.STARTING_PREP.equals(state) || LifecycleState.STARTING.equals(state) ||
@@ -160,8 +163,10 @@ public abstract class LifecycleBase implements Lifecycle {
         }
 
         try {
-            setStateInternal(LifecycleState.STARTING_PREP, null, false);
-            startInternal();
+            try (JfrEvents.Span span = JfrEvents.lifecycle(this, "start")) {
+                setStateInternal(LifecycleState.STARTING_PREP, null, false);
+                startInternal();
+            }
             if (state.equals(LifecycleState.FAILED)) {
                 // This is a 'controlled' failure. The component put itself into the
                 // FAILED state so call stop() to complete the clean-up.
@@ -194,6 +199,7 @@ public abstract class LifecycleBase implements Lifecycle {
 
 
     @Override
+    @SuppressWarnings("try")
     public final synchronized void stop() throws LifecycleException {
 
         if (LifecycleState.STOPPING_PREP.equals(state) || LifecycleState.STOPPING.equals(state) ||
@@ -228,7 +234,9 @@ public abstract class LifecycleBase implements Lifecycle {
                 setStateInternal(LifecycleState.STOPPING_PREP, null, false);
             }
 
-            stopInternal();
+            try (JfrEvents.Span span = JfrEvents.lifecycle(this, "stop")) {
+                stopInternal();
+            }
 
             // Shouldn't be necessary but acts as a check that sub-classes are
             // doing what they are supposed to.
@@ -259,6 +267,7 @@ public abstract class LifecycleBase implements Lifecycle {
 
 
     @Override
+    @SuppressWarnings("try")
     public final synchronized void destroy() throws LifecycleException {
         if (LifecycleState.FAILED.equals(state)) {
             try {
@@ -289,7 +298,7 @@ public abstract class LifecycleBase implements Lifecycle {
             invalidTransition(BEFORE_DESTROY_EVENT);
         }
 
-        try {
+        try (JfrEvents.Span span = JfrEvents.lifecycle(this, "destroy")) {
             setStateInternal(LifecycleState.DESTROYING, null, false);
             destroyInternal();
             setStateInternal(LifecycleState.DESTROYED, null, false);
@@ -18,11 +18,10 @@ package org.apache.catalina.valves;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -39,7 +38,8 @@ import org.apache.tomcat.util.res.StringManager;
 
 /**
  * This valve allows to detect requests that take a long time to process, which might indicate that the thread that is
- * processing it is stuck.
+ * processing it is stuck. Requests are tracked in reusable slots rather than being keyed by thread ID so the valve works
+ * equally well with platform and virtual threads and adds very little overhead to each request.
  */
 public class StuckThreadDetectionValve extends ValveBase {
 
@@ -74,11 +74,25 @@ public class StuckThreadDetectionValve extends ValveBase {
     private int interruptThreadThreshold;
 
     /**
-     * The only references we keep to actual running Thread objects are in this Map (which is automatically cleaned in
-     * invoke()s finally clause). That way, Threads can be GC'ed, even though the Valve still thinks they are stuck
-     * (caused by a long monitor interval)
+     * The initial number of slots used to track requests. The array of slots is doubled in size whenever all the slots
+     * are in use and halved again by the background process, down to this size, once less than a quarter of the slots
+     * are in use.
      */
-    private final Map<Long, MonitoredThread> activeThreads = new ConcurrentHashMap<>();
+    private static final int INITIAL_SLOT_COUNT = 128;
+
+    /**
+     * The only references we keep to actual running Thread objects are in these slots (which are automatically cleared
+     * in invoke()s finally clause). That way, Threads can be GC'ed, even though the Valve still thinks they are stuck
+     * (caused by a long monitor interval). Slots are reused by subsequent requests so that tracking a request does not
+     * allocate. A slot that has been marked as stuck is never reused; it is replaced in the array once its request
+     * completes.
+     */
+    private volatile MonitoredThread[] slots = createSlots(INITIAL_SLOT_COUNT, 0);
+
+    /**
+     * Sequence used to select the first slot to try for each request, spreading concurrent requests across the array.
+     */
+    private final AtomicInteger slotSequence = new AtomicInteger();
 
     private final Queue<CompletedStuckThread> completedStuckThreadsQueue = new ConcurrentLinkedQueue<>();
 
@@ -169,34 +183,90 @@ public class StuckThreadDetectionValve extends ValveBase {
 
         // Save the thread/runnable
         // Keeping a reference to the thread object here does not prevent
-        // GC'ing, as the reference is removed from the Map in the finally clause
-
-        Thread currentThread = Thread.currentThread();
-        @SuppressWarnings("deprecation")
-        Long key = Long.valueOf(currentThread.getId());
-        StringBuffer requestUrl = request.getRequestURL();
-        if (request.getQueryString() != null) {
-            requestUrl.append('?');
-            requestUrl.append(request.getQueryString());
-        }
-        MonitoredThread monitoredThread = new MonitoredThread(currentThread, requestUrl.toString(),
-                interruptThreadThreshold > 0);
-        activeThreads.put(key, monitoredThread);
+        // GC'ing, as the reference is removed from the slot in the finally clause
+        MonitoredThread monitoredThread = claimSlot();
+        monitoredThread.start(Thread.currentThread(), request, interruptThreadThreshold > 0);
 
         try {
             getNext().invoke(request, response);
         } finally {
-            activeThreads.remove(key);
             if (monitoredThread.markAsDone() == MonitoredThreadState.STUCK) {
                 if (monitoredThread.wasInterrupted()) {
                     interruptedThreadsCount.incrementAndGet();
                 }
                 completedStuckThreadsQueue.add(
                         new CompletedStuckThread(monitoredThread.getThread(), monitoredThread.getActiveTimeInMillis()));
+                replaceSlot(monitoredThread);
             }
         }
     }
 
+
+    private MonitoredThread claimSlot() {
+        while (true) {
+            MonitoredThread[] slots = this.slots;
+            int mask = slots.length - 1;
+            int first = slotSequence.getAndIncrement();
+            for (int i = 0; i < slots.length; i++) {
+                MonitoredThread slot = slots[(first + i) & mask];
+                if (slot.claim()) {
+                    return slot;
+                }
+            }
+            growSlots(slots);
+        }
+    }
+
+
+    private synchronized void growSlots(MonitoredThread[] oldSlots) {
+        if (slots != oldSlots) {
+            // Another thread has already grown (or changed) the array
+            return;
+        }
+        MonitoredThread[] newSlots = createSlots(oldSlots.length * 2, oldSlots.length);
+        System.arraycopy(oldSlots, 0, newSlots, 0, oldSlots.length);
+        slots = newSlots;
+    }
+
+
+    private synchronized void shrinkSlots(MonitoredThread[] oldSlots) {
+        if (slots != oldSlots) {
+            return;
+        }
+        int newLength = oldSlots.length / 2;
+        // Claim the slots that are being removed so no new request can use
+        // them. If any of them is in use, try again on the next run.
+        for (int i = newLength; i < oldSlots.length; i++) {
+            if (!oldSlots[i].claim()) {
+                for (int j = newLength; j < i; j++) {
+                    oldSlots[j].release();
+                }
+                return;
+            }
+        }
+        slots = Arrays.copyOf(oldSlots, newLength);
+    }
+
+
+    /*
+     * A slot that was marked as stuck may still be referenced by the background thread so it is not reused. Replace it
+     * with a new slot instead.
+     */
+    private synchronized void replaceSlot(MonitoredThread oldSlot) {
+        MonitoredThread[] newSlots = slots.clone();
+        newSlots[oldSlot.getIndex()] = new MonitoredThread(oldSlot.getIndex());
+        slots = newSlots;
+    }
+
+
+    private static MonitoredThread[] createSlots(int size, int start) {
+        MonitoredThread[] result = new MonitoredThread[size];
+        for (int i = start; i < size; i++) {
+            result[i] = new MonitoredThread(i);
+        }
+        return result;
+    }
+
     @Override
     public void backgroundProcess() {
         super.backgroundProcess();
@@ -205,10 +275,20 @@ public class StuckThreadDetectionValve extends ValveBase {
 
         // Check monitored threads, being careful that the request might have
         // completed by the time we examine it
-        for (MonitoredThread monitoredThread : activeThreads.values()) {
+        MonitoredThread[] slots = this.slots;
+        int inUse = 0;
+        for (MonitoredThread monitoredThread : slots) {
+            long state = monitoredThread.getState();
+            MonitoredThreadState threadState = MonitoredThread.getThreadState(state);
+            if (threadState != MonitoredThreadState.FREE) {
+                inUse++;
+            }
+            if (threadState != MonitoredThreadState.RUNNING && threadState != MonitoredThreadState.STUCK) {
+                continue;
+            }
             long activeTime = monitoredThread.getActiveTimeInMillis();
 
-            if (activeTime >= thresholdInMillis && monitoredThread.markAsStuckIfStillRunning()) {
+            if (activeTime >= thresholdInMillis && monitoredThread.markAsStuckIfStillRunning(state)) {
                 int numStuckThreads = stuckCount.incrementAndGet();
                 notifyStuckThreadDetected(monitoredThread, activeTime, numStuckThreads);
             }
@@ -216,6 +296,10 @@ public class StuckThreadDetectionValve extends ValveBase {
                 monitoredThread.interruptIfStuck(interruptThreadThreshold);
             }
         }
+        // Release the slots added for a burst of concurrent requests
+        if (slots.length > INITIAL_SLOT_COUNT && inUse < slots.length / 4) {
+            shrinkSlots(slots);
+        }
         // Check if any threads previously reported as stuck, have finished.
         for (CompletedStuckThread completedStuckThread = completedStuckThreadsQueue
                 .poll(); completedStuckThread != null; completedStuckThread = completedStuckThreadsQueue.poll()) {
@@ -232,7 +316,7 @@ public class StuckThreadDetectionValve extends ValveBase {
     @SuppressWarnings("deprecation")
     public long[] getStuckThreadIds() {
         List<Long> idList = new ArrayList<>();
-        for (MonitoredThread monitoredThread : activeThreads.values()) {
+        for (MonitoredThread monitoredThread : slots) {
             if (monitoredThread.isMarkedAsStuck()) {
                 idList.add(Long.valueOf(monitoredThread.getThread().getId()));
             }
@@ -247,7 +331,7 @@ public class StuckThreadDetectionValve extends ValveBase {
 
     public String[] getStuckThreadNames() {
         List<String> nameList = new ArrayList<>();
-        for (MonitoredThread monitoredThread : activeThreads.values()) {
+        for (MonitoredThread monitoredThread : slots) {
             if (monitoredThread.isMarkedAsStuck()) {
                 nameList.add(monitoredThread.getThread().getName());
             }
@@ -259,44 +343,127 @@ public class StuckThreadDetectionValve extends ValveBase {
         return interruptedThreadsCount.get();
     }
 
+    /*
+     * Visible for testing.
+     */
+    int getSlotCount() {
+        return slots.length;
+    }
+
 
     private static class MonitoredThread {
 
+        /*
+         * The state combines the MonitoredThreadState ordinal (lowest two bits) with a generation that is incremented
+         * each time the slot is claimed by a new request. The generation ensures that the background thread does not
+         * mark a request as stuck based on the start time of an earlier request that used the same slot.
+         */
+        private static final int STATE_BITS = 2;
+        private static final long STATE_MASK = (1 << STATE_BITS) - 1;
+
+        private final int index;
+        private final AtomicLong state = new AtomicLong(MonitoredThreadState.FREE.ordinal());
         /**
          * Reference to the thread to get a stack trace from background task
          */
-        private final Thread thread;
-        private final String requestUri;
-        private final long start;
-        private final AtomicInteger state = new AtomicInteger(MonitoredThreadState.RUNNING.ordinal());
+        private Thread thread;
+        private String scheme;
+        private String serverName;
+        private int serverPort;
+        private String requestUri;
+        private String queryString;
+        private volatile long start;
         /**
          * Semaphore to synchronize the stuck thread with the background-process thread. It's not used if the
          * interruption feature is not active.
          */
-        private final Semaphore interruptionSemaphore;
+        private Semaphore interruptionSemaphore;
         /**
          * Set to true after the thread is interrupted. No need to make it volatile since it is accessed right after
          * acquiring the semaphore.
          */
         private boolean interrupted;
 
-        MonitoredThread(Thread thread, String requestUri, boolean interruptible) {
+        MonitoredThread(int index) {
+            this.index = index;
+        }
+
+        static MonitoredThreadState getThreadState(long state) {
+            return MonitoredThreadState.values()[(int) (state & STATE_MASK)];
+        }
+
+        private static long withThreadState(long state, MonitoredThreadState threadState) {
+            return (state & ~STATE_MASK) | threadState.ordinal();
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getState() {
+            return state.get();
+        }
+
+        public boolean claim() {
+            long current = state.get();
+            if (getThreadState(current) != MonitoredThreadState.FREE) {
+                return false;
+            }
+            // Start a new generation. The slot is DONE until start() completes so the background thread ignores it.
+            return state.compareAndSet(current,
+                    withThreadState(current + (1 << STATE_BITS), MonitoredThreadState.DONE));
+        }
+
+        /*
+         * Return a claimed slot that was never started to the pool.
+         */
+        public void release() {
+            state.set(withThreadState(state.get(), MonitoredThreadState.FREE));
+        }
+
+        public void start(Thread thread, Request request, boolean interruptible) {
             this.thread = thread;
-            this.requestUri = requestUri;
-            this.start = System.currentTimeMillis();
-            if (interruptible) {
+            this.scheme = request.getScheme();
+            this.serverName = request.getServerName();
+            this.serverPort = request.getServerPort();
+            this.requestUri = request.getRequestURI();
+            this.queryString = request.getQueryString();
+            if (interruptible && interruptionSemaphore == null) {
                 interruptionSemaphore = new Semaphore(1);
-            } else {
-                interruptionSemaphore = null;
             }
+            this.start = System.currentTimeMillis();
+            // Publishes the fields above to the background thread
+            state.set(withThreadState(state.get(), MonitoredThreadState.RUNNING));
         }
 
         public Thread getThread() {
             return this.thread;
         }
 
+        /*
+         * The URL is only required when a stuck thread is reported so it is constructed lazily (in the same form as
+         * HttpServletRequest.getRequestURL() plus the query string) to avoid the cost for every request.
+         */
         public String getRequestUri() {
-            return requestUri;
+            StringBuilder url = new StringBuilder();
+            int port = serverPort;
+            if (port < 0) {
+                // Work around java.net.URL bug
+                port = 80;
+            }
+            url.append(scheme);
+            url.append("://");
+            url.append(serverName);
+            if (("http".equals(scheme) && (port != 80)) || ("https".equals(scheme) && (port != 443))) {
+                url.append(':');
+                url.append(port);
+            }
+            url.append(requestUri);
+            if (queryString != null) {
+                url.append('?');
+                url.append(queryString);
+            }
+            return url.toString();
         }
 
         public long getActiveTimeInMillis() {
@@ -307,34 +474,44 @@ public class StuckThreadDetectionValve extends ValveBase {
             return new Date(start);
         }
 
-        public boolean markAsStuckIfStillRunning() {
-            return this.state.compareAndSet(MonitoredThreadState.RUNNING.ordinal(),
-                    MonitoredThreadState.STUCK.ordinal());
+        public boolean markAsStuckIfStillRunning(long expectedState) {
+            return getThreadState(expectedState) == MonitoredThreadState.RUNNING &&
+                    this.state.compareAndSet(expectedState, withThreadState(expectedState, MonitoredThreadState.STUCK));
         }
 
         public MonitoredThreadState markAsDone() {
-            int val = this.state.getAndSet(MonitoredThreadState.DONE.ordinal());
-            MonitoredThreadState threadState = MonitoredThreadState.values()[val];
-
-            if (threadState == MonitoredThreadState.STUCK && interruptionSemaphore != null) {
-                try {
-                    // use the semaphore to synchronize with the background thread
-                    // which might try to interrupt this current thread.
-                    // Otherwise, the current thread might be interrupted after
-                    // going out from here, maybe already serving a new request
-                    this.interruptionSemaphore.acquire();
-                } catch (InterruptedException e) {
-                    log.debug(sm.getString("stuckThreadDetectionValve.interrupted"), e);
+            long val = this.state.getAndUpdate(current -> withThreadState(current, MonitoredThreadState.DONE));
+            MonitoredThreadState threadState = getThreadState(val);
+
+            if (threadState == MonitoredThreadState.STUCK) {
+                if (interruptionSemaphore != null) {
+                    try {
+                        // use the semaphore to synchronize with the background thread
+                        // which might try to interrupt this current thread.
+                        // Otherwise, the current thread might be interrupted after
+                        // going out from here, maybe already serving a new request
+                        this.interruptionSemaphore.acquire();
+                    } catch (InterruptedException e) {
+                        log.debug(sm.getString("stuckThreadDetectionValve.interrupted"), e);
+                    }
+                    // no need to release the semaphore, it will be GCed
                 }
-                // no need to release the semaphore, it will be GCed
+                // A stuck slot is never reused so keep the details for the background thread
+            } else {
+                // else the request went through before being marked as stuck, no need
+                // to sync against the semaphore and the slot can be reused
+                thread = null;
+                scheme = null;
+                serverName = null;
+                requestUri = null;
+                queryString = null;
+                state.set(withThreadState(val, MonitoredThreadState.FREE));
             }
-            // else the request went through before being marked as stuck, no need
-            // to sync against the semaphore
             return threadState;
         }
 
         boolean isMarkedAsStuck() {
-            return this.state.get() == MonitoredThreadState.STUCK.ordinal();
+            return getThreadState(this.state.get()) == MonitoredThreadState.STUCK;
         }
 
         public boolean interruptIfStuck(long interruptThreadThreshold) {
@@ -396,6 +573,7 @@ public class StuckThreadDetectionValve extends ValveBase {
     private enum MonitoredThreadState {
         RUNNING,
         STUCK,
-        DONE
+        DONE,
+        FREE
     }
 }
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves.rewrite;
+
+import org.apache.tomcat.util.collections.ConcurrentCache;
+
+/**
+ * Wraps a {@link RewriteMap} and caches the results of its lookups. This is only suitable for maps which always
+ * return the same value for a given key.
+ */
+final class CachedRewriteMap implements RewriteMap {
+
+    /*
+     * The cache cannot hold null values so use a marker for lookups that returned null.
+     */
+    private static final String NULL = new String();
+
+    private final RewriteMap map;
+    private final ConcurrentCache<String,String> cache;
+
+
+    CachedRewriteMap(RewriteMap map, int cacheSize) {
+        this.map = map;
+        this.cache = new ConcurrentCache<>(cacheSize);
+    }
+
+
+    RewriteMap getMap() {
+        return map;
+    }
+
+
+    @Override
+    public String setParameters(String params) {
+        return map.setParameters(params);
+    }
+
+
+    @Override
+    public void setParameters(String... params) {
+        map.setParameters(params);
+    }
+
+
+    @Override
+    public String lookup(String key) {
+        String result = cache.get(key);
+        if (result == null) {
+            result = map.lookup(key);
+            cache.put(key, result == null ? NULL : result);
+            return result;
+        }
+        return result == NULL ? null : result;
+    }
+}
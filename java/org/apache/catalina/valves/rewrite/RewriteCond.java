@@ -28,10 +28,15 @@ public class RewriteCond {
 
     public static class PatternCondition extends Condition {
         public Pattern pattern;
+        public String prefix;
+        public boolean nocase;
         private ThreadLocal<Matcher> matcher = new ThreadLocal<>();
 
         @Override
         public boolean evaluate(String value, Resolver resolver) {
+            if (prefix != null && !RewriteRule.startsWith(value, prefix, nocase)) {
+                return false;
+            }
             Matcher m = pattern.matcher(value);
             if (m.matches()) {
                 matcher.set(m);
@@ -160,6 +165,8 @@ public class RewriteCond {
                 flags |= Pattern.CASE_INSENSITIVE;
             }
             ncondition.pattern = Pattern.compile(condPattern, flags);
+            ncondition.prefix = RewriteRule.getLiteralPrefix(condPattern);
+            ncondition.nocase = isNocase();
             this.condition = ncondition;
         }
     }
@@ -19,6 +19,7 @@ package org.apache.catalina.valves.rewrite;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -26,9 +27,30 @@ public class RewriteRule {
 
     protected RewriteCond[] conditions = new RewriteCond[0];
 
+    /**
+     * @deprecated Unused. The compiled pattern is shared between threads. Use {@link #compiledPattern}. This field will
+     *                 be removed in Tomcat 12.
+     */
+    @Deprecated
     protected ThreadLocal<Pattern> pattern = new ThreadLocal<>();
+
+    /**
+     * The compiled pattern, shared by all threads.
+     */
+    protected Pattern compiledPattern = null;
     protected Substitution substitution = null;
 
+    /**
+     * Literal prefix any URL matching the pattern must start with, used to skip the regular expression evaluation
+     * for rules that cannot match. <code>null</code> if no such prefix could be determined.
+     */
+    protected String patternPrefix = null;
+
+    /**
+     * Number of times this rule matched, including its conditions.
+     */
+    protected final LongAdder hitCount = new LongAdder();
+
     protected String patternString = null;
     protected String substitutionString = null;
     protected String flagsString = null;
@@ -51,7 +73,10 @@ public class RewriteRule {
         if (isNocase()) {
             flags |= Pattern.CASE_INSENSITIVE;
         }
-        Pattern.compile(patternString, flags);
+        compiledPattern = Pattern.compile(patternString, flags);
+        if (positive) {
+            patternPrefix = getLiteralPrefix(patternString);
+        }
         // Parse conditions
         for (RewriteCond condition : conditions) {
             condition.parse(maps);
@@ -88,17 +113,11 @@ public class RewriteRule {
      * @return <code>null</code> if no rewrite took place
      */
     public CharSequence evaluate(CharSequence url, Resolver resolver) {
-        Pattern pattern = this.pattern.get();
-        if (pattern == null) {
-            // Parse the pattern
-            int flags = Pattern.DOTALL;
-            if (isNocase()) {
-                flags |= Pattern.CASE_INSENSITIVE;
-            }
-            pattern = Pattern.compile(patternString, flags);
-            this.pattern.set(pattern);
+        if (patternPrefix != null && !startsWith(url, patternPrefix, isNocase())) {
+            // The pattern cannot match
+            return null;
         }
-        Matcher matcher = pattern.matcher(url);
+        Matcher matcher = compiledPattern.matcher(url);
         // Use XOR
         if (positive ^ matcher.matches()) {
             // Evaluation done
@@ -130,6 +149,7 @@ public class RewriteRule {
         }
         // Use the substitution to rewrite the url
         if (rewrite) {
+            hitCount.increment();
             if (isEnv()) {
                 for (int i = 0; i < envSubstitution.size(); i++) {
                     envResult.get(i).set(envSubstitution.get(i).evaluate(matcher, lastMatcher, resolver));
@@ -149,6 +169,89 @@ public class RewriteRule {
     }
 
 
+    /**
+     * @return the number of times this rule has matched since it was parsed or since the last call to
+     *             {@link #resetHitCount()}
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+
+    public void resetHitCount() {
+        hitCount.reset();
+    }
+
+
+    /**
+     * Determine the literal prefix that any input fully matching the given regular expression has to start with. Only
+     * simple cases are handled: the prefix ends at the first character with a special meaning, and patterns using
+     * alternation are ignored as the prefix would only apply to the first alternative.
+     *
+     * @param regex The regular expression
+     *
+     * @return the literal prefix, or <code>null</code> if there is none
+     */
+    static String getLiteralPrefix(String regex) {
+        if (regex.indexOf('|') >= 0) {
+            return null;
+        }
+        StringBuilder prefix = new StringBuilder();
+        int pos = 0;
+        if (regex.startsWith("^")) {
+            pos++;
+        }
+        while (pos < regex.length()) {
+            char c = regex.charAt(pos);
+            int literalLength;
+            char literal;
+            if (c == '\\') {
+                if (pos + 1 >= regex.length()) {
+                    break;
+                }
+                literal = regex.charAt(pos + 1);
+                if (Character.isLetterOrDigit(literal)) {
+                    // Character class, back reference, quoting, etc.
+                    break;
+                }
+                literalLength = 2;
+            } else if ("[](){}.*+?^$".indexOf(c) >= 0) {
+                break;
+            } else {
+                literal = c;
+                literalLength = 1;
+            }
+            if (pos + literalLength < regex.length() && "?*{".indexOf(regex.charAt(pos + literalLength)) >= 0) {
+                // The literal is optional
+                break;
+            }
+            prefix.append(literal);
+            pos += literalLength;
+        }
+        if (prefix.length() == 0) {
+            return null;
+        }
+        return prefix.toString();
+    }
+
+
+    static boolean startsWith(CharSequence sequence, String prefix, boolean ignoreCase) {
+        int length = prefix.length();
+        if (sequence.length() < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c1 = sequence.charAt(i);
+            char c2 = prefix.charAt(i);
+            if (c1 != c2 && (!ignoreCase || Character.toLowerCase(c1) != Character.toLowerCase(c2) &&
+                    Character.toUpperCase(c1) != Character.toUpperCase(c2))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
     /**
      * String representation.
      */
@@ -106,6 +106,13 @@ public class RewriteValve extends ValveBase {
     protected ArrayList<String> mapsConfiguration = new ArrayList<>();
 
 
+    /**
+     * Maximum number of results of lookups that will be cached for each user provided map. Caching is disabled if
+     * this is zero or less.
+     */
+    protected int mapCacheSize = 0;
+
+
     public RewriteValve() {
         super(true);
     }
@@ -120,6 +127,41 @@ public class RewriteValve extends ValveBase {
     }
 
 
+    public int getMapCacheSize() {
+        return mapCacheSize;
+    }
+
+    public void setMapCacheSize(int mapCacheSize) {
+        this.mapCacheSize = mapCacheSize;
+    }
+
+
+    /**
+     * @return the rules, in configuration order, followed by the number of times each of them has matched
+     */
+    public String[] getRuleHitCounts() {
+        RewriteRule[] rules = this.rules;
+        if (rules == null) {
+            return new String[0];
+        }
+        String[] result = new String[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            result[i] = rules[i].toString() + " " + rules[i].getHitCount();
+        }
+        return result;
+    }
+
+
+    public void resetRuleHitCounts() {
+        RewriteRule[] rules = this.rules;
+        if (rules != null) {
+            for (RewriteRule rule : rules) {
+                rule.resetHitCount();
+            }
+        }
+    }
+
+
     @Override
     protected void initInternal() throws LifecycleException {
         super.initInternal();
@@ -248,6 +290,10 @@ public class RewriteValve extends ValveBase {
                     if (map instanceof Lifecycle) {
                         ((Lifecycle) map).start();
                     }
+                    if (mapCacheSize > 0 && !(map instanceof RandomizedTextRewriteMap)) {
+                        // Randomized maps can't be cached and text maps are already held in memory
+                        maps.put(mapName, new CachedRewriteMap(map, mapCacheSize));
+                    }
                 }
             } catch (IOException e) {
                 containerLog.error(sm.getString("rewriteValve.readError"), e);
@@ -265,6 +311,9 @@ public class RewriteValve extends ValveBase {
     protected void stopInternal() throws LifecycleException {
         super.stopInternal();
         for (RewriteMap map : maps.values()) {
+            if (map instanceof CachedRewriteMap) {
+                map = ((CachedRewriteMap) map).getMap();
+            }
             if (map instanceof Lifecycle) {
                 ((Lifecycle) map).stop();
             }
@@ -22,6 +22,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 
 import org.apache.catalina.LifecycleException;
+import org.apache.catalina.WebResourceRoot;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.compat.JrePlatform;
@@ -56,6 +57,15 @@ public abstract class AbstractFileResourceSet extends AbstractResourceSet {
         return readOnly;
     }
 
+    /**
+     * @return {@code true} if the content of the files in this resource set should be made available as a memory
+     *             mapped {@link java.nio.ByteBuffer}
+     */
+    protected boolean isMappedContent() {
+        WebResourceRoot root = getRoot();
+        return root instanceof StandardRoot && ((StandardRoot) root).getMappedContent();
+    }
+
     protected final File file(String name, boolean mustExist) {
 
         if (name.equals("/")) {
@@ -83,7 +83,7 @@ public class Cache {
         if (cacheEntry == null) {
             // Local copy to ensure consistency
             int objectMaxSizeBytes = getObjectMaxSizeBytes();
-            CachedResource newCacheEntry = new CachedResource(this, root, path, getTtl(), objectMaxSizeBytes,
+            CachedResource newCacheEntry = new CachedResource(this, root, path, getEntryTtl(), objectMaxSizeBytes,
                     useClassLoaderResources);
 
             // Concurrent callers will end up with the same CachedResource
@@ -161,7 +161,7 @@ public class Cache {
         if (cacheEntry == null) {
             // Local copy to ensure consistency
             int objectMaxSizeBytes = getObjectMaxSizeBytes();
-            CachedResource newCacheEntry = new CachedResource(this, root, path, getTtl(), objectMaxSizeBytes,
+            CachedResource newCacheEntry = new CachedResource(this, root, path, getEntryTtl(), objectMaxSizeBytes,
                     useClassLoaderResources);
 
             // Concurrent callers will end up with the same CachedResource
@@ -265,6 +265,34 @@ public class Cache {
         }
     }
 
+    /**
+     * Remove the cache entries for the given path. Both the file and directory forms of the path (with and without a
+     * trailing '/') are removed.
+     *
+     * @param path            The path of the resource that has changed
+     * @param includeChildren Should the entries for any paths beneath the given path also be removed?
+     */
+    void removeCacheEntries(String path, boolean includeChildren) {
+        String dirPath;
+        if (path.endsWith("/")) {
+            dirPath = path;
+            if (path.length() > 1) {
+                removeCacheEntry(path.substring(0, path.length() - 1));
+            }
+        } else {
+            dirPath = path + "/";
+            removeCacheEntry(path);
+        }
+        removeCacheEntry(dirPath);
+        if (includeChildren) {
+            for (String key : resourceCache.keySet()) {
+                if (key.startsWith(dirPath)) {
+                    removeCacheEntry(key);
+                }
+            }
+        }
+    }
+
     public CacheStrategy getCacheStrategy() {
         return cacheStrategy;
     }
@@ -281,6 +309,18 @@ public class Cache {
         this.ttl = ttl;
     }
 
+    /*
+     * The cache entries for watched resources are removed when a change is
+     * notified. They are still validated, less frequently, in case a
+     * notification is missed.
+     */
+    private long getEntryTtl() {
+        if (root.isWatched()) {
+            return Math.max(ttl, root.getCacheWatchTtl());
+        }
+        return ttl;
+    }
+
     public long getMaxSize() {
         // Internally bytes, externally kilobytes
         return maxSize / 1024;
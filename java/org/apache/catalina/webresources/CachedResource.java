@@ -26,6 +26,7 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.security.Permission;
 import java.security.cert.Certificate;
@@ -305,6 +306,15 @@ public class CachedResource implements WebResource {
         return cachedContent;
     }
 
+    @Override
+    public ByteBuffer getContentBuffer() {
+        // Not cached. A mapping held for the lifetime of the cache entry would
+        // not reflect changes to the file, would keep the file locked on some
+        // platforms and would not be counted towards the size of the cache.
+        return webResource.getContentBuffer();
+    }
+
+
     @Override
     public long getCreation() {
         return webResource.getCreation();
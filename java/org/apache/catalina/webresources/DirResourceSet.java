@@ -101,7 +101,7 @@ public class DirResourceSet extends AbstractFileResourceSet {
             if (f.isDirectory() && path.charAt(path.length() - 1) != '/') {
                 path = path + '/';
             }
-            return new FileResource(root, path, f, isReadOnly(), getManifest());
+            return new FileResource(root, path, f, isReadOnly(), getManifest(), isMappedContent());
         } else {
             return new EmptyResource(root, path);
         }
@@ -24,9 +24,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.cert.Certificate;
 import java.util.jar.Manifest;
@@ -62,8 +65,14 @@ public class FileResource extends AbstractResource {
     private final boolean readOnly;
     private final Manifest manifest;
     private final boolean needConvert;
+    private final boolean mappedContent;
 
     public FileResource(WebResourceRoot root, String webAppPath, File resource, boolean readOnly, Manifest manifest) {
+        this(root, webAppPath, resource, readOnly, manifest, false);
+    }
+
+    public FileResource(WebResourceRoot root, String webAppPath, File resource, boolean readOnly, Manifest manifest,
+            boolean mappedContent) {
         super(root, webAppPath);
         this.resource = resource;
 
@@ -85,6 +94,7 @@ public class FileResource extends AbstractResource {
         this.readOnly = readOnly;
         this.manifest = manifest;
         this.needConvert = PROPERTIES_NEED_CONVERT && name.endsWith(".properties");
+        this.mappedContent = mappedContent;
     }
 
     @Override
@@ -233,6 +243,29 @@ public class FileResource extends AbstractResource {
     }
 
 
+    @Override
+    public ByteBuffer getContentBuffer() {
+        if (!mappedContent || needConvert) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(resource.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                // Can't map a region that big
+                return null;
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException | UnsupportedOperationException e) {
+            // Directories and some file systems can't be mapped
+            if (getLog().isDebugEnabled()) {
+                getLog().debug(sm.getString("fileResource.mapFail", getWebappPath()), e);
+            }
+            return null;
+        }
+    }
+
+
     @Override
     public long getCreation() {
         try {
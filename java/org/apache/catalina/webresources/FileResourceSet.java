@@ -76,7 +76,7 @@ public class FileResourceSet extends AbstractFileResourceSet {
             if (f == null) {
                 return new EmptyResource(root, path);
             }
-            return new FileResource(root, path, f, isReadOnly(), null);
+            return new FileResource(root, path, f, isReadOnly(), null, isMappedContent());
         }
 
         if (path.charAt(path.length() - 1) != '/') {
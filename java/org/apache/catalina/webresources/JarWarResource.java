@@ -50,6 +50,15 @@ public class JarWarResource extends AbstractArchiveResource {
         JarEntry entry = null;
         try {
             warFile = getArchiveResourceSet().openJarFile();
+
+            if (getArchiveResourceSet() instanceof JarWarResourceSet) {
+                InputStream is = ((JarWarResourceSet) getArchiveResourceSet()).getNestedInputStream(getResource());
+                if (is != null) {
+                    entry = getResource();
+                    return new JarInputStreamWrapper(entry, is);
+                }
+            }
+
             JarEntry jarFileInWar = warFile.getJarEntry(archivePath);
             InputStream isInWar = warFile.getInputStream(jarFileInWar);
 
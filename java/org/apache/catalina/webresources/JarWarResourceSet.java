@@ -31,6 +31,8 @@ import java.util.jar.Manifest;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.WebResource;
 import org.apache.catalina.WebResourceRoot;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.buf.UriUtil;
 
 /**
@@ -39,8 +41,16 @@ import org.apache.tomcat.util.buf.UriUtil;
  */
 public class JarWarResourceSet extends AbstractArchiveResourceSet {
 
+    private static final Log log = LogFactory.getLog(JarWarResourceSet.class);
+
     private final String archivePath;
 
+    /*
+     * Guarded by archiveLock. Only non-null when archiveEntries is non-null and the nested JAR could be opened
+     * directly. Released with the archive entries.
+     */
+    private NestedJarArchive nestedJar = null;
+
     /**
      * Creates a new {@link org.apache.catalina.WebResourceSet} based on a JAR file that is nested inside a WAR.
      *
@@ -94,6 +104,21 @@ public class JarWarResourceSet extends AbstractArchiveResourceSet {
                 boolean multiRelease = false;
                 try {
                     warFile = openJarFile();
+                    if (openNestedJar()) {
+                        archiveEntries.putAll(nestedJar.getEntries());
+                        Manifest m = nestedJar.getManifest();
+                        setManifest(m);
+                        if (m != null) {
+                            String value = m.getMainAttributes().getValue("Multi-Release");
+                            if (value != null) {
+                                multiRelease = Boolean.parseBoolean(value);
+                            }
+                        }
+                        if (multiRelease) {
+                            processArchivesEntriesForMultiRelease();
+                        }
+                        return archiveEntries;
+                    }
                     JarEntry jarFileInWar = warFile.getJarEntry(archivePath);
                     jarFileIs = warFile.getInputStream(jarFileInWar);
 
@@ -132,6 +157,7 @@ public class JarWarResourceSet extends AbstractArchiveResourceSet {
                 } catch (IOException ioe) {
                     // Should never happen
                     archiveEntries = null;
+                    releaseNestedJar();
                     throw new IllegalStateException(ioe);
                 } finally {
                     if (warFile != null) {
@@ -151,6 +177,54 @@ public class JarWarResourceSet extends AbstractArchiveResourceSet {
     }
 
 
+    /*
+     * Must be called while holding archiveLock.
+     */
+    private boolean openNestedJar() {
+        try {
+            nestedJar = NestedJarArchive.open(new File(getBase()), archivePath);
+        } catch (IOException ioe) {
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("jarWarResourceSet.openNestedFail", archivePath, getBase()), ioe);
+            }
+        }
+        return nestedJar != null;
+    }
+
+
+    /*
+     * Must be called while holding archiveLock.
+     */
+    private void releaseNestedJar() {
+        if (nestedJar != null) {
+            nestedJar.close();
+            nestedJar = null;
+        }
+    }
+
+
+    /**
+     * Obtain an InputStream for an entry of the nested JAR without streaming through the nested JAR. The caller must
+     * have obtained the WAR via {@link #openJarFile()} and must not call {@link #closeJarFile()} until the returned
+     * stream is no longer used.
+     *
+     * @param jarEntry The entry in the nested JAR
+     *
+     * @return The InputStream or {@code null} if the nested JAR has to be streamed to read the entry
+     *
+     * @throws IOException If the entry cannot be read
+     */
+    protected InputStream getNestedInputStream(JarEntry jarEntry) throws IOException {
+        synchronized (archiveLock) {
+            getArchiveEntries(false);
+            if (nestedJar == null) {
+                return null;
+            }
+            return nestedJar.getInputStream(jarEntry.getName());
+        }
+    }
+
+
     protected void processArchivesEntriesForMultiRelease() {
 
         int targetVersion = Runtime.version().feature();
@@ -217,6 +291,18 @@ public class JarWarResourceSet extends AbstractArchiveResourceSet {
     }
 
 
+    @Override
+    public void gc() {
+        synchronized (archiveLock) {
+            super.gc();
+            if (archiveEntries == null) {
+                // The archive was not in use and has been released
+                releaseNestedJar();
+            }
+        }
+    }
+
+
     // -------------------------------------------------------- Lifecycle methods
     @Override
     protected void initInternal() throws LifecycleException {
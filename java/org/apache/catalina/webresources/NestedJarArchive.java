@@ -0,0 +1,522 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import org.apache.tomcat.util.buf.ByteBufferUtils;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Read-only access to a JAR nested in a packed WAR that avoids streaming through the nested JAR for every lookup. The
+ * WAR is memory mapped and the central directories of the WAR and of the nested JAR are parsed directly. If the nested
+ * JAR is stored (not compressed) in the WAR it is used in place and the WAR remains mapped until {@link #close()} is
+ * called. Otherwise the nested JAR is inflated once to a temporary file, that file is mapped and the WAR is released
+ * immediately. The inflated JAR is therefore never held on the heap. Stored entries of the nested JAR are served
+ * directly from the mapped data and deflated entries are inflated from it.
+ * <p>
+ * Only the common case is supported. {@link #open(File, String)} returns {@code null} for ZIP64 archives, encrypted
+ * entries, compression methods other than stored and deflated and signed JARs (so that signatures continue to be
+ * verified) in which case the caller is expected to fall back to streaming.
+ * <p>
+ * Instances are not thread safe. Callers are expected to provide the necessary synchronization and to ensure that no
+ * stream obtained from {@link #getInputStream(String)} is used after {@link #close()} is called.
+ */
+class NestedJarArchive {
+
+    private static final StringManager sm = StringManager.getManager(NestedJarArchive.class);
+
+    private static final int LOCAL_HEADER_SIG = 0x04034b50;
+    private static final int LOCAL_HEADER_LEN = 30;
+    private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+    private static final int CENTRAL_HEADER_LEN = 46;
+    private static final int END_SIG = 0x06054b50;
+    private static final int END_LEN = 22;
+    private static final int MAX_COMMENT_LEN = 0xFFFF;
+    private static final int FLAG_ENCRYPTED = 0x01;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    // The mapped WAR or, if the nested JAR was deflated, the mapped temporary file
+    private MappedByteBuffer mapped;
+    // The temporary file if it could not be deleted while mapped
+    private File tmpFile;
+    private final ByteBuffer jar;
+    private final Map<String,CentralEntry> centralEntries;
+    private final Map<String,JarEntry> jarEntries;
+
+
+    private NestedJarArchive(MappedByteBuffer mapped, File tmpFile, ByteBuffer jar,
+            Map<String,CentralEntry> centralEntries, Map<String,JarEntry> jarEntries) {
+        this.mapped = mapped;
+        this.tmpFile = tmpFile;
+        this.jar = jar;
+        this.centralEntries = centralEntries;
+        this.jarEntries = jarEntries;
+    }
+
+
+    /**
+     * Open a JAR nested in a WAR.
+     *
+     * @param warFile     The WAR file
+     * @param archivePath The path of the JAR within the WAR
+     *
+     * @return The nested JAR or {@code null} if the WAR or the JAR uses a feature not supported by this class
+     *
+     * @throws IOException If the WAR cannot be read or is not a valid ZIP file
+     */
+    static NestedJarArchive open(File warFile, String archivePath) throws IOException {
+        MappedByteBuffer war;
+        try (FileChannel channel = FileChannel.open(warFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            war = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        MappedByteBuffer mapped = war;
+        File tmpFile = null;
+        boolean success = false;
+        try {
+            war.order(ByteOrder.LITTLE_ENDIAN);
+            Map<String,CentralEntry> warEntries = readCentralDirectory(war);
+            CentralEntry jarInWar = warEntries == null ? null : warEntries.get(archivePath);
+            if (jarInWar == null) {
+                return null;
+            }
+            ByteBuffer jar;
+            if (jarInWar.method == ZipEntry.STORED) {
+                jar = getData(war, jarInWar).order(ByteOrder.LITTLE_ENDIAN);
+            } else if (jarInWar.method == ZipEntry.DEFLATED) {
+                if (jarInWar.size > Integer.MAX_VALUE) {
+                    return null;
+                }
+                tmpFile = Files.createTempFile("nested-", ".jar").toFile();
+                mapped = inflate(getData(war, jarInWar), jarInWar.size, tmpFile);
+                // Nothing refers to the mapped WAR any more
+                ByteBufferUtils.cleanDirectBuffer(war);
+                // The mapping remains valid once the file is deleted on most
+                // platforms. Where it doesn't, delete the file on close().
+                if (tmpFile.delete()) {
+                    tmpFile = null;
+                }
+                jar = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            } else {
+                return null;
+            }
+            Map<String,CentralEntry> centralEntries = readCentralDirectory(jar);
+            if (centralEntries == null) {
+                return null;
+            }
+            Map<String,JarEntry> jarEntries = new HashMap<>((int) (centralEntries.size() / 0.75f) + 1);
+            for (CentralEntry centralEntry : centralEntries.values()) {
+                if (isSignatureFile(centralEntry.name)) {
+                    return null;
+                }
+                jarEntries.put(centralEntry.name, centralEntry.toJarEntry());
+            }
+            NestedJarArchive result = new NestedJarArchive(mapped, tmpFile, jar, centralEntries, jarEntries);
+            success = true;
+            return result;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new ZipException(e.getMessage());
+        } finally {
+            if (!success) {
+                ByteBufferUtils.cleanDirectBuffer(mapped);
+                if (mapped != war) {
+                    ByteBufferUtils.cleanDirectBuffer(war);
+                }
+                deleteTmpFile(tmpFile);
+            }
+        }
+    }
+
+
+    /*
+     * Inflate the compressed data to the given file and map it.
+     */
+    private static MappedByteBuffer inflate(ByteBuffer compressed, long size, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                InputStream is = new EntryInflaterInputStream(compressed)) {
+            byte[] buffer = new byte[8192];
+            long written = 0;
+            int n;
+            while ((n = is.read(buffer)) > 0) {
+                ByteBuffer bb = ByteBuffer.wrap(buffer, 0, n);
+                while (bb.hasRemaining()) {
+                    written += channel.write(bb);
+                }
+            }
+            if (written != size) {
+                throw new EOFException();
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+
+    private static void deleteTmpFile(File tmpFile) {
+        if (tmpFile != null && !tmpFile.delete() && tmpFile.exists()) {
+            tmpFile.deleteOnExit();
+        }
+    }
+
+
+    /**
+     * @return The entries of the nested JAR, keyed by name. The returned map must not be modified.
+     */
+    Map<String,JarEntry> getEntries() {
+        return jarEntries;
+    }
+
+
+    /**
+     * @return The manifest of the nested JAR or {@code null} if it does not have one
+     *
+     * @throws IOException If the manifest cannot be read
+     */
+    Manifest getManifest() throws IOException {
+        try (InputStream is = getInputStream(JarFile.MANIFEST_NAME)) {
+            if (is == null) {
+                return null;
+            }
+            return new Manifest(is);
+        }
+    }
+
+
+    /**
+     * Obtain the content of an entry in the nested JAR.
+     *
+     * @param name The name of the entry
+     *
+     * @return The content of the entry or {@code null} if the entry does not exist
+     *
+     * @throws IOException If the entry is not valid
+     */
+    InputStream getInputStream(String name) throws IOException {
+        CentralEntry centralEntry = centralEntries.get(name);
+        if (centralEntry == null) {
+            return null;
+        }
+        ByteBuffer data;
+        try {
+            data = getData(jar, centralEntry);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new ZipException(e.getMessage());
+        }
+        if (centralEntry.method == ZipEntry.STORED) {
+            if (data.hasArray()) {
+                return new ByteArrayInputStream(data.array(), data.arrayOffset(), data.remaining());
+            }
+            return new ByteBufferInputStream(data);
+        }
+        return new EntryInflaterInputStream(data);
+    }
+
+
+    /**
+     * Release the mapped WAR or inflated JAR. Any streams obtained from this archive must not be used once this method
+     * has been called.
+     */
+    void close() {
+        if (mapped != null) {
+            ByteBufferUtils.cleanDirectBuffer(mapped);
+            mapped = null;
+        }
+        deleteTmpFile(tmpFile);
+        tmpFile = null;
+    }
+
+
+    private static boolean isSignatureFile(String name) {
+        if (!name.startsWith("META-INF/") || name.indexOf('/', 9) != -1) {
+            return false;
+        }
+        String upper = name.toUpperCase(Locale.ENGLISH);
+        return upper.endsWith(".SF") || upper.endsWith(".RSA") || upper.endsWith(".DSA") || upper.endsWith(".EC");
+    }
+
+
+    /*
+     * Returns null if the archive uses a feature that is not supported.
+     */
+    private static Map<String,CentralEntry> readCentralDirectory(ByteBuffer zip) throws IOException {
+        int end = findEnd(zip);
+        int entryCount = zip.getShort(end + 10) & 0xFFFF;
+        long directorySize = zip.getInt(end + 12) & 0xFFFFFFFFL;
+        long directoryOffset = zip.getInt(end + 16) & 0xFFFFFFFFL;
+        if (entryCount == 0xFFFF || directorySize == ZIP64_MAGIC || directoryOffset == ZIP64_MAGIC) {
+            return null;
+        }
+        if (directoryOffset + directorySize > end) {
+            throw new ZipException();
+        }
+
+        Map<String,CentralEntry> result = new HashMap<>((int) (entryCount / 0.75f) + 1);
+        int pos = (int) directoryOffset;
+        for (int i = 0; i < entryCount; i++) {
+            if (zip.getInt(pos) != CENTRAL_HEADER_SIG) {
+                throw new ZipException();
+            }
+            int flags = zip.getShort(pos + 8) & 0xFFFF;
+            int method = zip.getShort(pos + 10) & 0xFFFF;
+            int dosTime = zip.getInt(pos + 12);
+            long crc = zip.getInt(pos + 16) & 0xFFFFFFFFL;
+            long compressedSize = zip.getInt(pos + 20) & 0xFFFFFFFFL;
+            long size = zip.getInt(pos + 24) & 0xFFFFFFFFL;
+            int nameLength = zip.getShort(pos + 28) & 0xFFFF;
+            int extraLength = zip.getShort(pos + 30) & 0xFFFF;
+            int commentLength = zip.getShort(pos + 32) & 0xFFFF;
+            long localHeaderOffset = zip.getInt(pos + 42) & 0xFFFFFFFFL;
+            if ((flags & FLAG_ENCRYPTED) != 0 || method != ZipEntry.STORED && method != ZipEntry.DEFLATED ||
+                    compressedSize == ZIP64_MAGIC || size == ZIP64_MAGIC || localHeaderOffset == ZIP64_MAGIC) {
+                return null;
+            }
+            byte[] name = new byte[nameLength];
+            zip.get(pos + CENTRAL_HEADER_LEN, name);
+            byte[] extra = null;
+            if (extraLength > 0) {
+                extra = new byte[extraLength];
+                zip.get(pos + CENTRAL_HEADER_LEN + nameLength, extra);
+            }
+            CentralEntry entry = new CentralEntry(new String(name, StandardCharsets.UTF_8), method, dosTime, crc,
+                    compressedSize, size, extra, (int) localHeaderOffset);
+            // Consistent with ZipFile, the first entry with a given name wins
+            result.putIfAbsent(entry.name, entry);
+            pos += CENTRAL_HEADER_LEN + nameLength + extraLength + commentLength;
+        }
+        return result;
+    }
+
+
+    private static int findEnd(ByteBuffer zip) throws ZipException {
+        int min = Math.max(0, zip.limit() - END_LEN - MAX_COMMENT_LEN);
+        for (int pos = zip.limit() - END_LEN; pos >= min; pos--) {
+            if (zip.getInt(pos) == END_SIG) {
+                return pos;
+            }
+        }
+        throw new ZipException();
+    }
+
+
+    private static ByteBuffer getData(ByteBuffer zip, CentralEntry entry) throws ZipException {
+        int pos = entry.localHeaderOffset;
+        if (zip.getInt(pos) != LOCAL_HEADER_SIG) {
+            throw new ZipException();
+        }
+        int nameLength = zip.getShort(pos + 26) & 0xFFFF;
+        int extraLength = zip.getShort(pos + 28) & 0xFFFF;
+        long start = (long) pos + LOCAL_HEADER_LEN + nameLength + extraLength;
+        long length = entry.method == ZipEntry.STORED ? entry.size : entry.compressedSize;
+        if (start + length > zip.limit()) {
+            throw new ZipException();
+        }
+        return zip.slice((int) start, (int) length);
+    }
+
+
+    private static class CentralEntry {
+        private final String name;
+        private final int method;
+        private final int dosTime;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final byte[] extra;
+        private final int localHeaderOffset;
+
+        CentralEntry(String name, int method, int dosTime, long crc, long compressedSize, long size, byte[] extra,
+                int localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.dosTime = dosTime;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.extra = extra;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        JarEntry toJarEntry() {
+            JarEntry result = new JarEntry(name);
+            result.setMethod(method);
+            result.setCrc(crc);
+            result.setCompressedSize(compressedSize);
+            result.setSize(size);
+            try {
+                result.setTimeLocal(LocalDateTime.of(((dosTime >> 25) & 0x7f) + 1980, (dosTime >> 21) & 0x0f,
+                        (dosTime >> 16) & 0x1f, (dosTime >> 11) & 0x1f, (dosTime >> 5) & 0x3f, (dosTime << 1) & 0x3e));
+            } catch (DateTimeException e) {
+                // Leave the time unset
+            }
+            if (extra != null) {
+                try {
+                    // Picks up any extended timestamps
+                    result.setExtra(extra);
+                } catch (IllegalArgumentException e) {
+                    // Ignore invalid extra data
+                }
+            }
+            return result;
+        }
+    }
+
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private ByteBuffer data;
+
+        ByteBufferInputStream(ByteBuffer data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() throws IOException {
+            ByteBuffer data = getData();
+            if (!data.hasRemaining()) {
+                return -1;
+            }
+            return data.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            ByteBuffer data = getData();
+            if (len == 0) {
+                return 0;
+            }
+            if (!data.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, data.remaining());
+            data.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            ByteBuffer data = getData();
+            int skipped = (int) Math.max(0, Math.min(n, data.remaining()));
+            data.position(data.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return getData().remaining();
+        }
+
+        @Override
+        public void close() {
+            data = null;
+        }
+
+        private ByteBuffer getData() throws IOException {
+            ByteBuffer data = this.data;
+            if (data == null) {
+                throw new IOException(sm.getString("nestedJarArchive.streamClosed"));
+            }
+            return data;
+        }
+    }
+
+
+    private static class EntryInflaterInputStream extends InputStream {
+
+        private Inflater inflater;
+        private final byte[] single = new byte[1];
+
+        EntryInflaterInputStream(ByteBuffer data) {
+            inflater = new Inflater(true);
+            inflater.setInput(data);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int n = read(single, 0, 1);
+            return n < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Inflater inflater = this.inflater;
+            if (inflater == null) {
+                throw new IOException(sm.getString("nestedJarArchive.streamClosed"));
+            }
+            if (len == 0) {
+                return 0;
+            }
+            try {
+                while (true) {
+                    int n = inflater.inflate(b, off, len);
+                    if (n > 0) {
+                        return n;
+                    }
+                    if (inflater.finished()) {
+                        return -1;
+                    }
+                    if (inflater.needsInput() || inflater.needsDictionary()) {
+                        // All the compressed data was provided up front
+                        throw new EOFException();
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException(e.getMessage());
+            }
+        }
+
+        @Override
+        public int available() {
+            Inflater inflater = this.inflater;
+            return inflater == null || inflater.finished() ? 0 : 1;
+        }
+
+        @Override
+        public void close() {
+            Inflater inflater = this.inflater;
+            this.inflater = null;
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.apache.catalina.WebResourceSet;
+
+/**
+ * Index of the directories (packages) present in the JARs mounted at {@code /WEB-INF/classes} for use by the web
+ * application class loader. A class loader lookup then only needs to probe the JARs that contain the directory of the
+ * requested resource rather than every JAR. The index is built when the resources start and is immutable after that
+ * so it may be used concurrently without synchronization.
+ * <p>
+ * Each JAR is indexed by enumerating its entries. An entry contributes its parent directory and every ancestor of that
+ * directory. Entries in multi-release JARs also contribute the directories they have once the
+ * {@code META-INF/versions/<n>/} prefix is removed. The index is always built from the JARs themselves. It is not
+ * persisted between starts as a stale index would hide classes and resources that are present.
+ * <p>
+ * Resource sets that cannot be indexed (directories, JARs nested in a WAR, JARs with an internal path) are always
+ * probed.
+ */
+class PackageIndex {
+
+    private static final String CLASSES_MOUNT = "/WEB-INF/classes";
+    private static final String VERSIONS_PREFIX = "META-INF/versions/";
+
+    private final List<WebResourceSet> all;
+    private final List<WebResourceSet> unindexed;
+    private final Map<String,List<WebResourceSet>> candidates;
+
+
+    private PackageIndex(List<WebResourceSet> all, List<WebResourceSet> unindexed,
+            Map<String,List<WebResourceSet>> candidates) {
+        this.all = all;
+        this.unindexed = unindexed;
+        this.candidates = candidates;
+    }
+
+
+    /**
+     * @return the number of resource sets used to build the index
+     */
+    int getSize() {
+        return all.size();
+    }
+
+
+    /**
+     * Obtain the resource sets that might contain the given path.
+     *
+     * @param path The web application path of the resource
+     *
+     * @return The resource sets to probe, in the same order as the resource sets used to build the index
+     */
+    List<WebResourceSet> getCandidates(String path) {
+        if (!path.startsWith(CLASSES_MOUNT)) {
+            // None of the indexed sets can contain this
+            return unindexed;
+        }
+        int start = CLASSES_MOUNT.length();
+        if (path.length() == start) {
+            return all;
+        }
+        if (path.charAt(start) != '/') {
+            // e.g. /WEB-INF/classesX
+            return unindexed;
+        }
+        start++;
+        int end = path.length();
+        if (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        if (end <= start) {
+            // The root of the mount
+            return all;
+        }
+        int slash = path.lastIndexOf('/', end - 1);
+        String dir;
+        if (slash < start) {
+            dir = "";
+        } else {
+            dir = path.substring(start, slash + 1);
+        }
+        List<WebResourceSet> result = candidates.get(dir);
+        if (result == null) {
+            return unindexed;
+        }
+        return result;
+    }
+
+
+    /**
+     * Build an index for the given resource sets.
+     *
+     * @param resourceSets The resource sets to index in the order they are searched
+     *
+     * @return The index
+     */
+    static PackageIndex build(List<WebResourceSet> resourceSets) {
+        int count = resourceSets.size();
+        WebResourceSet[] all = resourceSets.toArray(new WebResourceSet[0]);
+        BitSet unindexedBits = new BitSet(count);
+        Map<String,BitSet> dirBits = new HashMap<>();
+
+        for (int i = 0; i < count; i++) {
+            WebResourceSet resourceSet = all[i];
+            File jar = getIndexableJar(resourceSet);
+            if (jar == null) {
+                unindexedBits.set(i);
+                continue;
+            }
+            Set<String> directories;
+            try {
+                directories = readDirectories(jar);
+            } catch (IOException e) {
+                // Let the resource set report the problem if/when it is used
+                unindexedBits.set(i);
+                continue;
+            }
+            for (String dir : directories) {
+                dirBits.computeIfAbsent(dir, k -> new BitSet(count)).set(i);
+            }
+        }
+
+        List<WebResourceSet> unindexed = toList(all, unindexedBits);
+        Map<String,List<WebResourceSet>> candidates = new HashMap<>((int) (dirBits.size() / 0.75f) + 1);
+        for (Map.Entry<String,BitSet> entry : dirBits.entrySet()) {
+            BitSet bits = entry.getValue();
+            bits.or(unindexedBits);
+            candidates.put(entry.getKey(), toList(all, bits));
+        }
+
+        return new PackageIndex(List.of(all), unindexed, candidates);
+    }
+
+
+    private static List<WebResourceSet> toList(WebResourceSet[] all, BitSet bits) {
+        WebResourceSet[] result = new WebResourceSet[bits.cardinality()];
+        int pos = 0;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            result[pos++] = all[i];
+        }
+        return List.of(result);
+    }
+
+
+    private static File getIndexableJar(WebResourceSet resourceSet) {
+        if (!(resourceSet instanceof JarResourceSet)) {
+            return null;
+        }
+        JarResourceSet jarResourceSet = (JarResourceSet) resourceSet;
+        if (!CLASSES_MOUNT.equals(jarResourceSet.getWebAppMount()) ||
+                !jarResourceSet.getInternalPath().isEmpty()) {
+            return null;
+        }
+        File file = new File(jarResourceSet.getBase());
+        if (!file.isFile()) {
+            return null;
+        }
+        return file;
+    }
+
+
+    static Set<String> readDirectories(File jar) throws IOException {
+        Set<String> directories = new HashSet<>();
+        directories.add("");
+        try (JarFile jarFile = new JarFile(jar)) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                addDirectories(name, directories);
+                if (name.startsWith(VERSIONS_PREFIX)) {
+                    int versionEnd = name.indexOf('/', VERSIONS_PREFIX.length());
+                    if (versionEnd > 0) {
+                        addDirectories(name.substring(versionEnd + 1), directories);
+                    }
+                }
+            }
+        }
+        return directories;
+    }
+
+
+    private static void addDirectories(String name, Set<String> directories) {
+        int end = name.length();
+        if (end > 0 && name.charAt(end - 1) == '/') {
+            end--;
+        }
+        int slash = name.lastIndexOf('/', end - 1);
+        while (slash > 0) {
+            if (!directories.add(name.substring(0, slash + 1))) {
+                // Ancestors will already have been added
+                return;
+            }
+            slash = name.lastIndexOf('/', slash - 1);
+        }
+    }
+}
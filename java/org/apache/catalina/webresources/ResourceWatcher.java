@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.catalina.WebResourceSet;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Watches the directories of the file based resource sets of a {@link StandardRoot} for changes and removes the
+ * affected entries from the resource cache. While every file based resource set is watched, cache entries only need to
+ * be validated against the file system, in case a notification is missed, when the longer watch TTL expires.
+ * <p>
+ * Events are not delivered by a dedicated thread. Instead, the {@link WatchService} queues events as they occur and
+ * they are processed by the background processing of the web application, keeping the cost of cache lookups
+ * unchanged.
+ */
+class ResourceWatcher {
+
+    private static final Log log = LogFactory.getLog(ResourceWatcher.class);
+    private static final StringManager sm = StringManager.getManager(ResourceWatcher.class);
+
+    /*
+     * Prefixes of the types of file stores that are shared with other hosts or implemented in user space. Changes to
+     * these are not reliably reported, e.g. changes made by other NFS clients are never reported.
+     */
+    private static final String[] REMOTE_FILE_STORE_TYPES = { "nfs", "cifs", "smb", "fuse" };
+
+    private final StandardRoot root;
+    private final Cache cache;
+    private final WatchService watchService;
+    private final Map<WatchKey,List<Registration>> registrations = new ConcurrentHashMap<>();
+
+    // Set to false if any file based resource set could not be watched
+    private volatile boolean complete = true;
+
+
+    private ResourceWatcher(StandardRoot root, Cache cache, WatchService watchService) {
+        this.root = root;
+        this.cache = cache;
+        this.watchService = watchService;
+    }
+
+
+    /**
+     * Create a watcher for the given root.
+     *
+     * @param root  The root whose resource sets will be watched
+     * @param cache The cache to invalidate when changes are detected
+     *
+     * @return The watcher or {@code null} if the file system does not support notification of changes
+     */
+    static ResourceWatcher create(StandardRoot root, Cache cache) {
+        WatchService watchService;
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            log.info(sm.getString("resourceWatcher.unsupported", root.getContext().getName()), e);
+            return null;
+        }
+        // Implementations that poll the file system would re-introduce the
+        // file system access that watching is intended to avoid
+        if (watchService.getClass().getName().contains("Polling")) {
+            log.info(sm.getString("resourceWatcher.unsupported", root.getContext().getName()));
+            close(watchService);
+            return null;
+        }
+        return new ResourceWatcher(root, cache, watchService);
+    }
+
+
+    /**
+     * @return {@code true} if every file based resource set is being watched and cache entries therefore only need to
+     *             be validated when the watch TTL expires
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+
+    /**
+     * Start watching the given resource set. Only file based resource sets are watched. Archive based resource sets are
+     * assumed not to change.
+     *
+     * @param resourceSet The resource set to watch
+     */
+    void watch(WebResourceSet resourceSet) {
+        if (!(resourceSet instanceof AbstractFileResourceSet)) {
+            return;
+        }
+        AbstractFileResourceSet fileResourceSet = (AbstractFileResourceSet) resourceSet;
+        File fileBase = fileResourceSet.getFileBase();
+        if (fileBase == null) {
+            // Not started
+            complete = false;
+            return;
+        }
+        String webAppMount = fileResourceSet.getWebAppMount();
+        try {
+            Path base = fileBase.toPath().toAbsolutePath();
+            FileStore fileStore = Files.getFileStore(base);
+            if (isRemote(fileStore.type())) {
+                // Changes made locally are still reported so keep watching
+                complete = false;
+                log.info(sm.getString("resourceWatcher.remoteFileStore", fileBase, fileStore.type(),
+                        root.getContext().getName()));
+            }
+            if (resourceSet instanceof FileResourceSet) {
+                register(base.getParent(), new Registration(webAppMount, base.getFileName().toString()));
+            } else {
+                registerAll(base, webAppMount);
+            }
+        } catch (IOException | RuntimeException e) {
+            complete = false;
+            log.warn(sm.getString("resourceWatcher.registerFail", fileBase, root.getContext().getName()), e);
+        }
+    }
+
+
+    /**
+     * Process any pending change notifications, removing the affected entries from the cache.
+     */
+    void processEvents() {
+        WatchKey key;
+        try {
+            key = watchService.poll();
+        } catch (ClosedWatchServiceException e) {
+            return;
+        }
+        while (key != null) {
+            List<Registration> keyRegistrations = registrations.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    // Events have been lost
+                    cache.clear();
+                } else if (keyRegistrations != null) {
+                    for (Registration registration : keyRegistrations) {
+                        processEvent(key, registration, event);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                // The directory is no longer accessible
+                registrations.remove(key);
+            }
+            try {
+                key = watchService.poll();
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+        }
+    }
+
+
+    void close() {
+        registrations.clear();
+        close(watchService);
+    }
+
+
+    /**
+     * @param fileStoreType The type of a file store as returned by {@link FileStore#type()}
+     *
+     * @return {@code true} if changes to the file store may not be reported because it is shared with other hosts or
+     *             implemented in user space
+     */
+    static boolean isRemote(String fileStoreType) {
+        String type = fileStoreType.toLowerCase(Locale.ENGLISH);
+        for (String remoteType : REMOTE_FILE_STORE_TYPES) {
+            if (type.startsWith(remoteType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private void processEvent(WatchKey key, Registration registration, WatchEvent<?> event) {
+        String name = event.context().toString();
+        String path;
+        if (registration.fileName != null) {
+            // Single file resource set. Ignore the other files in the directory.
+            if (!registration.fileName.equals(name)) {
+                return;
+            }
+            path = registration.webAppPath;
+        } else {
+            path = registration.webAppPath + name.replace(File.separatorChar, '/');
+        }
+
+        if (log.isTraceEnabled()) {
+            log.trace(sm.getString("resourceWatcher.event", event.kind().name(), path, root.getContext().getName()));
+        }
+
+        // Register a new directory before removing the cache entries so that
+        // entries for files created in it before it was registered, which
+        // will not be notified, are removed too
+        if (registration.fileName == null && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+            Path dir = ((Path) key.watchable()).resolve((Path) event.context());
+            if (Files.isDirectory(dir)) {
+                try {
+                    registerAll(dir, path);
+                } catch (IOException | RuntimeException e) {
+                    complete = false;
+                    log.warn(sm.getString("resourceWatcher.registerFail", dir, root.getContext().getName()), e);
+                }
+            }
+        }
+
+        // A created or deleted entry may be a directory so entries for paths
+        // beneath it are invalid too
+        boolean includeChildren = event.kind() != StandardWatchEventKinds.ENTRY_MODIFY;
+        cache.removeCacheEntries(path, includeChildren);
+        String parent = path.substring(0, path.lastIndexOf('/') + 1);
+        cache.removeCacheEntries(parent, false);
+    }
+
+
+    private void registerAll(Path start, String startWebAppPath) throws IOException {
+        Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                new SimpleFileVisitor<>() {
+
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                            throws IOException {
+                        String webAppPath = startWebAppPath;
+                        String relative = start.relativize(dir).toString().replace(File.separatorChar, '/');
+                        if (!relative.isEmpty()) {
+                            webAppPath = appendSeparator(webAppPath) + relative;
+                        }
+                        register(dir, new Registration(appendSeparator(webAppPath), null));
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
+                        if (exc instanceof FileSystemLoopException) {
+                            // Already registered via another path
+                            return FileVisitResult.CONTINUE;
+                        }
+                        throw exc;
+                    }
+                });
+    }
+
+
+    private void register(Path dir, Registration registration) throws IOException {
+        WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        List<Registration> keyRegistrations = registrations.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>());
+        for (Registration existing : keyRegistrations) {
+            if (existing.webAppPath.equals(registration.webAppPath) &&
+                    Objects.equals(existing.fileName, registration.fileName)) {
+                // A directory created after it was registered may be reported
+                // when it is already being watched
+                return;
+            }
+        }
+        keyRegistrations.add(registration);
+    }
+
+
+    private static String appendSeparator(String path) {
+        if (path.endsWith("/")) {
+            return path;
+        }
+        return path + "/";
+    }
+
+
+    private static void close(WatchService watchService) {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+
+    private static class Registration {
+
+        // The web application path of the directory or, for a single file
+        // resource set, of the file
+        private final String webAppPath;
+        // The name of the file for a single file resource set
+        private final String fileName;
+
+        Registration(String webAppPath, String fileName) {
+            this.webAppPath = webAppPath;
+            this.fileName = fileName;
+        }
+    }
+}
@@ -76,12 +76,19 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     private final Cache cache = new Cache(this);
     private boolean cachingAllowed = true;
     private ObjectName cacheJmxName = null;
+    private boolean cacheWatch = false;
+    private long cacheWatchTtl = 60000;
+    private volatile ResourceWatcher watcher = null;
 
     private boolean trackLockedFiles = false;
     private final Set<TrackedWebResource> trackedResources = ConcurrentHashMap.newKeySet();
 
     private ArchiveIndexStrategy archiveIndexStrategy = ArchiveIndexStrategy.SIMPLE;
 
+    private boolean packageIndex = false;
+    private boolean mappedContent = false;
+    private volatile PackageIndex classResourcesIndex = null;
+
     // Constructs to make iteration over all WebResourceSets simpler
     private final List<WebResourceSet> mainResources = new ArrayList<>();
     private final List<List<WebResourceSet>> allResources = new ArrayList<>();
@@ -266,7 +273,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         WebResource virtual = null;
         WebResource mainEmpty = null;
         for (List<WebResourceSet> list : allResources) {
-            for (WebResourceSet webResourceSet : list) {
+            for (WebResourceSet webResourceSet : getResourceSets(list, path, useClassLoaderResources)) {
                 if (!useClassLoaderResources && !webResourceSet.getClassLoaderOnly() ||
                         useClassLoaderResources && !webResourceSet.getStaticOnly()) {
                     result = webResourceSet.getResource(path);
@@ -293,6 +300,21 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         return mainEmpty;
     }
 
+    /*
+     * Use the package index, if any, to limit the class resources searched to those that might contain the path.
+     */
+    private List<WebResourceSet> getResourceSets(List<WebResourceSet> list, String path,
+            boolean useClassLoaderResources) {
+        if (useClassLoaderResources && list == classResources) {
+            // The index is discarded if class resources are added after it was built
+            PackageIndex index = classResourcesIndex;
+            if (index != null) {
+                return index.getCandidates(path);
+            }
+        }
+        return list;
+    }
+
     @Override
     public WebResource[] getResources(String path) {
         return getResources(path, false);
@@ -311,7 +333,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     protected WebResource[] getResourcesInternal(String path, boolean useClassLoaderResources) {
         List<WebResource> result = new ArrayList<>();
         for (List<WebResourceSet> list : allResources) {
-            for (WebResourceSet webResourceSet : list) {
+            for (WebResourceSet webResourceSet : getResourceSets(list, path, useClassLoaderResources)) {
                 if (useClassLoaderResources || !webResourceSet.getClassLoaderOnly()) {
                     WebResource webResource = webResourceSet.getResource(path);
                     if (webResource.exists()) {
@@ -409,12 +431,14 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         }
 
         resourceList.add(resourceSet);
+        watch(resourceSet);
     }
 
     @Override
     public void addPreResources(WebResourceSet webResourceSet) {
         webResourceSet.setRoot(this);
         preResources.add(webResourceSet);
+        watch(webResourceSet);
     }
 
     @Override
@@ -426,6 +450,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     public void addJarResources(WebResourceSet webResourceSet) {
         webResourceSet.setRoot(this);
         jarResources.add(webResourceSet);
+        watch(webResourceSet);
     }
 
     @Override
@@ -437,6 +462,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     public void addPostResources(WebResourceSet webResourceSet) {
         webResourceSet.setRoot(this);
         postResources.add(webResourceSet);
+        watch(webResourceSet);
     }
 
     @Override
@@ -451,6 +477,8 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     protected void addClassResources(WebResourceSet webResourceSet) {
         webResourceSet.setRoot(this);
         classResources.add(webResourceSet);
+        // The index does not include the new resource set. Search all of them.
+        classResourcesIndex = null;
     }
 
     @Override
@@ -501,6 +529,44 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         cache.setTtl(cacheTtl);
     }
 
+    /**
+     * Should the file based resource sets be watched for changes using a {@link java.nio.file.WatchService}? If all
+     * such resource sets can be watched, cache entries are invalidated when a change is notified and are only validated
+     * against the file system when the longer {@link #setCacheWatchTtl(long) watch TTL} expires. Notifications are
+     * processed by the background processing of the web application. Changes to this setting take effect when the
+     * resources are next started.
+     *
+     * @param cacheWatch {@code true} to watch the file based resource sets for changes
+     */
+    public void setCacheWatch(boolean cacheWatch) {
+        this.cacheWatch = cacheWatch;
+    }
+
+    /**
+     * @return {@code true} if the file based resource sets are watched for changes
+     */
+    public boolean getCacheWatch() {
+        return cacheWatch;
+    }
+
+    /**
+     * Set the time to live for cache entries while the file based resource sets are watched for changes. The larger of
+     * this and the cache TTL is used. Validation still takes place, if less often, as a notification may be missed.
+     *
+     * @param cacheWatchTtl The time to live in milliseconds
+     */
+    public void setCacheWatchTtl(long cacheWatchTtl) {
+        this.cacheWatchTtl = cacheWatchTtl;
+    }
+
+    /**
+     * @return the time to live in milliseconds for cache entries while the file based resource sets are watched for
+     *             changes
+     */
+    public long getCacheWatchTtl() {
+        return cacheWatchTtl;
+    }
+
     @Override
     public long getCacheMaxSize() {
         return cache.getMaxSize();
@@ -554,6 +620,42 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         return this.archiveIndexStrategy;
     }
 
+    /**
+     * Should the content of files served from directory and single file resource sets be made available as a memory
+     * mapped {@link java.nio.ByteBuffer}? The file is mapped for each request that uses the mapped content.
+     *
+     * @param mappedContent {@code true} to memory map the content of files
+     */
+    public void setMappedContent(boolean mappedContent) {
+        this.mappedContent = mappedContent;
+    }
+
+    /**
+     * @return {@code true} if the content of files served from directory and single file resource sets is made
+     *             available as a memory mapped {@link java.nio.ByteBuffer}
+     */
+    public boolean getMappedContent() {
+        return mappedContent;
+    }
+
+    /**
+     * Should an index of the packages in the JARs in {@code /WEB-INF/lib} be built when the resources start so that
+     * class loader lookups only search the JARs that contain the package of the requested resource?
+     *
+     * @param packageIndex {@code true} to build the index
+     */
+    public void setPackageIndex(boolean packageIndex) {
+        this.packageIndex = packageIndex;
+    }
+
+    /**
+     * @return {@code true} if an index of the packages in the JARs in {@code /WEB-INF/lib} is built when the resources
+     *             start
+     */
+    public boolean getPackageIndex() {
+        return packageIndex;
+    }
+
     public List<String> getTrackedResources() {
         List<String> result = new ArrayList<>(trackedResources.size());
         for (TrackedWebResource resource : trackedResources) {
@@ -605,6 +707,7 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
 
     @Override
     public void backgroundProcess() {
+        processWatchEvents();
         cache.backgroundProcess();
         gc();
     }
@@ -648,6 +751,33 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
     }
 
 
+    /*
+     * Returns true if all the file based resources for this web application are being watched for changes. It is used
+     * to reduce the frequency of cache validation on the basis that the cache entries for any resources that change
+     * will be removed when the change is notified.
+     */
+    protected boolean isWatched() {
+        ResourceWatcher watcher = this.watcher;
+        return watcher != null && watcher.isComplete();
+    }
+
+
+    private void processWatchEvents() {
+        ResourceWatcher watcher = this.watcher;
+        if (watcher != null) {
+            watcher.processEvents();
+        }
+    }
+
+
+    private void watch(WebResourceSet webResourceSet) {
+        ResourceWatcher watcher = this.watcher;
+        if (watcher != null) {
+            watcher.watch(webResourceSet);
+        }
+    }
+
+
     /*
      * Returns true if and only if all the resources for this web application are provided via a packed WAR file. It is
      * used to optimise cache validation in this case on the basis that the WAR file will not change.
@@ -725,8 +855,24 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
             classResource.start();
         }
 
+        if (packageIndex) {
+            classResourcesIndex = PackageIndex.build(classResources);
+        }
+
         cache.enforceObjectMaxSizeLimit();
 
+        if (cacheWatch && cachingAllowed && !isPackedWarFile()) {
+            ResourceWatcher watcher = ResourceWatcher.create(this, cache);
+            if (watcher != null) {
+                for (List<WebResourceSet> list : allResources) {
+                    for (WebResourceSet webResourceSet : list) {
+                        watcher.watch(webResourceSet);
+                    }
+                }
+                this.watcher = watcher;
+            }
+        }
+
         setState(LifecycleState.STARTING);
     }
 
@@ -755,6 +901,12 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
 
     @Override
     protected void stopInternal() throws LifecycleException {
+        classResourcesIndex = null;
+        ResourceWatcher watcher = this.watcher;
+        if (watcher != null) {
+            this.watcher = null;
+            watcher.close();
+        }
         for (List<WebResourceSet> list : allResources) {
             for (WebResourceSet webResourceSet : list) {
                 webResourceSet.stop();
@@ -16,10 +16,13 @@
  */
 package org.apache.el.lang;
 
+import java.lang.invoke.MethodHandle;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
+import jakarta.el.BeanELResolver;
 import jakarta.el.ELContext;
 import jakarta.el.ELResolver;
 import jakarta.el.EvaluationListener;
@@ -39,6 +42,8 @@ public final class EvaluationContext extends ELContext {
 
     private LambdaExpressionNestedState lambdaExpressionNestedState;
 
+    private BiConsumer<Object,MethodHandle> getterListener;
+
     public EvaluationContext(ELContext elContext, FunctionMapper fnMapper,
             VariableMapper varMapper) {
         this.elContext = elContext;
@@ -62,9 +67,26 @@ public final class EvaluationContext extends ELContext {
 
     @Override
     public Object getContext(Class<?> key) {
+        if (key == BeanELResolver.class && getterListener != null) {
+            return getterListener;
+        }
         return elContext.getContext(key);
     }
 
+    /**
+     * Register a listener to be notified of the getter used when {@link BeanELResolver} resolves a property using this
+     * context. The listener is not visible to the wrapped {@link ELContext}.
+     *
+     * @param getterListener The listener or <code>null</code> to remove the current listener
+     *
+     * @return The previously registered listener, if any
+     */
+    public BiConsumer<Object,MethodHandle> setGetterListener(BiConsumer<Object,MethodHandle> getterListener) {
+        BiConsumer<Object,MethodHandle> previous = this.getterListener;
+        this.getterListener = getterListener;
+        return previous;
+    }
+
     @Override
     public ELResolver getELResolver() {
         return elContext.getELResolver();
@@ -17,9 +17,11 @@
 /* Generated By:JJTree: Do not edit this line. AstValue.java */
 package org.apache.el.parser;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
 
 import jakarta.el.ELException;
 import jakarta.el.ELResolver;
@@ -49,6 +51,14 @@ public final class AstValue extends SimpleNode {
         protected Object property;
     }
 
+    /*
+     * Inline caches for the property accesses in this expression, indexed by child. Only used if property access
+     * optimization is enabled.
+     */
+    private volatile PropertyAccessor[] propertyAccessors;
+
+    private final boolean optimizePropertyAccess = PropertyAccessor.isEnabled();
+
     public AstValue(int id) {
         super(id);
     }
@@ -166,7 +176,11 @@ public final class AstValue extends SimpleNode {
                 }
 
                 ctx.setPropertyResolved(false);
-                base = resolver.getValue(ctx, base, suffix);
+                if (optimizePropertyAccess && this.children[i] instanceof AstDotSuffix) {
+                    base = getPropertyValue(ctx, resolver, base, (String) suffix, i);
+                } else {
+                    base = resolver.getValue(ctx, base, suffix);
+                }
                 i++;
             }
         }
@@ -177,6 +191,39 @@ public final class AstValue extends SimpleNode {
         return base;
     }
 
+    private Object getPropertyValue(EvaluationContext ctx, ELResolver resolver, Object base, String property,
+            int index) {
+        PropertyAccessor[] accessors = propertyAccessors;
+        if (accessors == null) {
+            accessors = new PropertyAccessor[this.children.length];
+            propertyAccessors = accessors;
+        }
+        PropertyAccessor accessor = accessors[index];
+        if (accessor != null) {
+            if (accessor.matches(base, resolver)) {
+                return accessor.getValue(ctx, base);
+            }
+            if (accessor.isDisabled()) {
+                return resolver.getValue(ctx, base, property);
+            }
+        }
+        // Cache miss. Use the resolver chain and, if BeanELResolver resolved the
+        // property, cache the getter it used for next time.
+        PropertyAccessor.GetterRecorder recorder = new PropertyAccessor.GetterRecorder();
+        BiConsumer<Object,MethodHandle> previousListener = ctx.setGetterListener(recorder);
+        Object result;
+        try {
+            result = resolver.getValue(ctx, base, property);
+        } finally {
+            ctx.setGetterListener(previousListener);
+        }
+        MethodHandle getter = recorder.getGetter(base);
+        if (ctx.isPropertyResolved() && getter != null) {
+            accessors[index] = PropertyAccessor.create(accessor, base, resolver, property, getter);
+        }
+        return result;
+    }
+
     @Override
     public boolean isReadOnly(EvaluationContext ctx) throws ELException {
         Target t = getTarget(ctx);
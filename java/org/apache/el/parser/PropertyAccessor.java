@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.el.parser;
+
+import java.lang.invoke.MethodHandle;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.function.BiConsumer;
+
+import jakarta.el.BeanELResolver;
+import jakarta.el.ELClass;
+import jakarta.el.ELException;
+import jakarta.el.ELResolver;
+
+import org.apache.el.lang.EvaluationContext;
+import org.apache.el.util.ExceptionUtils;
+import org.apache.el.util.MessageFactory;
+
+/**
+ * Inline cache for a single property access in an {@link AstValue}. The cache records the getter used by
+ * {@link BeanELResolver} the last time it resolved the property and is only used while both the class of the base
+ * object and the {@link ELResolver} are unchanged. Any other combination falls back to the {@link ELResolver} chain.
+ * <p>
+ * The cache is only populated when the property was actually resolved by {@link BeanELResolver}, using the method
+ * handle that {@link BeanELResolver} created for the property, so the JavaBeans introspection rules, including any
+ * BeanInfo, are respected. Using the getter directly for later evaluations assumes that no resolver ahead of
+ * {@link BeanELResolver} in the chain will start to resolve the property for the same class of base object. It is
+ * therefore only enabled when the system property <code>org.apache.el.parser.OPTIMIZE_PROPERTY_ACCESS</code> is
+ * <code>true</code> and it is never used for base objects that are handled by the other standard resolvers.
+ */
+final class PropertyAccessor {
+
+    /*
+     * BeanELResolver reads the same system property once, when it is loaded, to decide whether to report the getters
+     * it uses so this is read once as well.
+     */
+    private static final boolean OPTIMIZE_PROPERTY_ACCESS =
+            Boolean.getBoolean("org.apache.el.parser.OPTIMIZE_PROPERTY_ACCESS");
+
+    /**
+     * The number of times the cache for a property access may be replaced before it is disabled as the access is
+     * considered to be megamorphic.
+     */
+    static final int MAX_UPDATES = 8;
+
+    private final Class<?> type;
+    private final ELResolver resolver;
+    private final String property;
+    private final MethodHandle getter;
+    private final int updates;
+
+
+    private PropertyAccessor(Class<?> type, ELResolver resolver, String property, MethodHandle getter, int updates) {
+        this.type = type;
+        this.resolver = resolver;
+        this.property = property;
+        this.getter = getter;
+        this.updates = updates;
+    }
+
+
+    /**
+     * The system property is read once, when the EL implementation is loaded.
+     *
+     * @return <code>true</code> if property access optimization is enabled
+     */
+    static boolean isEnabled() {
+        return OPTIMIZE_PROPERTY_ACCESS;
+    }
+
+
+    boolean matches(Object base, ELResolver resolver) {
+        return getter != null && base.getClass() == type && resolver == this.resolver;
+    }
+
+
+    boolean isDisabled() {
+        return getter == null;
+    }
+
+
+    Object getValue(EvaluationContext ctx, Object base) throws ELException {
+        ctx.setPropertyResolved(base, property);
+        try {
+            return getter.invokeExact(base);
+        } catch (Throwable t) {
+            ExceptionUtils.handleThrowable(t);
+            throw new ELException(MessageFactory.get("error.property.read", type.getName(), property), t);
+        }
+    }
+
+
+    /**
+     * Create the cache to use for the given property access once it has been resolved by {@link BeanELResolver}.
+     *
+     * @param previous The cache previously in use for the property access, if any
+     * @param base     The object on which the property was resolved
+     * @param resolver The resolver chain that resolved the property
+     * @param property The name of the property
+     * @param getter   The getter {@link BeanELResolver} used to resolve the property
+     *
+     * @return The new cache or <code>null</code> if the property access cannot be cached
+     */
+    static PropertyAccessor create(PropertyAccessor previous, Object base, ELResolver resolver, String property,
+            MethodHandle getter) {
+        int updates = previous == null ? 0 : previous.updates + 1;
+        if (updates >= MAX_UPDATES) {
+            // Megamorphic. Stop trying.
+            return new PropertyAccessor(null, null, property, null, updates);
+        }
+        if (!isBean(base)) {
+            return previous;
+        }
+        return new PropertyAccessor(base.getClass(), resolver, property, getter, updates);
+    }
+
+
+    /*
+     * Exclude anything that one of the standard resolvers ahead of BeanELResolver would handle.
+     */
+    private static boolean isBean(Object base) {
+        return !(base instanceof Map || base instanceof List || base instanceof ResourceBundle ||
+                base instanceof Record || base instanceof ELClass || base.getClass().isArray());
+    }
+
+
+    /**
+     * Receives the getter used by {@link BeanELResolver}, and the object it was used on, when it resolves a property
+     * while registered with the {@link EvaluationContext}.
+     */
+    static final class GetterRecorder implements BiConsumer<Object,MethodHandle> {
+
+        private Object base;
+        private MethodHandle getter;
+        private int count;
+
+        @Override
+        public void accept(Object base, MethodHandle getter) {
+            this.base = base;
+            this.getter = getter;
+            count++;
+        }
+
+        /**
+         * @param base The base object of the property access
+         *
+         * @return The getter or <code>null</code> if {@link BeanELResolver} did not resolve exactly one property or
+         *             resolved it on an object other than the base object, e.g. because another resolver delegated to
+         *             it with the value of an {@link java.util.Optional}
+         */
+        MethodHandle getGetter(Object base) {
+            return count == 1 && this.base == base ? getter : null;
+        }
+    }
+}
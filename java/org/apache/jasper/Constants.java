@@ -92,4 +92,13 @@ public class Constants {
     public static final String JSP_FACTORY_POOL_SIZE_INIT_PARAM =
             "org.apache.jasper.runtime.JspFactoryImpl.POOL_SIZE";
 
+    /**
+     * Name of the ServletContext init-param that determines if the TLDs found
+     * in JARs are cached in the work directory of the web application so that
+     * JARs that have not changed do not have to be scanned again on the next
+     * start. The default value is <code>false</code>.
+     */
+    public static final String TLD_SCAN_CACHE_INIT_PARAM =
+            "org.apache.jasper.TLD_SCAN_CACHE";
+
 }
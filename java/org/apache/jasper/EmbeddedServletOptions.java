@@ -229,6 +229,10 @@ public final class EmbeddedServletOptions implements Options {
 
     private boolean useInstanceManagerForTags = false;
 
+    private File compileCacheDir = null;
+
+    private boolean preEncodeTemplateText = false;
+
     public String getProperty(String name ) {
         return settings.getProperty( name );
     }
@@ -540,6 +544,16 @@ public final class EmbeddedServletOptions implements Options {
         return useInstanceManagerForTags;
     }
 
+    @Override
+    public File getCompileCacheDir() {
+        return compileCacheDir;
+    }
+
+    @Override
+    public boolean getPreEncodeTemplateText() {
+        return preEncodeTemplateText;
+    }
+
     /**
      * Create an EmbeddedServletOptions object using data available from
      * ServletConfig and ServletContext.
@@ -949,6 +963,31 @@ public final class EmbeddedServletOptions implements Options {
             }
         }
 
+        String compileCacheDir = config.getInitParameter("compileCacheDir");
+        if (compileCacheDir != null) {
+            File cacheDir = new File(compileCacheDir);
+            if ((cacheDir.isDirectory() || cacheDir.mkdirs()) && cacheDir.canRead() && cacheDir.canWrite()) {
+                this.compileCacheDir = cacheDir;
+            } else {
+                if (log.isWarnEnabled()) {
+                    log.warn(Localizer.getMessage("jsp.warning.compileCacheDir", cacheDir.getAbsolutePath()));
+                }
+            }
+        }
+
+        String preEncodeTemplateText = config.getInitParameter("preEncodeTemplateText");
+        if (preEncodeTemplateText != null) {
+            if (preEncodeTemplateText.equalsIgnoreCase("true")) {
+                this.preEncodeTemplateText = true;
+            } else if (preEncodeTemplateText.equalsIgnoreCase("false")) {
+                this.preEncodeTemplateText = false;
+            } else {
+                if (log.isWarnEnabled()) {
+                    log.warn(Localizer.getMessage("jsp.warning.preEncodeTemplateText"));
+                }
+            }
+        }
+
         // Setup the global Tag Libraries location cache for this
         // web-application.
         tldCache = TldCache.getInstance(context);
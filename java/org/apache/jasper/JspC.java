@@ -141,6 +141,7 @@ public class JspC extends Task implements Options {
     protected static final String SWITCH_QUOTE_ATTRIBUTE_EL = "-quoteAttributeEL";
     protected static final String SWITCH_NO_QUOTE_ATTRIBUTE_EL = "-no-quoteAttributeEL";
     protected static final String SWITCH_THREAD_COUNT = "-threadCount";
+    protected static final String SWITCH_COMPILE_CACHE_DIR = "-compileCacheDir";
     protected static final String SHOW_SUCCESS ="-s";
     protected static final String LIST_ERRORS = "-l";
     protected static final int INC_WEBXML = 10;
@@ -172,6 +173,7 @@ public class JspC extends Task implements Options {
     protected ClassLoader loader = null;
     protected TrimSpacesOption trimSpaces = TrimSpacesOption.FALSE;
     protected boolean genStringAsCharArray = false;
+    protected boolean preEncodeTemplateText = false;
     protected boolean validateTld;
     protected boolean validateXml;
     protected boolean blockExternal = true;
@@ -239,6 +241,9 @@ public class JspC extends Task implements Options {
     /** The number of threads to use; default is one per core */
     protected int threadCount = Runtime.getRuntime().availableProcessors();
 
+    /** The directory used to cache compiled pages; default is none */
+    protected File compileCacheDir = null;
+
     // Generation of web.xml fragments
     protected String webxmlFile;
     protected int webxmlLevel;
@@ -415,6 +420,8 @@ public class JspC extends Task implements Options {
                 setQuoteAttributeEL(false);
             } else if (tok.equals(SWITCH_THREAD_COUNT)) {
                 setThreadCount(nextArg());
+            } else if (tok.equals(SWITCH_COMPILE_CACHE_DIR)) {
+                setCompileCacheDir(nextArg());
             } else {
                 if (tok.startsWith("-")) {
                     throw new JasperException(Localizer.getMessage("jspc.error.unknownOption", tok));
@@ -662,6 +669,22 @@ public class JspC extends Task implements Options {
         return genStringAsCharArray;
     }
 
+    /**
+     * Determines whether template text is to be generated together with its
+     * encoded form in the character set declared for the page.
+     *
+     * @param preEncodeTemplateText true if template text is to be pre-encoded,
+     * false otherwise
+     */
+    public void setPreEncodeTemplateText(boolean preEncodeTemplateText) {
+        this.preEncodeTemplateText = preEncodeTemplateText;
+    }
+
+    @Override
+    public boolean getPreEncodeTemplateText() {
+        return preEncodeTemplateText;
+    }
+
     @Override
     public File getScratchDir() {
         return scratchDir;
@@ -924,6 +947,30 @@ public class JspC extends Task implements Options {
         this.threadCount = newThreadCount;
     }
 
+    @Override
+    public File getCompileCacheDir() {
+        return compileCacheDir;
+    }
+
+    /**
+     * Sets the directory used to cache compiled pages between runs. Pages
+     * whose content, dependencies and compilation options are unchanged are
+     * copied from the cache rather than being compiled.
+     *
+     * @param compileCacheDir The path of the cache directory
+     */
+    public void setCompileCacheDir(String compileCacheDir) {
+        if (compileCacheDir == null) {
+            this.compileCacheDir = null;
+            return;
+        }
+        File dir = resolveFile(compileCacheDir);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new BuildException(Localizer.getMessage("jsp.warning.compileCacheDir", dir.getAbsolutePath()));
+        }
+        this.compileCacheDir = dir;
+    }
+
     public void setListErrors( boolean b ) {
         listErrors = b;
     }
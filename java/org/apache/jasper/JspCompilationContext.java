@@ -70,7 +70,7 @@ public class JspCompilationContext {
     private ServletWriter writer;
     private final Options options;
     private final JspServletWrapper jsw;
-    private Compiler jspCompiler;
+    private volatile Compiler jspCompiler;
     private String classPath;
 
     private final String baseURI;
@@ -214,28 +214,31 @@ public class JspCompilationContext {
         if (jspCompiler != null ) {
             return jspCompiler;
         }
-        jspCompiler = null;
+        Compiler compiler;
         if (options.getCompilerClassName() != null) {
-            jspCompiler = createCompiler(options.getCompilerClassName());
+            compiler = createCompiler(options.getCompilerClassName());
         } else {
             if (options.getCompiler() == null) {
-                jspCompiler = createCompiler("org.apache.jasper.compiler.JDTCompiler");
-                if (jspCompiler == null) {
-                    jspCompiler = createCompiler("org.apache.jasper.compiler.AntCompiler");
+                compiler = createCompiler("org.apache.jasper.compiler.JDTCompiler");
+                if (compiler == null) {
+                    compiler = createCompiler("org.apache.jasper.compiler.AntCompiler");
                 }
             } else {
-                jspCompiler = createCompiler("org.apache.jasper.compiler.AntCompiler");
-                if (jspCompiler == null) {
-                    jspCompiler = createCompiler("org.apache.jasper.compiler.JDTCompiler");
+                compiler = createCompiler("org.apache.jasper.compiler.AntCompiler");
+                if (compiler == null) {
+                    compiler = createCompiler("org.apache.jasper.compiler.JDTCompiler");
                 }
             }
         }
-        if (jspCompiler == null) {
+        if (compiler == null) {
             throw new IllegalStateException(Localizer.getMessage("jsp.error.compiler.config",
                     options.getCompilerClassName(), options.getCompiler()));
         }
-        jspCompiler.init(this, jsw);
-        return jspCompiler;
+        compiler.init(this, jsw);
+        // Only publish the compiler once it has been initialised as
+        // isOutDated() may be called without holding the wrapper lock
+        jspCompiler = compiler;
+        return compiler;
     }
 
     protected Compiler createCompiler(String className) {
@@ -590,6 +593,29 @@ public class JspCompilationContext {
 
     // ==================== Compile and reload ====================
 
+    /**
+     * Determine if the page needs to be compiled. Unlike {@link #compile()},
+     * this method may be called without holding the lock of the associated
+     * wrapper so that requests can continue to use the current version of the
+     * page while the, potentially slow, checks of the modification times of
+     * the page and its dependencies are performed. A page that has not yet
+     * been compiled is always reported as out of date.
+     *
+     * @return <code>true</code> if {@link #compile()} needs to be called
+     */
+    public boolean isOutDated() {
+        Compiler compiler = jspCompiler;
+        if (compiler != null && !compiler.isOutDated()) {
+            return false;
+        }
+        if (jsw != null) {
+            // Ensure compile() repeats the check rather than skipping it
+            // because the modification test interval has not expired
+            jsw.setLastModificationTest(-1);
+        }
+        return true;
+    }
+
     public void compile() throws JasperException, FileNotFoundException {
         createCompiler();
         if (jspCompiler.isOutDated()) {
@@ -368,4 +368,31 @@ public interface Options {
     default boolean getGeneratedJavaAddTimestamp() {
         return true;
     }
+
+
+    /**
+     * The directory, if any, used to cache compiled JSP pages independently of
+     * the scratch directory. The cache is keyed by the content of the page so
+     * cached pages can be reused after the web application is redeployed.
+     * Defaults to {@code null} which disables the cache.
+     *
+     * @return the compile cache directory or {@code null} if the cache is not
+     *         used
+     */
+    default File getCompileCacheDir() {
+        return null;
+    }
+
+
+    /**
+     * Should template text be generated together with its encoded form in the
+     * character set declared for the page so it can be written to the
+     * response without being encoded for every request? Defaults to
+     * {@code false}.
+     *
+     * @return {@code true} if template text should be pre-encoded
+     */
+    default boolean getPreEncodeTemplateText() {
+        return false;
+    }
 }
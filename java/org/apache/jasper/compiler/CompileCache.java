@@ -0,0 +1,439 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import jakarta.servlet.ServletContext;
+
+import org.apache.jasper.JspCompilationContext;
+import org.apache.jasper.Options;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.Jar;
+import org.apache.tomcat.util.buf.HexUtils;
+import org.apache.tomcat.util.file.PersistentDataFile;
+import org.apache.tomcat.util.http.fileupload.FileUtils;
+import org.apache.tomcat.util.scan.JarFactory;
+
+/**
+ * Persistent cache of compiled JSP pages that is independent of the work directory so that it survives redeployment of
+ * a web application. Entries are keyed by a hash of the content of the JSP source, the name of the generated class,
+ * the options that affect code generation and the content of the classes and JARs of the web application. Each entry
+ * records a hash of the content of each of the dependencies of the page (included files, prelude, coda, TLDs etc.) and
+ * is only used if the content of all of those dependencies is unchanged.
+ * <p>
+ * Pages that depend on tag files are not cached since the classes generated for the tag files are not part of the
+ * entry.
+ */
+class CompileCache {
+
+    private static final String DEPENDANTS_FILE = "dependants.properties";
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final Log log = LogFactory.getLog(CompileCache.class); // must not be static
+
+    private final File cacheDir;
+
+
+    CompileCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+
+    /**
+     * Generate the cache key for the page being compiled.
+     *
+     * @param ctxt The compilation context for the page
+     *
+     * @return The key or <code>null</code> if the page cannot be cached
+     */
+    String getKey(JspCompilationContext ctxt) {
+        if (ctxt.isTagFile()) {
+            return null;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+        Options options = ctxt.getOptions();
+        StringBuilder sb = new StringBuilder();
+        sb.append(CompileCache.class.getPackage().getImplementationVersion()).append('\n');
+        sb.append(ctxt.getJspFile()).append('\n');
+        sb.append(ctxt.getServletPackageName()).append('.').append(ctxt.getServletClassName()).append('\n');
+        sb.append(options.getCompiler()).append('\n');
+        sb.append(options.getCompilerSourceVM()).append('\n');
+        sb.append(options.getCompilerTargetVM()).append('\n');
+        sb.append(options.getJavaEncoding()).append('\n');
+        sb.append(options.getTrimSpaces()).append('\n');
+        sb.append(options.genStringAsCharArray()).append('\n');
+        sb.append(options.getPreEncodeTemplateText()).append('\n');
+        sb.append(options.getMappedFile()).append('\n');
+        sb.append(options.getClassDebugInfo()).append('\n');
+        sb.append(options.isPoolingEnabled()).append('\n');
+        sb.append(options.isXpoweredBy()).append('\n');
+        sb.append(options.getErrorOnUseBeanInvalidClassAttribute()).append('\n');
+        sb.append(options.getStrictQuoteEscaping()).append('\n');
+        sb.append(options.getQuoteAttributeEL()).append('\n');
+        sb.append(options.getJspServletBase()).append('\n');
+        sb.append(options.getPoolTagsWithExtends()).append('\n');
+        sb.append(options.getStrictGetProperty()).append('\n');
+        sb.append(options.getStrictWhitespace()).append('\n');
+        sb.append(options.getUseInstanceManagerForTags()).append('\n');
+        sb.append(options.getGeneratedJavaAddTimestamp()).append('\n');
+        JspConfig jspConfig = options.getJspConfig();
+        if (jspConfig != null) {
+            JspConfig.JspProperty jspProperty = jspConfig.findJspProperty(ctxt.getJspFile());
+            sb.append(jspProperty.isXml()).append('\n');
+            sb.append(jspProperty.isELIgnored()).append('\n');
+            sb.append(jspProperty.getErrorOnELNotFound()).append('\n');
+            sb.append(jspProperty.isScriptingInvalid()).append('\n');
+            sb.append(jspProperty.getPageEncoding()).append('\n');
+            sb.append(jspProperty.getIncludePrelude()).append('\n');
+            sb.append(jspProperty.getIncludeCoda()).append('\n');
+            sb.append(jspProperty.isDeferedSyntaxAllowedAsLiteral()).append('\n');
+            sb.append(jspProperty.isTrimDirectiveWhitespaces()).append('\n');
+            sb.append(jspProperty.getDefaultContentType()).append('\n');
+            sb.append(jspProperty.getBuffer()).append('\n');
+            sb.append(jspProperty.isErrorOnUndeclaredNamespace()).append('\n');
+        }
+        digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        try {
+            digest.update(getClassPathDigest(ctxt));
+            URL jspUrl = ctxt.getResource(ctxt.getJspFile());
+            if (jspUrl == null) {
+                return null;
+            }
+            try (InputStream is = jspUrl.openStream()) {
+                update(digest, is);
+            }
+        } catch (IOException e) {
+            if (log.isDebugEnabled()) {
+                log.debug(Localizer.getMessage("jsp.compileCache.keyFailed", ctxt.getJspFile()), e);
+            }
+            return null;
+        }
+        return HexUtils.toHexString(digest.digest());
+    }
+
+
+    /**
+     * Copy the cached .java and .class files for the page to the output directory.
+     *
+     * @param ctxt            The compilation context for the page
+     * @param key             The cache key
+     * @param jspLastModified The last modified time of the page which is used for the restored files
+     *
+     * @return <code>true</code> if the page was restored from the cache, <code>false</code> if the page needs to be
+     *             compiled
+     */
+    boolean restore(JspCompilationContext ctxt, String key, long jspLastModified) {
+        File entryDir = new File(cacheDir, key);
+        File dependantsFile = new File(entryDir, DEPENDANTS_FILE);
+        if (!dependantsFile.isFile()) {
+            return false;
+        }
+        try {
+            Properties dependants = loadDependants(dependantsFile);
+            for (String dependant : dependants.stringPropertyNames()) {
+                if (!dependants.getProperty(dependant).equals(getDependantDigest(ctxt, dependant))) {
+                    return false;
+                }
+            }
+
+            File javaFile = new File(ctxt.getServletJavaFileName());
+            File outputDir = javaFile.getParentFile();
+            if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+                return false;
+            }
+            File[] files = entryDir.listFiles();
+            if (files == null) {
+                return false;
+            }
+            for (File file : files) {
+                if (DEPENDANTS_FILE.equals(file.getName())) {
+                    continue;
+                }
+                File target = new File(outputDir, file.getName());
+                Files.copy(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                if (!target.setLastModified(jspLastModified)) {
+                    return false;
+                }
+            }
+
+            // The entry may have been replaced while it was being copied
+            if (!dependants.equals(loadDependants(dependantsFile))) {
+                return false;
+            }
+        } catch (IOException | RuntimeException e) {
+            if (log.isDebugEnabled()) {
+                log.debug(Localizer.getMessage("jsp.compileCache.restoreFailed", ctxt.getJspFile()), e);
+            }
+            return false;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(Localizer.getMessage("jsp.compileCache.restored", ctxt.getJspFile(), key));
+        }
+        return true;
+    }
+
+
+    /**
+     * Add the newly compiled page to the cache, replacing any existing entry with the same key.
+     *
+     * @param ctxt       The compilation context for the page
+     * @param key        The cache key
+     * @param dependants The dependencies of the page
+     */
+    void store(JspCompilationContext ctxt, String key, Map<String,Long> dependants) {
+        Properties props = new Properties();
+        for (String name : dependants.keySet()) {
+            if (name.endsWith(".tag") || name.endsWith(".tagx")) {
+                return;
+            }
+            String dependantDigest = getDependantDigest(ctxt, name);
+            if (dependantDigest == null) {
+                return;
+            }
+            props.setProperty(name, dependantDigest);
+        }
+
+        File javaFile = new File(ctxt.getServletJavaFileName());
+        File outputDir = javaFile.getParentFile();
+        String className = ctxt.getServletClassName();
+        File[] classFiles = outputDir.listFiles((dir, name) -> name.equals(className + ".class") ||
+                name.startsWith(className + "$") && name.endsWith(".class"));
+        if (classFiles == null || classFiles.length == 0) {
+            return;
+        }
+
+        // Write to a temporary directory and then move it into place so other threads and processes never see a
+        // partial entry
+        File tempDir = new File(cacheDir, key + "-" + UUID.randomUUID().toString());
+        File entryDir = new File(cacheDir, key);
+        File oldDir = null;
+        try {
+            if (!tempDir.mkdirs()) {
+                throw new IOException(Localizer.getMessage("jsp.error.outputfolder.detail", tempDir));
+            }
+            Files.copy(javaFile.toPath(), new File(tempDir, javaFile.getName()).toPath());
+            for (File classFile : classFiles) {
+                Files.copy(classFile.toPath(), new File(tempDir, classFile.getName()).toPath());
+            }
+            try (OutputStream os = Files.newOutputStream(new File(tempDir, DEPENDANTS_FILE).toPath())) {
+                props.store(os, null);
+            }
+            if (entryDir.exists()) {
+                // A directory cannot be atomically replaced. Move the current
+                // entry aside rather than deleting it in place so it is never
+                // seen partially deleted. Between the two moves there is
+                // simply no entry.
+                oldDir = new File(cacheDir, key + "-" + UUID.randomUUID().toString());
+                Files.move(entryDir.toPath(), oldDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.move(tempDir.toPath(), entryDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (log.isDebugEnabled()) {
+                log.debug(Localizer.getMessage("jsp.compileCache.storeFailed", ctxt.getJspFile()), e);
+            }
+            delete(tempDir);
+        }
+        if (oldDir != null) {
+            delete(oldDir);
+        }
+    }
+
+
+    /*
+     * The key includes the content of the classes and JARs of the web application as the generated code depends on
+     * them. The digest is calculated once per web application, by the first compilation to need it, while any other
+     * compilations wait for it.
+     */
+    private byte[] getClassPathDigest(JspCompilationContext ctxt) throws IOException {
+        JspRuntimeContext rctxt = ctxt.getRuntimeContext();
+        if (rctxt == null) {
+            return calculateClassPathDigest(ctxt);
+        }
+        byte[] result = rctxt.getCompileCacheClassPathDigest();
+        if (result == null) {
+            synchronized (rctxt.getCompileCacheClassPathDigestLock()) {
+                result = rctxt.getCompileCacheClassPathDigest();
+                if (result == null) {
+                    result = calculateClassPathDigest(ctxt);
+                    rctxt.setCompileCacheClassPathDigest(result);
+                }
+            }
+        }
+        return result;
+    }
+
+
+    /*
+     * Classes are identified by their content. JARs that are available as files are identified by the name, size and
+     * CRC of each entry so only their central directory is read. The other class path entries belong to the container
+     * or the JVM and are identified by name, size and last modified time.
+     */
+    private static byte[] calculateClassPathDigest(JspCompilationContext ctxt) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        ServletContext context = ctxt.getServletContext();
+        updateWebappResources(digest, context, "/WEB-INF/classes/");
+        updateWebappResources(digest, context, "/WEB-INF/lib/");
+
+        String classPath = ctxt.getClassPath();
+        if (classPath != null) {
+            File scratchDir = ctxt.getOptions().getScratchDir();
+            for (String entry : classPath.split(File.pathSeparator)) {
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                File file = new File(entry);
+                if (scratchDir != null && file.getAbsoluteFile().equals(scratchDir.getAbsoluteFile())) {
+                    // Contains the generated classes
+                    continue;
+                }
+                digest.update(entry.getBytes(StandardCharsets.UTF_8));
+                if (file.isFile()) {
+                    digest.update(Long.toString(file.length()).getBytes(StandardCharsets.UTF_8));
+                    digest.update(Long.toString(file.lastModified()).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        return digest.digest();
+    }
+
+
+    private static void updateWebappResources(MessageDigest digest, ServletContext context, String path)
+            throws IOException {
+        Set<String> paths = context.getResourcePaths(path);
+        if (paths == null) {
+            return;
+        }
+        for (String resourcePath : new TreeSet<>(paths)) {
+            if (resourcePath.endsWith("/")) {
+                updateWebappResources(digest, context, resourcePath);
+                continue;
+            }
+            digest.update(resourcePath.getBytes(StandardCharsets.UTF_8));
+            if (resourcePath.endsWith(".jar")) {
+                File jarFile = PersistentDataFile.getJarFile(context.getResource(resourcePath));
+                if (jarFile != null) {
+                    digest.update(PersistentDataFile.getJarDigest(jarFile));
+                    continue;
+                }
+            }
+            try (InputStream is = context.getResourceAsStream(resourcePath)) {
+                if (is != null) {
+                    update(digest, is);
+                }
+            }
+        }
+    }
+
+
+    /*
+     * Returns the hex encoded digest of the content of the given dependency of the page or null if the dependency
+     * cannot be read. The dependency is identified in the same way as for Compiler.isOutDated().
+     */
+    private String getDependantDigest(JspCompilationContext ctxt, String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            if (key.startsWith("jar:jar:")) {
+                // Assume we constructed this correctly
+                int entryStart = key.lastIndexOf("!/");
+                String entry = key.substring(entryStart + 2);
+                try (Jar jar = JarFactory.newInstance(new URI(key.substring(4, entryStart)).toURL());
+                        InputStream is = jar.getInputStream(entry)) {
+                    if (is == null) {
+                        return null;
+                    }
+                    update(digest, is);
+                }
+            } else {
+                URL url;
+                if (key.startsWith("jar:") || key.startsWith("file:")) {
+                    url = new URI(key).toURL();
+                } else {
+                    url = ctxt.getResource(key);
+                }
+                if (url == null) {
+                    return null;
+                }
+                try (InputStream is = url.openStream()) {
+                    update(digest, is);
+                }
+            }
+            return HexUtils.toHexString(digest.digest());
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.debug(Localizer.getMessage("jsp.error.compiler.missingResource"), e);
+            }
+            return null;
+        }
+    }
+
+
+    private static Properties loadDependants(File dependantsFile) throws IOException {
+        Properties dependants = new Properties();
+        try (InputStream is = Files.newInputStream(dependantsFile.toPath())) {
+            dependants.load(is);
+        }
+        return dependants;
+    }
+
+
+    private static void update(MessageDigest digest, InputStream is) throws IOException {
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) > 0) {
+            digest.update(buf, 0, n);
+        }
+    }
+
+
+    private static void delete(File dir) {
+        try {
+            FileUtils.deleteDirectory(dir);
+        } catch (IOException ioe) {
+            // Ignore
+        }
+    }
+}
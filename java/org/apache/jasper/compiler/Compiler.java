@@ -393,6 +393,23 @@ public abstract class Compiler {
 
         try {
             final Long jspLastModified = ctxt.getLastModified(ctxt.getJspFile());
+
+            // Check for a previously compiled version of the same page
+            CompileCache compileCache = null;
+            String compileCacheKey = null;
+            File compileCacheDir = ctxt.getOptions().getCompileCacheDir();
+            if (compileClass && compileCacheDir != null) {
+                compileCache = new CompileCache(compileCacheDir);
+                compileCacheKey = compileCache.getKey(ctxt);
+                if (compileCacheKey != null && compileCache.restore(
+                        ctxt, compileCacheKey, jspLastModified.longValue())) {
+                    if (jsw != null) {
+                        jsw.setServletClassLastModifiedTime(jspLastModified.longValue());
+                    }
+                    return;
+                }
+            }
+
             Map<String,SmapStratum> smaps = generateJava();
             File javaFile = new File(ctxt.getServletJavaFileName());
             if (!javaFile.setLastModified(jspLastModified.longValue())) {
@@ -412,6 +429,9 @@ public abstract class Compiler {
                         jsw.setServletClassLastModifiedTime(
                                 jspLastModified.longValue());
                     }
+                    if (compileCacheKey != null) {
+                        compileCache.store(ctxt, compileCacheKey, pageInfo.getDependants());
+                    }
                 }
             }
         } finally {
@@ -513,43 +533,8 @@ public abstract class Compiler {
         }
 
         for (Entry<String, Long> include : depends.entrySet()) {
-            try {
-                String key = include.getKey();
-                URL includeUrl;
-                long includeLastModified = 0;
-                if (key.startsWith("jar:jar:")) {
-                    // Assume we constructed this correctly
-                    int entryStart = key.lastIndexOf("!/");
-                    String entry = key.substring(entryStart + 2);
-                    try (Jar jar = JarFactory.newInstance(new URI(key.substring(4, entryStart)).toURL())) {
-                        includeLastModified = jar.getLastModified(entry);
-                    }
-                } else {
-                    if (key.startsWith("jar:") || key.startsWith("file:")) {
-                        includeUrl = new URI(key).toURL();
-                    } else {
-                        includeUrl = ctxt.getResource(include.getKey());
-                    }
-                    if (includeUrl == null) {
-                        return true;
-                    }
-                    URLConnection iuc = includeUrl.openConnection();
-                    if (iuc instanceof JarURLConnection) {
-                        includeLastModified =
-                            ((JarURLConnection) iuc).getJarEntry().getTime();
-                    } else {
-                        includeLastModified = iuc.getLastModified();
-                    }
-                    iuc.getInputStream().close();
-                }
-
-                if (includeLastModified != include.getValue().longValue()) {
-                    return true;
-                }
-            } catch (Exception e) {
-                if (log.isDebugEnabled()) {
-                    log.debug(Localizer.getMessage("jsp.error.compiler.missingResource"), e);
-                }
+            long includeLastModified = getDependantLastModified(include.getKey());
+            if (includeLastModified == -1 || includeLastModified != include.getValue().longValue()) {
                 return true;
             }
         }
@@ -558,6 +543,60 @@ public abstract class Compiler {
 
     }
 
+    /**
+     * Determine the current last modified time of a dependency of the page.
+     *
+     * @param key The dependency as recorded in the generated Servlet
+     *
+     * @return The last modified time or -1 if the dependency could not be
+     *         accessed
+     */
+    long getDependantLastModified(String key) {
+        JspRuntimeContext rctxt = ctxt.getRuntimeContext();
+        if (rctxt == null) {
+            return readDependantLastModified(key);
+        }
+        return rctxt.getDependantLastModified(key, this::readDependantLastModified);
+    }
+
+    private long readDependantLastModified(String key) {
+        try {
+            URL includeUrl;
+            long includeLastModified = 0;
+            if (key.startsWith("jar:jar:")) {
+                // Assume we constructed this correctly
+                int entryStart = key.lastIndexOf("!/");
+                String entry = key.substring(entryStart + 2);
+                try (Jar jar = JarFactory.newInstance(new URI(key.substring(4, entryStart)).toURL())) {
+                    includeLastModified = jar.getLastModified(entry);
+                }
+            } else {
+                if (key.startsWith("jar:") || key.startsWith("file:")) {
+                    includeUrl = new URI(key).toURL();
+                } else {
+                    includeUrl = ctxt.getResource(key);
+                }
+                if (includeUrl == null) {
+                    return -1;
+                }
+                URLConnection iuc = includeUrl.openConnection();
+                if (iuc instanceof JarURLConnection) {
+                    includeLastModified =
+                        ((JarURLConnection) iuc).getJarEntry().getTime();
+                } else {
+                    includeLastModified = iuc.getLastModified();
+                }
+                iuc.getInputStream().close();
+            }
+            return includeLastModified;
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.debug(Localizer.getMessage("jsp.error.compiler.missingResource"), e);
+            }
+            return -1;
+        }
+    }
+
     /**
      * @return the error dispatcher.
      */
@@ -1849,6 +1849,36 @@ class Generator {
             }
         }
 
+        /*
+         * The character set declared for the response of the page if template
+         * text is to be pre-encoded, otherwise null. Tag files do not declare
+         * a content type so their template text is never pre-encoded.
+         */
+        private String getTemplateTextCharset() {
+            if (!ctxt.getOptions().getPreEncodeTemplateText() || ctxt.isTagFile()) {
+                return null;
+            }
+            String contentType = pageInfo.getContentType();
+            if (contentType == null) {
+                return null;
+            }
+            int start = contentType.indexOf("charset=");
+            if (start == -1) {
+                // Default for responses
+                return "ISO-8859-1";
+            }
+            start += 8;
+            int end = contentType.indexOf(';', start);
+            if (end == -1) {
+                end = contentType.length();
+            }
+            String charset = contentType.substring(start, end).trim();
+            if (charset.length() > 1 && charset.startsWith("\"") && charset.endsWith("\"")) {
+                charset = charset.substring(1, charset.length() - 1);
+            }
+            return charset;
+        }
+
         @Override
         public void visit(Node.TemplateText n) throws JasperException {
 
@@ -1891,8 +1921,10 @@ class Generator {
                 return;
             }
 
-            if (ctxt.getOptions().genStringAsCharArray()) {
-                // Generate Strings as char arrays, for performance
+            String textCharset = getTemplateTextCharset();
+            if (textCharset != null || ctxt.getOptions().genStringAsCharArray()) {
+                // Generate Strings as pre-encoded text or char arrays, for
+                // performance
                 ServletWriter caOut;
                 if (charArrayBuffer == null) {
                     charArrayBuffer = new GenBuffer();
@@ -1917,17 +1949,32 @@ class Generator {
                     String output = text.substring(textIndex, textIndex + len);
                     String charArrayName = textMap.get(output);
                     if (charArrayName == null) {
-                        charArrayName = "_jspx_char_array_" + charArrayCount++;
+                        if (textCharset != null) {
+                            charArrayName = "_jspx_encoded_text_" + charArrayCount++;
+                            caOut.printin("static final org.apache.jasper.runtime.EncodedText ");
+                            caOut.print(charArrayName);
+                            caOut.print(" = new org.apache.jasper.runtime.EncodedText(");
+                            caOut.print(quote(output));
+                            caOut.print(", ");
+                            caOut.print(quote(textCharset));
+                            caOut.println(");");
+                        } else {
+                            charArrayName = "_jspx_char_array_" + charArrayCount++;
+                            caOut.printin("static char[] ");
+                            caOut.print(charArrayName);
+                            caOut.print(" = ");
+                            caOut.print(quote(output));
+                            caOut.println(".toCharArray();");
+                        }
                         textMap.put(output, charArrayName);
-                        caOut.printin("static char[] ");
-                        caOut.print(charArrayName);
-                        caOut.print(" = ");
-                        caOut.print(quote(output));
-                        caOut.println(".toCharArray();");
                     }
 
                     n.setBeginJavaLine(out.getJavaLine());
-                    out.printil("out.write(" + charArrayName + ");");
+                    if (textCharset != null) {
+                        out.printil(charArrayName + ".write(out);");
+                    } else {
+                        out.printil("out.write(" + charArrayName + ");");
+                    }
                     n.setEndJavaLine(out.getJavaLine());
 
                     textIndex = textIndex + len;
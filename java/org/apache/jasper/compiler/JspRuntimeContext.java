@@ -22,10 +22,13 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
 
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
@@ -158,6 +161,26 @@ public final class JspRuntimeContext {
      */
     private final Map<String,SmapStratum> smaps = new ConcurrentHashMap<>();
 
+    /**
+     * Map of JSP dependency to its last known modification time. Many JSPs
+     * usually depend on the same files (included JSPs, tag files, TLDs, etc.)
+     * so the modification times are shared across the web application and
+     * refreshed at most once per modification test interval.
+     */
+    private final Map<String,DependantLastModified> dependantLastModified = new ConcurrentHashMap<>();
+
+    /**
+     * Digest of the compilation class path used to key the entries of the
+     * compile cache. Calculated when first required.
+     */
+    private volatile byte[] compileCacheClassPathDigest;
+
+    /**
+     * Held while the compile cache class path digest is calculated so that
+     * concurrent first compilations only calculate it once.
+     */
+    private final Object compileCacheClassPathDigestLock = new Object();
+
     /**
      * Flag that indicates if a background compilation check is in progress.
      */
@@ -186,6 +209,15 @@ public final class JspRuntimeContext {
         return jsps.get(jspUri);
     }
 
+    /**
+     * Get the wrappers for all the JSPs that are currently loaded.
+     *
+     * @return The current wrappers
+     */
+    public Collection<JspServletWrapper> getWrappers() {
+        return Collections.unmodifiableCollection(jsps.values());
+    }
+
     /**
      * Remove a  JspServletWrapper.
      *
@@ -337,6 +369,11 @@ public final class JspRuntimeContext {
         for (Object wrapper : wrappers) {
             JspServletWrapper jsw = (JspServletWrapper) wrapper;
             JspCompilationContext ctxt = jsw.getJspEngineContext();
+            // Check the modification times without holding the lock so
+            // requests for the JSP are not blocked while the check is running
+            if (!ctxt.isOutDated()) {
+                continue;
+            }
             // Sync on JspServletWrapper when calling ctxt.compile()
             synchronized (jsw) {
                 try {
@@ -380,6 +417,49 @@ public final class JspRuntimeContext {
         return compileCheckInProgress;
     }
 
+    /**
+     * Obtain the last modified time of a JSP dependency, using the value
+     * obtained by an earlier check if that check happened within the
+     * modification test interval.
+     *
+     * @param key    The dependency as recorded in the generated Servlet
+     * @param source Used to determine the current last modified time of the
+     *                   dependency if no recent value is available
+     *
+     * @return The last modified time or -1 if the dependency could not be
+     *         accessed
+     */
+    long getDependantLastModified(String key, ToLongFunction<String> source) {
+        long interval = options.getModificationTestInterval() * 1000L;
+        if (interval <= 0) {
+            return source.applyAsLong(key);
+        }
+        long now = System.currentTimeMillis();
+        DependantLastModified entry = dependantLastModified.get(key);
+        if (entry != null && entry.checked + interval > now) {
+            return entry.lastModified;
+        }
+        long lastModified = source.applyAsLong(key);
+        if (lastModified == -1) {
+            dependantLastModified.remove(key);
+        } else {
+            dependantLastModified.put(key, new DependantLastModified(lastModified, now));
+        }
+        return lastModified;
+    }
+
+    byte[] getCompileCacheClassPathDigest() {
+        return compileCacheClassPathDigest;
+    }
+
+    void setCompileCacheClassPathDigest(byte[] compileCacheClassPathDigest) {
+        this.compileCacheClassPathDigest = compileCacheClassPathDigest;
+    }
+
+    Object getCompileCacheClassPathDigestLock() {
+        return compileCacheClassPathDigestLock;
+    }
+
     /**
      * @return the classpath that is passed off to the Java compiler.
      */
@@ -496,4 +576,16 @@ public final class JspRuntimeContext {
         }
         lastJspQueueUpdate = now;
     }
+
+
+    private static final class DependantLastModified {
+
+        private final long lastModified;
+        private final long checked;
+
+        DependantLastModified(long lastModified, long checked) {
+            this.lastModified = lastModified;
+            this.checked = checked;
+        }
+    }
 }
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tomcat.util.collections.SynchronizedStack;
+
+/**
+ * Bounded pool of the {@link BodyContentImpl} buffers that have grown beyond
+ * the initial tag buffer size. Pages with many, or deeply nested, tags with
+ * bodies would otherwise allocate and grow new buffers for every request
+ * whenever the buffers are not retained by a pooled PageContextImpl.
+ * <p>
+ * There is one pool per web application, held by the
+ * {@link JspApplicationContextImpl}, so buffers are never shared between web
+ * applications and are released when the web application stops. Only buffers
+ * with a length that is a power of two are pooled so any buffer taken from the
+ * stack for a given size is large enough. The total number of characters
+ * retained by the pool is limited.
+ */
+class BodyContentBufferPool {
+
+    // Buffers larger than 128k characters are not pooled
+    private static final int MAX_SHIFT = 17;
+    private static final int BUFFERS_PER_SIZE = 4;
+    // 512k characters, i.e. 1MB
+    private static final int MAX_RETAINED = 1 << 19;
+
+    private final SynchronizedStack<char[]>[] stacks;
+    private final AtomicInteger retained = new AtomicInteger();
+
+
+    @SuppressWarnings("unchecked")
+    BodyContentBufferPool() {
+        stacks = new SynchronizedStack[MAX_SHIFT + 1];
+        for (int i = 0; i < stacks.length; i++) {
+            stacks[i] = new SynchronizedStack<>(BUFFERS_PER_SIZE, BUFFERS_PER_SIZE);
+        }
+    }
+
+
+    static int roundUp(int length) {
+        if (length > (1 << MAX_SHIFT)) {
+            return length;
+        }
+        int rounded = Integer.highestOneBit(length);
+        return rounded == length ? length : rounded << 1;
+    }
+
+
+    char[] get(int minLength) {
+        int shift = 32 - Integer.numberOfLeadingZeros(minLength - 1);
+        if (shift > MAX_SHIFT) {
+            return null;
+        }
+        char[] buffer = stacks[shift].pop();
+        if (buffer != null) {
+            retained.addAndGet(-buffer.length);
+        }
+        return buffer;
+    }
+
+
+    void put(char[] buffer) {
+        int length = buffer.length;
+        if (Integer.bitCount(length) != 1) {
+            return;
+        }
+        int shift = Integer.numberOfTrailingZeros(length);
+        if (shift > MAX_SHIFT) {
+            return;
+        }
+        if (retained.addAndGet(length) > MAX_RETAINED) {
+            retained.addAndGet(-length);
+            return;
+        }
+        if (!stacks[shift].push(buffer)) {
+            retained.addAndGet(-length);
+        }
+    }
+
+
+    int getRetained() {
+        return retained.get();
+    }
+}
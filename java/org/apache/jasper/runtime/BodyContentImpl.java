@@ -20,6 +20,7 @@ import java.io.CharArrayReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.Arrays;
 
 import jakarta.servlet.jsp.JspWriter;
 import jakarta.servlet.jsp.tagext.BodyContent;
@@ -41,6 +42,7 @@ public class BodyContentImpl extends BodyContent {
     private final boolean limitBuffer;
     private final int tagBufferSize;
 
+    private BodyContentBufferPool bufferPool;
     private char[] cb;
     private int nextChar;
     private boolean closed;
@@ -53,7 +55,8 @@ public class BodyContentImpl extends BodyContent {
     /**
      * Constructor.
      * @param enclosingWriter The wrapped writer
-     * @param limitBuffer <code>true</code> to discard large buffers
+     * @param limitBuffer <code>true</code> to release large buffers when the
+     *                        body content is cleared
      * @param tagBufferSize the buffer size
      */
     public BodyContentImpl(JspWriter enclosingWriter, boolean limitBuffer, int tagBufferSize) {
@@ -519,9 +522,8 @@ public class BodyContentImpl extends BodyContent {
             throw new IOException();
         } else {
             nextChar = 0;
-            if (limitBuffer && (cb.length > tagBufferSize)) {
-                cb = new char[tagBufferSize];
-                bufferSize = cb.length;
+            if (limitBuffer) {
+                releaseBuffer();
             }
         }
     }
@@ -588,7 +590,9 @@ public class BodyContentImpl extends BodyContent {
      */
     @Override
     public Reader getReader() {
-        return (writer == null) ? new CharArrayReader (cb, 0, nextChar) : null;
+        // The buffer may be returned to the pool and reused while the Reader is
+        // still in use so the Reader must not share it
+        return (writer == null) ? new CharArrayReader (Arrays.copyOf(cb, nextChar)) : null;
     }
 
     /**
@@ -652,6 +656,40 @@ public class BodyContentImpl extends BodyContent {
         }
     }
 
+    /**
+     * Set the pool to which buffers that have grown beyond the initial size
+     * are returned and from which larger buffers are taken. A grown buffer
+     * obtained via a different pool is discarded rather than being passed
+     * between pools.
+     *
+     * @param bufferPool The pool or {@code null} if buffers are not pooled
+     */
+    void setBufferPool(BodyContentBufferPool bufferPool) {
+        if (this.bufferPool != bufferPool) {
+            if (cb.length > tagBufferSize && nextChar == 0) {
+                cb = new char[tagBufferSize];
+                bufferSize = cb.length;
+            }
+            this.bufferPool = bufferPool;
+        }
+    }
+
+    /**
+     * Return the buffer, if it has grown beyond the initial size, to the pool
+     * of the web application so it can be reused by another instance rather
+     * than that instance growing a new buffer. The caller is responsible for
+     * ensuring that the body content is empty.
+     */
+    void releaseBuffer() {
+        if (cb.length > tagBufferSize) {
+            if (bufferPool != null) {
+                bufferPool.put(cb);
+            }
+            cb = new char[tagBufferSize];
+            bufferSize = cb.length;
+        }
+    }
+
     private void ensureOpen() throws IOException {
         if (closed) {
             throw new IOException(Localizer.getMessage("jsp.error.stream.closed"));
@@ -672,8 +710,18 @@ public class BodyContentImpl extends BodyContent {
             len = cb.length;
         }
 
-        char[] tmp = new char[cb.length + len];
-        System.arraycopy(cb, 0, tmp, 0, cb.length);
+        int newLength = cb.length + len;
+        char[] tmp = null;
+        if (bufferPool != null) {
+            tmp = bufferPool.get(newLength);
+        }
+        if (tmp == null) {
+            tmp = new char[BodyContentBufferPool.roundUp(newLength)];
+        }
+        System.arraycopy(cb, 0, tmp, 0, nextChar);
+        if (bufferPool != null && cb.length > tagBufferSize) {
+            bufferPool.put(cb);
+        }
         cb = tmp;
         bufferSize = cb.length;
     }
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import jakarta.servlet.jsp.JspWriter;
+
+/**
+ * Template text of a JSP page along with the same text encoded using the
+ * character set declared for the response of the page. When the text is
+ * written directly to the response, the encoded form is used so the container
+ * does not have to encode the text for every request.
+ */
+public final class EncodedText {
+
+    private final char[] chars;
+    private final byte[] bytes;
+    private final Charset charset;
+
+    public EncodedText(String text, String charsetName) {
+        chars = text.toCharArray();
+        Charset cs = null;
+        byte[] encoded = null;
+        try {
+            cs = Charset.forName(charsetName);
+            if (cs.newEncoder().canEncode(text)) {
+                encoded = text.getBytes(cs);
+            }
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            // The text will always be written as characters
+        }
+        charset = cs;
+        bytes = encoded;
+    }
+
+
+    /**
+     * Write the template text to the given JspWriter, using the encoded form
+     * of the text if the writer supports it.
+     *
+     * @param out The writer for the current page or body
+     *
+     * @throws IOException If an I/O error occurs
+     */
+    public void write(JspWriter out) throws IOException {
+        if (bytes != null && out instanceof JspWriterImpl) {
+            ((JspWriterImpl) out).write(chars, bytes, charset);
+        } else {
+            out.write(chars);
+        }
+    }
+}
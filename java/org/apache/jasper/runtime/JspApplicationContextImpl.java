@@ -53,6 +53,8 @@ public class JspApplicationContextImpl implements JspApplicationContext {
 
     private ELResolver resolver;
 
+    private final BodyContentBufferPool bodyContentBufferPool = new BodyContentBufferPool();
+
     public JspApplicationContextImpl() {
 
     }
@@ -122,6 +124,10 @@ public class JspApplicationContextImpl implements JspApplicationContext {
         this.resolvers.add(resolver);
     }
 
+    BodyContentBufferPool getBodyContentBufferPool() {
+        return bodyContentBufferPool;
+    }
+
     @Override
     public ExpressionFactory getExpressionFactory() {
         return expressionFactory;
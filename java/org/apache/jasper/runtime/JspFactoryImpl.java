@@ -77,8 +77,11 @@ public class JspFactoryImpl extends JspFactory {
         }
 
         pc.release();
-        if (poolSize > 0 && (pc instanceof PageContextImpl)) {
-            localPool.get().put(pc);
+        if (pc instanceof PageContextImpl) {
+            if (poolSize <= 0 || !localPool.get().put(pc)) {
+                // The PageContext will not be reused
+                ((PageContextImpl) pc).releaseBuffers();
+            }
         }
     }
 
@@ -106,11 +109,13 @@ public class JspFactoryImpl extends JspFactory {
             this.pool = new PageContext[poolSize];
         }
 
-        public void put(PageContext o) {
+        public boolean put(PageContext o) {
             if (current < (pool.length - 1)) {
                 current++;
                 pool[current] = o;
+                return true;
             }
+            return false;
         }
 
         public PageContext get() {
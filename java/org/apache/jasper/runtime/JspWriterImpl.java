@@ -19,12 +19,14 @@ package org.apache.jasper.runtime;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.nio.charset.Charset;
 
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.jsp.JspWriter;
 
 import org.apache.jasper.Constants;
 import org.apache.jasper.compiler.Localizer;
+import org.apache.tomcat.EncodedWriter;
 
 /**
  * Write text to a character-output stream, buffering characters so as
@@ -312,6 +314,37 @@ public class JspWriterImpl extends JspWriter {
         write(buf, 0, buf.length);
     }
 
+    /**
+     * Write template text for which an encoded form is available. The encoded
+     * form is only used when the text would be written directly to the
+     * response rather than to the buffer so the buffering behaviour of the
+     * page is not affected.
+     *
+     * @param chars   The template text
+     * @param bytes   The template text encoded with the given character set
+     * @param charset The character set used to encode the template text
+     */
+    void write(char[] chars, byte[] bytes, Charset charset) throws IOException {
+        if (bufferSize > 0 && chars.length < bufferSize) {
+            write(chars, 0, chars.length);
+            return;
+        }
+
+        ensureOpen();
+        if (bufferSize > 0) {
+            if (autoFlush) {
+                flushBuffer();
+            } else {
+                bufferOverflow();
+            }
+        }
+        initOut();
+        if (!(out instanceof EncodedWriter) ||
+                !((EncodedWriter) out).writeEncoded(bytes, 0, bytes.length, charset)) {
+            out.write(chars, 0, chars.length);
+        }
+    }
+
     /**
      * Write a portion of a String.
      *
@@ -198,6 +198,16 @@ public class PageContextImpl extends PageContext {
         }
     }
 
+    /*
+     * Called when this page context has been released and is not going to be
+     * reused so that other page contexts can reuse the body content buffers.
+     */
+    void releaseBuffers() {
+        for (BodyContentImpl body: outs) {
+            body.releaseBuffer();
+        }
+    }
+
     @Override
     public Object getAttribute(final String name) {
         return getAttribute(name, PAGE_SCOPE);
@@ -541,6 +551,7 @@ public class PageContextImpl extends PageContext {
             outs = newOuts;
         }
 
+        outs[depth].setBufferPool(applicationContext.getBodyContentBufferPool());
         outs[depth].setWriter(writer);
         out = outs[depth];
 
@@ -16,6 +16,8 @@
  */
 package org.apache.jasper.runtime;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import jakarta.servlet.ServletConfig;
 import jakarta.servlet.jsp.JspException;
 import jakarta.servlet.jsp.tagext.Tag;
@@ -27,21 +29,28 @@ import org.apache.tomcat.InstanceManager;
 
 /**
  * Pool of tag handlers that can be reused.
+ * <p>
+ * The pool does not use locks. Each handler is held in a slot that is claimed
+ * with a compare and swap operation and threads start searching for a slot at
+ * a position derived from the thread so concurrent threads tend to use
+ * different slots. If no handler (or no free slot) is found, a new handler is
+ * created (or the handler is released) rather than waiting for another
+ * thread. As no state is associated with the thread, the pool is safe to use
+ * with virtual threads.
  *
  * @author Jan Luehe
  */
 public class TagHandlerPool {
 
-    private Tag[] handlers;
+    private AtomicReferenceArray<Tag> handlers;
 
     public static final String OPTION_TAGPOOL = "tagpoolClassName";
     public static final String OPTION_MAXSIZE = "tagpoolMaxSize";
     public static final String OPTION_USEIMFORTAGS = "useInstanceManagerForTags";
 
-    // index of next available tag handler
-    private int current;
     protected InstanceManager instanceManager = null;
     protected boolean useInstanceManagerForTags;
+    private TagHandlerPoolStatistics statistics;
 
     public static TagHandlerPool getTagHandlerPool(ServletConfig config) {
         TagHandlerPool result = null;
@@ -79,9 +88,9 @@ public class TagHandlerPool {
         }
         String useInstanceManagerForTagsValue = getOption(config, OPTION_USEIMFORTAGS, "false");
         useInstanceManagerForTags = Boolean.valueOf(useInstanceManagerForTagsValue).booleanValue();
-        this.handlers = new Tag[maxSize];
-        this.current = -1;
+        this.handlers = new AtomicReferenceArray<>(maxSize);
         instanceManager = InstanceManagerFactory.getInstanceManager(config);
+        statistics = TagHandlerPoolStatistics.getInstance(config.getServletContext());
     }
 
     /**
@@ -103,16 +112,24 @@ public class TagHandlerPool {
      *             if a tag handler cannot be instantiated
      */
     public Tag get(Class<? extends Tag> handlerClass) throws JspException {
-        Tag handler;
-        synchronized (this) {
-            if (current >= 0) {
-                handler = handlers[current--];
-                return handler;
+        int length = handlers.length();
+        if (length > 0) {
+            int index = getStartIndex(length);
+            for (int i = 0; i < length; i++) {
+                Tag handler = handlers.get(index);
+                if (handler != null && handlers.compareAndSet(index, handler, null)) {
+                    statistics.incrementReuseCount();
+                    return handler;
+                }
+                if (++index == length) {
+                    index = 0;
+                }
             }
         }
 
-        // Out of sync block - there is no need for other threads to
-        // wait for us to construct a tag for this thread.
+        // There is no need for other threads to wait for us to construct a tag
+        // for this thread.
+        statistics.incrementCreateCount();
         try {
             if (useInstanceManagerForTags) {
                 return (Tag) instanceManager.newInstance(
@@ -138,13 +155,20 @@ public class TagHandlerPool {
      *            Tag handler to add to this tag handler pool
      */
     public void reuse(Tag handler) {
-        synchronized (this) {
-            if (current < (handlers.length - 1)) {
-                handlers[++current] = handler;
-                return;
+        int length = handlers.length();
+        if (length > 0) {
+            int index = getStartIndex(length);
+            for (int i = 0; i < length; i++) {
+                if (handlers.get(index) == null && handlers.compareAndSet(index, null, handler)) {
+                    return;
+                }
+                if (++index == length) {
+                    index = 0;
+                }
             }
         }
         // There is no need for other threads to wait for us to release
+        statistics.incrementReleaseCount();
         JspRuntimeLibrary.releaseTag(handler, instanceManager);
     }
 
@@ -152,13 +176,27 @@ public class TagHandlerPool {
      * Calls the release() method of all available tag handlers in this tag
      * handler pool.
      */
-    public synchronized void release() {
-        for (int i = current; i >= 0; i--) {
-            JspRuntimeLibrary.releaseTag(handlers[i], instanceManager);
+    public void release() {
+        for (int i = 0; i < handlers.length(); i++) {
+            Tag handler = handlers.getAndSet(i, null);
+            if (handler != null) {
+                JspRuntimeLibrary.releaseTag(handler, instanceManager);
+            }
         }
     }
 
 
+    /*
+     * Spread the threads across the slots of the pool. Thread IDs are
+     * allocated sequentially and do not change so concurrent threads usually
+     * start from different slots and a thread that reuses a handler will
+     * usually find it in the first slot it checks.
+     */
+    private static int getStartIndex(int length) {
+        return (int) (Thread.currentThread().getId() % length);
+    }
+
+
     protected static String getOption(ServletConfig config, String name,
             String defaultV) {
         if (config == null) {
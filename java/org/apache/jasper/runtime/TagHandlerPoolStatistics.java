@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.servlet.ServletContext;
+
+import org.apache.jasper.compiler.Localizer;
+
+/**
+ * Usage statistics for all the tag handler pools of a web application.
+ */
+public class TagHandlerPoolStatistics {
+
+    private static final String KEY = TagHandlerPoolStatistics.class.getName();
+    private static final Object lock = new Object();
+
+    private final LongAdder reuseCount = new LongAdder();
+    private final LongAdder createCount = new LongAdder();
+    private final LongAdder releaseCount = new LongAdder();
+
+
+    public static TagHandlerPoolStatistics getInstance(ServletContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException(Localizer.getMessage("jsp.error.nullArgument"));
+        }
+        TagHandlerPoolStatistics statistics = (TagHandlerPoolStatistics) context.getAttribute(KEY);
+        if (statistics == null) {
+            // Tag handler pools may be created concurrently. Without the lock
+            // they could each create and record statistics, and all but the
+            // last would be lost.
+            synchronized (lock) {
+                statistics = (TagHandlerPoolStatistics) context.getAttribute(KEY);
+                if (statistics == null) {
+                    statistics = new TagHandlerPoolStatistics();
+                    context.setAttribute(KEY, statistics);
+                }
+            }
+        }
+        return statistics;
+    }
+
+
+    /**
+     * @return the number of tag handlers that were obtained from a pool
+     */
+    public long getReuseCount() {
+        return reuseCount.sum();
+    }
+
+
+    /**
+     * @return the number of tag handlers that were created because no pooled
+     *         handler was available
+     */
+    public long getCreateCount() {
+        return createCount.sum();
+    }
+
+
+    /**
+     * @return the number of tag handlers that were released because there was
+     *         no space for them in the pool
+     */
+    public long getReleaseCount() {
+        return releaseCount.sum();
+    }
+
+
+    void incrementReuseCount() {
+        reuseCount.increment();
+    }
+
+
+    void incrementCreateCount() {
+        createCount.increment();
+    }
+
+
+    void incrementReleaseCount() {
+        releaseCount.increment();
+    }
+}
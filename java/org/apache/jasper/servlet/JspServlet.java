@@ -16,10 +16,23 @@
  */
 package org.apache.jasper.servlet;
 
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.ServletConfig;
@@ -31,13 +44,16 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import org.apache.jasper.EmbeddedServletOptions;
 import org.apache.jasper.Options;
+import org.apache.jasper.compiler.JspConfig;
 import org.apache.jasper.compiler.JspRuntimeContext;
 import org.apache.jasper.compiler.Localizer;
 import org.apache.jasper.runtime.ExceptionUtils;
+import org.apache.jasper.runtime.TagHandlerPoolStatistics;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.PeriodicEventListener;
 import org.apache.tomcat.util.security.Escape;
+import org.apache.tomcat.util.threads.TaskThreadFactory;
 
 /**
  * The JSP engine (a.k.a Jasper).
@@ -69,6 +85,12 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
     // jspFile for a jsp configured explicitly as a servlet, in environments where this
     // configuration is translated into an init-param for this servlet.
     private String jspFile;
+    // Background compilation of JSPs when the web application starts
+    private transient ExecutorService warmUpExecutor;
+    private transient File warmUpFile;
+    private final AtomicInteger warmUpCount = new AtomicInteger();
+    private final AtomicInteger warmUpCompletedCount = new AtomicInteger();
+    private final AtomicInteger warmUpFailedCount = new AtomicInteger();
 
 
     /*
@@ -122,6 +144,39 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
             }
         }
 
+        // Create the statistics before any JSP creates a tag handler pool
+        TagHandlerPoolStatistics.getInstance(context);
+
+        // ContextConfig copies the init parameters of the jsp servlet to the
+        // servlets defined by jsp-file. Only the jsp servlet performs the
+        // warm-up and records the requested JSPs.
+        String warmUpFileName = config.getInitParameter("warmUpFile");
+        if (jspFile == null && warmUpFileName != null) {
+            // The scratch directory is deleted when the web application is
+            // undeployed so a relative path is not permitted
+            File file = new File(warmUpFileName);
+            if (file.isAbsolute()) {
+                warmUpFile = file;
+            } else {
+                log.warn(Localizer.getMessage("jsp.warning.warmUpFileRelative", warmUpFileName));
+            }
+        }
+        if (jspFile == null && Boolean.parseBoolean(config.getInitParameter("warmUp"))) {
+            int warmUpThreads = 1;
+            String warmUpThreadsValue = config.getInitParameter("warmUpThreads");
+            if (warmUpThreadsValue != null) {
+                try {
+                    warmUpThreads = Integer.parseInt(warmUpThreadsValue);
+                } catch (NumberFormatException e) {
+                    log.warn(Localizer.getMessage("jsp.warning.warmUpThreads"));
+                }
+                if (warmUpThreads < 1) {
+                    warmUpThreads = 1;
+                }
+            }
+            startWarmUp(warmUpThreads);
+        }
+
         if (log.isDebugEnabled()) {
             log.debug(Localizer.getMessage("jsp.message.scratch.dir.is",
                     options.getScratchDir().toString()));
@@ -194,6 +249,84 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
     }
 
 
+    /**
+     * Gets the number of tag handlers that were obtained from a tag handler
+     * pool rather than being created.
+     *
+     * <p>This info may be used for monitoring purposes.
+     *
+     * @return The number of tag handlers reused by the web application
+     */
+    public long getTagHandlerReuseCount() {
+        return TagHandlerPoolStatistics.getInstance(context).getReuseCount();
+    }
+
+
+    /**
+     * Gets the number of tag handlers that were created because no pooled
+     * handler was available.
+     *
+     * <p>This info may be used for monitoring purposes.
+     *
+     * @return The number of tag handlers created by the web application
+     */
+    public long getTagHandlerCreateCount() {
+        return TagHandlerPoolStatistics.getInstance(context).getCreateCount();
+    }
+
+
+    /**
+     * Gets the number of tag handlers that were released because the tag
+     * handler pool was full.
+     *
+     * <p>This info may be used for monitoring purposes.
+     *
+     * @return The number of tag handlers released by the web application
+     */
+    public long getTagHandlerReleaseCount() {
+        return TagHandlerPoolStatistics.getInstance(context).getReleaseCount();
+    }
+
+
+    /**
+     * Gets the number of JSPs queued for background compilation when the web
+     * application started.
+     *
+     * <p>This info may be used for monitoring purposes.
+     *
+     * @return The number of JSPs queued for warm-up compilation
+     */
+    public int getWarmUpCount() {
+        return warmUpCount.get();
+    }
+
+
+    /**
+     * Gets the number of JSPs queued for background compilation when the web
+     * application started that have been successfully compiled.
+     *
+     * <p>This info may be used for monitoring purposes.
+     *
+     * @return The number of JSPs successfully compiled by the warm-up
+     */
+    public int getWarmUpCompletedCount() {
+        return warmUpCompletedCount.get();
+    }
+
+
+    /**
+     * Gets the number of JSPs queued for background compilation when the web
+     * application started that could not be compiled.
+     *
+     * <p>This info may be used for monitoring purposes.
+     *
+     * @return The number of JSPs the warm-up failed to compile
+     */
+    public int getWarmUpFailedCount() {
+        return warmUpFailedCount.get();
+    }
+
+
     /**
      * <p>Look for a <em>precompilation request</em> as described in
      * Section 8.4.2 of the JSP 1.2 Specification.  <strong>WARNING</strong> -
@@ -318,6 +451,21 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
             log.trace("JspServlet.destroy()");
         }
 
+        if (warmUpExecutor != null) {
+            warmUpExecutor.shutdownNow();
+            try {
+                if (!warmUpExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    log.warn(Localizer.getMessage("jsp.warning.warmUpStop"));
+                }
+            } catch (InterruptedException e) {
+                // Ignore
+            }
+            warmUpExecutor = null;
+        }
+        if (warmUpFile != null) {
+            saveWarmUpFile();
+        }
+
         rctxt.destroy();
     }
 
@@ -330,6 +478,129 @@ public class JspServlet extends HttpServlet implements PeriodicEventListener {
 
     // -------------------------------------------------------- Private Methods
 
+    /*
+     * Compile the JSPs listed in the warm-up file, most popular first, or all
+     * the JSPs in the web application if there is no warm-up file.
+     */
+    private void startWarmUp(int threads) {
+        List<String> jspUris = loadWarmUpFile();
+        if (jspUris == null) {
+            jspUris = new ArrayList<>(findJsps("/", options.getJspConfig(), new LinkedHashSet<>()));
+        }
+        if (jspUris.isEmpty()) {
+            return;
+        }
+        warmUpCount.set(jspUris.size());
+        if (log.isDebugEnabled()) {
+            log.debug(Localizer.getMessage("jsp.message.warmUpStart",
+                    Integer.toString(jspUris.size()), context.getContextPath()));
+        }
+
+        final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        warmUpExecutor = Executors.newFixedThreadPool(threads,
+                new TaskThreadFactory("jsp-warm-up" + context.getContextPath().replace('/', '-') + "-",
+                        true, Thread.MIN_PRIORITY));
+        for (String jspUri : jspUris) {
+            warmUpExecutor.execute(() -> warmUp(jspUri, loader));
+        }
+        warmUpExecutor.shutdown();
+    }
+
+
+    private void warmUp(String jspUri, ClassLoader loader) {
+        Thread currentThread = Thread.currentThread();
+        ClassLoader originalLoader = currentThread.getContextClassLoader();
+        currentThread.setContextClassLoader(loader);
+        try {
+            if (context.getResource(jspUri) != null) {
+                serviceJspFile(null, null, jspUri, true);
+                warmUpCompletedCount.incrementAndGet();
+                return;
+            }
+        } catch (Throwable t) {
+            ExceptionUtils.handleThrowable(t);
+            if (log.isDebugEnabled()) {
+                log.debug(Localizer.getMessage("jsp.message.warmUpFailed", jspUri), t);
+            }
+        } finally {
+            currentThread.setContextClassLoader(originalLoader);
+        }
+        warmUpFailedCount.incrementAndGet();
+    }
+
+
+    private Set<String> findJsps(String path, JspConfig jspConfig, Set<String> result) {
+        Set<String> paths = context.getResourcePaths(path);
+        if (paths == null) {
+            return result;
+        }
+        for (String resourcePath : paths) {
+            if (resourcePath.endsWith("/")) {
+                findJsps(resourcePath, jspConfig, result);
+            } else if (resourcePath.endsWith(".jsp") || resourcePath.endsWith(".jspx") ||
+                    jspConfig.isJspPage(resourcePath)) {
+                result.add(resourcePath);
+            }
+        }
+        return result;
+    }
+
+
+    /*
+     * The warm-up file lists the JSPs used during the previous run, most
+     * requested first, one per line in the form "<count> <uri>".
+     */
+    private List<String> loadWarmUpFile() {
+        if (warmUpFile == null || !warmUpFile.isFile()) {
+            return null;
+        }
+        List<String> result = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(warmUpFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (space > 0 && space < line.length() - 1) {
+                    result.add(line.substring(space + 1));
+                }
+            }
+        } catch (IOException e) {
+            log.warn(Localizer.getMessage("jsp.warning.warmUpFileRead", warmUpFile), e);
+            return null;
+        }
+        return result;
+    }
+
+
+    private void saveWarmUpFile() {
+        List<JspServletWrapper> wrappers = new ArrayList<>();
+        for (JspServletWrapper wrapper : rctxt.getWrappers()) {
+            if (!wrapper.isTagFile() && wrapper.getRequestCount() > 0) {
+                wrappers.add(wrapper);
+            }
+        }
+        if (wrappers.isEmpty()) {
+            // Retain the data from the previous run
+            return;
+        }
+        wrappers.sort((w1, w2) -> Long.compare(w2.getRequestCount(), w1.getRequestCount()));
+        File parent = warmUpFile.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            log.warn(Localizer.getMessage("jsp.warning.warmUpFileWrite", warmUpFile));
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(warmUpFile.toPath(), StandardCharsets.UTF_8)) {
+            for (JspServletWrapper wrapper : wrappers) {
+                writer.write(Long.toString(wrapper.getRequestCount()));
+                writer.write(' ');
+                writer.write(wrapper.getJspUri());
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            log.warn(Localizer.getMessage("jsp.warning.warmUpFileWrite", warmUpFile), e);
+        }
+    }
+
+
     private void serviceJspFile(HttpServletRequest request,
                                 HttpServletResponse response, String jspUri,
                                 boolean precompile)
@@ -20,6 +20,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import jakarta.servlet.RequestDispatcher;
 import jakarta.servlet.Servlet;
@@ -100,8 +102,11 @@ public class JspServletWrapper {
     private JasperException compileException;
     /* Timestamp of last time servlet resource was modified */
     private volatile long servletClassLastModifiedTime;
-    private long lastModificationTest = 0L;
+    private volatile long lastModificationTest = 0L;
+    /* Ensures only one request at a time checks the JSP for modification */
+    private final AtomicBoolean modificationTestInProgress = new AtomicBoolean();
     private long lastUsageTime = System.currentTimeMillis();
+    private final LongAdder requestCount = new LongAdder();
     private FastRemovalDequeue<JspServletWrapper>.Entry unloadHandle;
     private final boolean unloadAllowed;
     private final boolean unloadByCount;
@@ -352,6 +357,14 @@ public class JspServletWrapper {
         return tripCount--;
     }
 
+    /**
+     * @return the number of requests, excluding precompilation requests,
+     *         processed by this JSP since it was loaded
+     */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
     public String getJspUri() {
         return jspUri;
     }
@@ -390,11 +403,13 @@ public class JspServletWrapper {
              * (1) Compile
              */
             if (options.getDevelopment() || mustCompile) {
-                synchronized (this) {
-                    if (options.getDevelopment() || mustCompile) {
-                        // The following sets reload to true, if necessary
-                        ctxt.compile();
-                        mustCompile = false;
+                if (mustCompile || compileException != null || isModified()) {
+                    synchronized (this) {
+                        if (options.getDevelopment() || mustCompile) {
+                            // The following sets reload to true, if necessary
+                            ctxt.compile();
+                            mustCompile = false;
+                        }
                     }
                 }
             } else {
@@ -414,6 +429,8 @@ public class JspServletWrapper {
                 return;
             }
 
+            requestCount.increment();
+
         } catch (FileNotFoundException fnfe) {
             // File has been removed. Let caller handle this.
             throw fnfe;
@@ -512,6 +529,30 @@ public class JspServletWrapper {
         }
     }
 
+    /*
+     * Checks whether the JSP or any of its dependencies have been modified
+     * without holding the lock for this wrapper. Once the modification test
+     * interval has expired, one request performs the check while concurrent
+     * requests continue to use the current version of the JSP.
+     */
+    private boolean isModified() {
+        int modificationTestInterval = options.getModificationTestInterval();
+        if (modificationTestInterval > 0) {
+            if (lastModificationTest + (modificationTestInterval * 1000L) > System.currentTimeMillis()) {
+                return false;
+            }
+            if (!modificationTestInProgress.compareAndSet(false, true)) {
+                return false;
+            }
+            try {
+                return ctxt.isOutDated();
+            } finally {
+                modificationTestInProgress.set(false);
+            }
+        }
+        return ctxt.isOutDated();
+    }
+
     /**
      * @return Returns the lastModificationTest.
      */
@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.servlet;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.jsp.tagext.FunctionInfo;
+import jakarta.servlet.jsp.tagext.TagAttributeInfo;
+import jakarta.servlet.jsp.tagext.TagVariableInfo;
+
+import org.apache.jasper.compiler.Localizer;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.descriptor.tld.TagFileXml;
+import org.apache.tomcat.util.descriptor.tld.TagXml;
+import org.apache.tomcat.util.descriptor.tld.TaglibXml;
+import org.apache.tomcat.util.descriptor.tld.ValidatorXml;
+import org.apache.tomcat.util.file.PersistentDataFile;
+
+/**
+ * Persistent cache of the TLDs found in JARs. For each JAR the cache records
+ * the parsed form of every TLD it contains (or that it contains none) so that,
+ * on the next start, JARs that have not changed do not have to be searched for
+ * TLDs and those TLDs do not have to be parsed again. A JAR is identified by
+ * its path and the name, size and CRC of each of its entries. Only JARs that
+ * are available as files are cached.
+ */
+class TldScanCache {
+
+    private final Log log = LogFactory.getLog(TldScanCache.class); // must not be static
+    private static final String MSG = "org.apache.jasper.servlet.TldScanCache";
+
+    static final String CACHE_FILE = "tldScanCache.dat";
+
+    private static final int MAGIC = 0x544c4443;
+    private static final int VERSION = 2;
+
+    private final PersistentDataFile cacheFile;
+    private final int parserOptions;
+
+    private final Map<String,JarTlds> previous = new HashMap<>();
+    private final Map<String,JarTlds> current = new LinkedHashMap<>();
+    // Digests, calculated before the scan, of the JARs that are not cached
+    private final Map<String,byte[]> digests = new HashMap<>();
+    private boolean modified = false;
+
+
+    /**
+     * Create a cache.
+     *
+     * @param cacheFile     The file used to store the cache
+     * @param validation    Is the TLD parser validating
+     * @param blockExternal Does the TLD parser block external entities
+     */
+    TldScanCache(File cacheFile, boolean validation, boolean blockExternal) {
+        this.cacheFile = new PersistentDataFile(cacheFile, MAGIC, VERSION);
+        // A TLD that parsed with one set of options may not parse with another
+        this.parserOptions = (validation ? 1 : 0) | (blockExternal ? 2 : 0);
+    }
+
+
+    /**
+     * Read the cache from disk. If the cache does not exist, cannot be read or
+     * was created with different parser options the cache starts empty.
+     */
+    void load() {
+        try {
+            Map<String,JarTlds> jars = cacheFile.read(this::readJars);
+            if (jars != null) {
+                previous.putAll(jars);
+            }
+        } catch (IOException e) {
+            log.warn(Localizer.getMessage(MSG + ".readFail", cacheFile.getFile()), e);
+        }
+    }
+
+
+    private Map<String,JarTlds> readJars(DataInputStream in) throws IOException {
+        if (in.readInt() != parserOptions) {
+            return null;
+        }
+        Map<String,JarTlds> jars = new HashMap<>();
+        int jarCount = in.readInt();
+        for (int i = 0; i < jarCount; i++) {
+            String path = readString(in);
+            byte[] digest = new byte[in.readInt()];
+            in.readFully(digest);
+            int tldCount = in.readInt();
+            Map<String,TaglibXml> tlds = new LinkedHashMap<>();
+            for (int j = 0; j < tldCount; j++) {
+                String entryName = readString(in);
+                tlds.put(entryName, readTaglibXml(in));
+            }
+            jars.put(path, new JarTlds(digest, tlds));
+        }
+        return jars;
+    }
+
+
+    /**
+     * Obtain the TLDs found in a JAR the last time it was scanned.
+     *
+     * @param jarFileUrl The URL of the JAR
+     *
+     * @return The TLDs keyed by JAR entry name (empty if the JAR contains no
+     *         TLDs) or {@code null} if the JAR is not in the cache or has
+     *         changed since it was cached
+     */
+    Map<String,TaglibXml> get(URL jarFileUrl) {
+        File file = PersistentDataFile.getJarFile(jarFileUrl);
+        if (file == null) {
+            return null;
+        }
+        String path = file.getAbsolutePath();
+        JarTlds jarTlds = previous.remove(path);
+        byte[] digest;
+        try {
+            digest = PersistentDataFile.getJarDigest(file);
+        } catch (IOException e) {
+            // The JAR will be scanned, and the failure reported, as usual
+            return null;
+        }
+        if (jarTlds == null || !Arrays.equals(jarTlds.digest, digest)) {
+            // Retained for put() so a JAR modified during the scan is scanned
+            // again next time
+            digests.put(path, digest);
+            return null;
+        }
+        current.put(path, jarTlds);
+        return jarTlds.tlds;
+    }
+
+
+    /**
+     * Record the TLDs found in a JAR.
+     *
+     * The JAR is recorded with the digest calculated by {@link #get(URL)}.
+     *
+     * @param jarFileUrl The URL of the JAR
+     * @param tlds       The TLDs found, keyed by JAR entry name
+     */
+    void put(URL jarFileUrl, Map<String,TaglibXml> tlds) {
+        File file = PersistentDataFile.getJarFile(jarFileUrl);
+        if (file == null) {
+            return;
+        }
+        String path = file.getAbsolutePath();
+        byte[] digest = digests.remove(path);
+        if (digest == null) {
+            return;
+        }
+        current.put(path, new JarTlds(digest, tlds));
+        modified = true;
+    }
+
+
+    /**
+     * Write the cache to disk if it has changed. Only the JARs used by the
+     * current scan are retained.
+     */
+    void save() {
+        if (!modified && previous.isEmpty()) {
+            return;
+        }
+        try {
+            cacheFile.write(out -> {
+                out.writeInt(parserOptions);
+                out.writeInt(current.size());
+                for (Map.Entry<String,JarTlds> entry : current.entrySet()) {
+                    JarTlds jarTlds = entry.getValue();
+                    writeString(out, entry.getKey());
+                    out.writeInt(jarTlds.digest.length);
+                    out.write(jarTlds.digest);
+                    out.writeInt(jarTlds.tlds.size());
+                    for (Map.Entry<String,TaglibXml> tld : jarTlds.tlds.entrySet()) {
+                        writeString(out, tld.getKey());
+                        writeTaglibXml(out, tld.getValue());
+                    }
+                }
+            });
+            previous.clear();
+            modified = false;
+        } catch (IOException e) {
+            log.warn(Localizer.getMessage(MSG + ".writeFail", cacheFile.getFile()), e);
+        }
+    }
+
+
+    private static void writeTaglibXml(DataOutputStream out, TaglibXml taglibXml) throws IOException {
+        writeString(out, taglibXml.getTlibVersion());
+        writeString(out, taglibXml.getJspVersion());
+        writeString(out, taglibXml.getShortName());
+        writeString(out, taglibXml.getUri());
+        writeString(out, taglibXml.getInfo());
+
+        ValidatorXml validator = taglibXml.getValidator();
+        out.writeBoolean(validator != null);
+        if (validator != null) {
+            writeString(out, validator.getValidatorClass());
+            Map<String,String> initParams = validator.getInitParams();
+            out.writeInt(initParams.size());
+            for (Map.Entry<String,String> initParam : initParams.entrySet()) {
+                writeString(out, initParam.getKey());
+                writeString(out, initParam.getValue());
+            }
+        }
+
+        List<TagXml> tags = taglibXml.getTags();
+        out.writeInt(tags.size());
+        for (TagXml tag : tags) {
+            writeString(out, tag.getName());
+            writeString(out, tag.getTagClass());
+            writeString(out, tag.getTeiClass());
+            writeString(out, tag.getBodyContent());
+            writeString(out, tag.getDisplayName());
+            writeString(out, tag.getSmallIcon());
+            writeString(out, tag.getLargeIcon());
+            writeString(out, tag.getInfo());
+            out.writeBoolean(tag.hasDynamicAttributes());
+            out.writeInt(tag.getAttributes().size());
+            for (TagAttributeInfo attribute : tag.getAttributes()) {
+                writeString(out, attribute.getName());
+                out.writeBoolean(attribute.isRequired());
+                writeString(out, attribute.getTypeName());
+                out.writeBoolean(attribute.canBeRequestTime());
+                out.writeBoolean(attribute.isFragment());
+                writeString(out, attribute.getDescription());
+                out.writeBoolean(attribute.isDeferredValue());
+                out.writeBoolean(attribute.isDeferredMethod());
+                writeString(out, attribute.getExpectedTypeName());
+                writeString(out, attribute.getMethodSignature());
+            }
+            out.writeInt(tag.getVariables().size());
+            for (TagVariableInfo variable : tag.getVariables()) {
+                writeString(out, variable.getNameGiven());
+                writeString(out, variable.getNameFromAttribute());
+                writeString(out, variable.getClassName());
+                out.writeBoolean(variable.getDeclare());
+                out.writeInt(variable.getScope());
+            }
+        }
+
+        List<TagFileXml> tagFiles = taglibXml.getTagFiles();
+        out.writeInt(tagFiles.size());
+        for (TagFileXml tagFile : tagFiles) {
+            writeString(out, tagFile.getName());
+            writeString(out, tagFile.getPath());
+            writeString(out, tagFile.getDisplayName());
+            writeString(out, tagFile.getSmallIcon());
+            writeString(out, tagFile.getLargeIcon());
+            writeString(out, tagFile.getInfo());
+        }
+
+        List<String> listeners = taglibXml.getListeners();
+        out.writeInt(listeners.size());
+        for (String listener : listeners) {
+            writeString(out, listener);
+        }
+
+        List<FunctionInfo> functions = taglibXml.getFunctions();
+        out.writeInt(functions.size());
+        for (FunctionInfo function : functions) {
+            writeString(out, function.getName());
+            writeString(out, function.getFunctionClass());
+            writeString(out, function.getFunctionSignature());
+        }
+    }
+
+
+    private static TaglibXml readTaglibXml(DataInputStream in) throws IOException {
+        TaglibXml taglibXml = new TaglibXml();
+        taglibXml.setTlibVersion(readString(in));
+        taglibXml.setJspVersion(readString(in));
+        taglibXml.setShortName(readString(in));
+        taglibXml.setUri(readString(in));
+        taglibXml.setInfo(readString(in));
+
+        if (in.readBoolean()) {
+            ValidatorXml validator = new ValidatorXml();
+            validator.setValidatorClass(readString(in));
+            int initParamCount = in.readInt();
+            for (int i = 0; i < initParamCount; i++) {
+                validator.addInitParam(readString(in), readString(in));
+            }
+            taglibXml.setValidator(validator);
+        }
+
+        int tagCount = in.readInt();
+        for (int i = 0; i < tagCount; i++) {
+            TagXml tag = new TagXml();
+            tag.setName(readString(in));
+            tag.setTagClass(readString(in));
+            tag.setTeiClass(readString(in));
+            tag.setBodyContent(readString(in));
+            tag.setDisplayName(readString(in));
+            tag.setSmallIcon(readString(in));
+            tag.setLargeIcon(readString(in));
+            tag.setInfo(readString(in));
+            tag.setDynamicAttributes(in.readBoolean());
+            int attributeCount = in.readInt();
+            for (int j = 0; j < attributeCount; j++) {
+                String name = readString(in);
+                boolean required = in.readBoolean();
+                String type = readString(in);
+                boolean reqTime = in.readBoolean();
+                boolean fragment = in.readBoolean();
+                String description = readString(in);
+                boolean deferredValue = in.readBoolean();
+                boolean deferredMethod = in.readBoolean();
+                String expectedTypeName = readString(in);
+                String methodSignature = readString(in);
+                tag.getAttributes().add(new TagAttributeInfo(name, required, type, reqTime, fragment,
+                        description, deferredValue, deferredMethod, expectedTypeName, methodSignature));
+            }
+            int variableCount = in.readInt();
+            for (int j = 0; j < variableCount; j++) {
+                String nameGiven = readString(in);
+                String nameFromAttribute = readString(in);
+                String className = readString(in);
+                boolean declare = in.readBoolean();
+                int scope = in.readInt();
+                tag.getVariables().add(
+                        new TagVariableInfo(nameGiven, nameFromAttribute, className, declare, scope));
+            }
+            taglibXml.addTag(tag);
+        }
+
+        int tagFileCount = in.readInt();
+        for (int i = 0; i < tagFileCount; i++) {
+            TagFileXml tagFile = new TagFileXml();
+            tagFile.setName(readString(in));
+            tagFile.setPath(readString(in));
+            tagFile.setDisplayName(readString(in));
+            tagFile.setSmallIcon(readString(in));
+            tagFile.setLargeIcon(readString(in));
+            tagFile.setInfo(readString(in));
+            taglibXml.addTagFile(tagFile);
+        }
+
+        int listenerCount = in.readInt();
+        for (int i = 0; i < listenerCount; i++) {
+            taglibXml.addListener(readString(in));
+        }
+
+        int functionCount = in.readInt();
+        for (int i = 0; i < functionCount; i++) {
+            taglibXml.addFunction(readString(in), readString(in), readString(in));
+        }
+
+        return taglibXml;
+    }
+
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    private static class JarTlds {
+        private final byte[] digest;
+        private final Map<String,TaglibXml> tlds;
+
+        JarTlds(byte[] digest, Map<String,TaglibXml> tlds) {
+            this.digest = digest;
+            this.tlds = tlds;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -36,6 +37,7 @@ import jakarta.servlet.ServletContext;
 import jakarta.servlet.descriptor.JspConfigDescriptor;
 import jakarta.servlet.descriptor.TaglibDescriptor;
 
+import org.apache.jasper.Constants;
 import org.apache.jasper.compiler.JarScannerFactory;
 import org.apache.jasper.compiler.Localizer;
 import org.apache.juli.logging.Log;
@@ -47,6 +49,8 @@ import org.apache.tomcat.JarScannerCallback;
 import org.apache.tomcat.util.descriptor.tld.TaglibXml;
 import org.apache.tomcat.util.descriptor.tld.TldParser;
 import org.apache.tomcat.util.descriptor.tld.TldResourcePath;
+import org.apache.tomcat.util.file.PersistentDataFile;
+import org.apache.tomcat.util.jfr.JfrEvents;
 import org.xml.sax.SAXException;
 
 /**
@@ -59,6 +63,8 @@ public class TldScanner {
     private static final String WEB_INF = "/WEB-INF/";
     private final ServletContext context;
     private final TldParser tldParser;
+    private final boolean validation;
+    private final boolean blockExternal;
     private final Map<String, TldResourcePath> uriTldResourcePathMap = new HashMap<>();
     private final Map<TldResourcePath, TaglibXml> tldResourcePathTaglibXmlMap = new HashMap<>();
     private final List<String> listeners = new ArrayList<>();
@@ -82,6 +88,8 @@ public class TldScanner {
         this.context = context;
 
         this.tldParser = new TldParser(namespaceAware, validation, blockExternal);
+        this.validation = validation;
+        this.blockExternal = blockExternal;
     }
 
     /**
@@ -97,11 +105,14 @@ public class TldScanner {
      * @throws IOException  if there was a problem scanning for or loading a TLD
      * @throws SAXException if there was a problem parsing a TLD
      */
+    @SuppressWarnings("try")
     public void scan() throws IOException, SAXException {
-        scanPlatform();
-        scanJspConfig();
-        scanResourcePaths(WEB_INF);
-        scanJars();
+        try (JfrEvents.Span span = JfrEvents.phase(context.getContextPath(), "tldScan")) {
+            scanPlatform();
+            scanJspConfig();
+            scanResourcePaths(WEB_INF);
+            scanJars();
+        }
     }
 
     /**
@@ -258,13 +269,35 @@ public class TldScanner {
      */
     public void scanJars() {
         JarScanner scanner = JarScannerFactory.getJarScanner(context);
-        TldScannerCallback callback = new TldScannerCallback();
+        TldScannerCallback callback = new TldScannerCallback(createScanCache());
         scanner.scan(JarScanType.TLD, context, callback);
+        callback.saveScanCache();
         if (callback.scanFoundNoTLDs()) {
             log.info(Localizer.getMessage("jsp.tldCache.noTldSummary"));
         }
     }
 
+    /**
+     * Create the persistent cache of TLDs found in JARs if it is enabled for
+     * the web application.
+     *
+     * @return the cache or {@code null} if the cache is not enabled or the web
+     *         application does not have a work directory
+     */
+    private TldScanCache createScanCache() {
+        if (!Boolean.parseBoolean(context.getInitParameter(Constants.TLD_SCAN_CACHE_INIT_PARAM))) {
+            return null;
+        }
+        Object tempDir = context.getAttribute(ServletContext.TEMPDIR);
+        if (!(tempDir instanceof File) || !((File) tempDir).isDirectory()) {
+            return null;
+        }
+        TldScanCache scanCache = new TldScanCache(
+                new File((File) tempDir, TldScanCache.CACHE_FILE), validation, blockExternal);
+        scanCache.load();
+        return scanCache;
+    }
+
     protected void parseTld(String resourcePath) throws IOException, SAXException {
         TldResourcePath tldResourcePath =
                 new TldResourcePath(context.getResource(resourcePath), resourcePath);
@@ -272,7 +305,10 @@ public class TldScanner {
     }
 
     protected void parseTld(TldResourcePath path) throws IOException, SAXException {
-        TaglibXml tld = tldParser.parse(path);
+        addTld(path, tldParser.parse(path));
+    }
+
+    private void addTld(TldResourcePath path, TaglibXml tld) {
         String uri = tld.getUri();
         if (uri != null) {
             if (!uriTldResourcePathMap.containsKey(uri)) {
@@ -292,29 +328,65 @@ public class TldScanner {
     }
 
     class TldScannerCallback implements JarScannerCallback {
+        private final TldScanCache scanCache;
         private boolean foundJarWithoutTld = false;
         private boolean foundFileWithoutTld = false;
 
 
+        TldScannerCallback() {
+            this(null);
+        }
+
+
+        TldScannerCallback(TldScanCache scanCache) {
+            this.scanCache = scanCache;
+        }
+
+
         @Override
         public void scan(Jar jar, String webappPath, boolean isWebapp) throws IOException {
             boolean found = false;
             URL jarFileUrl = jar.getJarFileURL();
-            jar.nextEntry();
-            for (String entryName = jar.getEntryName();
-                entryName != null;
-                jar.nextEntry(), entryName = jar.getEntryName()) {
-                if (!(entryName.startsWith("META-INF/") &&
-                        entryName.endsWith(TLD_EXT))) {
-                    continue;
+            Map<String,TaglibXml> cached = null;
+            Map<String,TaglibXml> toCache = null;
+            if (scanCache != null) {
+                cached = scanCache.get(jarFileUrl);
+                if (cached == null && PersistentDataFile.getJarFile(jarFileUrl) != null) {
+                    toCache = new LinkedHashMap<>();
                 }
-                found = true;
-                TldResourcePath tldResourcePath =
-                        new TldResourcePath(jarFileUrl, webappPath, entryName);
-                try {
-                    parseTld(tldResourcePath);
-                } catch (SAXException e) {
-                    throw new IOException(e);
+            }
+
+            if (cached != null) {
+                for (Map.Entry<String,TaglibXml> entry : cached.entrySet()) {
+                    found = true;
+                    addTld(new TldResourcePath(jarFileUrl, webappPath, entry.getKey()), entry.getValue());
+                }
+            } else {
+                jar.nextEntry();
+                for (String entryName = jar.getEntryName();
+                    entryName != null;
+                    jar.nextEntry(), entryName = jar.getEntryName()) {
+                    if (!(entryName.startsWith("META-INF/") &&
+                            entryName.endsWith(TLD_EXT))) {
+                        continue;
+                    }
+                    found = true;
+                    TldResourcePath tldResourcePath =
+                            new TldResourcePath(jarFileUrl, webappPath, entryName);
+                    try {
+                        if (toCache == null) {
+                            parseTld(tldResourcePath);
+                        } else {
+                            TaglibXml tld = tldParser.parse(tldResourcePath);
+                            toCache.put(entryName, tld);
+                            addTld(tldResourcePath, tld);
+                        }
+                    } catch (SAXException e) {
+                        throw new IOException(e);
+                    }
+                }
+                if (toCache != null) {
+                    scanCache.put(jarFileUrl, toCache);
                 }
             }
             if (found) {
@@ -409,6 +481,12 @@ public class TldScanner {
         }
 
 
+        void saveScanCache() {
+            if (scanCache != null) {
+                scanCache.save();
+            }
+        }
+
         boolean scanFoundNoTLDs() {
             return foundJarWithoutTld;
         }
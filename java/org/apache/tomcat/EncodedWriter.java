@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat;
+
+import java.nio.charset.Charset;
+
+/**
+ * Implemented by the {@link java.io.Writer} that the container provides for a
+ * response when content that has already been encoded may be written to the
+ * Writer without having to be decoded and then encoded again.
+ */
+public interface EncodedWriter {
+
+    /**
+     * Write content that has already been encoded.
+     *
+     * @param b       The encoded content
+     * @param off     The offset of the content in the array
+     * @param len     The length of the content
+     * @param charset The character set used to encode the content
+     *
+     * @return <code>true</code> if the content was written or
+     *         <code>false</code> if it could not be written, for example
+     *         because the response is using a different character set, in
+     *         which case the caller must write the original characters instead
+     */
+    boolean writeEncoded(byte[] b, int off, int len, Charset charset);
+}
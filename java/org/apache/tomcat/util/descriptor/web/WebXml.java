@@ -966,6 +966,17 @@ public class WebXml extends XmlEncodingBase implements DocumentProperties.Charse
                         sessionConfig.getCookieSecure());
                 appendElement(sb, INDENT6, "max-age",
                         sessionConfig.getCookieMaxAge());
+                if (majorVersion >= 6) {
+                    for (Map.Entry<String,String> attribute :
+                            sessionConfig.getCookieAttributes().entrySet()) {
+                        if (!isNamedCookieAttribute(attribute.getKey())) {
+                            sb.append("      <attribute>\n");
+                            appendElement(sb, "        ", "attribute-name", attribute.getKey());
+                            appendElement(sb, "        ", "attribute-value", attribute.getValue());
+                            sb.append("      </attribute>\n");
+                        }
+                    }
+                }
                 sb.append("    </cookie-config>\n");
                 for (SessionTrackingMode stm :
                         sessionConfig.getSessionTrackingModes()) {
@@ -1403,6 +1414,19 @@ public class WebXml extends XmlEncodingBase implements DocumentProperties.Charse
     }
 
 
+    /*
+     * Cookie attributes that have their own element in cookie-config.
+     */
+    private static boolean isNamedCookieAttribute(String name) {
+        return Constants.COOKIE_COMMENT_ATTR.equalsIgnoreCase(name) ||
+                Constants.COOKIE_DOMAIN_ATTR.equalsIgnoreCase(name) ||
+                Constants.COOKIE_MAX_AGE_ATTR.equalsIgnoreCase(name) ||
+                Constants.COOKIE_PATH_ATTR.equalsIgnoreCase(name) ||
+                Constants.COOKIE_SECURE_ATTR.equalsIgnoreCase(name) ||
+                Constants.COOKIE_HTTP_ONLY_ATTR.equalsIgnoreCase(name);
+    }
+
+
     private String encodeUrl(String input) {
         try {
             return URLEncoder.encode(input, "UTF-8");
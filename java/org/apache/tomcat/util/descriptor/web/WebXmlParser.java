@@ -144,6 +144,42 @@ public class WebXmlParser {
     }
 
 
+    /**
+     * Parse a web application deployment descriptor and generate the source of
+     * a Java class that populates a {@link WebXml} in the same way without any
+     * XML parsing or reflection. The generated class implements
+     * {@link GeneratedWebXml}.
+     *
+     * @param source the descriptor to parse
+     * @param dest the instance to be populated by the parse operation
+     * @param packageName the package of the class to generate
+     * @param simpleClassName the simple name of the class to generate
+     * @return the generated source or <code>null</code> if the descriptor
+     *         was not successfully parsed
+     */
+    public String generateCode(InputSource source, WebXml dest,
+            String packageName, String simpleClassName) {
+        webDigester.startGeneratingCode();
+        try {
+            StringBuilder code = webDigester.getGeneratedCode();
+            code.append("package ").append(packageName).append(';').append(System.lineSeparator());
+            code.append("public class ").append(simpleClassName).append(" implements ");
+            code.append(GeneratedWebXml.class.getName().replace('$', '.'));
+            code.append(" {").append(System.lineSeparator());
+            code.append("public void load(").append(WebXml.class.getName()).append(' ');
+            code.append(webDigester.toVariableName(dest)).append(") {").append(System.lineSeparator());
+            if (!parseWebXml(source, dest, false)) {
+                return null;
+            }
+            code.append('}').append(System.lineSeparator());
+            code.append('}').append(System.lineSeparator());
+            return code.toString();
+        } finally {
+            webDigester.endGeneratingCode();
+        }
+    }
+
+
     /**
      * Sets the ClassLoader to be used for creating descriptor objects.
      * @param classLoader the ClassLoader to be used for creating descriptor objects
@@ -152,4 +188,13 @@ public class WebXmlParser {
         webDigester.setClassLoader(classLoader);
         webFragmentDigester.setClassLoader(classLoader);
     }
+
+
+    /**
+     * Implemented by the classes generated by
+     * {@link #generateCode(InputSource, WebXml, String, String)}.
+     */
+    public interface GeneratedWebXml {
+        void load(WebXml webXml);
+    }
 }
\ No newline at end of file
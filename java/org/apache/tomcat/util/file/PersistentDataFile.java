@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A file used to persist data, such as the results of scanning JARs, between starts. The file starts with a magic
+ * number that identifies the type of data and a version number for the format of that data. Data with a different
+ * magic number or version is ignored. Data is written to a temporary file that is then moved into place so a reader
+ * never sees partially written data.
+ */
+public class PersistentDataFile {
+
+    private final File file;
+    private final int magic;
+    private final int version;
+
+
+    /**
+     * Create a persistent data file.
+     *
+     * @param file    The file
+     * @param magic   The magic number that identifies the type of data
+     * @param version The version of the format of the data
+     */
+    public PersistentDataFile(File file, int magic, int version) {
+        this.file = file;
+        this.magic = magic;
+        this.version = version;
+    }
+
+
+    /**
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+
+    /**
+     * Read the data from the file.
+     *
+     * @param <T>    The type of the data
+     * @param reader Reads the data that follows the header
+     *
+     * @return The data or {@code null} if the file does not exist or was written with a different magic number or
+     *             version
+     *
+     * @throws IOException If the file cannot be read
+     */
+    public <T> T read(Reader<T> reader) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != magic || in.readInt() != version) {
+                return null;
+            }
+            return reader.read(in);
+        }
+    }
+
+
+    /**
+     * Write the data to the file, replacing any existing data.
+     *
+     * @param writer Writes the data that follows the header
+     *
+     * @throws IOException If the file cannot be written. Any existing data is retained.
+     */
+    public void write(Writer writer) throws IOException {
+        File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile.toPath())))) {
+                out.writeInt(magic);
+                out.writeInt(version);
+                writer.write(out);
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            if (!tmpFile.delete() && tmpFile.exists()) {
+                tmpFile.deleteOnExit();
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * Determine the file for the URL of a JAR. Both the URL of the JAR file and the URL of the root of the JAR (i.e.
+     * {@code jar:<url>!/}) are supported.
+     *
+     * @param url The URL of the JAR
+     *
+     * @return The file or {@code null} if the URL does not refer to a JAR that is available as a file
+     */
+    public static File getJarFile(URL url) {
+        if (url == null) {
+            return null;
+        }
+        String urlString = url.toString();
+        if (urlString.startsWith("jar:")) {
+            int separator = urlString.indexOf("!/");
+            if (separator == -1 || separator + 2 != urlString.length()) {
+                // Nested JAR or entry rather than a JAR
+                return null;
+            }
+            urlString = urlString.substring(4, separator);
+        }
+        if (!urlString.startsWith("file:")) {
+            return null;
+        }
+        try {
+            File file = new File(new URI(urlString));
+            if (file.isFile()) {
+                return file;
+            }
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            // Not a valid file URL
+        }
+        return null;
+    }
+
+
+    /**
+     * Calculate a digest that identifies the content of a JAR. The digest covers the name, size and CRC of every entry
+     * so only the central directory of the JAR has to be read. Unlike the size and last modified time of the file, the
+     * digest changes if the content of the JAR changes, even if it is replaced with a JAR of the same size and time.
+     *
+     * @param file The JAR
+     *
+     * @return The SHA-256 digest of the entries of the JAR
+     *
+     * @throws IOException If the JAR cannot be read
+     */
+    public static byte[] getJarDigest(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required to be supported by every JRE
+            throw new IllegalStateException(e);
+        }
+        byte[] buf = new byte[16];
+        try (ZipFile zipFile = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                byte[] name = entry.getName().getBytes(StandardCharsets.UTF_8);
+                putLong(buf, 0, name.length);
+                putLong(buf, 8, entry.getSize());
+                digest.update(buf, 0, 16);
+                digest.update(name);
+                putLong(buf, 0, entry.getCrc());
+                digest.update(buf, 0, 8);
+            }
+        }
+        return digest.digest();
+    }
+
+
+    private static void putLong(byte[] buf, int offset, long value) {
+        for (int i = 0; i < 8; i++) {
+            buf[offset + i] = (byte) (value >>> (56 - 8 * i));
+        }
+    }
+
+
+    /**
+     * Reads the data from a persistent data file.
+     *
+     * @param <T> The type of the data
+     */
+    @FunctionalInterface
+    public interface Reader<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+
+    /**
+     * Writes the data to a persistent data file.
+     */
+    @FunctionalInterface
+    public interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.jfr;
+
+/**
+ * Creates the JFR events. Isolated from {@link JfrEvents} so the JFR classes are only loaded when JFR is available.
+ */
+final class JfrEventFactory {
+
+    private JfrEventFactory() {
+        // Utility class. Hide default constructor.
+    }
+
+
+    static JfrEvents.Span lifecycle(Object component, String transition) {
+        LifecycleTransitionEvent event = new LifecycleTransitionEvent();
+        if (!event.isEnabled()) {
+            return JfrEvents.NO_SPAN;
+        }
+        event.component = String.valueOf(component);
+        event.transition = transition;
+        event.begin();
+        return event;
+    }
+
+
+    static JfrEvents.Span phase(Object component, String phase) {
+        StartupPhaseEvent event = new StartupPhaseEvent();
+        if (!event.isEnabled()) {
+            return JfrEvents.NO_SPAN;
+        }
+        event.component = String.valueOf(component);
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+
+    static JfrEvents.Span jarScan(String scanType, Object location) {
+        JarScanEvent event = new JarScanEvent();
+        if (!event.isEnabled()) {
+            return JfrEvents.NO_SPAN;
+        }
+        event.scanType = scanType;
+        event.location = String.valueOf(location);
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.jfr;
+
+/**
+ * Emits the Java Flight Recorder events that describe where Tomcat spends its time during start and stop. The events
+ * are only created when JFR is available in the JVM and the corresponding event type is enabled in the active
+ * recording, so it is cheap enough to leave the instrumentation in place permanently. When no recording is active,
+ * each call costs an allocation and a check of the enabled flag.
+ * <p>
+ * The events are:
+ * <ul>
+ * <li>{@code org.apache.tomcat.LifecycleTransition} - a lifecycle transition (init, start, stop or destroy) of a component</li>
+ * <li>{@code org.apache.tomcat.StartupPhase} - a significant phase of starting a component such as parsing
+ * {@code server.xml}, processing {@code web.xml}, scanning for annotations or TLDs, calling a
+ * {@link jakarta.servlet.ServletContainerInitializer} or loading a servlet</li>
+ * <li>{@code org.apache.tomcat.JarScan} - the scanning of a single JAR or directory by the JAR scanner</li>
+ * </ul>
+ * Typical usage is:
+ *
+ * <pre>
+ * try (JfrEvents.Span event = JfrEvents.phase(this, "webConfig")) {
+ *     // Do the work
+ * }
+ * </pre>
+ * As the span is not referenced in the body of the try statement, the enclosing method is annotated with
+ * {@code @SuppressWarnings("try")}.
+ */
+public final class JfrEvents {
+
+    private static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    static final Span NO_SPAN = () -> {
+        // NO-OP
+    };
+
+
+    private JfrEvents() {
+        // Utility class. Hide default constructor.
+    }
+
+
+    /**
+     * Start an event for a lifecycle transition of a component.
+     *
+     * @param component  The component. Only converted to a String if the event is recorded.
+     * @param transition The transition, e.g. {@code start}
+     *
+     * @return The span which must be closed when the transition completes
+     */
+    public static Span lifecycle(Object component, String transition) {
+        if (AVAILABLE) {
+            return JfrEventFactory.lifecycle(component, transition);
+        }
+        return NO_SPAN;
+    }
+
+
+    /**
+     * Start an event for a phase of the start of a component.
+     *
+     * @param component The component. Only converted to a String if the event is recorded.
+     * @param phase     The name of the phase
+     *
+     * @return The span which must be closed when the phase completes
+     */
+    public static Span phase(Object component, String phase) {
+        if (AVAILABLE) {
+            return JfrEventFactory.phase(component, phase);
+        }
+        return NO_SPAN;
+    }
+
+
+    /**
+     * Start an event for the scanning of a single JAR or directory.
+     *
+     * @param scanType The type of scan, e.g. {@code TLD}
+     * @param location The location being scanned. Only converted to a String if the event is recorded.
+     *
+     * @return The span which must be closed when the scan of the location completes
+     */
+    public static Span jarScan(String scanType, Object location) {
+        if (AVAILABLE) {
+            return JfrEventFactory.jarScan(scanType, location);
+        }
+        return NO_SPAN;
+    }
+
+
+    /**
+     * An event that is in progress. Closing the span ends the event and, if the event is enabled, records it.
+     */
+    public interface Span extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+}
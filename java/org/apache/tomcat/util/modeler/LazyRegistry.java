@@ -0,0 +1,425 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.modeler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectInstance;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * An implementation of the MBean registry that defers the registration of
+ * components with the MBean server until the MBeans are used. This is
+ * typically used when start time is a primary concern and JMX is rarely used.
+ * <p>
+ * Until then, components are only recorded in an index. A component that is
+ * unregistered before the MBeans are used, such as a request processor that is
+ * discarded, is simply removed from the index. All the recorded components are
+ * registered, and the registry switches to immediate registration, the first
+ * time one of the following happens:
+ * <ul>
+ * <li>the MBean server returned by {@link #getMBeanServer()} is used to access
+ *     MBeans or to query them with a query expression</li>
+ * <li>a JMX client reads the attribute or invokes the operation of the index
+ *     MBean that is registered as <code>{domain}:type=MBeanIndex</code> for
+ *     each domain with recorded components</li>
+ * </ul>
+ * The index MBean of a domain is unregistered once the domain no longer has
+ * any recorded components and when the registry is stopped.
+ * Queries by name alone, such as those used to find the MBeans to unregister
+ * on shutdown, are answered from the index without registering the recorded
+ * components. JMX clients connecting directly to the platform MBean server only
+ * see the index MBeans until one of them is used.
+ */
+public class LazyRegistry extends Registry {
+
+    private static final Log log = LogFactory.getLog(LazyRegistry.class);
+    private static final StringManager sm = StringManager.getManager(LazyRegistry.class);
+
+    private static final Set<String> WRITE_METHODS =
+            Set.of("createMBean", "instantiate", "registerMBean", "unregisterMBean");
+
+    private final Object pendingLock = new Object();
+
+    /**
+     * The components whose registration is deferred, in registration order.
+     */
+    private final Map<ObjectName,PendingRegistration> pending = new LinkedHashMap<>();
+
+    /**
+     * The index MBeans of the domains with deferred components, keyed by
+     * domain.
+     */
+    private final Map<String,DomainIndex> indexes = new HashMap<>();
+
+    private volatile boolean materialized = false;
+
+    private volatile MBeanServer lazyServer = null;
+
+
+    protected LazyRegistry() {
+        super();
+    }
+
+
+    /**
+     * @return the number of components whose registration is currently
+     *         deferred
+     */
+    public int getPendingCount() {
+        synchronized (pendingLock) {
+            return pending.size();
+        }
+    }
+
+
+    /**
+     * Register all the components whose registration has been deferred and
+     * register any further components immediately.
+     */
+    public void materialize() {
+        if (materialized) {
+            return;
+        }
+        synchronized (pendingLock) {
+            if (materialized) {
+                return;
+            }
+            materialized = true;
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("lazyRegistry.materialize", Integer.toString(pending.size())));
+            }
+            List<Map.Entry<ObjectName,PendingRegistration>> entries = new ArrayList<>(pending.entrySet());
+            pending.clear();
+            unregisterIndexes();
+            for (Map.Entry<ObjectName,PendingRegistration> entry : entries) {
+                try {
+                    super.registerComponent(entry.getValue().bean, entry.getKey(), entry.getValue().type);
+                } catch (Exception e) {
+                    // Logged by registerComponent
+                }
+            }
+        }
+    }
+
+
+    @Override
+    public void registerComponent(Object bean, ObjectName oname, String type) throws Exception {
+        if (bean != null && !materialized) {
+            synchronized (pendingLock) {
+                if (!materialized) {
+                    if (pending.put(oname, new PendingRegistration(bean, type)) == null) {
+                        indexes.computeIfAbsent(oname.getDomain(), this::registerIndex).pendingCount++;
+                    }
+                    return;
+                }
+            }
+        }
+        super.registerComponent(bean, oname, type);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Components whose registration is still deferred are discarded and the
+     * index MBeans are unregistered.
+     */
+    @Override
+    public void stop() {
+        synchronized (pendingLock) {
+            pending.clear();
+            unregisterIndexes();
+        }
+        super.stop();
+    }
+
+
+    @Override
+    public void unregisterComponent(ObjectName oname) {
+        if (oname != null && removePending(oname)) {
+            return;
+        }
+        super.unregisterComponent(oname);
+    }
+
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned MBean server registers the components whose registration
+     * has been deferred before it is used for anything other than registering
+     * or unregistering MBeans.
+     */
+    @Override
+    public MBeanServer getMBeanServer() {
+        if (lazyServer == null) {
+            synchronized (pendingLock) {
+                if (lazyServer == null) {
+                    lazyServer = (MBeanServer) Proxy.newProxyInstance(MBeanServer.class.getClassLoader(),
+                            new Class<?>[] { MBeanServer.class }, new MaterializingHandler(super.getMBeanServer()));
+                }
+            }
+        }
+        return lazyServer;
+    }
+
+
+    private boolean removePending(ObjectName oname) {
+        if (materialized) {
+            return false;
+        }
+        synchronized (pendingLock) {
+            if (pending.remove(oname) == null) {
+                return false;
+            }
+            DomainIndex index = indexes.get(oname.getDomain());
+            if (--index.pendingCount == 0) {
+                indexes.remove(oname.getDomain());
+                if (index.name != null) {
+                    super.unregisterComponent(index.name);
+                }
+            }
+            return true;
+        }
+    }
+
+
+    private boolean isPending(ObjectName oname) {
+        if (materialized) {
+            return false;
+        }
+        synchronized (pendingLock) {
+            return pending.containsKey(oname);
+        }
+    }
+
+
+    /*
+     * Returns null if registration is no longer deferred.
+     */
+    private Set<ObjectInstance> queryPending(ObjectName name) {
+        if (materialized) {
+            return null;
+        }
+        synchronized (pendingLock) {
+            if (materialized) {
+                return null;
+            }
+            Set<ObjectInstance> result = new HashSet<>();
+            for (Map.Entry<ObjectName,PendingRegistration> entry : pending.entrySet()) {
+                if (name == null || name.apply(entry.getKey())) {
+                    result.add(new ObjectInstance(entry.getKey(), entry.getValue().bean.getClass().getName()));
+                }
+            }
+            return result;
+        }
+    }
+
+
+    /*
+     * Must be called with pendingLock held. If the index MBean cannot be
+     * registered, the returned index has no name and registration is not tried
+     * again while the domain has deferred components.
+     */
+    private DomainIndex registerIndex(String domain) {
+        DomainIndex index = new DomainIndex();
+        try {
+            ObjectName indexName = new ObjectName(domain + ":type=MBeanIndex");
+            super.getMBeanServer().registerMBean(new MBeanIndex(), indexName);
+            index.name = indexName;
+        } catch (MalformedObjectNameException e) {
+            log.info(sm.getString("registry.objectNameCreateError"), e);
+        } catch (Exception e) {
+            log.warn(sm.getString("lazyRegistry.indexRegisterError", domain), e);
+        }
+        return index;
+    }
+
+
+    /*
+     * Must be called with pendingLock held.
+     */
+    private void unregisterIndexes() {
+        for (DomainIndex index : indexes.values()) {
+            if (index.name != null) {
+                super.unregisterComponent(index.name);
+            }
+        }
+        indexes.clear();
+    }
+
+
+    private static class DomainIndex {
+
+        private ObjectName name;
+        private int pendingCount;
+    }
+
+
+    private static class PendingRegistration {
+
+        private final Object bean;
+        private final String type;
+
+        PendingRegistration(Object bean, String type) {
+            this.bean = bean;
+            this.type = type;
+        }
+    }
+
+
+    private class MaterializingHandler implements InvocationHandler {
+
+        private final MBeanServer server;
+
+        MaterializingHandler(MBeanServer server) {
+            this.server = server;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!materialized && method.getDeclaringClass() != Object.class) {
+                String name = method.getName();
+                if ("unregisterMBean".equals(name) && removePending((ObjectName) args[0])) {
+                    return null;
+                } else if ("isRegistered".equals(name) && isPending((ObjectName) args[0])) {
+                    return Boolean.TRUE;
+                } else if (("queryNames".equals(name) || "queryMBeans".equals(name)) && args[1] == null) {
+                    // The query expression, if any, needs the MBeans to be
+                    // evaluated but a query by name alone does not
+                    Set<ObjectInstance> pendingInstances = queryPending((ObjectName) args[0]);
+                    if (pendingInstances != null) {
+                        return query(name, (ObjectName) args[0], pendingInstances);
+                    }
+                } else if (!WRITE_METHODS.contains(name)) {
+                    materialize();
+                }
+            }
+            return invokeServer(method, args);
+        }
+
+        private Object query(String methodName, ObjectName name, Set<ObjectInstance> pendingInstances) {
+            if ("queryNames".equals(methodName)) {
+                Set<ObjectName> result = new HashSet<>(server.queryNames(name, null));
+                for (ObjectInstance pendingInstance : pendingInstances) {
+                    result.add(pendingInstance.getObjectName());
+                }
+                return result;
+            }
+            Set<ObjectInstance> result = new HashSet<>(server.queryMBeans(name, null));
+            result.addAll(pendingInstances);
+            return result;
+        }
+
+        private Object invokeServer(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(server, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+
+    /**
+     * The MBean registered for each domain while registration is deferred.
+     * Reading its attribute or invoking its operation registers the deferred
+     * components. Its MBean info is also obtained by the MBean server when it
+     * is registered so obtaining it does not register them.
+     */
+    private class MBeanIndex implements DynamicMBean {
+
+        private static final String PENDING_COUNT = "pendingCount";
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            if (!PENDING_COUNT.equals(attribute)) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            int pendingCount = getPendingCount();
+            materialize();
+            return Integer.valueOf(pendingCount);
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException(attribute.getName());
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            AttributeList result = new AttributeList();
+            for (String attribute : attributes) {
+                try {
+                    result.add(new Attribute(attribute, getAttribute(attribute)));
+                } catch (AttributeNotFoundException e) {
+                    // Ignore
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            if (!"materialize".equals(actionName)) {
+                throw new ReflectionException(new NoSuchMethodException(actionName));
+            }
+            materialize();
+            return null;
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            return new MBeanInfo(MBeanIndex.class.getName(), sm.getString("lazyRegistry.indexDescription"),
+                    new MBeanAttributeInfo[] { new MBeanAttributeInfo(PENDING_COUNT, "int",
+                            sm.getString("lazyRegistry.pendingCountDescription"), true, false, false) },
+                    null, new MBeanOperationInfo[] { new MBeanOperationInfo("materialize",
+                            sm.getString("lazyRegistry.materializeDescription"), null, "void",
+                            MBeanOperationInfo.ACTION) }, null);
+        }
+    }
+}
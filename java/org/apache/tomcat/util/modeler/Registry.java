@@ -141,6 +141,22 @@ public class Registry implements RegistryMBean, MBeanRegistration {
     }
 
 
+    /**
+     * Configure the registry to defer the registration of components until the
+     * MBeans are used. This must be called before the registry is first
+     * obtained via {@link #getRegistry(Object, Object)}.
+     *
+     * @see LazyRegistry
+     */
+    public static synchronized void enableLazyRegistration() {
+        if (registry == null) {
+            registry = new LazyRegistry();
+        } else if (!(registry instanceof LazyRegistry)) {
+            log.warn(sm.getString("registry.noLazy"));
+        }
+    }
+
+
     // -------------------- Generic methods --------------------
 
     /**
@@ -44,6 +44,7 @@ import org.apache.tomcat.JarScanner;
 import org.apache.tomcat.JarScannerCallback;
 import org.apache.tomcat.util.ExceptionUtils;
 import org.apache.tomcat.util.buf.UriUtil;
+import org.apache.tomcat.util.jfr.JfrEvents;
 import org.apache.tomcat.util.res.StringManager;
 
 /**
@@ -165,6 +166,7 @@ public class StandardJarScanner implements JarScanner {
      * @param callback      The handler to process any JARs found
      */
     @Override
+    @SuppressWarnings("try")
     public void scan(JarScanType scanType, ServletContext context,
             JarScannerCallback callback) {
 
@@ -194,7 +196,9 @@ public class StandardJarScanner implements JarScanner {
                         url = context.getResource(path);
                         if (url != null) {
                             processedURLs.add(url);
-                            process(scanType, callback, url, path, true, null);
+                            try (JfrEvents.Span span = JfrEvents.jarScan(scanType.name(), url)) {
+                                process(scanType, callback, url, path, true, null);
+                            }
                         } else {
                             log.warn(sm.getString("jarScan.webinflibFail", path));
                         }
@@ -298,6 +302,7 @@ public class StandardJarScanner implements JarScanner {
     }
 
 
+    @SuppressWarnings("try")
     protected void processURLs(JarScanType scanType, JarScannerCallback callback,
             Set<URL> processedURLs, boolean isWebapp, Deque<URL> classPathUrlsToProcess) {
 
@@ -329,7 +334,9 @@ public class StandardJarScanner implements JarScanner {
                 }
                 try {
                     processedURLs.add(url);
-                    process(scanType, callback, url, null, isWebapp, classPathUrlsToProcess);
+                    try (JfrEvents.Span span = JfrEvents.jarScan(scanType.name(), url)) {
+                        process(scanType, callback, url, null, isWebapp, classPathUrlsToProcess);
+                    }
                 } catch (IOException ioe) {
                     log.warn(sm.getString("jarScan.classloaderFail", url), ioe);
                 }
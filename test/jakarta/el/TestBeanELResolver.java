@@ -193,6 +193,39 @@ public class TestBeanELResolver extends ELBaseTest {
         resolver.getValue(context, new TesterBean(BEAN_NAME), PROPERTY01_NAME);
     }
 
+    /**
+     * Tests that a property is resolved via a public interface when the class is not public.
+     */
+    @Test
+    public void testGetValue08() {
+        BeanELResolver resolver = new BeanELResolver();
+        ELContext context = new StandardELContext(ELManager.getExpressionFactory());
+
+        Assert.assertEquals("Default", resolver.getValue(context, new Bean(), "valueC"));
+        // Second call uses the cached accessor
+        Assert.assertEquals("Default", resolver.getValue(context, new Bean(), "valueC"));
+    }
+
+    /**
+     * Tests that the cached accessors are shared between resolvers and that an exception thrown by the getter is
+     * propagated on every call.
+     */
+    @Test
+    public void testGetValue09() {
+        ELContext context = new StandardELContext(ELManager.getExpressionFactory());
+
+        for (int i = 0; i < 2; i++) {
+            BeanELResolver resolver = new BeanELResolver();
+            Assert.assertEquals(BEAN_NAME, resolver.getValue(context, new TesterBean(BEAN_NAME), PROPERTY03_NAME));
+            try {
+                resolver.getValue(context, new TesterBean(BEAN_NAME), PROPERTY01_NAME);
+                Assert.fail();
+            } catch (ELException e) {
+                Assert.assertNotNull(e.getCause());
+            }
+        }
+    }
+
     /**
      * Tests that a null context results in an NPE as per EL Javadoc.
      */
@@ -22,14 +22,19 @@ import java.io.PrintWriter;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
 import jakarta.servlet.GenericFilter;
 import jakarta.servlet.HttpConstraintElement;
 import jakarta.servlet.HttpMethodConstraintElement;
 import jakarta.servlet.MultipartConfigElement;
 import jakarta.servlet.Servlet;
+import jakarta.servlet.ServletConfig;
 import jakarta.servlet.ServletContainerInitializer;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
@@ -1066,4 +1071,99 @@ public class TestStandardContext extends TomcatBaseTest {
 
         Assert.assertEquals("/engine/hostcontext", result);
     }
+
+
+    @Test
+    public void testParallelInitialization() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        tomcat.getServer().setUtilityThreads(4);
+
+        StandardContext ctx = (StandardContext) getProgrammaticRootContext();
+        ctx.setParallelInitialization(true);
+
+        SlowInitServlet.reset();
+        for (int i = 0; i < 4; i++) {
+            Wrapper w = Tomcat.addServlet(ctx, "first" + i, new SlowInitServlet());
+            w.setLoadOnStartup(1);
+        }
+        Wrapper last = Tomcat.addServlet(ctx, "last", new SlowInitServlet());
+        last.setLoadOnStartup(2);
+
+        for (int i = 0; i < 2; i++) {
+            FilterDef filterDef = new FilterDef();
+            filterDef.setFilterName("filter" + i);
+            filterDef.setFilter(new SlowInitFilter());
+            ctx.addFilterDef(filterDef);
+            FilterMap filterMap = new FilterMap();
+            filterMap.setFilterName("filter" + i);
+            filterMap.addURLPattern("/*");
+            ctx.addFilterMap(filterMap);
+        }
+
+        tomcat.start();
+
+        Assert.assertTrue(ctx.getState().isAvailable());
+        Assert.assertNotNull(ctx.findFilterConfig("filter0"));
+        Assert.assertNotNull(ctx.findFilterConfig("filter1"));
+        // Servlets with the same load on startup value overlapped
+        Assert.assertTrue(SlowInitServlet.maxConcurrent.get() > 1);
+        // but all of them were loaded before the servlet with a higher value
+        Assert.assertEquals(5, SlowInitServlet.initialized.size());
+        Assert.assertEquals("last", SlowInitServlet.initialized.get(4));
+
+        List<String> phases = Arrays.asList(ctx.getStartupPhaseTimes());
+        MatcherAssert.assertThat(phases.toString(), CoreMatchers.containsString("filters="));
+        MatcherAssert.assertThat(phases.toString(), CoreMatchers.containsString("loadOnStartup="));
+    }
+
+
+    public static class SlowInitServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final AtomicInteger concurrent = new AtomicInteger();
+        private static final AtomicInteger maxConcurrent = new AtomicInteger();
+        private static final List<String> initialized = new CopyOnWriteArrayList<>();
+
+        static void reset() {
+            concurrent.set(0);
+            maxConcurrent.set(0);
+            initialized.clear();
+        }
+
+        @Override
+        public void init(ServletConfig config) throws ServletException {
+            super.init(config);
+            int current = concurrent.incrementAndGet();
+            maxConcurrent.accumulateAndGet(current, Math::max);
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                throw new ServletException(e);
+            } finally {
+                concurrent.decrementAndGet();
+            }
+            initialized.add(config.getServletName());
+        }
+    }
+
+
+    public static class SlowInitFilter extends GenericFilter {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void init(FilterConfig filterConfig) throws ServletException {
+            super.init(filterConfig);
+            // Uses the context class loader that is expected during initialization
+            Assert.assertSame(filterConfig.getServletContext().getClassLoader(),
+                    Thread.currentThread().getContextClassLoader());
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+            chain.doFilter(request, response);
+        }
+    }
 }
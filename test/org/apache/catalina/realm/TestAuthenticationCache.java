@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.realm;
+
+import java.security.Principal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestAuthenticationCache {
+
+    @Test
+    public void testPositive() throws Exception {
+        CountingCredentialHandler handler = new CountingCredentialHandler();
+        MemoryRealm realm = createRealm(handler, 0);
+
+        Principal p1 = realm.authenticate("user", "pwd");
+        Principal p2 = realm.authenticate("user", "pwd");
+
+        Assert.assertNotNull(p1);
+        Assert.assertSame(p1, p2);
+        Assert.assertEquals(1, handler.matchesCount);
+        Assert.assertEquals(1, realm.getAuthenticationCacheHitCount());
+        Assert.assertEquals(2, realm.getAuthenticationCacheLookupCount());
+    }
+
+
+    @Test
+    public void testWrongCredentials() throws Exception {
+        CountingCredentialHandler handler = new CountingCredentialHandler();
+        MemoryRealm realm = createRealm(handler, 0);
+
+        Assert.assertNotNull(realm.authenticate("user", "pwd"));
+        Assert.assertNull(realm.authenticate("user", "wrong"));
+        Assert.assertNull(realm.authenticate("user", "wrong"));
+
+        // Failures are not cached by default
+        Assert.assertEquals(3, handler.matchesCount);
+    }
+
+
+    @Test
+    public void testNegative() throws Exception {
+        CountingCredentialHandler handler = new CountingCredentialHandler();
+        MemoryRealm realm = createRealm(handler, 60);
+
+        Assert.assertNull(realm.authenticate("user", "wrong"));
+        Assert.assertNull(realm.authenticate("user", "wrong"));
+        Assert.assertEquals(1, handler.matchesCount);
+
+        realm.invalidateAuthenticationCache("user");
+        Assert.assertEquals(0, realm.getAuthenticationCacheCount());
+        Assert.assertNull(realm.authenticate("user", "wrong"));
+        Assert.assertEquals(2, handler.matchesCount);
+    }
+
+
+    @Test
+    public void testAmbiguousKey() throws Exception {
+        AuthenticationCache cache = new AuthenticationCache(10, 60000, 60000);
+        cache.put("ab", "c", new TesterPrincipal("ab"));
+        Assert.assertNull(cache.get("a", "bc"));
+        Assert.assertNotNull(cache.get("ab", "c"));
+    }
+
+
+    @Test
+    public void testExpiry() throws Exception {
+        AuthenticationCache cache = new AuthenticationCache(10, 0, 0);
+        cache.put("user", "pwd", new TesterPrincipal("user"));
+        Assert.assertNull(cache.get("user", "pwd"));
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+
+    @Test
+    public void testMaxSize() throws Exception {
+        AuthenticationCache cache = new AuthenticationCache(10, 60000, 60000);
+        for (int i = 0; i < 100; i++) {
+            cache.put("user" + i, "pwd", new TesterPrincipal("user" + i));
+        }
+        Assert.assertTrue(cache.getSize() <= 10);
+        Assert.assertNotNull(cache.get("user99", "pwd"));
+    }
+
+
+    @Test
+    public void testLeastRecentlyUsed() throws Exception {
+        AuthenticationCache cache = new AuthenticationCache(10, 60000, 60000);
+        for (int i = 0; i < 10; i++) {
+            cache.put("user" + i, "pwd", new TesterPrincipal("user" + i));
+        }
+        // Use user0 so user1 becomes the least recently used
+        Assert.assertNotNull(cache.get("user0", "pwd"));
+        cache.put("user10", "pwd", new TesterPrincipal("user10"));
+        Assert.assertNotNull(cache.get("user0", "pwd"));
+        Assert.assertNull(cache.get("user1", "pwd"));
+        Assert.assertNotNull(cache.get("user10", "pwd"));
+    }
+
+
+    @Test
+    public void testNegativeDoesNotDisplacePositive() throws Exception {
+        AuthenticationCache cache = new AuthenticationCache(10, 60000, 60000);
+        for (int i = 0; i < 10; i++) {
+            cache.put("user" + i, "pwd", new TesterPrincipal("user" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            cache.put("attacker" + i, "pwd", null);
+        }
+        for (int i = 0; i < 10; i++) {
+            Assert.assertNotNull(cache.get("user" + i, "pwd"));
+        }
+        // Negative entries are limited to a quarter of the size
+        Assert.assertEquals(12, cache.getSize());
+        Assert.assertNotNull(cache.get("attacker999", "pwd"));
+        Assert.assertNull(cache.get("attacker0", "pwd"));
+    }
+
+
+    @Test
+    public void testFailureReplacesSuccess() throws Exception {
+        AuthenticationCache cache = new AuthenticationCache(10, 60000, 60000);
+        cache.put("user", "pwd", new TesterPrincipal("user"));
+        cache.put("user", "pwd", null);
+        AuthenticationCache.Entry entry = cache.get("user", "pwd");
+        Assert.assertNotNull(entry);
+        Assert.assertNull(entry.getPrincipal());
+        Assert.assertEquals(1, cache.getSize());
+    }
+
+
+    private static MemoryRealm createRealm(CountingCredentialHandler handler, int negativeTimeout)
+            throws Exception {
+        MemoryRealm realm = new MemoryRealm();
+        realm.setCredentialHandler(handler);
+        realm.addUser("user", "pwd", "role");
+        realm.authenticationCache = new AuthenticationCache(10, 60000, negativeTimeout * 1000L);
+        return realm;
+    }
+
+
+    private static class CountingCredentialHandler extends MessageDigestCredentialHandler {
+
+        private int matchesCount = 0;
+
+        @Override
+        public boolean matches(String inputCredentials, String storedCredentials) {
+            matchesCount++;
+            return super.matches(inputCredentials, storedCredentials);
+        }
+    }
+}
@@ -23,6 +23,10 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -33,6 +37,7 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameter;
 
 import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.unittest.TesterContext;
 
 import com.unboundid.ldap.listener.InMemoryDirectoryServer;
 import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
@@ -54,6 +59,7 @@ public class TestJNDIRealmIntegration {
     private static final String ROLE_BASE = "ou=people,dc=example,dc=com";
 
     private static InMemoryDirectoryServer ldapServer;
+    private static ThreadPoolExecutor executor;
 
     @Parameterized.Parameters(name = "{index}: user[{5}], pwd[{6}]")
     public static Collection<Object[]> parameters() {
@@ -88,6 +94,9 @@ public class TestJNDIRealmIntegration {
                 "t*", "test", new String[] {"TestGroup"}, userRoleAttribute, Integer.valueOf(poolSize) });
         parameterSets.add(new Object[] { userPattern, userSearch, userBase, roleSearch, roleBase,
                 "t=", "test", new String[] {"Test<Group*2", "Test>Group*3"}, userRoleAttribute, Integer.valueOf(poolSize) });
+        parameterSets.add(new Object[] { userPattern, userSearch, userBase, roleSearch, roleBase,
+                "multi", "test", new String[] {"TestGroup5", "TestGroup6", "TestGroup7", "TestGroup8"},
+                userRoleAttribute, Integer.valueOf(poolSize) });
         parameterSets.add(new Object[] { userPattern, userSearch, userBase, roleSearch, roleBase,
                 "norole", "test", new String[0], userRoleAttribute, Integer.valueOf(poolSize) });
         // Bug 65373
@@ -119,8 +128,41 @@ public class TestJNDIRealmIntegration {
 
     @Test
     public void testAuthenication() throws Exception {
-        JNDIRealm realm = new JNDIRealm();
+        doTestAuthentication(false);
+    }
+
+
+    @Test
+    public void testAuthenicationRoleNestedCache() throws Exception {
+        doTestAuthentication(true);
+    }
+
+
+    @Test
+    public void testAuthenicationRoleNestedParallel() throws Exception {
+        long taskCount = executor.getTaskCount();
+        doTestAuthentication(false, true);
+        if (poolSize > 1 && username.equals("multi")) {
+            // The nested groups of TestGroup5 and TestGroup6 are searched in parallel
+            Assert.assertTrue(executor.getTaskCount() > taskCount);
+        }
+    }
+
+
+    private void doTestAuthentication(boolean roleNestedCache) throws Exception {
+        doTestAuthentication(roleNestedCache, false);
+    }
+
+
+    private void doTestAuthentication(boolean roleNestedCache, boolean roleNestedParallel) throws Exception {
+        JNDIRealm realm = new JNDIRealm() {
+            @Override
+            ExecutorService getUtilityExecutor() {
+                return executor;
+            }
+        };
         realm.containerLog = LogFactory.getLog(TestJNDIRealmIntegration.class);
+        realm.setContainer(new TesterContext());
 
         realm.setConnectionURL("ldap://localhost:" + ldapServer.getListenPort());
         realm.setUserPattern(realmConfigUserPattern);
@@ -132,9 +174,16 @@ public class TestJNDIRealmIntegration {
         realm.setRoleSearch(realmConfigRoleSearch);
         realm.setRoleNested(true);
         realm.setConnectionPoolSize(poolSize);
+        if (roleNestedCache) {
+            realm.setRoleNestedCacheTimeout(60);
+        }
+        realm.setRoleNestedParallel(roleNestedParallel);
+        realm.start();
 
         // If using pooling, simply try more to see what happens
-        for (int i = 0; i < poolSize; i++) {
+        // If caching nested roles, the second attempt will use the cache
+        int attempts = roleNestedCache ? Math.max(poolSize, 2) : poolSize;
+        for (int i = 0; i < attempts; i++) {
             GenericPrincipal p = (GenericPrincipal) realm.authenticate(username, credentials);
 
             Assert.assertNotNull(p);
@@ -149,11 +198,15 @@ public class TestJNDIRealmIntegration {
             tmp.removeAll(actualGroups);
             Assert.assertEquals(0, tmp.size());
         }
+        realm.stop();
+        realm.destroy();
     }
 
 
     @BeforeClass
     public static void createLDAP() throws Exception {
+        executor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+
         InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig("dc=example,dc=com");
         InetAddress localhost = InetAddress.getByName("localhost");
         InMemoryListenerConfig listenerConfig =
@@ -237,6 +290,17 @@ public class TestJNDIRealmIntegration {
             result = conn.processOperation(addUserNoRole);
             Assert.assertEquals(ResultCode.SUCCESS, result.getResultCode());
 
+            AddRequest addUserMulti = new AddRequest(
+                    "dn: cn=multi,ou=people,dc=example,dc=com",
+                    "objectClass: top",
+                    "objectClass: person",
+                    "objectClass: organizationalPerson",
+                    "cn: multi",
+                    "sn: Multi",
+                    "userPassword: test");
+            result = conn.processOperation(addUserMulti);
+            Assert.assertEquals(ResultCode.SUCCESS, result.getResultCode());
+
             AddRequest addGroupTest = new AddRequest(
                     "dn: cn=TestGroup,ou=people,dc=example,dc=com",
                     "objectClass: top",
@@ -293,6 +357,27 @@ public class TestJNDIRealmIntegration {
             result = conn.processOperation(addGroupTest4);
             Assert.assertEquals(ResultCode.SUCCESS, result.getResultCode());
 
+            // multi is a member of two groups that are each members of another group
+            for (int i = 5; i < 7; i++) {
+                AddRequest addGroup = new AddRequest(
+                        "dn: cn=TestGroup" + i + ",ou=people,dc=example,dc=com",
+                        "objectClass: top",
+                        "objectClass: groupOfNames",
+                        "cn: TestGroup" + i,
+                        "member: cn=multi,ou=people,dc=example,dc=com");
+                result = conn.processOperation(addGroup);
+                Assert.assertEquals(ResultCode.SUCCESS, result.getResultCode());
+
+                AddRequest addNestedGroup = new AddRequest(
+                        "dn: cn=TestGroup" + (i + 2) + ",ou=people,dc=example,dc=com",
+                        "objectClass: top",
+                        "objectClass: groupOfNames",
+                        "cn: TestGroup" + (i + 2),
+                        "member: cn=TestGroup" + i + ",ou=people,dc=example,dc=com");
+                result = conn.processOperation(addNestedGroup);
+                Assert.assertEquals(ResultCode.SUCCESS, result.getResultCode());
+            }
+
             // Bug 65373
             AddRequest addUserBug65373 = new AddRequest(
                     "dn: cn=\\3C\\3E\\2B=\\22#\\3B\\2Crrr,ou=people,dc=example,dc=com",
@@ -311,5 +396,6 @@ public class TestJNDIRealmIntegration {
     @AfterClass
     public static void destroyLDAP() {
         ldapServer.shutDown(true);
+        executor.shutdownNow();
     }
 }
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.realm;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.apache.catalina.startup.TesterMapRealm;
+import org.apache.tomcat.unittest.TesterContext;
+
+public class TestLockOutRealm {
+
+    private LockOutRealm realm;
+
+    @Before
+    public void setUp() throws Exception {
+        TesterMapRealm mapRealm = new TesterMapRealm();
+        mapRealm.addUser("user", "pass");
+        realm = new LockOutRealm();
+        realm.setFailureCount(2);
+        realm.addRealm(mapRealm);
+        realm.setContainer(new TesterContext());
+        realm.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        realm.stop();
+        realm.destroy();
+    }
+
+
+    @Test
+    public void testSuccessWithoutFailures() {
+        Assert.assertNotNull(realm.authenticate("user", "pass"));
+        Assert.assertTrue(realm.failedUsers.isEmpty());
+    }
+
+
+    @Test
+    public void testSuccessClearsFailures() {
+        Assert.assertNull(realm.authenticate("user", "wrong"));
+        Assert.assertEquals(1, realm.failedUsers.size());
+        Assert.assertNotNull(realm.authenticate("user", "pass"));
+        Assert.assertTrue(realm.failedUsers.isEmpty());
+    }
+
+
+    @Test
+    public void testLockOut() {
+        Assert.assertNull(realm.authenticate("user", "wrong"));
+        Assert.assertNull(realm.authenticate("user", "wrong"));
+        Assert.assertTrue(realm.isLocked("user"));
+        Assert.assertNull(realm.authenticate("user", "pass"));
+
+        realm.unlock("user");
+        Assert.assertFalse(realm.isLocked("user"));
+        Assert.assertNotNull(realm.authenticate("user", "pass"));
+    }
+
+
+    @Test
+    public void testCacheSize() {
+        realm.setCacheSize(10);
+        realm.setCacheRemovalWarningTime(0);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertNull(realm.authenticate("user" + i, "wrong"));
+        }
+        Assert.assertEquals(10, realm.failedUsers.size());
+        // The most recent failure is always retained
+        Assert.assertTrue(realm.failedUsers.containsKey("user99"));
+    }
+
+
+    @Test
+    public void testConcurrentFailures() throws Exception {
+        realm.setCacheSize(10);
+        realm.setCacheRemovalWarningTime(0);
+        realm.setFailureCount(Integer.MAX_VALUE);
+
+        int threadCount = 4;
+        int failures = 2000;
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicInteger invalidRecords = new AtomicInteger();
+
+        // Every record visible in the cache must have a recorded failure
+        Thread checker = new Thread(() -> {
+            while (!done.get()) {
+                for (LockOutRealm.LockRecord lockRecord : realm.failedUsers.values()) {
+                    if (lockRecord.getFailures() == 0 || lockRecord.getLastFailureTime() == 0) {
+                        invalidRecords.incrementAndGet();
+                    }
+                }
+            }
+        });
+        checker.start();
+
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            int id = i;
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < failures; j++) {
+                    // Every other failure is for a user shared by all threads
+                    String username = (j % 2 == 0) ? "shared" : ("user" + id + "-" + j);
+                    realm.authenticate(username, "wrong");
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        done.set(true);
+        checker.join();
+
+        Assert.assertEquals(0, invalidRecords.get());
+        Assert.assertTrue(realm.failedUsers.size() <= 10);
+    }
+}
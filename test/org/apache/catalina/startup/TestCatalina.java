@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.startup;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Container;
+import org.apache.catalina.Lifecycle;
+import org.apache.catalina.LifecycleState;
+import org.apache.catalina.Server;
+import org.apache.catalina.Service;
+
+public class TestCatalina extends LoggingBaseTest {
+
+    private static final String SERVER_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<Server port=\"-1\" shutdown=\"SHUTDOWN\">\n" +
+            "  <Service name=\"Catalina\">\n" +
+            "    <Connector port=\"0\" protocol=\"HTTP/1.1\" />\n" +
+            "    <Engine name=\"Catalina\" defaultHost=\"localhost\">\n" +
+            "      <Host name=\"localhost\" appBase=\"webapps\" unpackWARs=\"true\" autoDeploy=\"true\" />\n" +
+            "    </Engine>\n" +
+            "  </Service>\n" +
+            "</Server>";
+
+
+    @Test
+    public void testTrainingRun() throws Exception {
+        File root = new File(getTemporaryDirectory(), "webapps/ROOT");
+        Assert.assertTrue(root.mkdirs());
+        Files.writeString(new File(root, "index.html").toPath(), "OK");
+        File serverXml = new File(getTemporaryDirectory(), "training-run-server.xml");
+        Files.writeString(serverXml.toPath(), SERVER_XML, StandardCharsets.UTF_8);
+
+        Catalina catalina = new Catalina();
+        // A training run must not wait for a shutdown command
+        catalina.setAwait(true);
+        catalina.load(new String[] { "-config", serverXml.getAbsolutePath(), "-trainingRun", "start" });
+        Assert.assertTrue(catalina.getTrainingRun());
+
+        Server server = catalina.getServer();
+        Assert.assertNotNull(server);
+        List<String> started = new ArrayList<>();
+        server.addLifecycleListener(event -> {
+            if (Lifecycle.AFTER_START_EVENT.equals(event.getType())) {
+                for (Service service : server.findServices()) {
+                    for (Container host : service.getContainer().findChildren()) {
+                        for (Container context : host.findChildren()) {
+                            if (context.getState() == LifecycleState.STARTED) {
+                                started.add(context.getName());
+                            }
+                        }
+                    }
+                }
+            }
+        });
+
+        catalina.start();
+
+        // The web applications were deployed and then the server stopped
+        Assert.assertEquals(List.of(""), started);
+        Assert.assertEquals(LifecycleState.DESTROYED, server.getState());
+    }
+}
@@ -18,13 +18,21 @@ package org.apache.catalina.startup;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import jakarta.servlet.Servlet;
 import jakarta.servlet.ServletContainerInitializer;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletRegistration;
+import jakarta.servlet.annotation.HandlesTypes;
+import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -33,6 +41,7 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
 import org.apache.catalina.core.StandardContext;
 import org.apache.tomcat.util.buf.ByteChunk;
 
@@ -154,6 +163,134 @@ public class TestContextConfig extends TomcatBaseTest {
         assertPageContains("/test/TesterServlet2", "OK");
     }
 
+    @Test
+    public void testAnnotationScanIndex() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = createIndexWebapp("annotation-scan-index");
+
+        Context ctx = tomcat.addWebapp(null, "/test", appDir.getAbsolutePath());
+        ctx.setAnnotationScanIndex(true);
+
+        tomcat.start();
+
+        String expected = IndexBase.class.getName() + "," + IndexImpl.class.getName();
+        assertPageContains("/test/indexed", "OK");
+        Assert.assertEquals(expected, ctx.getServletContext().getAttribute(IndexSCI.ATTRIBUTE));
+
+        File indexFile = new File((File) ctx.getServletContext().getAttribute(ServletContext.TEMPDIR),
+                AnnotationScanIndex.INDEX_FILE);
+        Assert.assertTrue(indexFile.isFile());
+        // The index is only written if it changes
+        Assert.assertTrue(indexFile.setLastModified(0));
+        // JARs are identified by their content rather than their last modified time
+        File jarFile = new File(appDir, "WEB-INF/lib/index.jar");
+        Assert.assertTrue(jarFile.setLastModified(jarFile.lastModified() - 10000));
+
+        ctx.stop();
+        ctx.start();
+
+        assertPageContains("/test/indexed", "OK");
+        Assert.assertEquals(expected, ctx.getServletContext().getAttribute(IndexSCI.ATTRIBUTE));
+        Assert.assertEquals(0, indexFile.lastModified());
+    }
+
+    @Test
+    public void testEffectiveWebXmlCache() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = createIndexWebapp("effective-web-xml-cache");
+        File webInfDir = new File(appDir, "WEB-INF");
+        Files.writeString(new File(webInfDir, "web.xml").toPath(),
+                "<web-app xmlns=\"https://jakarta.ee/xml/ns/jakartaee\" version=\"6.0\">\n" +
+                "  <servlet><servlet-name>configured</servlet-name>\n" +
+                "    <servlet-class>" + IndexServlet.class.getName() + "</servlet-class></servlet>\n" +
+                "  <servlet-mapping><servlet-name>configured</servlet-name>\n" +
+                "    <url-pattern>/configured</url-pattern></servlet-mapping>\n" +
+                "</web-app>\n");
+
+        Context ctx = tomcat.addWebapp(null, "/test", appDir.getAbsolutePath());
+        ctx.setEffectiveWebXmlCache(true);
+
+        tomcat.start();
+
+        String expected = IndexBase.class.getName() + "," + IndexImpl.class.getName();
+        assertPageContains("/test/indexed", "OK");
+        assertPageContains("/test/configured", "OK");
+        Assert.assertEquals(expected, ctx.getServletContext().getAttribute(IndexSCI.ATTRIBUTE));
+        Set<String> servlets = getServletMappings(ctx);
+
+        File cacheFile = new File((File) ctx.getServletContext().getAttribute(ServletContext.TEMPDIR),
+                EffectiveWebXmlCache.CACHE_FILE);
+        Assert.assertTrue(cacheFile.isFile());
+        // The cache is only written if it is not used
+        Assert.assertTrue(cacheFile.setLastModified(0));
+
+        ctx.stop();
+        ctx.start();
+
+        assertPageContains("/test/indexed", "OK");
+        assertPageContains("/test/configured", "OK");
+        Assert.assertEquals(expected, ctx.getServletContext().getAttribute(IndexSCI.ATTRIBUTE));
+        Assert.assertEquals(servlets, getServletMappings(ctx));
+        Assert.assertEquals(0, cacheFile.lastModified());
+
+        // Changing the configuration of the container SCIs invalidates the cache
+        ctx.setContainerSciFilter("NoSuchSci");
+
+        ctx.stop();
+        ctx.start();
+
+        assertPageContains("/test/configured", "OK");
+        Assert.assertNotEquals(0, cacheFile.lastModified());
+        Assert.assertTrue(cacheFile.setLastModified(0));
+
+        // Changing web.xml invalidates the cache, even if the size and last
+        // modified time are unchanged
+        File webXml = new File(webInfDir, "web.xml");
+        long lastModified = webXml.lastModified();
+        Files.writeString(webXml.toPath(), Files.readString(webXml.toPath()).replace("/configured", "/configurex"));
+        Assert.assertTrue(webXml.setLastModified(lastModified));
+
+        ctx.stop();
+        ctx.start();
+
+        assertPageContains("/test/configurex", "OK");
+        assertPageContains("/test/configured", null, HttpServletResponse.SC_NOT_FOUND);
+        Assert.assertNotEquals(0, cacheFile.lastModified());
+    }
+
+    private Set<String> getServletMappings(Context ctx) {
+        Set<String> result = new TreeSet<>();
+        for (String pattern : ctx.findServletMappings()) {
+            Wrapper wrapper = (Wrapper) ctx.findChild(ctx.findServletMapping(pattern));
+            result.add(pattern + "=" + wrapper.getName() + ":" + wrapper.getServletClass() + ":" +
+                    wrapper.isOverridable());
+        }
+        return result;
+    }
+
+    private File createIndexWebapp(String appName) throws IOException {
+        File appDir = new File(getTemporaryDirectory(), appName);
+        File libDir = new File(appDir, "WEB-INF/lib");
+        Assert.assertTrue(libDir.mkdirs());
+        addDeleteOnTearDown(appDir);
+
+        try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(new File(libDir, "index.jar").toPath()))) {
+            for (Class<?> clazz : new Class<?>[] { IndexServlet.class, IndexSCI.class, IndexMarker.class,
+                    IndexBase.class, IndexImpl.class }) {
+                String name = clazz.getName().replace('.', '/') + ".class";
+                jos.putNextEntry(new JarEntry(name));
+                try (InputStream is = clazz.getClassLoader().getResourceAsStream(name)) {
+                    is.transferTo(jos);
+                }
+            }
+            jos.putNextEntry(new JarEntry("META-INF/services/" + ServletContainerInitializer.class.getName()));
+            jos.write(IndexSCI.class.getName().getBytes(StandardCharsets.UTF_8));
+        }
+        return appDir;
+    }
+
     private static class CustomDefaultServletSCI
             implements ServletContainerInitializer {
 
@@ -185,6 +322,45 @@ public class TestContextConfig extends TomcatBaseTest {
         }
     }
 
+    @WebServlet("/indexed")
+    public static class IndexServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+                throws ServletException, IOException {
+            resp.setContentType("text/plain");
+            resp.getWriter().print("OK");
+        }
+    }
+
+    @HandlesTypes(IndexMarker.class)
+    public static class IndexSCI implements ServletContainerInitializer {
+
+        public static final String ATTRIBUTE = "indexSciClasses";
+
+        @Override
+        public void onStartup(Set<Class<?>> c, ServletContext ctx) throws ServletException {
+            Set<String> names = new TreeSet<>();
+            if (c != null) {
+                for (Class<?> clazz : c) {
+                    names.add(clazz.getName());
+                }
+            }
+            ctx.setAttribute(ATTRIBUTE, String.join(",", names));
+        }
+    }
+
+    public interface IndexMarker {
+    }
+
+    public static class IndexBase implements IndexMarker {
+    }
+
+    public static class IndexImpl extends IndexBase {
+    }
+
     private void assertPageContains(String pageUrl, String expectedBody)
             throws IOException {
         assertPageContains(pageUrl, expectedBody, HttpServletResponse.SC_OK);
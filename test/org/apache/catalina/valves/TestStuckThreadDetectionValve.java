@@ -18,8 +18,11 @@ package org.apache.catalina.valves;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -29,9 +32,12 @@ import org.junit.Before;
 import org.junit.Test;
 
 import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
 import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.unittest.TesterRequest;
 import org.apache.tomcat.util.buf.ByteChunk;
 
 public class TestStuckThreadDetectionValve extends TomcatBaseTest {
@@ -133,6 +139,133 @@ public class TestStuckThreadDetectionValve extends TomcatBaseTest {
         Assert.assertTrue(result.toString().startsWith("OK"));
     }
 
+    @Test
+    public void testSlotReuse() throws Exception {
+        StuckThreadDetectionValve valve = new StuckThreadDetectionValve();
+        valve.setThreshold(600);
+        valve.setNext(new SleepingValve(0));
+        int initialSlotCount = valve.getSlotCount();
+
+        Request request = new TesterRequest();
+        for (int i = 0; i < initialSlotCount * 4; i++) {
+            valve.invoke(request, null);
+        }
+
+        // Completed requests release their slots for reuse
+        Assert.assertEquals(initialSlotCount, valve.getSlotCount());
+        valve.backgroundProcess();
+        Assert.assertEquals(0, valve.getStuckThreadIds().length);
+    }
+
+    @Test
+    public void testSlotGrowthAndShrink() throws Exception {
+        StuckThreadDetectionValve valve = new StuckThreadDetectionValve();
+        valve.setThreshold(600);
+        int initialSlotCount = valve.getSlotCount();
+        int threadCount = initialSlotCount * 3;
+
+        CountDownLatch started = new CountDownLatch(threadCount);
+        CountDownLatch finish = new CountDownLatch(1);
+        valve.setNext(new ValveBase() {
+            @Override
+            public void invoke(Request request, Response response) {
+                started.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException e) {
+                    // Ignore
+                }
+            }
+        });
+
+        Request request = new TesterRequest();
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    valve.invoke(request, null);
+                } catch (IOException | ServletException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            threads[i].start();
+        }
+        Assert.assertTrue(started.await(30, TimeUnit.SECONDS));
+
+        // Every concurrent request needs its own slot
+        Assert.assertTrue(valve.getSlotCount() >= threadCount);
+
+        finish.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Each run of the background process halves the number of slots
+        for (int i = 0; i < 10; i++) {
+            valve.backgroundProcess();
+        }
+        Assert.assertEquals(initialSlotCount, valve.getSlotCount());
+    }
+
+    @Test
+    public void testInterruptionNotAppliedToNextRequest() throws Exception {
+        StuckThreadDetectionValve valve = new StuckThreadDetectionValve();
+        valve.setThreshold(1);
+        valve.setInterruptThreadThreshold(1);
+        SleepingValve sleepingValve = new SleepingValve(TimeUnit.SECONDS.toMillis(20));
+        valve.setNext(sleepingValve);
+
+        Request request = new TesterRequest();
+        AtomicBoolean interruptedLater = new AtomicBoolean();
+        // The same thread processes a stuck request and then further requests
+        Thread thread = new Thread(() -> {
+            try {
+                valve.invoke(request, null);
+                sleepingValve.delay = 100;
+                for (int i = 0; i < 20; i++) {
+                    valve.invoke(request, null);
+                    if (sleepingValve.interrupted) {
+                        interruptedLater.set(true);
+                    }
+                }
+            } catch (IOException | ServletException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+
+        while (thread.isAlive()) {
+            valve.backgroundProcess();
+            Thread.sleep(50);
+        }
+        valve.backgroundProcess();
+
+        Assert.assertFalse(interruptedLater.get());
+        Assert.assertEquals(1, valve.getInterruptedThreadsCount());
+        Assert.assertEquals(0, valve.getStuckThreadCount());
+        Assert.assertEquals(0, valve.getStuckThreadIds().length);
+    }
+
+    private static class SleepingValve extends ValveBase {
+
+        volatile long delay;
+        volatile boolean interrupted;
+
+        SleepingValve(long delay) {
+            this.delay = delay;
+        }
+
+        @Override
+        public void invoke(Request request, Response response) {
+            interrupted = false;
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+    }
+
     private static class StickingServlet extends HttpServlet {
 
         private static final long serialVersionUID = 1L;
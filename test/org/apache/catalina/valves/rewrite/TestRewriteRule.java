@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves.rewrite;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestRewriteRule {
+
+    @Test
+    public void testLiteralPrefixSimple() {
+        Assert.assertEquals("/foo/", RewriteRule.getLiteralPrefix("^/foo/(.*)$"));
+    }
+
+    @Test
+    public void testLiteralPrefixNoAnchor() {
+        Assert.assertEquals("/b/", RewriteRule.getLiteralPrefix("/b/(.*).html$"));
+    }
+
+    @Test
+    public void testLiteralPrefixEscaped() {
+        Assert.assertEquals("/a.b/", RewriteRule.getLiteralPrefix("^/a\\.b/.*"));
+    }
+
+    @Test
+    public void testLiteralPrefixCharacterClass() {
+        Assert.assertEquals("/a", RewriteRule.getLiteralPrefix("^/a\\d+"));
+    }
+
+    @Test
+    public void testLiteralPrefixOptional01() {
+        Assert.assertEquals("/ab", RewriteRule.getLiteralPrefix("^/abc?/"));
+    }
+
+    @Test
+    public void testLiteralPrefixOptional02() {
+        Assert.assertEquals("/ab", RewriteRule.getLiteralPrefix("^/abc{0,2}/"));
+    }
+
+    @Test
+    public void testLiteralPrefixOptional03() {
+        Assert.assertEquals("/a", RewriteRule.getLiteralPrefix("^/a\\.*"));
+    }
+
+    @Test
+    public void testLiteralPrefixAlternation() {
+        Assert.assertNull(RewriteRule.getLiteralPrefix("^/a|/b"));
+    }
+
+    @Test
+    public void testLiteralPrefixNone() {
+        Assert.assertNull(RewriteRule.getLiteralPrefix("^(.*)"));
+    }
+
+    @Test
+    public void testLiteralPrefixFlags() {
+        Assert.assertNull(RewriteRule.getLiteralPrefix("(?i)/a"));
+    }
+
+    @Test
+    public void testHitCount() {
+        RewriteRule rule = (RewriteRule) RewriteValve.parse("RewriteRule ^/a/(.*) /b/$1");
+        rule.parse(null);
+        Assert.assertNull(rule.evaluate("/c/d", null));
+        Assert.assertEquals("/b/d", rule.evaluate("/a/d", null).toString());
+        Assert.assertEquals(1, rule.getHitCount());
+        rule.resetHitCount();
+        Assert.assertEquals(0, rule.getHitCount());
+    }
+
+    @Test
+    public void testPrefixNocase() {
+        RewriteRule rule = (RewriteRule) RewriteValve.parse("RewriteRule ^/A/(.*) /b/$1 [NC]");
+        rule.parse(null);
+        Assert.assertEquals("/b/d", rule.evaluate("/a/d", null).toString());
+    }
+
+    @Test
+    public void testPrefixNegative() {
+        RewriteRule rule = (RewriteRule) RewriteValve.parse("RewriteRule !^/a/.* /b/");
+        rule.parse(null);
+        Assert.assertEquals("/b/", rule.evaluate("/c/d", null).toString());
+        Assert.assertNull(rule.evaluate("/a/d", null));
+    }
+
+    @Test
+    public void testCachedMap() {
+        CountingRewriteMap map = new CountingRewriteMap();
+        RewriteMap cachedMap = new CachedRewriteMap(map, 10);
+        Assert.assertEquals("aa", cachedMap.lookup("a"));
+        Assert.assertEquals("aa", cachedMap.lookup("a"));
+        Assert.assertNull(cachedMap.lookup("x"));
+        Assert.assertNull(cachedMap.lookup("x"));
+        Assert.assertEquals(2, map.count);
+    }
+
+
+    private static class CountingRewriteMap extends TesterRewriteMapA {
+
+        private int count = 0;
+
+        @Override
+        public String lookup(String key) {
+            count++;
+            return super.lookup(key);
+        }
+    }
+}
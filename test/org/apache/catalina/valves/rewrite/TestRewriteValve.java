@@ -722,6 +722,16 @@ public class TestRewriteValve extends TomcatBaseTest {
         doTestRewrite("RewriteRule /dummy /a\nRewriteRule /a /c [L]", "/dummy", "/c");
     }
 
+    @Test
+    public void testPrefixNocase() throws Exception {
+        doTestRewrite("RewriteRule ^/B/(.*) /c/$1 [NC]", "/b/x", "/c/x");
+    }
+
+    @Test
+    public void testConditionPrefix() throws Exception {
+        doTestRewrite("RewriteCond %{SERVER_NAME} ^local.*\nRewriteRule ^/b/(.*) /c/$1", "/b/x", "/c/x");
+    }
+
     private void doTestRewrite(String config, String request, String expectedURI) throws Exception {
         doTestRewrite(config, request, expectedURI, null);
     }
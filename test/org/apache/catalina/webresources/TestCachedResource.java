@@ -20,15 +20,27 @@ import java.io.File;
 import java.io.InputStream;
 import java.net.JarURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.catalina.Context;
+import org.apache.catalina.WebResource;
 import org.apache.catalina.WebResourceRoot;
 import org.apache.catalina.core.StandardHost;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.util.buf.ByteChunk;
 
 public class TestCachedResource extends TomcatBaseTest {
 
@@ -131,4 +143,184 @@ public class TestCachedResource extends TomcatBaseTest {
             Assert.assertNotNull(is);
         }
     }
+
+
+    @Test
+    public void testMappedContent() throws Exception {
+
+        Tomcat tomcat = getTomcatInstance();
+        File docBase = new File(getTemporaryDirectory(), "mapped-content");
+        Assert.assertTrue(docBase.mkdirs());
+        addDeleteOnTearDown(docBase);
+
+        // Larger than the cache object limit but smaller than the sendfile
+        // threshold so the content is written by the Default Servlet
+        byte[] content = new byte[20 * 1024];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + i % 26);
+        }
+        Files.write(new File(docBase, "large.txt").toPath(), content);
+
+        Context ctx = tomcat.addWebapp("/test", docBase.getAbsolutePath());
+        StandardRoot root = new StandardRoot(ctx);
+        root.setCacheObjectMaxSize(1);
+        root.setMappedContent(true);
+        ctx.setResources(root);
+        tomcat.start();
+
+        WebResource resource = root.getResource("/large.txt");
+        Assert.assertNull(resource.getContent());
+        ByteBuffer buffer = resource.getContentBuffer();
+        Assert.assertNotNull(buffer);
+        Assert.assertEquals(content.length, buffer.remaining());
+        Assert.assertTrue(buffer.isReadOnly());
+
+        ByteChunk body = new ByteChunk();
+        int rc = getUrl("http://localhost:" + getPort() + "/test/large.txt", body, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertArrayEquals(content, Arrays.copyOf(body.getBytes(), body.getLength()));
+
+        Map<String,List<String>> reqHead = new HashMap<>();
+        reqHead.put("Range", Collections.singletonList("bytes=100-199"));
+        body.recycle();
+        rc = getUrl("http://localhost:" + getPort() + "/test/large.txt", body, reqHead, null);
+        Assert.assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, rc);
+        Assert.assertArrayEquals(Arrays.copyOfRange(content, 100, 200),
+                Arrays.copyOf(body.getBytes(), body.getLength()));
+
+        // The content is mapped for each request so a file that is rewritten
+        // with the same length is not served stale
+        File large = new File(docBase, "large.txt");
+        long lastModified = large.lastModified();
+        Arrays.fill(content, (byte) 'z');
+        Files.write(large.toPath(), content);
+        Assert.assertTrue(large.setLastModified(lastModified));
+
+        body.recycle();
+        rc = getUrl("http://localhost:" + getPort() + "/test/large.txt", body, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertArrayEquals(content, Arrays.copyOf(body.getBytes(), body.getLength()));
+    }
+
+
+    @Test
+    public void testCacheWatch() throws Exception {
+
+        Tomcat tomcat = getTomcatInstance();
+        File docBase = new File(getTemporaryDirectory(), "cache-watch");
+        Assert.assertTrue(docBase.mkdirs());
+        addDeleteOnTearDown(docBase);
+
+        File a = new File(docBase, "a.txt");
+        Files.writeString(a.toPath(), "one");
+        long lastModified = a.lastModified();
+
+        Context ctx = tomcat.addWebapp("/test", docBase.getAbsolutePath());
+        StandardRoot root = new StandardRoot(ctx);
+        root.setCacheWatch(true);
+        // Only the watch TTL applies while the resources are watched
+        root.setCacheTtl(0);
+        ctx.setResources(root);
+        tomcat.start();
+
+        Assert.assertTrue(root.isWatched());
+        Assert.assertEquals("one", getContent(root, "/a.txt"));
+
+        // Same size and last modified time so only visible via the watcher
+        Files.writeString(a.toPath(), "two");
+        Assert.assertTrue(a.setLastModified(lastModified));
+        waitForContent(root, "/a.txt", "two");
+
+        // New file
+        Assert.assertFalse(root.getResource("/b.txt").exists());
+        Files.writeString(new File(docBase, "b.txt").toPath(), "bbb");
+        waitForContent(root, "/b.txt", "bbb");
+
+        // New directory is watched too
+        File d = new File(docBase, "d");
+        Assert.assertTrue(d.mkdir());
+        File c = new File(d, "c.txt");
+        Files.writeString(c.toPath(), "cc1");
+        lastModified = c.lastModified();
+        waitForContent(root, "/d/c.txt", "cc1");
+        Files.writeString(c.toPath(), "cc2");
+        Assert.assertTrue(c.setLastModified(lastModified));
+        waitForContent(root, "/d/c.txt", "cc2");
+
+        // Deleted file
+        Assert.assertTrue(a.delete());
+        int count = 0;
+        while (root.getResource("/a.txt").exists() && count < 100) {
+            Thread.sleep(50);
+            root.backgroundProcess();
+            count++;
+        }
+        Assert.assertFalse(root.getResource("/a.txt").exists());
+    }
+
+
+    @Test
+    public void testCacheWatchRemoteFileStore() {
+        Assert.assertTrue(ResourceWatcher.isRemote("nfs"));
+        Assert.assertTrue(ResourceWatcher.isRemote("nfs4"));
+        Assert.assertTrue(ResourceWatcher.isRemote("cifs"));
+        Assert.assertTrue(ResourceWatcher.isRemote("smb3"));
+        Assert.assertTrue(ResourceWatcher.isRemote("fuse.sshfs"));
+        Assert.assertFalse(ResourceWatcher.isRemote("ext4"));
+        Assert.assertFalse(ResourceWatcher.isRemote("NTFS"));
+        Assert.assertFalse(ResourceWatcher.isRemote("tmpfs"));
+    }
+
+
+    @Test
+    public void testCacheWatchTtl() throws Exception {
+
+        Tomcat tomcat = getTomcatInstance();
+        File docBase = new File(getTemporaryDirectory(), "cache-watch-ttl");
+        Assert.assertTrue(docBase.mkdirs());
+        addDeleteOnTearDown(docBase);
+
+        File a = new File(docBase, "a.txt");
+        Files.writeString(a.toPath(), "one");
+
+        Context ctx = tomcat.addWebapp("/test", docBase.getAbsolutePath());
+        StandardRoot root = new StandardRoot(ctx);
+        root.setCacheWatch(true);
+        root.setCacheTtl(0);
+        root.setCacheWatchTtl(0);
+        ctx.setResources(root);
+        tomcat.start();
+
+        Assert.assertTrue(root.isWatched());
+        Assert.assertEquals("one", getContent(root, "/a.txt"));
+        Assert.assertFalse(root.getResource("/b.txt").exists());
+
+        // Without processing the notifications, changes are still found when
+        // the cache entries are validated
+        Files.writeString(a.toPath(), "three");
+        Files.writeString(new File(docBase, "b.txt").toPath(), "bbb");
+        Assert.assertEquals("three", getContent(root, "/a.txt"));
+        Assert.assertEquals("bbb", getContent(root, "/b.txt"));
+    }
+
+
+    private static String getContent(WebResourceRoot root, String path) {
+        byte[] content = root.getResource(path).getContent();
+        if (content == null) {
+            return null;
+        }
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+
+    private static void waitForContent(StandardRoot root, String path, String expected)
+            throws InterruptedException {
+        int count = 0;
+        while (!expected.equals(getContent(root, path)) && count < 100) {
+            Thread.sleep(50);
+            root.backgroundProcess();
+            count++;
+        }
+        Assert.assertEquals(expected, getContent(root, path));
+    }
 }
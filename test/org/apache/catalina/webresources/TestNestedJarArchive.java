@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.startup.LoggingBaseTest;
+
+public class TestNestedJarArchive extends LoggingBaseTest {
+
+    @Test
+    public void testStoredJar() throws Exception {
+        doTest(ZipEntry.STORED);
+    }
+
+
+    @Test
+    public void testDeflatedJar() throws Exception {
+        doTest(ZipEntry.DEFLATED);
+    }
+
+
+    @Test
+    public void testMissingJar() throws Exception {
+        File war = createWar(ZipEntry.STORED);
+        Assert.assertNull(NestedJarArchive.open(war, "WEB-INF/lib/missing.jar"));
+    }
+
+
+    private void doTest(int method) throws Exception {
+        File war = createWar(method);
+        NestedJarArchive nestedJar = NestedJarArchive.open(war, "WEB-INF/lib/test.jar");
+        Assert.assertNotNull(nestedJar);
+
+        try (JarFile expected = new JarFile(new File(getTemporaryDirectory(), "test.jar"))) {
+            Map<String,JarEntry> entries = nestedJar.getEntries();
+            Assert.assertEquals(expected.size(), entries.size());
+            for (Enumeration<JarEntry> iter = expected.entries(); iter.hasMoreElements();) {
+                JarEntry expectedEntry = iter.nextElement();
+                JarEntry entry = entries.get(expectedEntry.getName());
+                Assert.assertNotNull(expectedEntry.getName(), entry);
+                Assert.assertEquals(expectedEntry.isDirectory(), entry.isDirectory());
+                Assert.assertEquals(expectedEntry.getSize(), entry.getSize());
+                Assert.assertEquals(expectedEntry.getCrc(), entry.getCrc());
+                Assert.assertEquals(expectedEntry.getTime(), entry.getTime());
+                try (InputStream expectedIs = expected.getInputStream(expectedEntry);
+                        InputStream is = nestedJar.getInputStream(entry.getName())) {
+                    Assert.assertArrayEquals(expectedEntry.getName(), expectedIs.readAllBytes(), is.readAllBytes());
+                }
+            }
+            Assert.assertNull(nestedJar.getInputStream("missing.txt"));
+            Assert.assertEquals("test", nestedJar.getManifest().getMainAttributes().getValue("Implementation-Title"));
+        } finally {
+            nestedJar.close();
+        }
+    }
+
+
+    private File createWar(int method) throws IOException {
+        File jar = new File(getTemporaryDirectory(), "test.jar");
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.IMPLEMENTATION_TITLE, "test");
+        byte[] large = String.join("", Collections.nCopies(1000, "repeated content ")).getBytes(StandardCharsets.UTF_8);
+        try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(jar.toPath()), manifest)) {
+            jos.putNextEntry(new JarEntry("org/"));
+            jos.closeEntry();
+            jos.putNextEntry(new JarEntry("org/example/"));
+            jos.closeEntry();
+            writeEntry(jos, "org/example/deflated.txt", large, ZipEntry.DEFLATED);
+            writeEntry(jos, "org/example/stored.txt", large, ZipEntry.STORED);
+            writeEntry(jos, "org/example/empty.txt", new byte[0], ZipEntry.DEFLATED);
+        }
+
+        File war = new File(getTemporaryDirectory(), "test-" + method + ".war");
+        try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(war.toPath()))) {
+            writeEntry(jos, "index.html", "<html></html>".getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED);
+            writeEntry(jos, "WEB-INF/lib/test.jar", Files.readAllBytes(jar.toPath()), method);
+        }
+        return war;
+    }
+
+
+    private static void writeEntry(JarOutputStream jos, String name, byte[] content, int method)
+            throws IOException {
+        JarEntry entry = new JarEntry(name);
+        entry.setMethod(method);
+        if (method == ZipEntry.STORED) {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setCrc(crc.getValue());
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+        }
+        jos.putNextEntry(entry);
+        jos.write(content);
+        jos.closeEntry();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.WebResourceSet;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+
+public class TestPackageIndex extends TomcatBaseTest {
+
+    @Test
+    public void testGetCandidates() throws Exception {
+        File libDir = new File(getTemporaryDirectory(), "package-index-lib");
+        Assert.assertTrue(libDir.mkdirs());
+        addDeleteOnTearDown(libDir);
+        File jarA = createJar(libDir, "a.jar", "org/example/a/A.class", "META-INF/versions/11/org/example/mr/M.class");
+        File jarB = createJar(libDir, "b.jar", "org/example/b/B.class");
+
+        WebResourceRoot root = new TesterWebResourceRoot();
+        WebResourceSet setA = new JarResourceSet(root, "/WEB-INF/classes", jarA.getAbsolutePath(), "/");
+        WebResourceSet setDir = new DirResourceSet(root, "/WEB-INF/classes",
+                new File("test/webapp-fragments/WEB-INF/classes").getAbsolutePath(), "/");
+        WebResourceSet setB = new JarResourceSet(root, "/WEB-INF/classes", jarB.getAbsolutePath(), "/");
+        List<WebResourceSet> all = Arrays.asList(setA, setDir, setB);
+
+        PackageIndex index = PackageIndex.build(all);
+        Assert.assertEquals(3, index.getSize());
+        Assert.assertEquals(Arrays.asList(setA, setDir),
+                index.getCandidates("/WEB-INF/classes/org/example/a/A.class"));
+        Assert.assertEquals(Arrays.asList(setDir, setB),
+                index.getCandidates("/WEB-INF/classes/org/example/b/B.class"));
+        Assert.assertEquals(Arrays.asList(setA, setDir),
+                index.getCandidates("/WEB-INF/classes/org/example/mr/M.class"));
+        Assert.assertEquals(Arrays.asList(setA, setDir, setB),
+                index.getCandidates("/WEB-INF/classes/org/example/C.class"));
+        Assert.assertEquals(Arrays.asList(setA, setDir, setB),
+                index.getCandidates("/WEB-INF/classes/org/example/b/"));
+        Assert.assertEquals(Arrays.asList(setA, setDir, setB), index.getCandidates("/WEB-INF/classes/Top.class"));
+        Assert.assertEquals(Arrays.asList(setA, setDir, setB), index.getCandidates("/WEB-INF/classes"));
+        Assert.assertEquals(Arrays.asList(setA, setDir, setB), index.getCandidates("/WEB-INF/classes/"));
+        Assert.assertEquals(Arrays.asList(setDir), index.getCandidates("/WEB-INF/classes/com/example/D.class"));
+        Assert.assertEquals(Arrays.asList(setDir), index.getCandidates("/WEB-INF/lib/a.jar"));
+    }
+
+
+    @Test
+    public void testClassLoaderResources() throws Exception {
+        File appDir = new File(getTemporaryDirectory(), "package-index-app");
+        File libDir = new File(appDir, "WEB-INF/lib");
+        Assert.assertTrue(libDir.mkdirs());
+        addDeleteOnTearDown(appDir);
+        createJar(libDir, "a.jar", "org/example/a/A.class");
+        createJar(libDir, "b.jar", "org/example/b/B.class");
+
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = tomcat.addContext("", appDir.getAbsolutePath());
+        StandardRoot root = new StandardRoot(ctx);
+        root.setPackageIndex(true);
+        ctx.setResources(root);
+        tomcat.start();
+
+        ClassLoader cl = ctx.getLoader().getClassLoader();
+        Assert.assertNotNull(cl.getResource("org/example/a/A.class"));
+        Assert.assertNotNull(cl.getResource("org/example/b/B.class"));
+        Assert.assertNull(cl.getResource("org/example/a/B.class"));
+        Assert.assertNull(cl.getResource("com/example/C.class"));
+
+        // Replace a JAR with one of the same size and last modified time but
+        // different packages. The new packages must be found after a restart.
+        ctx.stop();
+        File jarB = new File(libDir, "b.jar");
+        long lastModified = jarB.lastModified();
+        long size = jarB.length();
+        createJar(libDir, "b.jar", "org/example/c/B.class");
+        Assert.assertEquals(size, jarB.length());
+        Assert.assertTrue(jarB.setLastModified(lastModified));
+        ctx.start();
+
+        cl = ctx.getLoader().getClassLoader();
+        Assert.assertNotNull(cl.getResource("org/example/c/B.class"));
+        Assert.assertNull(cl.getResource("org/example/b/B.class"));
+    }
+
+
+    private static File createJar(File dir, String name, String... entries) throws IOException {
+        File jar = new File(dir, name);
+        try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(jar.toPath()))) {
+            for (String entry : entries) {
+                jos.putNextEntry(new JarEntry(entry));
+                jos.write(entry.getBytes(StandardCharsets.UTF_8));
+                jos.closeEntry();
+            }
+        }
+        return jar;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.coyote.http11;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.coyote.http2.Http2Protocol;
+import org.apache.tomcat.util.modeler.LazyRegistry;
+import org.apache.tomcat.util.modeler.Registry;
+
+public class TestAbstractHttp11Protocol extends TomcatBaseTest {
+
+    @BeforeClass
+    public static void enableLazyRegistration() {
+        Registry.enableLazyRegistration();
+    }
+
+
+    @Test
+    public void testDestroyWithLazyRegistration() throws Exception {
+        Assert.assertTrue(Registry.getRegistry(null, null) instanceof LazyRegistry);
+
+        Tomcat tomcat = getTomcatInstance();
+        tomcat.getConnector().addUpgradeProtocol(new Http2Protocol());
+        tomcat.addContext("", null);
+        tomcat.start();
+
+        MBeanServer platformServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName indexName = new ObjectName(tomcat.getEngine().getName() + ":type=MBeanIndex");
+        Assert.assertTrue(platformServer.isRegistered(indexName));
+
+        tomcat.stop();
+        tomcat.destroy();
+
+        // Looking up the MBeans of the upgrade protocols must not have
+        // registered the deferred MBeans and, as every deferred MBean has
+        // been unregistered, the index must have been unregistered too
+        Assert.assertEquals(0, ((LazyRegistry) Registry.getRegistry(null, null)).getPendingCount());
+        Assert.assertFalse(platformServer.isRegistered(indexName));
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.el.parser;
+
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.beans.SimpleBeanInfo;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Collections;
+import java.util.Optional;
+
+import jakarta.el.ELContext;
+import jakarta.el.ELException;
+import jakarta.el.ELProcessor;
+import jakarta.el.ELResolver;
+import jakarta.el.OptionalELResolver;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestPropertyAccessor {
+
+    private static final String OPTIMIZE_PROPERTY_ACCESS = "org.apache.el.parser.OPTIMIZE_PROPERTY_ACCESS";
+
+    private static String originalOptimizePropertyAccess;
+
+    private ELProcessor processor;
+    private CountingResolver countingResolver;
+
+    @BeforeClass
+    public static void setUpClass() {
+        // Must be set before the EL implementation is loaded
+        originalOptimizePropertyAccess = System.setProperty(OPTIMIZE_PROPERTY_ACCESS, "true");
+    }
+
+
+    @AfterClass
+    public static void tearDownClass() {
+        if (originalOptimizePropertyAccess == null) {
+            System.clearProperty(OPTIMIZE_PROPERTY_ACCESS);
+        } else {
+            System.setProperty(OPTIMIZE_PROPERTY_ACCESS, originalOptimizePropertyAccess);
+        }
+    }
+
+
+    @Before
+    public void setUp() {
+        processor = new ELProcessor();
+        countingResolver = new CountingResolver();
+        processor.getELManager().addELResolver(countingResolver);
+    }
+
+
+    @Test
+    public void testEnabled() {
+        Assert.assertTrue(PropertyAccessor.isEnabled());
+    }
+
+
+    @Test
+    public void testCachedAccess() {
+        processor.defineBean("bean", new Bean("a"));
+        Assert.assertEquals("a", processor.eval("bean.name"));
+        int count = countingResolver.count;
+        Assert.assertEquals("a", processor.eval("bean.name"));
+        Assert.assertTrue(processor.eval("bean.active") instanceof Boolean);
+        processor.defineBean("bean", new Bean("b"));
+        Assert.assertEquals("b", processor.eval("bean.name"));
+        // The second and later evaluations of bean.name should not use the resolver chain
+        Assert.assertEquals(count + 1, countingResolver.count);
+    }
+
+
+    @Test
+    public void testNestedAccess() {
+        processor.defineBean("bean", new Bean("a", new Bean("b")));
+        Assert.assertEquals("b", processor.eval("bean.child.name"));
+        Assert.assertEquals("b", processor.eval("bean.child.name"));
+    }
+
+
+    @Test
+    public void testGuardClassChange() {
+        processor.defineBean("bean", new Bean("a"));
+        Assert.assertEquals("a", processor.eval("bean.name"));
+        Assert.assertEquals("a", processor.eval("bean.name"));
+        processor.defineBean("bean", new OtherBean());
+        Assert.assertEquals("other", processor.eval("bean.name"));
+        processor.defineBean("bean", Collections.singletonMap("name", "map"));
+        Assert.assertEquals("map", processor.eval("bean.name"));
+        processor.defineBean("bean", new Bean("c"));
+        Assert.assertEquals("c", processor.eval("bean.name"));
+    }
+
+
+    @Test
+    public void testMegamorphic() throws Exception {
+        MethodHandle getter = MethodHandles.publicLookup()
+                .findVirtual(Bean.class, "getName", MethodType.methodType(String.class))
+                .asType(MethodType.methodType(Object.class, Object.class));
+        PropertyAccessor accessor = null;
+        for (int i = 0; i < PropertyAccessor.MAX_UPDATES; i++) {
+            Object base = (i % 2 == 0) ? new Bean("a") : new OtherBean();
+            accessor = PropertyAccessor.create(accessor, base, countingResolver, "name", getter);
+            Assert.assertFalse(accessor.isDisabled());
+        }
+        accessor = PropertyAccessor.create(accessor, new Bean("a"), countingResolver, "name", getter);
+        Assert.assertTrue(accessor.isDisabled());
+    }
+
+
+    @Test
+    public void testBeanInfo() {
+        // The property is only defined by the BeanInfo
+        processor.defineBean("bean", new InfoBean());
+        Assert.assertEquals("info", processor.eval("bean.label"));
+        int count = countingResolver.count;
+        Assert.assertEquals("info", processor.eval("bean.label"));
+        Assert.assertEquals(count, countingResolver.count);
+    }
+
+
+    @Test
+    public void testNotResolvedByBeanResolver() {
+        InterceptingResolver interceptingResolver = new InterceptingResolver();
+        processor.getELManager().addELResolver(interceptingResolver);
+        processor.defineBean("bean", new OtherBean());
+        // Every evaluation must use the resolver that resolved the property
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("intercepted", processor.eval("bean.name"));
+        }
+        Assert.assertEquals(3, interceptingResolver.count);
+    }
+
+
+    @Test
+    public void testDelegatedResolution() {
+        // BeanELResolver resolves the property on the value of the Optional
+        processor.getELManager().addELResolver(new OptionalELResolver());
+        processor.defineBean("bean", Optional.of(new Bean("a")));
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals("a", processor.eval("bean.name"));
+        }
+    }
+
+
+    @Test
+    public void testGetterException() {
+        processor.defineBean("bean", new Bean(null));
+        // First evaluation is via the resolver chain, second via the cached getter
+        for (int i = 0; i < 2; i++) {
+            try {
+                processor.eval("bean.failing");
+                Assert.fail();
+            } catch (ELException e) {
+                Assert.assertTrue(e.getCause() instanceof NullPointerException);
+            }
+        }
+    }
+
+
+    public static class Bean {
+        private final String name;
+        private final Bean child;
+
+        public Bean(String name) {
+            this(name, null);
+        }
+
+        public Bean(String name, Bean child) {
+            this.name = name;
+            this.child = child;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Bean getChild() {
+            return child;
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+
+        public String getFailing() {
+            return name.toUpperCase();
+        }
+    }
+
+
+    public static class OtherBean {
+        public String getName() {
+            return "other";
+        }
+    }
+
+
+    public static class InfoBean {
+        public String getDisplayLabel() {
+            return "info";
+        }
+    }
+
+
+    public static class InfoBeanBeanInfo extends SimpleBeanInfo {
+        @Override
+        public PropertyDescriptor[] getPropertyDescriptors() {
+            try {
+                return new PropertyDescriptor[] {
+                        new PropertyDescriptor("label", InfoBean.class, "getDisplayLabel", null) };
+            } catch (IntrospectionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+
+    private static class InterceptingResolver extends CountingResolver {
+
+        @Override
+        public Object getValue(ELContext context, Object base, Object property) {
+            if (base instanceof OtherBean) {
+                super.getValue(context, base, property);
+                context.setPropertyResolved(base, property);
+                return "intercepted";
+            }
+            return null;
+        }
+    }
+
+
+    private static class CountingResolver extends ELResolver {
+
+        int count;
+
+        @Override
+        public Object getValue(ELContext context, Object base, Object property) {
+            if (base != null) {
+                count++;
+            }
+            return null;
+        }
+
+        @Override
+        public Class<?> getType(ELContext context, Object base, Object property) {
+            return null;
+        }
+
+        @Override
+        public void setValue(ELContext context, Object base, Object property, Object value) {
+            // NO-OP
+        }
+
+        @Override
+        public boolean isReadOnly(ELContext context, Object base, Object property) {
+            return false;
+        }
+
+        @Override
+        public Class<?> getCommonPropertyType(ELContext context, Object base) {
+            return null;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.apache.jasper;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -127,6 +128,92 @@ public class TestJspC {
         verify(webappOut);
     }
 
+    @Test
+    public void precompileWithCompileCache() throws IOException {
+        File appDir = new File("test/webapp-6.1");
+        File cacheDir = new File(outputDir, "cache");
+        String javaFileName = "el_002das_002dliteral_jsp.java";
+
+        File firstOut = new File(outputDir, "first");
+        jspc.setCompile(true);
+        jspc.setCompileCacheDir(cacheDir.toString());
+        precompile(appDir, firstOut);
+        verify(firstOut);
+
+        // Mark the cached source so a restored copy can be identified
+        File markedFile = null;
+        File[] entries = cacheDir.listFiles();
+        Assert.assertNotNull(entries);
+        for (File entry : entries) {
+            File candidate = new File(entry, javaFileName);
+            if (candidate.exists()) {
+                markedFile = candidate;
+            }
+        }
+        Assert.assertNotNull(markedFile);
+        Files.write(markedFile.toPath(), "// Restored".getBytes(StandardCharsets.UTF_8));
+
+        File secondOut = new File(outputDir, "second");
+        jspc = new JspC();
+        jspc.setCompile(true);
+        jspc.setCompileCacheDir(cacheDir.toString());
+        precompile(appDir, secondOut);
+        verify(secondOut);
+        Assert.assertTrue(new File(secondOut, "org/apache/jsp/el_002das_002dliteral_jsp.class").exists());
+        Assert.assertEquals("// Restored", new String(
+                Files.readAllBytes(new File(secondOut, "org/apache/jsp/" + javaFileName).toPath()),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void precompileWithCompileCacheChangedInclude() throws IOException {
+        File appDir = new File(outputDir, "includeApp");
+        File webInf = new File(appDir, "WEB-INF");
+        Assert.assertTrue(webInf.mkdirs());
+        Files.write(new File(webInf, "web.xml").toPath(),
+                ("<web-app xmlns=\"https://jakarta.ee/xml/ns/jakartaee\" version=\"6.0\"/>").getBytes(
+                        StandardCharsets.UTF_8));
+        Files.write(new File(appDir, "index.jsp").toPath(),
+                "<%@ include file=\"include.jspf\" %>".getBytes(StandardCharsets.UTF_8));
+        File include = new File(appDir, "include.jspf");
+        Files.write(include.toPath(), "AAAA".getBytes(StandardCharsets.UTF_8));
+        long lastModified = include.lastModified();
+
+        File cacheDir = new File(outputDir, "cache");
+        File firstOut = new File(outputDir, "first");
+        jspc.setCompile(true);
+        jspc.setCompileCacheDir(cacheDir.toString());
+        precompile(appDir, firstOut);
+        Assert.assertTrue(readGeneratedIndex(firstOut).contains("AAAA"));
+
+        // Same size and last modified time, different content
+        Files.write(include.toPath(), "BBBB".getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(include.setLastModified(lastModified));
+
+        File secondOut = new File(outputDir, "second");
+        jspc = new JspC();
+        jspc.setCompile(true);
+        jspc.setCompileCacheDir(cacheDir.toString());
+        precompile(appDir, secondOut);
+        Assert.assertTrue(readGeneratedIndex(secondOut).contains("BBBB"));
+
+        // The replaced entry is used for the new content
+        File thirdOut = new File(outputDir, "third");
+        jspc = new JspC();
+        jspc.setCompile(true);
+        jspc.setCompileCacheDir(cacheDir.toString());
+        precompile(appDir, thirdOut);
+        Assert.assertTrue(readGeneratedIndex(thirdOut).contains("BBBB"));
+        File[] entries = cacheDir.listFiles();
+        Assert.assertNotNull(entries);
+        Assert.assertEquals(1, entries.length);
+    }
+
+    private static String readGeneratedIndex(File webappOut) throws IOException {
+        return new String(Files.readAllBytes(new File(webappOut, "org/apache/jsp/index_jsp.java").toPath()),
+                StandardCharsets.UTF_8);
+    }
+
     private void verify(File webappOut) {
         // for now, just check some expected files exist
         Assert.assertTrue(new File(webappOut, "generated_web.xml").exists());
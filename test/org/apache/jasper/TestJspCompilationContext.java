@@ -17,13 +17,18 @@
 package org.apache.jasper;
 
 import java.io.File;
+import java.nio.file.Files;
 
 import jakarta.servlet.http.HttpServletResponse;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.jasper.servlet.JasperInitializer;
 import org.apache.tomcat.util.buf.ByteChunk;
 
 public class TestJspCompilationContext extends TomcatBaseTest {
@@ -71,4 +76,45 @@ public class TestJspCompilationContext extends TomcatBaseTest {
         Assert.assertEquals(HttpServletResponse.SC_OK, rc);
         Assert.assertTrue(body.toString().contains("00 - OK"));
     }
+
+
+    @Test
+    public void testModifiedIncludeWithModificationTestInterval() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = new File(getTemporaryDirectory(), "modified");
+        Assert.assertTrue(appDir.mkdirs());
+        addDeleteOnTearDown(appDir);
+        File jsp = new File(appDir, "page.jsp");
+        Files.writeString(jsp.toPath(), "<%@ include file=\"header.jspf\" %>");
+        File header = new File(appDir, "header.jspf");
+        Files.writeString(header.toPath(), "A");
+
+        Context ctx = tomcat.addContext(null, "/test", appDir.getAbsolutePath());
+        ctx.addServletContainerInitializer(new JasperInitializer(), null);
+        Tomcat.initWebappDefaults(ctx);
+        Wrapper w = (Wrapper) ctx.findChild("jsp");
+        w.addInitParameter("modificationTestInterval", "1");
+
+        tomcat.start();
+        // Make sure the modified include is seen as soon as it is checked
+        ctx.getResources().setCachingAllowed(false);
+
+        ByteChunk body = new ByteChunk();
+        int rc = getUrl("http://localhost:" + getPort() + "/test/page.jsp", body, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertEquals("A", body.toString());
+
+        Files.writeString(header.toPath(), "B");
+        Assert.assertTrue("Failed to set last modified for [" + header + "]",
+                header.setLastModified(header.lastModified() + 10000));
+
+        // Wait for the modification test interval to expire
+        Thread.sleep(1500);
+
+        body.recycle();
+        rc = getUrl("http://localhost:" + getPort() + "/test/page.jsp", body, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertEquals("B", body.toString());
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.io.Reader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestBodyContentImpl {
+
+    @Test
+    public void testGrowBuffer() throws Exception {
+        BodyContentImpl body = new BodyContentImpl(null, false, 16);
+        String expected = doWrite(body, 1000);
+        Assert.assertEquals(expected, body.getString());
+        Assert.assertTrue(body.getBufferSize() >= 1000);
+    }
+
+
+    @Test
+    public void testLimitBuffer() throws Exception {
+        BodyContentBufferPool pool = new BodyContentBufferPool();
+        BodyContentImpl body = new BodyContentImpl(null, true, 16);
+        body.setBufferPool(pool);
+        doWrite(body, 1000);
+        body.clear();
+        Assert.assertEquals(16, body.getBufferSize());
+        Assert.assertEquals("", body.getString());
+        Assert.assertTrue(pool.getRetained() > 0);
+
+        // Buffers released to the pool are reused by other instances
+        BodyContentImpl other = new BodyContentImpl(null, true, 16);
+        other.setBufferPool(pool);
+        String expected = doWrite(other, 1000);
+        Assert.assertEquals(expected, other.getString());
+
+        expected = doWrite(body, 100);
+        Assert.assertEquals(expected, body.getString());
+    }
+
+
+    @Test
+    public void testReleaseBuffer() throws Exception {
+        BodyContentImpl body = new BodyContentImpl(null, false, 16);
+        doWrite(body, 1000);
+        body.recycle();
+        Assert.assertTrue(body.getBufferSize() >= 1000);
+        body.releaseBuffer();
+        Assert.assertEquals(16, body.getBufferSize());
+        String expected = doWrite(body, 10);
+        Assert.assertEquals(expected, body.getString());
+    }
+
+
+    @Test
+    public void testReaderNotShared() throws Exception {
+        BodyContentBufferPool pool = new BodyContentBufferPool();
+        BodyContentImpl body = new BodyContentImpl(null, true, 16);
+        body.setBufferPool(pool);
+        String expected = doWrite(body, 1000);
+        Reader reader = body.getReader();
+        body.clear();
+
+        // Reuse the buffers that have just been returned to the pool
+        BodyContentImpl other = new BodyContentImpl(null, true, 16);
+        other.setBufferPool(pool);
+        for (int i = 0; i < 4000; i++) {
+            other.write('x');
+        }
+
+        StringBuilder actual = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1) {
+            actual.append((char) c);
+        }
+        Assert.assertEquals(expected, actual.toString());
+    }
+
+
+    @Test
+    public void testPoolBounded() throws Exception {
+        BodyContentBufferPool pool = new BodyContentBufferPool();
+        for (int i = 0; i < 100; i++) {
+            pool.put(new char[1 << 17]);
+        }
+        Assert.assertTrue(pool.getRetained() <= 1 << 19);
+        // Sizes that are not powers of two are not pooled
+        int retained = pool.getRetained();
+        pool.put(new char[1000]);
+        Assert.assertEquals(retained, pool.getRetained());
+    }
+
+
+    @Test
+    public void testBufferNotPassedBetweenPools() throws Exception {
+        BodyContentBufferPool pool = new BodyContentBufferPool();
+        BodyContentImpl body = new BodyContentImpl(null, false, 16);
+        body.setBufferPool(pool);
+        doWrite(body, 1000);
+        body.recycle();
+        int retained = pool.getRetained();
+        BodyContentBufferPool other = new BodyContentBufferPool();
+        body.setBufferPool(other);
+        Assert.assertEquals(16, body.getBufferSize());
+        body.releaseBuffer();
+        Assert.assertEquals(retained, pool.getRetained());
+        Assert.assertEquals(0, other.getRetained());
+    }
+
+
+    private static String doWrite(BodyContentImpl body, int count) throws Exception {
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            String value = Integer.toString(i);
+            body.write(value);
+            expected.append(value);
+        }
+        return expected.toString();
+    }
+}
@@ -16,12 +16,20 @@
  */
 package org.apache.jasper.runtime;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
 import jakarta.servlet.http.HttpServletResponse;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.jasper.servlet.JasperInitializer;
 import org.apache.tomcat.util.buf.ByteChunk;
 
 public class TestJspWriterImpl extends TomcatBaseTest {
@@ -54,4 +62,54 @@ public class TestJspWriterImpl extends TomcatBaseTest {
         Assert.assertEquals(res.toString(),
                 HttpServletResponse.SC_INTERNAL_SERVER_ERROR, rc);
     }
+
+    @Test
+    public void testPreEncodedTemplateText() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = new File(getTemporaryDirectory(), "encoded");
+        Assert.assertTrue(appDir.mkdirs());
+        addDeleteOnTearDown(appDir);
+
+        StringBuilder large = new StringBuilder();
+        while (large.length() < 10000) {
+            large.append("\u00e9t\u00e9 \u20ac ");
+        }
+        String directive = "<%@ page contentType=\"text/plain;charset=UTF-8\" pageEncoding=\"UTF-8\"";
+        // Unbuffered
+        Files.writeString(new File(appDir, "a.jsp").toPath(),
+                directive + " buffer=\"none\" %>abc \u00e9t\u00e9<%= 1 + 1 %>def \u20ac");
+        // Template text larger than the buffer
+        Files.writeString(new File(appDir, "b.jsp").toPath(),
+                directive + " %>abc<%= 1 + 1 %>" + large + "<%= 3 %>");
+        // The response uses a different character set
+        Files.writeString(new File(appDir, "c.jsp").toPath(),
+                directive + " buffer=\"none\" %><% response.setCharacterEncoding(\"ISO-8859-1\"); %>abc \u00e9t\u00e9");
+
+        Context ctx = tomcat.addContext(null, "/test", appDir.getAbsolutePath());
+        ctx.addServletContainerInitializer(new JasperInitializer(), null);
+        Tomcat.initWebappDefaults(ctx);
+        Wrapper w = (Wrapper) ctx.findChild("jsp");
+        w.addInitParameter("preEncodeTemplateText", "true");
+
+        tomcat.start();
+
+        ByteChunk res = new ByteChunk();
+        int rc = getUrl("http://localhost:" + getPort() + "/test/a.jsp", res, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        res.setCharset(StandardCharsets.UTF_8);
+        Assert.assertEquals("abc \u00e9t\u00e92def \u20ac", res.toString());
+
+        res.recycle();
+        rc = getUrl("http://localhost:" + getPort() + "/test/b.jsp", res, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        res.setCharset(StandardCharsets.UTF_8);
+        Assert.assertEquals("abc2" + large + "3", res.toString());
+
+        res.recycle();
+        rc = getUrl("http://localhost:" + getPort() + "/test/c.jsp", res, null);
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        res.setCharset(StandardCharsets.ISO_8859_1);
+        Assert.assertEquals("abc \u00e9t\u00e9", res.toString());
+    }
 }
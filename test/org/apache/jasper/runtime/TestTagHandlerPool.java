@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.jasper.runtime;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.jsp.tagext.Tag;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.unittest.tags.Bug53545;
+
+public class TestTagHandlerPool extends TomcatBaseTest {
+
+    @Test
+    public void testGetReuse() throws Exception {
+        Tomcat tomcat = getTomcatInstanceTestWebapp(false, true);
+
+        Wrapper w = (Wrapper) tomcat.getHost().findChildren()[0].findChild("jsp");
+        ServletConfig config = w.getServlet().getServletConfig();
+        TagHandlerPoolStatistics statistics = TagHandlerPoolStatistics.getInstance(config.getServletContext());
+        TagHandlerPool tagHandlerPool = TagHandlerPool.getTagHandlerPool(config);
+
+        long created = statistics.getCreateCount();
+        long reused = statistics.getReuseCount();
+        long released = statistics.getReleaseCount();
+
+        Tag t1 = tagHandlerPool.get(Bug53545.class);
+        tagHandlerPool.reuse(t1);
+        Assert.assertSame(t1, tagHandlerPool.get(Bug53545.class));
+
+        // Fill the pool and one more
+        Tag[] tags = new Tag[org.apache.jasper.Constants.MAX_POOL_SIZE + 1];
+        tags[0] = t1;
+        for (int i = 1; i < tags.length; i++) {
+            tags[i] = tagHandlerPool.get(Bug53545.class);
+            Assert.assertNotSame(t1, tags[i]);
+        }
+        for (Tag tag : tags) {
+            tagHandlerPool.reuse(tag);
+        }
+
+        Assert.assertEquals(tags.length, statistics.getCreateCount() - created);
+        Assert.assertEquals(1, statistics.getReuseCount() - reused);
+        Assert.assertEquals(1, statistics.getReleaseCount() - released);
+
+        tagHandlerPool.release();
+        Tag t2 = tagHandlerPool.get(Bug53545.class);
+        for (Tag tag : tags) {
+            Assert.assertNotSame(tag, t2);
+        }
+    }
+
+
+    @Test
+    public void testConcurrentGetReuse() throws Exception {
+        Tomcat tomcat = getTomcatInstanceTestWebapp(false, true);
+
+        Wrapper w = (Wrapper) tomcat.getHost().findChildren()[0].findChild("jsp");
+        ServletConfig config = w.getServlet().getServletConfig();
+        ServletContext context = config.getServletContext();
+        // Start without statistics so the threads race to create them
+        context.removeAttribute(TagHandlerPoolStatistics.class.getName());
+
+        int threadCount = 8;
+        int iterations = 1000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    TagHandlerPool tagHandlerPool = TagHandlerPool.getTagHandlerPool(config);
+                    for (int j = 0; j < iterations; j++) {
+                        Tag t1 = tagHandlerPool.get(Bug53545.class);
+                        Tag t2 = tagHandlerPool.get(Bug53545.class);
+                        tagHandlerPool.reuse(t2);
+                        tagHandlerPool.reuse(t1);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertNull(failure.get());
+
+        // Every borrow and release is recorded by the same statistics
+        TagHandlerPoolStatistics statistics = TagHandlerPoolStatistics.getInstance(context);
+        long gets = 2L * threadCount * iterations;
+        Assert.assertEquals(gets, statistics.getCreateCount() + statistics.getReuseCount());
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.jasper.runtime;
 import java.util.function.IntConsumer;
 import java.util.function.Supplier;
 
+import jakarta.servlet.ServletConfig;
 import jakarta.servlet.jsp.JspException;
 import jakarta.servlet.jsp.tagext.Tag;
 
@@ -33,27 +34,57 @@ import org.apache.tomcat.unittest.tags.Bug53545;
 /*
  * This is an absolute performance test. There is no benefit it running it as part of a standard test run so it is
  * excluded due to the name starting Tester...
+ *
+ * The current TagHandlerPool is compared with a pool that synchronizes every access, as TagHandlerPool used to do.
  */
 public class TesterTagHandlerPoolPerformance extends TomcatBaseTest {
 
+    private static final int ITERATIONS = 5000000;
+    private static final int WARM_UP_ITERATIONS = 500000;
+
     @Test
     public void testConcurrency() throws Exception {
         // Create a working TagHandlerPool
         Tomcat tomcat = getTomcatInstanceTestWebapp(false, true);
 
         Wrapper w = (Wrapper) tomcat.getHost().findChildren()[0].findChild("jsp");
-        TagHandlerPool tagHandlerPool = new TagHandlerPool();
-        tagHandlerPool.init(w.getServlet().getServletConfig());
-
-        for (int i = 1; i < 9; i++) {
-            TesterThreadedPerformance test = new TesterThreadedPerformance(
-                    i, 5000000, new TestInstanceSupplier(tagHandlerPool));
-            long duration = test.doTest();
-            System.out.println(i + " threads completed in " + duration + "ns");
+        ServletConfig config = w.getServlet().getServletConfig();
+        TagHandlerPoolStatistics statistics = TagHandlerPoolStatistics.getInstance(config.getServletContext());
+
+        int maxThreads = Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            TagHandlerPool synchronizedPool = new SynchronizedTagHandlerPool();
+            synchronizedPool.init(config);
+            TagHandlerPool tagHandlerPool = new TagHandlerPool();
+            tagHandlerPool.init(config);
+
+            long syncDuration = doTest(threads, synchronizedPool);
+
+            long created = statistics.getCreateCount();
+            long released = statistics.getReleaseCount();
+            long duration = doTest(threads, tagHandlerPool);
+            created = statistics.getCreateCount() - created;
+            released = statistics.getReleaseCount() - released;
+
+            System.out.println(String.format(
+                    "%2d threads: synchronized %,6d ops/ms, TagHandlerPool %,6d ops/ms (%,d created, %,d released)",
+                    Integer.valueOf(threads), Long.valueOf(opsPerMilli(threads, syncDuration)),
+                    Long.valueOf(opsPerMilli(threads, duration)), Long.valueOf(created), Long.valueOf(released)));
         }
     }
 
 
+    private static long doTest(int threads, TagHandlerPool tagHandlerPool) throws InterruptedException {
+        new TesterThreadedPerformance(threads, WARM_UP_ITERATIONS, new TestInstanceSupplier(tagHandlerPool)).doTest();
+        return new TesterThreadedPerformance(threads, ITERATIONS, new TestInstanceSupplier(tagHandlerPool)).doTest();
+    }
+
+
+    private static long opsPerMilli(int threads, long durationNanos) {
+        return (long) threads * ITERATIONS * 1000000 / durationNanos;
+    }
+
+
     private static class TestInstanceSupplier implements Supplier<IntConsumer> {
 
         private final TagHandlerPool tagHandlerPool;
@@ -88,4 +119,42 @@ public class TesterTagHandlerPoolPerformance extends TomcatBaseTest {
             }
         }
     }
+
+
+    /*
+     * The previous implementation of TagHandlerPool.
+     */
+    private static class SynchronizedTagHandlerPool extends TagHandlerPool {
+
+        private Tag[] handlers;
+        private int current;
+
+        @Override
+        protected void init(ServletConfig config) {
+            super.init(config);
+            handlers = new Tag[org.apache.jasper.Constants.MAX_POOL_SIZE];
+            current = -1;
+        }
+
+        @Override
+        public Tag get(Class<? extends Tag> handlerClass) throws JspException {
+            synchronized (this) {
+                if (current >= 0) {
+                    return handlers[current--];
+                }
+            }
+            return super.get(handlerClass);
+        }
+
+        @Override
+        public void reuse(Tag handler) {
+            synchronized (this) {
+                if (current < (handlers.length - 1)) {
+                    handlers[++current] = handler;
+                    return;
+                }
+            }
+            super.reuse(handler);
+        }
+    }
 }
@@ -18,6 +18,9 @@ package org.apache.jasper.servlet;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -28,6 +31,8 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.core.StandardWrapper;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
 import org.apache.tomcat.util.buf.ByteChunk;
@@ -96,6 +101,77 @@ public class TestJspServlet  extends TomcatBaseTest {
     }
 
 
+    @Test
+    public void testWarmUp() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = new File(getTemporaryDirectory(), "warmup");
+        File subDir = new File(appDir, "sub");
+        Assert.assertTrue(subDir.mkdirs());
+        addDeleteOnTearDown(appDir);
+        for (String name : new String[] { "a.jsp", "b.jsp", "sub/c.jsp" }) {
+            Files.writeString(new File(appDir, name).toPath(), "<%= \"" + name + "\" %>");
+        }
+        File warmUpFile = new File(getTemporaryDirectory(), "warmup.txt");
+        addDeleteOnTearDown(warmUpFile);
+
+        Context ctx = tomcat.addContext(null, "/test", appDir.getAbsolutePath());
+        ctx.addServletContainerInitializer(new JasperInitializer(), null);
+        Tomcat.initWebappDefaults(ctx);
+        Wrapper w = (Wrapper) ctx.findChild("jsp");
+        w.addInitParameter("warmUp", "true");
+        w.addInitParameter("warmUpThreads", "2");
+        w.addInitParameter("warmUpFile", warmUpFile.getAbsolutePath());
+
+        // Servlets defined by jsp-file inherit the init parameters of the jsp
+        // servlet but must neither warm up nor write the warm-up file
+        Wrapper jspFileWrapper = Tomcat.addServlet(ctx, "jspFile", JspServlet.class.getName());
+        for (String name : w.findInitParameters()) {
+            jspFileWrapper.addInitParameter(name, w.findInitParameter(name));
+        }
+        jspFileWrapper.addInitParameter("jspFile", "/a.jsp");
+        jspFileWrapper.setLoadOnStartup(1);
+        ctx.addServletMappingDecoded("/afile", "jspFile");
+
+        tomcat.start();
+
+        JspServlet jspFileServlet = (JspServlet) ((StandardWrapper) jspFileWrapper).getServlet();
+        Assert.assertEquals(0, jspFileServlet.getWarmUpCount());
+
+        JspServlet jspServlet = (JspServlet) ((StandardWrapper) w).getServlet();
+        Assert.assertEquals(3, jspServlet.getWarmUpCount());
+        int count = 0;
+        while (jspServlet.getWarmUpCompletedCount() < 3 && count < 300) {
+            Thread.sleep(100);
+            count++;
+        }
+        Assert.assertEquals(3, jspServlet.getWarmUpCompletedCount());
+        Assert.assertEquals(0, jspServlet.getWarmUpFailedCount());
+        Assert.assertEquals(3, jspServlet.getJspCount());
+
+        ByteChunk res = new ByteChunk();
+        for (int i = 0; i < 2; i++) {
+            res.recycle();
+            int rc = getUrl("http://localhost:" + getPort() + "/test/b.jsp", res, null);
+            Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+            Assert.assertEquals("b.jsp", res.toString());
+        }
+        getUrl("http://localhost:" + getPort() + "/test/sub/c.jsp", res, null);
+        for (int i = 0; i < 3; i++) {
+            res.recycle();
+            int rc = getUrl("http://localhost:" + getPort() + "/test/afile", res, null);
+            Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+            Assert.assertEquals("a.jsp", res.toString());
+        }
+
+        // Stopping the context records the most requested JSPs
+        ctx.stop();
+
+        List<String> lines = Files.readAllLines(warmUpFile.toPath(), StandardCharsets.UTF_8);
+        Assert.assertEquals(List.of("2 /b.jsp", "1 /sub/c.jsp"), lines);
+    }
+
+
     private static class Bug56568aServlet extends HttpServlet {
 
         private static final long serialVersionUID = 1L;
@@ -21,19 +21,29 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.net.URI;
 import java.net.URL;
+import java.nio.file.Files;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.jsp.tagext.FunctionInfo;
+import jakarta.servlet.jsp.tagext.TagAttributeInfo;
+import jakarta.servlet.jsp.tagext.TagVariableInfo;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.catalina.Context;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.jasper.Constants;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.Jar;
 import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.descriptor.tld.TagXml;
+import org.apache.tomcat.util.descriptor.tld.TaglibXml;
+import org.apache.tomcat.util.descriptor.tld.TldResourcePath;
 import org.apache.tomcat.util.scan.JarFactory;
 import org.apache.tomcat.util.scan.StandardJarScanner;
 import org.easymock.EasyMock;
@@ -55,6 +65,87 @@ public class TestTldScanner extends TomcatBaseTest {
     }
 
 
+    @Test
+    public void testScanCache() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = new File(getTemporaryDirectory(), "tld-scan-cache");
+        File libDir = new File(appDir, "WEB-INF/lib");
+        Assert.assertTrue(libDir.mkdirs());
+        addDeleteOnTearDown(appDir);
+        String jarName = "taglibs-standard-impl-1.2.5-migrated-0.0.1.jar";
+        Files.copy(new File("webapps/examples/WEB-INF/lib", jarName).toPath(),
+                new File(libDir, jarName).toPath());
+
+        Context context = tomcat.addWebapp(null, "/test", appDir.getAbsolutePath());
+        context.addParameter(Constants.TLD_SCAN_CACHE_INIT_PARAM, "true");
+        tomcat.start();
+
+        ServletContext servletContext = context.getServletContext();
+        File cacheFile = new File((File) servletContext.getAttribute(ServletContext.TEMPDIR),
+                TldScanCache.CACHE_FILE);
+        Assert.assertTrue(cacheFile.isFile());
+        // The cache is only written if it changes
+        Assert.assertTrue(cacheFile.setLastModified(0));
+        // JARs are identified by their content rather than their last modified time
+        File jarFile = new File(libDir, jarName);
+        Assert.assertTrue(jarFile.setLastModified(jarFile.lastModified() - 10000));
+
+        TldScanner cachedScanner = new TldScanner(servletContext, true, false, true);
+        cachedScanner.scan();
+        Assert.assertEquals(0, cacheFile.lastModified());
+
+        // Without the cache file, the JAR is scanned and the TLDs parsed
+        Assert.assertTrue(cacheFile.delete());
+        TldScanner scanner = new TldScanner(servletContext, true, false, true);
+        scanner.scan();
+
+        Assert.assertEquals(scanner.getUriTldResourcePathMap(), cachedScanner.getUriTldResourcePathMap());
+        Assert.assertEquals(scanner.getListeners(), cachedScanner.getListeners());
+        Map<TldResourcePath,TaglibXml> expected = scanner.getTldResourcePathTaglibXmlMap();
+        Map<TldResourcePath,TaglibXml> actual = cachedScanner.getTldResourcePathTaglibXmlMap();
+        Assert.assertEquals(12, expected.size());
+        Assert.assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<TldResourcePath,TaglibXml> entry : expected.entrySet()) {
+            Assert.assertEquals(toString(entry.getValue()), toString(actual.get(entry.getKey())));
+        }
+    }
+
+
+    private static String toString(TaglibXml taglibXml) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(taglibXml.getTlibVersion()).append(',').append(taglibXml.getJspVersion()).append(',');
+        sb.append(taglibXml.getShortName()).append(',').append(taglibXml.getUri()).append(',');
+        sb.append(taglibXml.getInfo()).append('\n');
+        if (taglibXml.getValidator() != null) {
+            sb.append(taglibXml.getValidator().getValidatorClass()).append(',');
+            sb.append(taglibXml.getValidator().getInitParams()).append('\n');
+        }
+        for (TagXml tag : taglibXml.getTags()) {
+            sb.append(tag.getName()).append(',').append(tag.getTagClass()).append(',');
+            sb.append(tag.getTeiClass()).append(',').append(tag.getBodyContent()).append(',');
+            sb.append(tag.getInfo()).append(',').append(tag.hasDynamicAttributes()).append('\n');
+            for (TagAttributeInfo attribute : tag.getAttributes()) {
+                sb.append(attribute).append(',').append(attribute.getDescription()).append(',');
+                sb.append(attribute.isDeferredValue()).append(',').append(attribute.isDeferredMethod());
+                sb.append(',').append(attribute.getExpectedTypeName()).append(',');
+                sb.append(attribute.getMethodSignature()).append('\n');
+            }
+            for (TagVariableInfo variable : tag.getVariables()) {
+                sb.append(variable.getNameGiven()).append(',').append(variable.getNameFromAttribute());
+                sb.append(',').append(variable.getClassName()).append(',').append(variable.getDeclare());
+                sb.append(',').append(variable.getScope()).append('\n');
+            }
+        }
+        sb.append(taglibXml.getTagFiles().size()).append(taglibXml.getListeners()).append('\n');
+        for (FunctionInfo function : taglibXml.getFunctions()) {
+            sb.append(function.getName()).append(',').append(function.getFunctionClass()).append(',');
+            sb.append(function.getFunctionSignature()).append('\n');
+        }
+        return sb.toString();
+    }
+
+
     @Test
     public void testBug55807() throws Exception {
         Tomcat tomcat = getTomcatInstance();
@@ -1326,6 +1326,21 @@ public class TesterContext implements Context {
     @Override
     public void setParallelAnnotationScanning(boolean parallelAnnotationScanning) {}
 
+    @Override
+    public boolean getAnnotationScanIndex() { return false; }
+    @Override
+    public void setAnnotationScanIndex(boolean annotationScanIndex) {}
+
+    @Override
+    public boolean getEffectiveWebXmlCache() { return false; }
+    @Override
+    public void setEffectiveWebXmlCache(boolean effectiveWebXmlCache) {}
+
+    @Override
+    public boolean getParallelInitialization() { return false; }
+    @Override
+    public void setParallelInitialization(boolean parallelInitialization) {}
+
     @Override
     public boolean getMetadataComplete() { return false; }
     @Override
@@ -87,6 +87,11 @@ public class TesterRequest extends Request {
         return getRequestURI();
     }
 
+    @Override
+    public String getQueryString() {
+        return null;
+    }
+
 
     @Override
     public Context getContext() {
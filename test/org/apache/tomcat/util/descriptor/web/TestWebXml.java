@@ -223,6 +223,30 @@ public class TestWebXml {
         Assert.assertEquals(version, webxmlResult.getVersion());
     }
 
+    @Test
+    public void testCookieAttributesToXml() throws IOException, SAXException {
+        WebXml webxml = new WebXml();
+        webxml.setVersion("6.0");
+        webxml.getSessionConfig().setCookieDomain("example.org");
+        webxml.getSessionConfig().setCookieAttribute(Constants.COOKIE_SAME_SITE_ATTR, "Strict");
+
+        Digester digester = DigesterFactory.newDigester(true, true, new WebRuleSet(), true);
+
+        XmlErrorHandler handler = new XmlErrorHandler();
+        digester.setErrorHandler(handler);
+
+        InputSource is = new InputSource(new StringReader(webxml.toXml()));
+        WebXml webxmlResult = new WebXml();
+        digester.push(webxmlResult);
+        digester.parse(is);
+
+        Assert.assertEquals(0, handler.getErrors().size());
+        Assert.assertEquals(0, handler.getWarnings().size());
+
+        Assert.assertEquals(webxml.getSessionConfig().getCookieAttributes(),
+                webxmlResult.getSessionConfig().getCookieAttributes());
+    }
+
     // A simplified copy of ContextConfig.getDefaultWebXmlFragment().
     // Assuming that global web.xml exists, host-specific web.xml does not exist.
     private WebXml getDefaultWebXmlFragment() throws IOException, SAXException {
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.descriptor.web;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+
+import org.apache.catalina.startup.LoggingBaseTest;
+import org.xml.sax.InputSource;
+
+@RunWith(Parameterized.class)
+public class TestWebXmlParser extends LoggingBaseTest {
+
+    @Parameterized.Parameters(name = "{index}: webXml[{0}]")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][] {
+                { "conf/web.xml" },
+                { "test/webapp/WEB-INF/web.xml" },
+                { "webapps/examples/WEB-INF/web.xml" } });
+    }
+
+    @Parameter(0)
+    public String webXmlPath;
+
+
+    @Test
+    public void testGeneratedCode() throws Exception {
+        File webXmlFile = new File(webXmlPath);
+        WebXmlParser parser = new WebXmlParser(false, false, true);
+
+        WebXml parsed = new WebXml();
+        String code = parser.generateCode(new InputSource(webXmlFile.toURI().toString()), parsed,
+                "generatedwebxml", "TestWebXml");
+        Assert.assertNotNull(code);
+
+        Path dir = Files.createTempDirectory(getTemporaryDirectory().toPath(), "generatedwebxml");
+        addDeleteOnTearDown(dir.toFile());
+        Path sourceFile = dir.resolve("generatedwebxml").resolve("TestWebXml.java");
+        Files.createDirectories(sourceFile.getParent());
+        Files.writeString(sourceFile, code, StandardCharsets.UTF_8);
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int result = compiler.run(null, null, null, "-encoding", "UTF-8", "-proc:none", "-classpath",
+                System.getProperty("java.class.path"), "-d", dir.toString(), sourceFile.toString());
+        Assert.assertEquals(code, 0, result);
+
+        WebXml generated = new WebXml();
+        try (URLClassLoader cl = new URLClassLoader(new URL[] { dir.toUri().toURL() },
+                TestWebXmlParser.class.getClassLoader())) {
+            WebXmlParser.GeneratedWebXml generatedWebXml = (WebXmlParser.GeneratedWebXml) cl
+                    .loadClass("generatedwebxml.TestWebXml").getConstructor().newInstance();
+            generatedWebXml.load(generated);
+        }
+
+        // Security constraints are held in a HashSet so compare ignoring order
+        Assert.assertEquals(sortedLines(parsed.toXml()), sortedLines(generated.toXml()));
+        Assert.assertEquals(parsed.getPublicId(), generated.getPublicId());
+    }
+
+
+    private static List<String> sortedLines(String s) {
+        List<String> lines = new ArrayList<>(Arrays.asList(s.split("\\R")));
+        Collections.sort(lines);
+        return lines;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.jfr;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class TestJfrEvents extends TomcatBaseTest {
+
+    @Test
+    public void testDisabled() {
+        try (JfrEvents.Span span = JfrEvents.phase(this, "test")) {
+            Assert.assertSame(JfrEvents.NO_SPAN, span);
+        }
+    }
+
+
+    @Test
+    public void testStartupEvents() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        File appDir = new File("test/webapp-fragments");
+        tomcat.addWebapp(null, "/test", appDir.getAbsolutePath());
+
+        Path output = new File(getTemporaryDirectory(), "startup.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            recording.enable("org.apache.tomcat.LifecycleTransition");
+            recording.enable("org.apache.tomcat.StartupPhase");
+            recording.enable("org.apache.tomcat.JarScan");
+            recording.start();
+            tomcat.start();
+            recording.stop();
+            recording.dump(output);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(output);
+
+        Set<String> phases = new HashSet<>();
+        boolean contextStart = false;
+        boolean jarScan = false;
+        for (RecordedEvent event : events) {
+            switch (event.getEventType().getName()) {
+                case "org.apache.tomcat.LifecycleTransition":
+                    if ("start".equals(event.getString("transition")) &&
+                            event.getString("component").contains("/test")) {
+                        contextStart = true;
+                    }
+                    break;
+                case "org.apache.tomcat.StartupPhase":
+                    phases.add(event.getString("phase"));
+                    break;
+                case "org.apache.tomcat.JarScan":
+                    jarScan = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        Assert.assertTrue(contextStart);
+        Assert.assertTrue(jarScan);
+        Assert.assertTrue(phases.toString(), phases.contains("webConfig"));
+        Assert.assertTrue(phases.toString(), phases.contains("webFragments"));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.modeler;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectInstance;
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLazyRegistry {
+
+    private static final String DOMAIN = "TestLazyRegistry";
+
+    private final MBeanServer platformServer = ManagementFactory.getPlatformMBeanServer();
+
+
+    @After
+    public void cleanup() throws Exception {
+        for (ObjectName name : platformServer.queryNames(new ObjectName(DOMAIN + ":*"), null)) {
+            platformServer.unregisterMBean(name);
+        }
+    }
+
+
+    @Test
+    public void testUnregisterBeforeUse() throws Exception {
+        LazyRegistry registry = new LazyRegistry();
+        ObjectName name = new ObjectName(DOMAIN + ":type=Tester,name=a");
+
+        registry.registerComponent(new TesterBean(), name, null);
+        Assert.assertFalse(platformServer.isRegistered(name));
+        Assert.assertTrue(platformServer.isRegistered(new ObjectName(DOMAIN + ":type=MBeanIndex")));
+        Assert.assertEquals(1, registry.getPendingCount());
+
+        registry.unregisterComponent(name);
+        Assert.assertEquals(0, registry.getPendingCount());
+        Assert.assertFalse(platformServer.isRegistered(name));
+        // The index is no longer required once the domain has no deferred components
+        Assert.assertFalse(platformServer.isRegistered(new ObjectName(DOMAIN + ":type=MBeanIndex")));
+    }
+
+
+    @Test
+    public void testStop() throws Exception {
+        LazyRegistry registry = new LazyRegistry();
+        ObjectName name = new ObjectName(DOMAIN + ":type=Tester,name=g");
+
+        registry.registerComponent(new TesterBean(), name, null);
+        Assert.assertTrue(platformServer.isRegistered(new ObjectName(DOMAIN + ":type=MBeanIndex")));
+
+        registry.stop();
+        Assert.assertEquals(0, registry.getPendingCount());
+        Assert.assertFalse(platformServer.isRegistered(new ObjectName(DOMAIN + ":type=MBeanIndex")));
+        Assert.assertFalse(platformServer.isRegistered(name));
+    }
+
+
+    @Test
+    public void testAccessMaterializes() throws Exception {
+        LazyRegistry registry = new LazyRegistry();
+        ObjectName name = new ObjectName(DOMAIN + ":type=Tester,name=b");
+
+        registry.registerComponent(new TesterBean(), name, null);
+        Assert.assertFalse(platformServer.isRegistered(name));
+
+        // Registration and unregistration via the server don't trigger registration
+        MBeanServer server = registry.getMBeanServer();
+        Assert.assertTrue(server.isRegistered(name));
+        Assert.assertEquals(1, registry.getPendingCount());
+
+        // Queries by name alone don't trigger registration
+        Assert.assertEquals(1, server.queryNames(new ObjectName(DOMAIN + ":type=Tester,*"), null).size());
+        Assert.assertEquals(1, registry.getPendingCount());
+
+        Assert.assertEquals("value", server.getAttribute(name, "value"));
+        Assert.assertEquals(0, registry.getPendingCount());
+        Assert.assertTrue(platformServer.isRegistered(name));
+        Assert.assertFalse(platformServer.isRegistered(new ObjectName(DOMAIN + ":type=MBeanIndex")));
+
+        // Registration is now immediate
+        ObjectName name2 = new ObjectName(DOMAIN + ":type=Tester,name=c");
+        registry.registerComponent(new TesterBean(), name2, null);
+        Assert.assertTrue(platformServer.isRegistered(name2));
+        registry.unregisterComponent(name2);
+        Assert.assertFalse(platformServer.isRegistered(name2));
+    }
+
+
+    @Test
+    public void testQueryByName() throws Exception {
+        LazyRegistry registry = new LazyRegistry();
+        ObjectName name = new ObjectName(DOMAIN + ":type=Tester,name=e");
+        ObjectName other = new ObjectName(DOMAIN + ":type=Other,name=f");
+
+        registry.registerComponent(new TesterBean(), name, null);
+        registry.registerComponent(new TesterBean(), other, null);
+
+        // As AbstractHttp11Protocol.destroy() does for upgrade protocols
+        MBeanServer server = registry.getMBeanServer();
+        Set<ObjectInstance> instances = server.queryMBeans(new ObjectName(DOMAIN + ":type=Tester,*"), null);
+        Assert.assertEquals(1, instances.size());
+        ObjectInstance instance = instances.iterator().next();
+        Assert.assertEquals(name, instance.getObjectName());
+        Assert.assertEquals(TesterBean.class.getName(), instance.getClassName());
+        registry.unregisterComponent(instance.getObjectName());
+
+        Set<ObjectName> names = server.queryNames(null, null);
+        Assert.assertTrue(names.contains(other));
+        Assert.assertFalse(names.contains(name));
+        Assert.assertTrue(names.contains(new ObjectName(DOMAIN + ":type=MBeanIndex")));
+
+        Assert.assertEquals(1, registry.getPendingCount());
+        Assert.assertFalse(platformServer.isRegistered(other));
+    }
+
+
+    @Test
+    public void testIndexAccessMaterializes() throws Exception {
+        LazyRegistry registry = new LazyRegistry();
+        ObjectName name = new ObjectName(DOMAIN + ":type=Tester,name=d");
+
+        registry.registerComponent(new TesterBean(), name, null);
+        Assert.assertFalse(platformServer.isRegistered(name));
+
+        // As a JMX client browsing the domain would
+        ObjectName indexName = new ObjectName(DOMAIN + ":type=MBeanIndex");
+        platformServer.getMBeanInfo(indexName);
+        Assert.assertFalse(platformServer.isRegistered(name));
+        Assert.assertEquals(Integer.valueOf(1), platformServer.getAttribute(indexName, "pendingCount"));
+        Assert.assertTrue(platformServer.isRegistered(name));
+        Assert.assertFalse(platformServer.isRegistered(indexName));
+    }
+
+
+    public static class TesterBean {
+
+        public String getValue() {
+            return "value";
+        }
+    }
+}